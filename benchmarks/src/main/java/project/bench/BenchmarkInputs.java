@@ -0,0 +1,69 @@
+package project.bench;
+
+import project.ucmeta.UCMetaModel.*;
+import project.ucmeta.UseCaseGenerator;
+
+/**
+ * 基准测试输入 - 用固定种子的UseCaseGenerator按规模、嵌套深度和句型组合构造用例
+ */
+public final class BenchmarkInputs {
+
+    /** 所有基准共用的种子，保证不同次运行的输入一致 */
+    public static final long SEED = 20240601L;
+
+    /**
+     * 句型组合
+     */
+    public enum Mix {
+        /** 只有简单句 */
+        SIMPLE,
+        /** 以复合句（条件检查、条件、并行、迭代）为主 */
+        CONTROL,
+        /** 九种句型都会出现，含中止、恢复步骤和全局备选流 */
+        ALL
+    }
+
+    private BenchmarkInputs() {
+    }
+
+    /**
+     * 构造约含size个句子、复合句最多嵌套depth层的用例
+     */
+    public static UseCase useCase(int size, int depth, Mix mix) {
+        return generator(size, depth, mix).generate(0);
+    }
+
+    /**
+     * 与useCase使用相同配置的生成器，用于需要整个语料的基准
+     */
+    public static UseCaseGenerator generator(int size, int depth, Mix mix) {
+        UseCaseGenerator generator = new UseCaseGenerator(SEED)
+                .setSentenceCount(size)
+                .setMaxDepth(depth)
+                .setNamePrefix("Bench_" + size + "_" + depth + "_" + mix + "_");
+        switch (mix) {
+            case SIMPLE:
+                for (SentenceType type : SentenceType.values()) {
+                    generator.setWeight(type, type == SentenceType.SIMPLE ? 1 : 0);
+                }
+                generator.setGlobalFlowRate(0);
+                break;
+            case CONTROL:
+                generator.setWeight(SentenceType.SIMPLE, 2)
+                        .setWeight(SentenceType.CONDITION_CHECK, 1)
+                        .setWeight(SentenceType.CONDITIONAL, 1)
+                        .setWeight(SentenceType.PARALLEL, 1)
+                        .setWeight(SentenceType.ITERATIVE, 1)
+                        .setWeight(SentenceType.INCLUDE, 0)
+                        .setWeight(SentenceType.EXTEND, 0)
+                        .setWeight(SentenceType.ABORT, 0)
+                        .setWeight(SentenceType.RESUME_STEP, 0)
+                        .setGlobalFlowRate(0);
+                break;
+            default:
+                generator.setGlobalFlowRate(1);
+                break;
+        }
+        return generator;
+    }
+}
@@ -0,0 +1,89 @@
+package project.bench;
+
+import org.eclipse.uml2.uml.ActivityNode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import project.rules.ActivityDiagramManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ActivityDiagramManager各create*方法与createControlFlow的单次开销
+ * 每次调用在新管理器中创建nodes个节点，结果按单个元素计时
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ManagerBenchmark {
+
+    /**
+     * 被测的创建方法
+     */
+    public enum Kind {
+        OPAQUE_ACTION, INITIAL, FINAL, DECISION, MERGE, FORK, JOIN,
+        CALL_OPERATION, CALL_BEHAVIOR, FLOW_FINAL, ACCEPT_EVENT
+    }
+
+    @Param({"100", "1000"})
+    public int nodes;
+
+    @Param
+    public Kind kind;
+
+    private String[] ids;
+
+    @Setup
+    public void setUp() {
+        ids = new String[nodes];
+        for (int i = 0; i < nodes; i++) {
+            ids[i] = "node_" + i;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public void createNodes(Blackhole blackhole) {
+        ActivityDiagramManager manager = new ActivityDiagramManager("BenchModel", "BenchActivity");
+        int repeat = 1000 / nodes;
+        for (int r = 0; r < repeat; r++) {
+            for (int i = 0; i < nodes; i++) {
+                blackhole.consume(create(manager, ids[i]));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public void createControlFlow(Blackhole blackhole) {
+        ActivityDiagramManager manager = new ActivityDiagramManager("BenchModel", "BenchActivity");
+        for (int i = 0; i < nodes; i++) {
+            manager.createCallOperationAction(ids[i], ids[i]);
+        }
+        int repeat = 1000 / nodes;
+        for (int r = 0; r < repeat; r++) {
+            for (int i = 1; i < nodes; i++) {
+                blackhole.consume(manager.createControlFlow("flow_" + r + "_" + i, ids[i - 1], ids[i], null));
+            }
+            blackhole.consume(manager.createControlFlow("flow_" + r, ids[nodes - 1], ids[0], "loop"));
+        }
+    }
+
+    private ActivityNode create(ActivityDiagramManager manager, String id) {
+        switch (kind) {
+            case OPAQUE_ACTION: return manager.createOpaqueAction(id, id);
+            case INITIAL: return manager.createInitialNode(id);
+            case FINAL: return manager.createFinalNode(id);
+            case DECISION: return manager.createDecisionNode(id);
+            case MERGE: return manager.createMergeNode(id);
+            case FORK: return manager.createForkNode(id);
+            case JOIN: return manager.createJoinNode(id);
+            case CALL_OPERATION: return manager.createCallOperationAction(id, id);
+            case CALL_BEHAVIOR: return manager.createCallBehaviorAction(id, id);
+            case FLOW_FINAL: return manager.createFlowFinalNode(id);
+            default: return manager.createAcceptEventAction(id, id);
+        }
+    }
+}
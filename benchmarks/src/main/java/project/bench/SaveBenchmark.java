@@ -0,0 +1,66 @@
+package project.bench;
+
+import org.openjdk.jmh.annotations.*;
+import project.rules.ActivityDiagramManager;
+import project.rules.SaveResult;
+import project.rules.UCMetaToActivityTransformer;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * saveToFile的开销：纯序列化、内容未变化时跳过写入、以及真正写盘三种路径
+ * 所有状态在Trial级别准备，测量中没有每次调用的Setup；写盘路径交替保存两个内容不同的模型到同一文件，
+ * 每次保存的内容都与磁盘上的不同，因此总会真正写入，无需在调用之间删除文件。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    @Param({"ALL"})
+    public BenchmarkInputs.Mix mix;
+
+    private ActivityDiagramManager manager;
+    private ActivityDiagramManager renamed; // 与manager只差活动名，用于写盘路径的交替保存
+    private boolean useRenamed;
+    private File unchangedFile;
+    private File freshFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        manager = new UCMetaToActivityTransformer(true).transformUseCase(BenchmarkInputs.useCase(size, 3, mix));
+        manager.setVerbose(false);
+        File dir = Files.createTempDirectory("save-bench").toFile();
+        unchangedFile = new File(dir, "unchanged.uml");
+        freshFile = new File(dir, "fresh.uml");
+        manager.saveToFile(unchangedFile.getPath());
+
+        renamed = new UCMetaToActivityTransformer(true).transformUseCase(BenchmarkInputs.useCase(size, 3, mix));
+        renamed.setVerbose(false);
+        renamed.getActivity().setName(renamed.getActivity().getName() + "_");
+    }
+
+    @Benchmark
+    public byte[] serializeOnly() throws Exception {
+        return manager.toXmiBytes();
+    }
+
+    @Benchmark
+    public SaveResult saveUnchanged() throws Exception {
+        return manager.saveToFile(unchangedFile.getPath());
+    }
+
+    @Benchmark
+    public SaveResult saveWrite() throws Exception {
+        useRenamed = !useRenamed;
+        return (useRenamed ? renamed : manager).saveToFile(freshFile.getPath());
+    }
+}
@@ -0,0 +1,44 @@
+package project.bench;
+
+import org.openjdk.jmh.annotations.*;
+import project.rules.ActivityDiagramManager;
+import project.rules.UCMetaToActivityTransformer;
+import project.ucmeta.UCMetaModel.UseCase;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UCMetaToActivityTransformer.transformUseCase的吞吐基准，覆盖详细图和概览图两种模式
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    @Param({"1", "3"})
+    public int depth;
+
+    @Param({"SIMPLE", "CONTROL", "ALL"})
+    public BenchmarkInputs.Mix mix;
+
+    @Param({"true", "false"})
+    public boolean detailed;
+
+    private UseCase useCase;
+
+    @Setup
+    public void setUp() {
+        useCase = BenchmarkInputs.useCase(size, depth, mix);
+    }
+
+    @Benchmark
+    public ActivityDiagramManager transformUseCase() {
+        return new UCMetaToActivityTransformer(detailed).transformUseCase(useCase);
+    }
+}
@@ -0,0 +1,293 @@
+package project.analysis;
+
+import project.graph.ActivityGraph;
+
+import java.io.File;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 两个活动图之间的结构差异
+ * 根哈希相同时直接判定无差异；否则先按模型中的ID、再按子图哈希、再按局部哈希配对节点，
+ * 剩余节点与已配对邻居的同类型邻居配对（改名的节点报告为变化），边按配对后的端点和标签匹配，整体为近线性时间。
+ * 按下标生成的ID（活动不在XML资源中且没有自定义ID时）随节点顺序变化，不参与按ID配对，只按哈希配对。
+ */
+public class ActivityDiff {
+
+    private final List<String> addedNodes = new ArrayList<>();
+    private final List<String> removedNodes = new ArrayList<>();
+    private final List<String> changedNodes = new ArrayList<>();
+    private final List<String> addedEdges = new ArrayList<>();
+    private final List<String> removedEdges = new ArrayList<>();
+    private final List<String> changedEdges = new ArrayList<>();
+
+    /**
+     * 比较两个活动图
+     */
+    public static ActivityDiff compare(ActivityGraph before, ActivityGraph after) {
+        return compare(StructuralHash.of(before), StructuralHash.of(after));
+    }
+
+    /**
+     * 使用已计算好的结构哈希比较两个活动图
+     */
+    public static ActivityDiff compare(StructuralHash beforeHash, StructuralHash afterHash) {
+        ActivityDiff diff = new ActivityDiff();
+        if (beforeHash.getRootHash() == afterHash.getRootHash()) {
+            return diff;
+        }
+        ActivityGraph before = beforeHash.getGraph();
+        ActivityGraph after = afterHash.getGraph();
+
+        int[] match = matchNodes(beforeHash, afterHash);
+        boolean[] matchedAfter = new boolean[after.getNodeCount()];
+        for (int b = 0; b < match.length; b++) {
+            if (match[b] < 0) {
+                diff.removedNodes.add(before.getNode(b).getId());
+            } else {
+                matchedAfter[match[b]] = true;
+                if (beforeHash.getLocalHash(b) != afterHash.getLocalHash(match[b])) {
+                    diff.changedNodes.add(after.getNode(match[b]).getId());
+                }
+            }
+        }
+        for (int a = 0; a < matchedAfter.length; a++) {
+            if (!matchedAfter[a]) {
+                diff.addedNodes.add(after.getNode(a).getId());
+            }
+        }
+
+        // 旧图的边按"配对到新图后的端点"分组；端点未配对的边必然被删除
+        Map<Long, List<Integer>> beforeEdges = new HashMap<>();
+        for (ActivityGraph.Edge edge : before.getEdges()) {
+            int source = match[edge.getSource()];
+            int target = match[edge.getTarget()];
+            if (source < 0 || target < 0) {
+                diff.removedEdges.add(describe(before, edge));
+            } else {
+                beforeEdges.computeIfAbsent(endpointKey(source, target), k -> new ArrayList<>()).add(edge.getIndex());
+            }
+        }
+        for (ActivityGraph.Edge edge : after.getEdges()) {
+            List<Integer> candidates = beforeEdges.get(endpointKey(edge.getSource(), edge.getTarget()));
+            if (candidates == null || candidates.isEmpty()) {
+                diff.addedEdges.add(describe(after, edge));
+                continue;
+            }
+            int picked = candidates.size() - 1;
+            for (int i = 0; i < candidates.size(); i++) {
+                if (beforeHash.getEdgeLabelHash(candidates.get(i)) == afterHash.getEdgeLabelHash(edge.getIndex())) {
+                    picked = i;
+                    break;
+                }
+            }
+            int beforeEdge = candidates.remove(picked);
+            if (beforeHash.getEdgeLabelHash(beforeEdge) != afterHash.getEdgeLabelHash(edge.getIndex())) {
+                diff.changedEdges.add(describe(after, edge));
+            }
+        }
+        for (List<Integer> remaining : beforeEdges.values()) {
+            for (int e : remaining) {
+                diff.removedEdges.add(describe(before, before.getEdge(e)));
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * 返回旧图每个节点配对到的新图节点下标，未配对为-1
+     */
+    private static int[] matchNodes(StructuralHash beforeHash, StructuralHash afterHash) {
+        ActivityGraph before = beforeHash.getGraph();
+        ActivityGraph after = afterHash.getGraph();
+        int[] match = new int[before.getNodeCount()];
+        Arrays.fill(match, -1);
+        boolean[] taken = new boolean[after.getNodeCount()];
+
+        for (int b = 0; b < match.length; b++) {
+            ActivityGraph.Node node = before.getNode(b);
+            if (!node.hasStableId()) {
+                continue;
+            }
+            ActivityGraph.Node counterpart = after.getNodeById(node.getId());
+            if (counterpart != null && counterpart.hasStableId()) {
+                match[b] = counterpart.getIndex();
+                taken[counterpart.getIndex()] = true;
+            }
+        }
+        matchByHash(match, taken, afterHash, beforeHash, true);
+        matchByHash(match, taken, afterHash, beforeHash, false);
+        matchByNeighbor(match, taken, before, after);
+        return match;
+    }
+
+    /**
+     * 未配对的旧节点经已配对的前驱（或后继）找到新图中对应位置上同类型且未配对的节点
+     */
+    private static void matchByNeighbor(int[] match, boolean[] taken, ActivityGraph before, ActivityGraph after) {
+        for (int b = 0; b < match.length; b++) {
+            if (match[b] >= 0) {
+                continue;
+            }
+            ActivityGraph.Node node = before.getNode(b);
+            for (int i = 0; i < before.getInDegree(b) && match[b] < 0; i++) {
+                int source = match[before.getEdge(before.getInEdge(b, i)).getSource()];
+                if (source < 0) {
+                    continue;
+                }
+                for (int j = 0; j < after.getOutDegree(source) && match[b] < 0; j++) {
+                    pairIfSameType(match, taken, b, node, after.getNode(after.getEdge(after.getOutEdge(source, j)).getTarget()));
+                }
+            }
+            for (int i = 0; i < before.getOutDegree(b) && match[b] < 0; i++) {
+                int target = match[before.getEdge(before.getOutEdge(b, i)).getTarget()];
+                if (target < 0) {
+                    continue;
+                }
+                for (int j = 0; j < after.getInDegree(target) && match[b] < 0; j++) {
+                    pairIfSameType(match, taken, b, node, after.getNode(after.getEdge(after.getInEdge(target, j)).getSource()));
+                }
+            }
+        }
+    }
+
+    private static void pairIfSameType(int[] match, boolean[] taken, int b, ActivityGraph.Node node, ActivityGraph.Node candidate) {
+        if (!taken[candidate.getIndex()] && candidate.getKind() == node.getKind()
+                && candidate.getUmlType().equals(node.getUmlType())) {
+            match[b] = candidate.getIndex();
+            taken[candidate.getIndex()] = true;
+        }
+    }
+
+    private static void matchByHash(int[] match, boolean[] taken, StructuralHash afterHash,
+                                    StructuralHash beforeHash, boolean subtree) {
+        Map<Long, Deque<Integer>> free = new HashMap<>();
+        for (int a = 0; a < taken.length; a++) {
+            if (!taken[a]) {
+                long h = subtree ? afterHash.getSubtreeHash(a) : afterHash.getLocalHash(a);
+                free.computeIfAbsent(h, k -> new ArrayDeque<>()).add(a);
+            }
+        }
+        if (free.isEmpty()) {
+            return;
+        }
+        for (int b = 0; b < match.length; b++) {
+            if (match[b] >= 0) {
+                continue;
+            }
+            Deque<Integer> candidates = free.get(subtree ? beforeHash.getSubtreeHash(b) : beforeHash.getLocalHash(b));
+            if (candidates != null && !candidates.isEmpty()) {
+                match[b] = candidates.poll();
+                taken[match[b]] = true;
+            }
+        }
+    }
+
+    private static long endpointKey(int source, int target) {
+        return ((long) source << 32) | (target & 0xffffffffL);
+    }
+
+    private static String describe(ActivityGraph graph, ActivityGraph.Edge edge) {
+        return graph.getNode(edge.getSource()).getId() + " -> " + graph.getNode(edge.getTarget()).getId()
+                + (edge.getName() != null ? " [" + edge.getName() + "]" : "");
+    }
+
+    public boolean isEmpty() {
+        return addedNodes.isEmpty() && removedNodes.isEmpty() && changedNodes.isEmpty()
+                && addedEdges.isEmpty() && removedEdges.isEmpty() && changedEdges.isEmpty();
+    }
+
+    public List<String> getAddedNodes() { return addedNodes; }
+    public List<String> getRemovedNodes() { return removedNodes; }
+    public List<String> getChangedNodes() { return changedNodes; }
+    public List<String> getAddedEdges() { return addedEdges; }
+    public List<String> getRemovedEdges() { return removedEdges; }
+    public List<String> getChangedEdges() { return changedEdges; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        append(sb, "+ 节点 ", addedNodes);
+        append(sb, "- 节点 ", removedNodes);
+        append(sb, "~ 节点 ", changedNodes);
+        append(sb, "+ 边 ", addedEdges);
+        append(sb, "- 边 ", removedEdges);
+        append(sb, "~ 边 ", changedEdges);
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, String prefix, List<String> items) {
+        for (String item : items) {
+            sb.append(prefix).append(item).append('\n');
+        }
+    }
+
+    /**
+     * 比较两个.uml文件或两个目录中同名的.uml文件，存在差异时以非零状态退出
+     * 用法：ActivityDiff &lt;before&gt; &lt;after&gt;
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("用法: ActivityDiff <before.uml|目录> <after.uml|目录>");
+            System.exit(2);
+        }
+        File before = new File(args[0]);
+        File after = new File(args[1]);
+        List<String> names;
+        if (before.isDirectory()) {
+            Set<String> all = new TreeSet<>();
+            all.addAll(listUmlFiles(before));
+            all.addAll(listUmlFiles(after));
+            names = new ArrayList<>(all);
+        } else {
+            names = Collections.singletonList(null);
+        }
+
+        List<String> reports = names.parallelStream()
+                .map(name -> compareFiles(name == null ? before : new File(before, name),
+                        name == null ? after : new File(after, name)))
+                .filter(report -> !report.isEmpty())
+                .collect(Collectors.toList());
+        reports.forEach(System.out::print);
+        System.out.println("比较了 " + names.size() + " 个文件，" + reports.size() + " 个存在差异");
+        System.exit(reports.isEmpty() ? 0 : 1);
+    }
+
+    private static List<String> listUmlFiles(File dir) {
+        String[] files = dir.list((d, name) -> name.endsWith(".uml"));
+        return files != null ? Arrays.asList(files) : Collections.<String>emptyList();
+    }
+
+    private static String compareFiles(File before, File after) {
+        if (!before.isFile() || !after.isFile()) {
+            return "=== " + (before.isFile() ? before : after).getName() + " 仅存在于一侧\n";
+        }
+        Map<String, ActivityGraph> beforeGraphs = byName(ActivityGraph.readActivities(before));
+        Map<String, ActivityGraph> afterGraphs = byName(ActivityGraph.readActivities(after));
+        StringBuilder report = new StringBuilder();
+        Set<String> activities = new TreeSet<>(beforeGraphs.keySet());
+        activities.addAll(afterGraphs.keySet());
+        for (String activity : activities) {
+            ActivityGraph b = beforeGraphs.get(activity);
+            ActivityGraph a = afterGraphs.get(activity);
+            if (b == null || a == null) {
+                report.append("=== ").append(after.getName()).append(" / ").append(activity)
+                        .append(b == null ? " 新增\n" : " 删除\n");
+                continue;
+            }
+            ActivityDiff diff = compare(b, a);
+            if (!diff.isEmpty()) {
+                report.append("=== ").append(after.getName()).append(" / ").append(activity).append('\n').append(diff);
+            }
+        }
+        return report.toString();
+    }
+
+    private static Map<String, ActivityGraph> byName(List<ActivityGraph> graphs) {
+        Map<String, ActivityGraph> map = new HashMap<>();
+        for (ActivityGraph graph : graphs) {
+            map.put(graph.getName(), graph);
+        }
+        return map;
+    }
+}
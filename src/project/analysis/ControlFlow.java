@@ -0,0 +1,178 @@
+package project.analysis;
+
+import project.graph.ActivityGraph;
+import project.graph.ActivityGraph.NodeKind;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 活动图控制流的基本类型数组形式，供令牌流模拟和测试路径生成共用
+ * 只保留控制流并重新编号，节点归为执行规则不同的几类；全局备选流的事件节点单独列出。
+ */
+final class ControlFlow {
+
+    static final byte ACTION = 0;
+    static final byte DECISION = 1;
+    static final byte FORK = 2;
+    static final byte JOIN = 3;
+    static final byte FLOW_FINAL = 4;
+    static final byte ACTIVITY_FINAL = 5;
+
+    final ActivityGraph graph;
+    final int nodeCount;
+    final int edgeCount;
+    final byte[] kind;
+    final int[] outStart;     // 节点 -> 出边（编译后的边号）
+    final int[] outEdges;
+    final int[] inStart;      // 节点 -> 入边
+    final int[] inEdges;
+    final int[] edgeSource;
+    final int[] edgeTarget;
+    final int[] initialNodes;
+    final int[] eventNodes;
+
+    ControlFlow(ActivityGraph graph) {
+        this.graph = graph;
+        this.nodeCount = graph.getNodeCount();
+        this.kind = new byte[nodeCount];
+        List<Integer> starts = new ArrayList<>();
+        List<Integer> events = new ArrayList<>();
+        for (ActivityGraph.Node node : graph.getNodes()) {
+            kind[node.getIndex()] = compile(node.getKind());
+            if (node.getKind() == NodeKind.INITIAL) {
+                starts.add(node.getIndex());
+            } else if (node.getKind() == NodeKind.ACCEPT_EVENT) {
+                events.add(node.getIndex());
+            }
+        }
+        initialNodes = starts.stream().mapToInt(Integer::intValue).toArray();
+        eventNodes = events.stream().mapToInt(Integer::intValue).toArray();
+
+        int[] compiled = new int[graph.getEdgeCount()];
+        int edges = 0;
+        for (ActivityGraph.Edge edge : graph.getEdges()) {
+            compiled[edge.getIndex()] = edge.isObjectFlow() ? -1 : edges++;
+        }
+        edgeCount = edges;
+        edgeSource = new int[edges];
+        edgeTarget = new int[edges];
+        outStart = new int[nodeCount + 1];
+        inStart = new int[nodeCount + 1];
+        outEdges = new int[edges];
+        inEdges = new int[edges];
+        int out = 0;
+        int in = 0;
+        for (int v = 0; v < nodeCount; v++) {
+            outStart[v] = out;
+            for (int i = 0; i < graph.getOutDegree(v); i++) {
+                int e = compiled[graph.getOutEdge(v, i)];
+                if (e >= 0) {
+                    outEdges[out++] = e;
+                    edgeSource[e] = v;
+                    edgeTarget[e] = graph.getEdge(graph.getOutEdge(v, i)).getTarget();
+                }
+            }
+            inStart[v] = in;
+            for (int i = 0; i < graph.getInDegree(v); i++) {
+                int e = compiled[graph.getInEdge(v, i)];
+                if (e >= 0) {
+                    inEdges[in++] = e;
+                }
+            }
+        }
+        outStart[nodeCount] = out;
+        inStart[nodeCount] = in;
+    }
+
+    private static byte compile(NodeKind kind) {
+        switch (kind) {
+            case DECISION:
+                return DECISION;
+            case FORK:
+                return FORK;
+            case JOIN:
+                return JOIN;
+            case FLOW_FINAL:
+                return FLOW_FINAL;
+            case ACTIVITY_FINAL:
+                return ACTIVITY_FINAL;
+            default:
+                // 动作、合并、初始节点等：消耗任一令牌，向所有出边发出
+                return ACTION;
+        }
+    }
+
+    /**
+     * 从给定节点沿控制流静态可达的节点（含起点）
+     */
+    boolean[] reach(int[]... from) {
+        return reach(false, from);
+    }
+
+    /** 终止节点不发出令牌，它的出边（转换器在中止句后接的边）永远不会被经过 */
+    boolean isFinal(int node) {
+        return kind[node] == FLOW_FINAL || kind[node] == ACTIVITY_FINAL;
+    }
+
+    /**
+     * 同上；liveOnly为true时不经过终止节点的出边
+     */
+    boolean[] reach(boolean liveOnly, int[]... from) {
+        boolean[] seen = new boolean[nodeCount];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int[] nodes : from) {
+            for (int v : nodes) {
+                if (!seen[v]) {
+                    seen[v] = true;
+                    queue.add(v);
+                }
+            }
+        }
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            if (liveOnly && isFinal(v)) {
+                continue;
+            }
+            for (int i = outStart[v]; i < outStart[v + 1]; i++) {
+                int w = edgeTarget[outEdges[i]];
+                if (!seen[w]) {
+                    seen[w] = true;
+                    queue.add(w);
+                }
+            }
+        }
+        return seen;
+    }
+
+    /**
+     * 各节点沿控制流到任一目标节点的最少边数，不可达为Integer.MAX_VALUE
+     */
+    int[] distanceTo(int... targets) {
+        int[] distance = new int[nodeCount];
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        int[] queue = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        for (int t : targets) {
+            if (distance[t] != 0) {
+                distance[t] = 0;
+                queue[tail++] = t;
+            }
+        }
+        while (head < tail) {
+            int w = queue[head++];
+            for (int i = inStart[w]; i < inStart[w + 1]; i++) {
+                int v = edgeSource[inEdges[i]];
+                if (distance[v] == Integer.MAX_VALUE) {
+                    distance[v] = distance[w] + 1;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        return distance;
+    }
+}
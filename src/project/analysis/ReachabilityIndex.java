@@ -0,0 +1,436 @@
+package project.analysis;
+
+import project.graph.ActivityGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 活动图的可达性与路径查询索引
+ * 先求强连通分量（循环句和重试边形成的环缩成一个分量），在缩点后的DAG上用位集预计算正向和反向传递闭包，
+ * 可达性和"两节点之间的所有节点"查询只需按位运算；
+ * 支配关系用Cooper-Harvey-Kennedy算法从虚拟起点（连接所有无入边的节点：初始节点和全局备选流的事件节点）计算，
+ * 在支配树上记录先序/后序编号后，支配查询为常数时间。
+ */
+public class ReachabilityIndex {
+
+    private final ActivityGraph graph;
+    private final boolean includeObjectFlows;
+    private final StronglyConnectedComponents components;
+    private final int words;              // 每个分量位集的long个数
+    private final long[] forward;         // 分量c可达的分量集合，位于[c*words, (c+1)*words)
+    private final long[] backward;        // 能到达分量c的分量集合
+    private final int[] componentStart;   // 分量 -> 节点列表（CSR）
+    private final int[] componentNodes;
+    private final int[] idom;             // 直接支配节点，虚拟起点为n，从起点不可达时为-1
+    private final int[] preorder;         // 支配树先序编号
+    private final int[] postorder;        // 支配树后序编号
+
+    public ReachabilityIndex(ActivityGraph graph) {
+        this(graph, false);
+    }
+
+    /**
+     * includeObjectFlows为false时只沿控制流计算
+     */
+    public ReachabilityIndex(ActivityGraph graph, boolean includeObjectFlows) {
+        this.graph = graph;
+        this.includeObjectFlows = includeObjectFlows;
+        this.components = new StronglyConnectedComponents(graph, includeObjectFlows);
+        int n = graph.getNodeCount();
+        int count = components.getCount();
+        this.words = Math.max(1, (count + 63) >>> 6);
+
+        componentStart = new int[count + 1];
+        for (int v = 0; v < n; v++) {
+            componentStart[components.componentOf(v) + 1]++;
+        }
+        for (int c = 0; c < count; c++) {
+            componentStart[c + 1] += componentStart[c];
+        }
+        componentNodes = new int[n];
+        int[] fill = Arrays.copyOf(componentStart, count);
+        for (int v = 0; v < n; v++) {
+            componentNodes[fill[components.componentOf(v)]++] = v;
+        }
+
+        forward = new long[count * words];
+        backward = new long[count * words];
+        computeClosures(count);
+
+        idom = new int[n + 1];
+        preorder = new int[n + 1];
+        postorder = new int[n + 1];
+        computeDominators(n);
+    }
+
+    /**
+     * 分量按逆拓扑序编号，边只从编号大的分量指向编号小或相同的分量：
+     * 正向闭包按编号从小到大合并后继，反向闭包按编号从大到小合并前驱
+     */
+    private void computeClosures(int count) {
+        for (int c = 0; c < count; c++) {
+            setBit(forward, c, c);
+            for (int i = componentStart[c]; i < componentStart[c + 1]; i++) {
+                int v = componentNodes[i];
+                for (int e = 0; e < graph.getOutDegree(v); e++) {
+                    int target = target(graph.getOutEdge(v, e));
+                    int d = target < 0 ? c : components.componentOf(target);
+                    if (d != c) {
+                        orInto(forward, c, d);
+                    }
+                }
+            }
+        }
+        for (int c = count - 1; c >= 0; c--) {
+            setBit(backward, c, c);
+            for (int i = componentStart[c]; i < componentStart[c + 1]; i++) {
+                int v = componentNodes[i];
+                for (int e = 0; e < graph.getInDegree(v); e++) {
+                    int source = source(graph.getInEdge(v, e));
+                    int d = source < 0 ? c : components.componentOf(source);
+                    if (d != c) {
+                        orInto(backward, c, d);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Cooper-Harvey-Kennedy迭代支配算法；节点n是虚拟起点，指向所有没有入边的节点
+     */
+    private void computeDominators(int n) {
+        int root = n;
+        // 从虚拟起点做迭代DFS，求后序编号
+        int[] order = new int[n + 1];      // 后序序列
+        int[] postNumber = new int[n + 1];
+        Arrays.fill(postNumber, -1);
+        boolean[] visited = new boolean[n + 1];
+        int[] stackNode = new int[n + 1];
+        int[] stackEdge = new int[n + 1];
+        List<Integer> roots = new ArrayList<>();
+        for (int v = 0; v < n; v++) {
+            if (inDegree(v) == 0) {
+                roots.add(v);
+            }
+        }
+        int ordered = 0;
+        int depth = 0;
+        stackNode[0] = root;
+        stackEdge[0] = 0;
+        visited[root] = true;
+        while (depth >= 0) {
+            int v = stackNode[depth];
+            int next = -1;
+            while (next < 0 && stackEdge[depth] < (v == root ? roots.size() : graph.getOutDegree(v))) {
+                int w = v == root ? roots.get(stackEdge[depth]++) : target(graph.getOutEdge(v, stackEdge[depth]++));
+                if (w >= 0 && !visited[w]) {
+                    next = w;
+                }
+            }
+            if (next >= 0) {
+                visited[next] = true;
+                depth++;
+                stackNode[depth] = next;
+                stackEdge[depth] = 0;
+            } else {
+                postNumber[v] = ordered;
+                order[ordered++] = v;
+                depth--;
+            }
+        }
+
+        Arrays.fill(idom, -1);
+        idom[root] = root;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            // 逆后序（跳过起点）
+            for (int i = ordered - 2; i >= 0; i--) {
+                int b = order[i];
+                int newIdom = -1;
+                int preds = b < n ? inDegree(b) : 0;
+                if (b < n && preds == 0) {
+                    newIdom = root;
+                }
+                for (int e = 0; e < graph.getInDegree(b); e++) {
+                    int p = source(graph.getInEdge(b, e));
+                    if (p < 0 || idom[p] < 0) {
+                        continue;
+                    }
+                    newIdom = newIdom < 0 ? p : intersect(p, newIdom, postNumber);
+                }
+                if (newIdom >= 0 && idom[b] != newIdom) {
+                    idom[b] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+
+        // 支配树的先序/后序编号：a支配b当且仅当b在a的子树中
+        int[] childStart = new int[n + 2];
+        for (int v = 0; v < n; v++) {
+            if (idom[v] >= 0) {
+                childStart[idom[v] + 1]++;
+            }
+        }
+        for (int v = 0; v <= n; v++) {
+            childStart[v + 1] += childStart[v];
+        }
+        int[] children = new int[n];
+        int[] fill = Arrays.copyOf(childStart, n + 1);
+        for (int v = 0; v < n; v++) {
+            if (idom[v] >= 0) {
+                children[fill[idom[v]]++] = v;
+            }
+        }
+        Arrays.fill(preorder, -1);
+        Arrays.fill(postorder, -1);
+        int pre = 0;
+        int post = 0;
+        depth = 0;
+        stackNode[0] = root;
+        stackEdge[0] = childStart[root];
+        preorder[root] = pre++;
+        while (depth >= 0) {
+            int v = stackNode[depth];
+            if (stackEdge[depth] < childStart[v + 1]) {
+                int child = children[stackEdge[depth]++];
+                preorder[child] = pre++;
+                depth++;
+                stackNode[depth] = child;
+                stackEdge[depth] = childStart[child];
+            } else {
+                postorder[v] = post++;
+                depth--;
+            }
+        }
+    }
+
+    private int intersect(int a, int b, int[] postNumber) {
+        while (a != b) {
+            while (postNumber[a] < postNumber[b]) {
+                a = idom[a];
+            }
+            while (postNumber[b] < postNumber[a]) {
+                b = idom[b];
+            }
+        }
+        return a;
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * from能否沿流到达to（from等于to时为true）
+     */
+    public boolean canReach(int from, int to) {
+        return testBit(forward, components.componentOf(from), components.componentOf(to));
+    }
+
+    public boolean canReach(String fromId, String toId) {
+        return canReach(indexOf(fromId), indexOf(toId));
+    }
+
+    /**
+     * 节点是否在环上（循环句、重试边等）
+     */
+    public boolean isOnCycle(int node) {
+        int c = components.componentOf(node);
+        if (componentStart[c + 1] - componentStart[c] > 1) {
+            return true;
+        }
+        for (int e = 0; e < graph.getOutDegree(node); e++) {
+            if (target(graph.getOutEdge(node, e)) == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 从node可达的所有节点（含自身）
+     */
+    public List<ActivityGraph.Node> reachableFrom(int node) {
+        return nodesIn(rowCopy(forward, components.componentOf(node)));
+    }
+
+    /**
+     * 能到达node的所有节点（含自身）
+     */
+    public List<ActivityGraph.Node> reaching(int node) {
+        return nodesIn(rowCopy(backward, components.componentOf(node)));
+    }
+
+    /**
+     * 位于from到to的某条路径上的所有节点（含两端）；不可达时为空，
+     * 例如分叉与汇合之间的所有动作
+     */
+    public List<ActivityGraph.Node> between(int from, int to) {
+        long[] row = rowCopy(forward, components.componentOf(from));
+        int base = components.componentOf(to) * words;
+        for (int w = 0; w < words; w++) {
+            row[w] &= backward[base + w];
+        }
+        return nodesIn(row);
+    }
+
+    public List<ActivityGraph.Node> between(String fromId, String toId) {
+        return between(indexOf(fromId), indexOf(toId));
+    }
+
+    /**
+     * a是否支配b：从任一起点到b的每条路径都经过a（a等于b时为true）；b从起点不可达时只有a等于b为true
+     */
+    public boolean dominates(int a, int b) {
+        if (a == b) {
+            return true;
+        }
+        if (preorder[a] < 0 || preorder[b] < 0) {
+            return false;
+        }
+        return preorder[a] <= preorder[b] && postorder[b] <= postorder[a];
+    }
+
+    public boolean dominates(String aId, String bId) {
+        return dominates(indexOf(aId), indexOf(bId));
+    }
+
+    /**
+     * 直接支配节点的下标；直接支配者是虚拟起点或节点从起点不可达时返回-1
+     */
+    public int getImmediateDominator(int node) {
+        int d = idom[node];
+        return d == graph.getNodeCount() ? -1 : d;
+    }
+
+    /**
+     * 从起点出发能否不经过avoid到达to，例如"能否不经过检查步骤到达结束节点"；等价于to可达且avoid不支配to
+     */
+    public boolean reachableFromStartAvoiding(int to, int avoid) {
+        return preorder[to] >= 0 && !dominates(avoid, to);
+    }
+
+    public boolean reachableFromStartAvoiding(String toId, String avoidId) {
+        return reachableFromStartAvoiding(indexOf(toId), indexOf(avoidId));
+    }
+
+    /**
+     * from能否不经过avoid到达to；先用闭包排除不可达的情况，再在必要时做一次避开avoid的广度优先搜索
+     */
+    public boolean canReachAvoiding(int from, int to, int avoid) {
+        if (from == avoid || to == avoid || !canReach(from, to)) {
+            return false;
+        }
+        if (from == to) {
+            return true;
+        }
+        // avoid与from、to都不在同一路径上时不影响结果
+        if (!canReach(from, avoid) || !canReach(avoid, to)) {
+            return true;
+        }
+        int n = graph.getNodeCount();
+        boolean[] visited = new boolean[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = from;
+        visited[from] = true;
+        visited[avoid] = true;
+        while (head < tail) {
+            int v = queue[head++];
+            for (int e = 0; e < graph.getOutDegree(v); e++) {
+                int w = target(graph.getOutEdge(v, e));
+                if (w < 0 || visited[w]) {
+                    continue;
+                }
+                if (w == to) {
+                    return true;
+                }
+                // 只沿仍能到达to的节点扩展
+                if (canReach(w, to)) {
+                    visited[w] = true;
+                    queue[tail++] = w;
+                }
+            }
+        }
+        return false;
+    }
+
+    public boolean canReachAvoiding(String fromId, String toId, String avoidId) {
+        return canReachAvoiding(indexOf(fromId), indexOf(toId), indexOf(avoidId));
+    }
+
+    public StronglyConnectedComponents getComponents() {
+        return components;
+    }
+
+    // ==================== 内部 ====================
+
+    private int indexOf(String id) {
+        ActivityGraph.Node node = graph.getNodeById(id);
+        if (node == null) {
+            throw new IllegalArgumentException("Node not found: " + id);
+        }
+        return node.getIndex();
+    }
+
+    /** 边的目标节点，被排除的对象流返回-1 */
+    private int target(int edgeIndex) {
+        ActivityGraph.Edge edge = graph.getEdge(edgeIndex);
+        return edge.isObjectFlow() && !includeObjectFlows ? -1 : edge.getTarget();
+    }
+
+    private int source(int edgeIndex) {
+        ActivityGraph.Edge edge = graph.getEdge(edgeIndex);
+        return edge.isObjectFlow() && !includeObjectFlows ? -1 : edge.getSource();
+    }
+
+    private int inDegree(int node) {
+        int degree = 0;
+        for (int e = 0; e < graph.getInDegree(node); e++) {
+            if (source(graph.getInEdge(node, e)) >= 0) {
+                degree++;
+            }
+        }
+        return degree;
+    }
+
+    private List<ActivityGraph.Node> nodesIn(long[] componentBits) {
+        List<ActivityGraph.Node> result = new ArrayList<>();
+        for (int w = 0; w < componentBits.length; w++) {
+            long bits = componentBits[w];
+            while (bits != 0) {
+                int c = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                for (int i = componentStart[c]; i < componentStart[c + 1]; i++) {
+                    result.add(graph.getNode(componentNodes[i]));
+                }
+            }
+        }
+        result.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+        return result;
+    }
+
+    private long[] rowCopy(long[] bits, int row) {
+        return Arrays.copyOfRange(bits, row * words, (row + 1) * words);
+    }
+
+    private void setBit(long[] bits, int row, int column) {
+        bits[row * words + (column >>> 6)] |= 1L << column;
+    }
+
+    private boolean testBit(long[] bits, int row, int column) {
+        return (bits[row * words + (column >>> 6)] & (1L << column)) != 0;
+    }
+
+    private void orInto(long[] bits, int row, int from) {
+        int target = row * words;
+        int source = from * words;
+        for (int w = 0; w < words; w++) {
+            bits[target + w] |= bits[source + w];
+        }
+    }
+}
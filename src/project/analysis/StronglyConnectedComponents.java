@@ -0,0 +1,90 @@
+package project.analysis;
+
+import project.graph.ActivityGraph;
+
+import java.util.Arrays;
+
+/**
+ * 活动图的强连通分量（迭代版Tarjan算法，避免深图递归栈溢出）
+ * 分量编号按Tarjan的完成顺序给出，即逆拓扑序：边只会从编号大的分量指向编号小或相同的分量
+ */
+public class StronglyConnectedComponents {
+
+    private final int[] component;
+    private final int count;
+
+    public StronglyConnectedComponents(ActivityGraph graph, boolean includeObjectFlows) {
+        int n = graph.getNodeCount();
+        component = new int[n];
+        Arrays.fill(component, -1);
+
+        int[] index = new int[n];
+        int[] low = new int[n];
+        Arrays.fill(index, -1);
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int stackSize = 0;
+        int[] callNode = new int[n];
+        int[] callEdge = new int[n];
+        int nextIndex = 0;
+        int components = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            callNode[0] = root;
+            callEdge[0] = 0;
+            index[root] = low[root] = nextIndex++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int v = callNode[depth];
+                if (callEdge[depth] < graph.getOutDegree(v)) {
+                    ActivityGraph.Edge edge = graph.getEdge(graph.getOutEdge(v, callEdge[depth]++));
+                    if (edge.isObjectFlow() && !includeObjectFlows) {
+                        continue;
+                    }
+                    int w = edge.getTarget();
+                    if (index[w] < 0) {
+                        index[w] = low[w] = nextIndex++;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        depth++;
+                        callNode[depth] = w;
+                        callEdge[depth] = 0;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                } else {
+                    if (low[v] == index[v]) {
+                        int w;
+                        do {
+                            w = stack[--stackSize];
+                            onStack[w] = false;
+                            component[w] = components;
+                        } while (w != v);
+                        components++;
+                    }
+                    depth--;
+                    if (depth >= 0) {
+                        int parent = callNode[depth];
+                        low[parent] = Math.min(low[parent], low[v]);
+                    }
+                }
+            }
+        }
+        count = components;
+    }
+
+    /** 节点所属分量的编号 */
+    public int componentOf(int node) {
+        return component[node];
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
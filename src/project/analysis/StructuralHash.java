@@ -0,0 +1,172 @@
+package project.analysis;
+
+import project.graph.ActivityGraph;
+
+import java.util.Arrays;
+
+/**
+ * 活动图的规范结构哈希（Merkle哈希）
+ * 与元素顺序和ID无关：节点的局部哈希只取UML类型、名称和引脚，
+ * 在强连通分量的缩合图上自底向上组合得到每个节点的子图哈希，
+ * 所有子图哈希与约束的有序组合即整张图的根哈希。
+ */
+public class StructuralHash {
+
+    private final ActivityGraph graph;
+    private final long[] localHashes;
+    private final long[] subtreeHashes;
+    private final long[] edgeLabelHashes;
+    private final long rootHash;
+
+    private StructuralHash(ActivityGraph graph, long[] localHashes, long[] subtreeHashes,
+                           long[] edgeLabelHashes, long rootHash) {
+        this.graph = graph;
+        this.localHashes = localHashes;
+        this.subtreeHashes = subtreeHashes;
+        this.edgeLabelHashes = edgeLabelHashes;
+        this.rootHash = rootHash;
+    }
+
+    /**
+     * 计算图的结构哈希，时间复杂度为O((V+E)log(V+E))
+     */
+    public static StructuralHash of(ActivityGraph graph) {
+        int n = graph.getNodeCount();
+        int m = graph.getEdgeCount();
+
+        long[] local = new long[n];
+        for (int i = 0; i < n; i++) {
+            ActivityGraph.Node node = graph.getNode(i);
+            String[] pins = node.getPins().toArray(new String[0]);
+            Arrays.sort(pins);
+            long h = mix(hash(node.getUmlType()), hash(node.getName()));
+            for (String pin : pins) {
+                h = mix(h, hash(pin));
+            }
+            local[i] = h;
+        }
+
+        long[] edgeLabels = new long[m];
+        for (int e = 0; e < m; e++) {
+            ActivityGraph.Edge edge = graph.getEdge(e);
+            edgeLabels[e] = mix(hash(edge.getName()), edge.isObjectFlow() ? 1 : 2);
+        }
+
+        // 按分量分组节点（计数排序）
+        StronglyConnectedComponents scc = new StronglyConnectedComponents(graph, true);
+        int count = scc.getCount();
+        int[] start = new int[count + 1];
+        for (int i = 0; i < n; i++) {
+            start[scc.componentOf(i) + 1]++;
+        }
+        for (int c = 0; c < count; c++) {
+            start[c + 1] += start[c];
+        }
+        int[] members = new int[n];
+        int[] fill = Arrays.copyOf(start, count);
+        for (int i = 0; i < n; i++) {
+            members[fill[scc.componentOf(i)]++] = i;
+        }
+
+        // 分量编号为逆拓扑序，后继分量总是先完成
+        long[] componentHashes = new long[count];
+        for (int c = 0; c < count; c++) {
+            int size = start[c + 1] - start[c];
+            long[] memberHashes = new long[size];
+            int edgeTotal = 0;
+            for (int k = 0; k < size; k++) {
+                int v = members[start[c] + k];
+                memberHashes[k] = local[v];
+                edgeTotal += graph.getOutDegree(v);
+            }
+            long[] inner = new long[edgeTotal];
+            long[] outer = new long[edgeTotal];
+            int innerSize = 0;
+            int outerSize = 0;
+            for (int k = 0; k < size; k++) {
+                int v = members[start[c] + k];
+                for (int j = 0; j < graph.getOutDegree(v); j++) {
+                    int e = graph.getOutEdge(v, j);
+                    int w = graph.getEdge(e).getTarget();
+                    int target = scc.componentOf(w);
+                    if (target == c) {
+                        inner[innerSize++] = mix(mix(local[v], edgeLabels[e]), local[w]);
+                    } else {
+                        outer[outerSize++] = mix(mix(local[v], edgeLabels[e]), componentHashes[target]);
+                    }
+                }
+            }
+            long h = combineSorted(0x5CC, memberHashes, size);
+            h = combineSorted(h, inner, innerSize);
+            componentHashes[c] = combineSorted(h, outer, outerSize);
+        }
+
+        long[] subtree = new long[n];
+        for (int i = 0; i < n; i++) {
+            subtree[i] = mix(local[i], componentHashes[scc.componentOf(i)]);
+        }
+
+        long[] constraints = new long[graph.getConstraints().size()];
+        for (int i = 0; i < constraints.length; i++) {
+            constraints[i] = hash(graph.getConstraints().get(i));
+        }
+        long root = combineSorted(0xAC7, subtree.clone(), n);
+        root = combineSorted(root, constraints, constraints.length);
+
+        return new StructuralHash(graph, local, subtree, edgeLabels, root);
+    }
+
+    public ActivityGraph getGraph() { return graph; }
+
+    /** 整张图的根哈希 */
+    public long getRootHash() { return rootHash; }
+
+    /** 节点自身（类型、名称、引脚）的哈希 */
+    public long getLocalHash(int node) { return localHashes[node]; }
+
+    /** 节点及其可达子图的Merkle哈希 */
+    public long getSubtreeHash(int node) { return subtreeHashes[node]; }
+
+    /** 边标签（名称和流类型）的哈希 */
+    public long getEdgeLabelHash(int edge) { return edgeLabelHashes[edge]; }
+
+    public String getRootHashHex() {
+        return String.format("%016x", rootHash);
+    }
+
+    private static long combineSorted(long seed, long[] values, int size) {
+        Arrays.sort(values, 0, size);
+        long h = mix(seed, size);
+        for (int i = 0; i < size; i++) {
+            h = mix(h, values[i]);
+        }
+        return h;
+    }
+
+    static long hash(String value) {
+        if (value == null) {
+            return 0x6E756C6CL;
+        }
+        // FNV-1a 64位
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return finalizeHash(h);
+    }
+
+    static long mix(long h, long value) {
+        return finalizeHash(h * 31 + value + 0x9E3779B97F4A7C15L);
+    }
+
+    private static long finalizeHash(long h) {
+        // MurmurHash3 fmix64
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,1150 @@
+package project.analysis;
+
+import project.analysis.TokenFlowSimulator.Outcome;
+import project.graph.ActivityGraph;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 由活动图生成测试路径，支持节点、边、主路径（prime path）、基本路径覆盖和有界的全路径枚举
+ * 路径按令牌流语义执行（与TokenFlowSimulator相同），调度固定为后进先出：分叉后按出边顺序先走完一个分支再走下一个，
+ * 汇合在所有分支到达后触发，因此一条测试路径就是一个串行化的场景，只由各决策的选择决定。
+ * 循环按决策出边展开：每条决策出边在一条路径中最多被选择 loopBound+1 次，超出的选择不可用。
+ * 测试需求只取从初始节点或事件节点可达的部分，不经过终止节点的出边（令牌在终止节点被消耗）。
+ * 节点/边/主路径覆盖对每个测试需求做一次定向执行（决策选择离下一个需求节点最近的分支，完成后走最近的终点），
+ * 按路径的增量哈希去重后贪心选出覆盖全部已满足需求的较小路径集；基本路径从基线路径出发，依次翻转每个决策（McCabe基线法）。
+ * 全路径枚举把每条路径的决策选择序列作为前缀，在后续每个决策的其他分支上派生子任务，每条路径恰好执行一次；
+ * 子任务提交到ForkJoinPool，由工作窃取在线程间均衡。
+ */
+public class TestPathGenerator {
+
+    /** 测试路径sidecar文件的扩展名（追加在输出文件名后） */
+    public static final String EXTENSION = ".paths";
+
+    /**
+     * 覆盖准则
+     */
+    public enum Criterion {
+        /** 每个可达节点至少经过一次 */
+        NODE,
+        /** 每条可达控制流至少经过一次 */
+        EDGE,
+        /** 每条主路径（不是其他简单路径的真子路径的简单路径）被某条测试路径按因果顺序经过 */
+        PRIME,
+        /** McCabe基本路径：每条路径相对已有路径至少翻转一个决策 */
+        BASIS,
+        /** 循环展开界内所有决策选择组合的路径（每种组合按默认调度取一种交错） */
+        ALL;
+
+        public static Criterion forName(String name) {
+            for (Criterion criterion : values()) {
+                if (criterion.name().equalsIgnoreCase(name)) {
+                    return criterion;
+                }
+            }
+            throw new IllegalArgumentException("Unknown test path criterion: " + name);
+        }
+    }
+
+    /**
+     * 一条测试路径
+     */
+    public static class TestPath {
+        private final ActivityGraph graph;
+        private final int[] nodes;
+        private final int[] decisions;   // 决策节点和目标节点交替存放
+        private final Outcome outcome;
+        private final long hash;
+
+        TestPath(ActivityGraph graph, int[] nodes, int[] decisions, Outcome outcome, long hash) {
+            this.graph = graph;
+            this.nodes = nodes;
+            this.decisions = decisions;
+            this.outcome = outcome;
+            this.hash = hash;
+        }
+
+        /** 按触发顺序的节点ID，第一个为初始节点或事件节点 */
+        public List<String> getNodeIds() {
+            List<String> ids = new ArrayList<>(nodes.length);
+            for (int v : nodes) {
+                ids.add(graph.getNode(v).getId());
+            }
+            return ids;
+        }
+
+        /** 按顺序的决策选择，形如"决策ID->目标ID" */
+        public List<String> getDecisions() {
+            List<String> result = new ArrayList<>(decisions.length / 2);
+            for (int i = 0; i < decisions.length; i += 2) {
+                result.add(graph.getNode(decisions[i]).getId() + "->" + graph.getNode(decisions[i + 1]).getId());
+            }
+            return result;
+        }
+
+        public int getLength() { return nodes.length; }
+        public Outcome getOutcome() { return outcome; }
+        /** 节点序列和结果的64位增量哈希，用于去重 */
+        public long getHash() { return hash; }
+
+        @Override
+        public String toString() {
+            return outcome + "\t" + String.join(" ", getNodeIds());
+        }
+    }
+
+    /**
+     * 生成结果
+     */
+    public static class Result {
+        private final Criterion criterion;
+        private final List<TestPath> paths;
+        private final int requirements;
+        private final List<String> unsatisfied;
+        private final long executions;
+        private final long pruned;
+        private final boolean truncated;
+        private final long elapsedNanos;
+
+        Result(Criterion criterion, List<TestPath> paths, int requirements, List<String> unsatisfied,
+               long executions, long pruned, boolean truncated, long elapsedNanos) {
+            this.criterion = criterion;
+            this.paths = paths;
+            this.requirements = requirements;
+            this.unsatisfied = unsatisfied;
+            this.executions = executions;
+            this.pruned = pruned;
+            this.truncated = truncated;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Criterion getCriterion() { return criterion; }
+        public List<TestPath> getPaths() { return paths; }
+        /** 测试需求数（节点、边、主路径或决策出边）；全路径枚举为0 */
+        public int getRequirements() { return requirements; }
+        /** 没有路径满足的测试需求，每项为空格分隔的节点ID */
+        public List<String> getUnsatisfied() { return unsatisfied; }
+        public long getExecutions() { return executions; }
+        /** 因循环展开界或步数上限被放弃的执行次数 */
+        public long getPruned() { return pruned; }
+        /** 路径数、主路径数或搜索量达到上限，结果不完整 */
+        public boolean isTruncated() { return truncated; }
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+        public double getCoverage() {
+            return requirements == 0 ? 1.0 : (requirements - unsatisfied.size()) / (double) requirements;
+        }
+
+        /**
+         * 文本形式：首行为注释，之后每行一条路径（结果、制表符、空格分隔的节点ID），未满足的需求以"# unsatisfied"开头
+         */
+        public byte[] toBytes() {
+            StringBuilder text = new StringBuilder();
+            text.append("# ").append(criterion).append(' ').append(paths.size()).append(" paths, ")
+                    .append(requirements - unsatisfied.size()).append('/').append(requirements).append(" requirements")
+                    .append(truncated ? ", truncated" : "").append('\n');
+            for (TestPath path : paths) {
+                text.append(path).append('\n');
+            }
+            for (String requirement : unsatisfied) {
+                text.append("# unsatisfied ").append(requirement).append('\n');
+            }
+            return text.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        /**
+         * 写为sidecar文件，先写临时文件再原子替换
+         */
+        public void write(Path file) throws IOException {
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, toBytes());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s：%d 条路径，满足 %d/%d 个测试需求（%.1f%%），执行 %d 次，放弃 %d 次%s，用时 %d ms",
+                    criterion, paths.size(), requirements - unsatisfied.size(), requirements, getCoverage() * 100,
+                    executions, pruned, truncated ? "，结果不完整" : "", getElapsedMillis());
+        }
+    }
+
+    // 执行结果编码：0..3 为Outcome的序号，超出循环展开界的执行放弃
+    private static final int BOUNDED = -1;
+
+    private final ActivityGraph graph;
+    private final ControlFlow flow;
+    private final int[] starts;            // 初始节点在前，然后是事件节点
+    private final boolean[][] reachFromStart;
+    private final int[] toEnd;             // 到活动终止节点的距离
+    private final int[] toSink;            // 到任一终止节点或无出边节点的距离
+    private final ConcurrentHashMap<Integer, int[]> distances = new ConcurrentHashMap<>();
+
+    private int loopBound = 1;
+    private int maxSteps = 10_000;
+    private int maxPaths = 100_000;
+    private int maxRequirements = 10_000;
+    private long maxSearch = 2_000_000;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    public TestPathGenerator(ActivityGraph graph) {
+        this.graph = graph;
+        this.flow = new ControlFlow(graph);
+        this.starts = new int[flow.initialNodes.length + flow.eventNodes.length];
+        System.arraycopy(flow.initialNodes, 0, starts, 0, flow.initialNodes.length);
+        System.arraycopy(flow.eventNodes, 0, starts, flow.initialNodes.length, flow.eventNodes.length);
+        this.reachFromStart = new boolean[starts.length][];
+        for (int i = 0; i < starts.length; i++) {
+            reachFromStart[i] = flow.reach(true, new int[]{starts[i]});
+        }
+        List<Integer> finals = new ArrayList<>();
+        List<Integer> sinks = new ArrayList<>();
+        for (int v = 0; v < flow.nodeCount; v++) {
+            if (flow.kind[v] == ControlFlow.ACTIVITY_FINAL) {
+                finals.add(v);
+            }
+            if (flow.kind[v] == ControlFlow.ACTIVITY_FINAL || flow.kind[v] == ControlFlow.FLOW_FINAL
+                    || flow.outStart[v + 1] == flow.outStart[v]) {
+                sinks.add(v);
+            }
+        }
+        this.toEnd = flow.distanceTo(finals.stream().mapToInt(Integer::intValue).toArray());
+        this.toSink = flow.distanceTo(sinks.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * 循环展开界：每条决策出边在一条路径中最多被选择 loopBound+1 次，0表示不重复进入任何循环（默认 1）
+     */
+    public TestPathGenerator setLoopBound(int loopBound) {
+        if (loopBound < 0) {
+            throw new IllegalArgumentException("loopBound must not be negative");
+        }
+        this.loopBound = loopBound;
+        return this;
+    }
+
+    /** 单条路径的最大触发次数，超过的执行放弃 */
+    public TestPathGenerator setMaxSteps(int maxSteps) {
+        if (maxSteps < 1) {
+            throw new IllegalArgumentException("maxSteps must be at least 1");
+        }
+        this.maxSteps = maxSteps;
+        return this;
+    }
+
+    /** 全路径枚举最多保留的路径数 */
+    public TestPathGenerator setMaxPaths(int maxPaths) {
+        if (maxPaths < 1) {
+            throw new IllegalArgumentException("maxPaths must be at least 1");
+        }
+        this.maxPaths = maxPaths;
+        return this;
+    }
+
+    /** 主路径覆盖最多使用的主路径数 */
+    public TestPathGenerator setMaxRequirements(int maxRequirements) {
+        if (maxRequirements < 1) {
+            throw new IllegalArgumentException("maxRequirements must be at least 1");
+        }
+        this.maxRequirements = maxRequirements;
+        return this;
+    }
+
+    public TestPathGenerator setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * 按覆盖准则生成测试路径
+     */
+    public Result generate(Criterion criterion) {
+        long start = System.nanoTime();
+        Search search = new Search();
+        ForkJoinPool pool = threads == 1 ? null : new ForkJoinPool(threads);
+        try {
+            switch (criterion) {
+                case ALL:
+                    return search.all(pool, start);
+                case BASIS:
+                    return search.basis(start);
+                default:
+                    return search.cover(criterion, pool, start);
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /** 输出文件对应的sidecar路径 */
+    public static Path sidecar(Path outputFile) {
+        return outputFile.resolveSibling(outputFile.getFileName() + EXTENSION);
+    }
+
+    // ==================== 搜索 ====================
+
+    /**
+     * 一次generate调用的共享状态：去重集合和计数器
+     */
+    private final class Search {
+        private final Set<Long> seen = ConcurrentHashMap.newKeySet();
+        private final AtomicLong executions = new AtomicLong();
+        private final AtomicLong pruned = new AtomicLong();
+        private final AtomicBoolean truncated = new AtomicBoolean();
+        private final ThreadLocal<Run> runs = ThreadLocal.withInitial(Run::new);
+
+        /**
+         * 执行一次并在路径未放弃时取快照；causal为false时不保留因果关系和可用分支
+         */
+        private Candidate execute(Run run, int startIndex, int[] prefix, int[] goal, boolean causal) {
+            int outcome = run.execute(starts[startIndex], prefix, goal);
+            executions.incrementAndGet();
+            if (outcome == BOUNDED || outcome == Outcome.STEP_LIMIT.ordinal()) {
+                pruned.incrementAndGet();
+                return null;
+            }
+            return new Candidate(run, startIndex, outcome, causal);
+        }
+
+        // ---------- 节点/边/主路径覆盖 ----------
+
+        Result cover(Criterion criterion, ForkJoinPool pool, long startNanos) {
+            List<int[]> requirements = requirements(criterion);
+            Candidate[] candidates = new Candidate[requirements.size()];
+            invoke(pool, new Directed(requirements, candidates, 0, requirements.size()));
+
+            // 按需求顺序去重
+            List<Candidate> unique = new ArrayList<>();
+            Set<Long> hashes = new HashSet<>();
+            for (Candidate candidate : candidates) {
+                if (candidate != null && hashes.add(candidate.hash)) {
+                    unique.add(candidate);
+                }
+            }
+            int[][] toured = new int[unique.size()][];
+            invoke(pool, new Coverage(unique, requirements, toured, 0, unique.size()));
+
+            boolean[] covered = new boolean[requirements.size()];
+            List<TestPath> paths = new ArrayList<>();
+            for (int index : greedyCover(toured, covered)) {
+                paths.add(unique.get(index).toTestPath());
+            }
+            return result(criterion, paths, requirements, covered, startNanos);
+        }
+
+        /**
+         * 对一段需求做定向执行；每个任务使用当前线程的Run
+         */
+        private final class Directed extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            private static final int CHUNK = 16;
+            private final List<int[]> requirements;
+            private final Candidate[] candidates;
+            private final int from;
+            private final int to;
+
+            Directed(List<int[]> requirements, Candidate[] candidates, int from, int to) {
+                this.requirements = requirements;
+                this.candidates = candidates;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > CHUNK) {
+                    int middle = (from + to) >>> 1;
+                    invokeAll(new Directed(requirements, candidates, from, middle),
+                            new Directed(requirements, candidates, middle, to));
+                    return;
+                }
+                Run run = runs.get();
+                for (int r = from; r < to; r++) {
+                    int[] goal = requirements.get(r);
+                    int startIndex = startFor(goal[0]);
+                    if (startIndex < 0) {
+                        continue;
+                    }
+                    Candidate candidate = execute(run, startIndex, new int[0], goal, true);
+                    if (candidate != null && candidate.tours(goal)) {
+                        candidates[r] = candidate;
+                    }
+                }
+            }
+        }
+
+        /**
+         * 计算一段路径各自经过的需求
+         */
+        private final class Coverage extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            private static final int CHUNK = 8;
+            private final List<Candidate> candidates;
+            private final List<int[]> requirements;
+            private final int[][] toured;
+            private final int from;
+            private final int to;
+
+            Coverage(List<Candidate> candidates, List<int[]> requirements, int[][] toured, int from, int to) {
+                this.candidates = candidates;
+                this.requirements = requirements;
+                this.toured = toured;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > CHUNK) {
+                    int middle = (from + to) >>> 1;
+                    invokeAll(new Coverage(candidates, requirements, toured, from, middle),
+                            new Coverage(candidates, requirements, toured, middle, to));
+                    return;
+                }
+                for (int c = from; c < to; c++) {
+                    Candidate candidate = candidates.get(c);
+                    int[] hits = new int[8];
+                    int count = 0;
+                    for (int r = 0; r < requirements.size(); r++) {
+                        if (candidate.tours(requirements.get(r))) {
+                            if (count == hits.length) {
+                                hits = Arrays.copyOf(hits, count * 2);
+                            }
+                            hits[count++] = r;
+                        }
+                    }
+                    toured[c] = Arrays.copyOf(hits, count);
+                }
+            }
+        }
+
+        // ---------- 基本路径 ----------
+
+        /**
+         * McCabe基线法：每个起点先走基线路径（各决策选离终点最近的分支），
+         * 然后对路径上第一次遇到的每个决策节点翻转到其他每个可用分支，新路径中遇到的新决策同样翻转
+         */
+        Result basis(long startNanos) {
+            List<int[]> requirements = requirements(Criterion.BASIS);
+            Run run = runs.get();
+            List<Candidate> suite = new ArrayList<>();
+            boolean[] flipped = new boolean[flow.nodeCount];
+            for (int s = 0; s < starts.length; s++) {
+                Queue<int[]> prefixes = new ArrayDeque<>();
+                prefixes.add(new int[0]);
+                while (!prefixes.isEmpty()) {
+                    Candidate candidate = execute(run, s, prefixes.poll(), null, true);
+                    if (candidate == null || !seen.add(candidate.hash)) {
+                        continue;
+                    }
+                    suite.add(candidate);
+                    for (int d = 0; d < candidate.choices.length; d++) {
+                        int node = candidate.fired[candidate.decisionAt[d]];
+                        if (flipped[node]) {
+                            continue;
+                        }
+                        flipped[node] = true;
+                        for (int a = candidate.altStart[d]; a < candidate.altStart[d + 1]; a++) {
+                            if (candidate.alts[a] != candidate.choices[d]) {
+                                int[] prefix = Arrays.copyOf(candidate.choices, d + 1);
+                                prefix[d] = candidate.alts[a];
+                                prefixes.add(prefix);
+                            }
+                        }
+                    }
+                }
+            }
+            boolean[] covered = new boolean[requirements.size()];
+            List<TestPath> paths = new ArrayList<>();
+            for (Candidate candidate : suite) {
+                for (int r = 0; r < requirements.size(); r++) {
+                    covered[r] |= candidate.tours(requirements.get(r));
+                }
+                paths.add(candidate.toTestPath());
+            }
+            return result(Criterion.BASIS, paths, requirements, covered, startNanos);
+        }
+
+        // ---------- 全路径枚举 ----------
+
+        private final Queue<Candidate> found = new ConcurrentLinkedQueue<>();
+        private final AtomicLong kept = new AtomicLong();
+
+        Result all(ForkJoinPool pool, long startNanos) {
+            for (int s = 0; s < starts.length; s++) {
+                invoke(pool, new Explore(s, new int[0]));
+            }
+            List<Candidate> candidates = new ArrayList<>(found);
+            // 按起点和决策选择序列排序，结果与线程调度无关（截断时除外）
+            candidates.sort((a, b) -> {
+                if (a.startIndex != b.startIndex) {
+                    return Integer.compare(a.startIndex, b.startIndex);
+                }
+                int length = Math.min(a.choices.length, b.choices.length);
+                for (int i = 0; i < length; i++) {
+                    if (a.choices[i] != b.choices[i]) {
+                        return Integer.compare(a.choices[i], b.choices[i]);
+                    }
+                }
+                return Integer.compare(a.choices.length, b.choices.length);
+            });
+            List<TestPath> paths = new ArrayList<>();
+            for (Candidate candidate : candidates) {
+                paths.add(candidate.toTestPath());
+            }
+            return result(Criterion.ALL, paths, Collections.<int[]>emptyList(), new boolean[0], startNanos);
+        }
+
+        /**
+         * 执行决策前缀确定的路径，并为前缀之后每个决策的其他可用分支派生子任务
+         */
+        private final class Explore extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            private final int startIndex;
+            private final int[] prefix;
+
+            Explore(int startIndex, int[] prefix) {
+                this.startIndex = startIndex;
+                this.prefix = prefix;
+            }
+
+            @Override
+            protected void compute() {
+                if (truncated.get()) {
+                    return;
+                }
+                Run run = runs.get();
+                Candidate candidate = execute(run, startIndex, prefix, null, false);
+                if (candidate != null && seen.add(candidate.hash)) {
+                    if (kept.incrementAndGet() > maxPaths) {
+                        truncated.set(true);
+                        return;
+                    }
+                    found.add(candidate);
+                }
+                // Run会被子任务复用，先复制派生所需的决策记录
+                List<Explore> children = new ArrayList<>();
+                for (int d = prefix.length; d < run.decisionCount; d++) {
+                    for (int a = run.altStart[d]; a < run.altStart[d + 1]; a++) {
+                        if (run.alts[a] != run.choices[d]) {
+                            int[] child = Arrays.copyOf(run.choices, d + 1);
+                            child[d] = run.alts[a];
+                            children.add(new Explore(startIndex, child));
+                        }
+                    }
+                }
+                invokeAll(children);
+            }
+        }
+
+        // ---------- 公共 ----------
+
+        private void invoke(ForkJoinPool pool, RecursiveAction task) {
+            if (pool == null) {
+                task.invoke();
+            } else {
+                pool.invoke(task);
+            }
+        }
+
+        private Result result(Criterion criterion, List<TestPath> paths, List<int[]> requirements, boolean[] covered,
+                              long startNanos) {
+            List<String> unsatisfied = new ArrayList<>();
+            for (int r = 0; r < requirements.size(); r++) {
+                if (!covered[r]) {
+                    unsatisfied.add(describe(requirements.get(r)));
+                }
+            }
+            if (truncated.get()) {
+                System.out.println("⚠ " + graph.getName() + " 的" + criterion + "路径生成达到上限，结果不完整");
+            }
+            return new Result(criterion, Collections.unmodifiableList(paths), requirements.size(),
+                    Collections.unmodifiableList(unsatisfied), executions.get(), pruned.get(), truncated.get(),
+                    System.nanoTime() - startNanos);
+        }
+
+        // ---------- 测试需求 ----------
+
+        private List<int[]> requirements(Criterion criterion) {
+            boolean[] reachable = flow.reach(true, starts);
+            List<int[]> requirements = new ArrayList<>();
+            switch (criterion) {
+                case NODE:
+                    for (int v = 0; v < flow.nodeCount; v++) {
+                        if (reachable[v]) {
+                            requirements.add(new int[]{v});
+                        }
+                    }
+                    break;
+                case EDGE:
+                case BASIS:
+                    // 边按（源, 目标）去重；终止节点的出边不会有令牌经过，不作为需求
+                    Set<Long> pairs = new HashSet<>();
+                    for (int e = 0; e < flow.edgeCount; e++) {
+                        int source = flow.edgeSource[e];
+                        int target = flow.edgeTarget[e];
+                        if (reachable[source] && !flow.isFinal(source)
+                                && (criterion == Criterion.EDGE || flow.kind[source] == ControlFlow.DECISION)
+                                && pairs.add((long) source << 32 | target)) {
+                            requirements.add(new int[]{source, target});
+                        }
+                    }
+                    break;
+                case PRIME:
+                    primePaths(reachable, requirements);
+                    break;
+                default:
+                    break;
+            }
+            return requirements;
+        }
+
+        /**
+         * 枚举主路径：从每个节点深度优先扩展简单路径，只输出向前和向后都不能再扩展的路径（简单环总是主路径）
+         */
+        private void primePaths(boolean[] reachable, List<int[]> primes) {
+            int[] path = new int[flow.nodeCount + 1];
+            int[] next = new int[flow.nodeCount + 1]; // 每层下一个要尝试的出边位置
+            boolean[] extended = new boolean[flow.nodeCount + 1];
+            boolean[] onPath = new boolean[flow.nodeCount];
+            long steps = 0;
+            Set<Long> hashes = new HashSet<>();
+            for (int root = 0; root < flow.nodeCount && primes.size() < maxRequirements; root++) {
+                if (!reachable[root]) {
+                    continue;
+                }
+                int depth = 0;
+                path[0] = root;
+                next[0] = flow.outStart[root];
+                extended[0] = false;
+                onPath[root] = true;
+                while (depth >= 0) {
+                    if (++steps > maxSearch || primes.size() >= maxRequirements) {
+                        truncated.set(true);
+                        for (int i = 0; i <= depth; i++) {
+                            onPath[path[i]] = false;
+                        }
+                        return;
+                    }
+                    int last = path[depth];
+                    if (next[depth] < flow.outStart[last + 1] && !flow.isFinal(last)) {
+                        int w = flow.edgeTarget[flow.outEdges[next[depth]++]];
+                        if (!onPath[w]) {
+                            extended[depth] = true;
+                            depth++;
+                            path[depth] = w;
+                            next[depth] = flow.outStart[w];
+                            extended[depth] = false;
+                            onPath[w] = true;
+                        } else if (w == root) {
+                            // 回到起点构成简单环；平行边会重复得到同一个环
+                            extended[depth] = true;
+                            int[] cycle = Arrays.copyOf(path, depth + 2);
+                            cycle[depth + 1] = root;
+                            addPrime(primes, hashes, cycle);
+                        }
+                        continue;
+                    }
+                    if (!extended[depth] && !backwardExtendable(path, depth, onPath)) {
+                        addPrime(primes, hashes, Arrays.copyOf(path, depth + 1));
+                    }
+                    onPath[last] = false;
+                    depth--;
+                }
+            }
+        }
+
+        private void addPrime(List<int[]> primes, Set<Long> hashes, int[] prime) {
+            if (hashes.add(pathHash(prime))) {
+                primes.add(prime);
+            }
+        }
+
+        private boolean backwardExtendable(int[] path, int depth, boolean[] onPath) {
+            int first = path[0];
+            for (int i = flow.inStart[first]; i < flow.inStart[first + 1]; i++) {
+                int u = flow.edgeSource[flow.inEdges[i]];
+                if (!flow.isFinal(u) && (!onPath[u] || u == path[depth])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private String describe(int[] requirement) {
+            StringBuilder text = new StringBuilder();
+            for (int v : requirement) {
+                if (text.length() > 0) {
+                    text.append(' ');
+                }
+                text.append(graph.getNode(v).getId());
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * 惰性贪心集合覆盖：每次选新增覆盖最多的路径（相同时取序号小的），返回选中路径的序号
+     */
+    private static List<Integer> greedyCover(int[][] toured, boolean[] covered) {
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) ->
+                a[0] != b[0] ? Long.compare(b[0], a[0]) : Long.compare(a[1], b[1]));
+        for (int c = 0; c < toured.length; c++) {
+            if (toured[c].length > 0) {
+                queue.add(new long[]{toured[c].length, c});
+            }
+        }
+        List<Integer> selected = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            long[] top = queue.poll();
+            int c = (int) top[1];
+            int gain = 0;
+            for (int r : toured[c]) {
+                if (!covered[r]) {
+                    gain++;
+                }
+            }
+            if (gain == 0) {
+                continue;
+            }
+            if (gain < top[0] && !queue.isEmpty() && queue.peek()[0] > gain) {
+                // 增益已过期，按新值放回
+                queue.add(new long[]{gain, c});
+                continue;
+            }
+            selected.add(c);
+            for (int r : toured[c]) {
+                covered[r] = true;
+            }
+        }
+        return selected;
+    }
+
+    /** 起点中第一个能静态到达该节点的，初始节点优先 */
+    private int startFor(int node) {
+        for (int s = 0; s < starts.length; s++) {
+            if (reachFromStart[s][node]) {
+                return s;
+            }
+        }
+        return -1;
+    }
+
+    private int[] distanceTo(int node) {
+        return distances.computeIfAbsent(node, flow::distanceTo);
+    }
+
+    private static long pathHash(int[] nodes) {
+        long hash = FNV_OFFSET;
+        for (int v : nodes) {
+            hash = (hash ^ (v + 1)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // ==================== 执行 ====================
+
+    /**
+     * 一条路径的快照：触发的节点、因果关系（每次触发的令牌由哪些触发产生）和决策选择
+     */
+    private final class Candidate {
+        final int startIndex;
+        final Outcome outcome;
+        final long hash;
+        final int[] fired;
+        final int[] consumerStart; // 触发 -> 消耗了它产生的令牌的触发
+        final int[] consumers;
+        final long[] nodeSet;
+        final int[] choices;
+        final int[] decisionAt;
+        final int[] altStart;
+        final int[] alts;
+
+        Candidate(Run run, int startIndex, int outcome, boolean causal) {
+            this.startIndex = startIndex;
+            this.outcome = Outcome.values()[outcome];
+            this.hash = run.hash * 31 + outcome;
+            int n = run.firedSize;
+            this.fired = Arrays.copyOf(run.fired, n);
+            this.choices = Arrays.copyOf(run.choices, run.decisionCount);
+            this.decisionAt = Arrays.copyOf(run.decisionAt, run.decisionCount);
+            if (!causal) {
+                // 全路径枚举只需要节点序列和决策
+                nodeSet = null;
+                consumerStart = null;
+                consumers = null;
+                altStart = null;
+                alts = null;
+                return;
+            }
+            this.nodeSet = new long[(flow.nodeCount + 63) >>> 6];
+            for (int v : fired) {
+                nodeSet[v >>> 6] |= 1L << v;
+            }
+            this.consumerStart = new int[n + 1];
+            for (int c = 0; c < run.causeSize; c++) {
+                if (run.causeFrom[c] >= 0) {
+                    consumerStart[run.causeFrom[c] + 1]++;
+                }
+            }
+            for (int f = 0; f < n; f++) {
+                consumerStart[f + 1] += consumerStart[f];
+            }
+            this.consumers = new int[consumerStart[n]];
+            int[] fill = Arrays.copyOf(consumerStart, n);
+            for (int g = 0; g < n; g++) {
+                for (int c = run.causeStart[g]; c < run.causeStart[g + 1]; c++) {
+                    int producer = run.causeFrom[c];
+                    if (producer >= 0) {
+                        consumers[fill[producer]++] = g;
+                    }
+                }
+            }
+            this.altStart = Arrays.copyOf(run.altStart, run.decisionCount + 1);
+            this.alts = Arrays.copyOf(run.alts, run.altStart[run.decisionCount]);
+        }
+
+        /**
+         * 路径是否按因果顺序经过需求中的节点序列：存在触发 f0..fk，f(i+1) 消耗了 f(i) 产生的令牌
+         */
+        boolean tours(int[] requirement) {
+            for (int v : requirement) {
+                if ((nodeSet[v >>> 6] & (1L << v)) == 0) {
+                    return false;
+                }
+            }
+            for (int f = 0; f < fired.length; f++) {
+                if (fired[f] == requirement[0] && chain(f, requirement, 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean chain(int f, int[] requirement, int position) {
+            if (position == requirement.length) {
+                return true;
+            }
+            for (int i = consumerStart[f]; i < consumerStart[f + 1]; i++) {
+                int g = consumers[i];
+                if (fired[g] == requirement[position] && chain(g, requirement, position + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        TestPath toTestPath() {
+            int[] decisions = new int[choices.length * 2];
+            for (int d = 0; d < choices.length; d++) {
+                int node = fired[decisionAt[d]];
+                decisions[2 * d] = node;
+                decisions[2 * d + 1] = flow.edgeTarget[flow.outEdges[flow.outStart[node] + choices[d]]];
+            }
+            return new TestPath(graph, fired, decisions, outcome, hash);
+        }
+    }
+
+    /**
+     * 单线程的执行器，数组在执行之间复用
+     * 待处理令牌放在栈中（边和产生它的触发序号），每步从栈顶向下找第一个目标可触发的令牌。
+     */
+    private final class Run {
+        private int[] stackEdge = new int[16];
+        private int[] stackFrom = new int[16];
+        private int stackSize;
+        private final int[] tokens = new int[flow.edgeCount];
+        private final int[] uses = new int[flow.edgeCount];    // 决策选择各出边的次数
+
+        int[] fired = new int[64];
+        int firedSize;
+        int[] causeStart = new int[65];
+        int[] causeFrom = new int[64];
+        int causeSize;
+
+        int[] choices = new int[16];       // 第d个决策选择的出边位置
+        int[] decisionAt = new int[16];    // 第d个决策的触发序号
+        int[] altStart = new int[17];      // 第d个决策当时可用的出边位置
+        int[] alts = new int[32];
+        int decisionCount;
+        long hash;
+
+        private int[] prefix;
+        private int[] goal;
+        private int goalPosition;
+        private int goalFiring;
+
+        /**
+         * 从start开始执行；前prefix.length个决策按前缀选择，之后的决策朝goal（可为null）或终点选择
+         */
+        int execute(int start, int[] prefix, int[] goal) {
+            Arrays.fill(tokens, 0);
+            Arrays.fill(uses, 0);
+            stackSize = 0;
+            firedSize = 0;
+            causeSize = 0;
+            causeStart[0] = 0;
+            decisionCount = 0;
+            hash = FNV_OFFSET;
+            this.prefix = prefix;
+            this.goal = goal;
+            goalPosition = -1;
+            goalFiring = -1;
+
+            int result = fire(start);
+            while (result == 0) {
+                if (stackSize == 0) {
+                    return Outcome.ENDED.ordinal();
+                }
+                if (firedSize >= maxSteps) {
+                    return Outcome.STEP_LIMIT.ordinal();
+                }
+                int position = enabled();
+                if (position < 0) {
+                    return Outcome.DEADLOCK.ordinal();
+                }
+                int node = flow.edgeTarget[stackEdge[position]];
+                if (flow.kind[node] == ControlFlow.JOIN) {
+                    for (int i = flow.inStart[node]; i < flow.inStart[node + 1]; i++) {
+                        take(find(flow.inEdges[i]));
+                    }
+                } else {
+                    take(position);
+                }
+                result = fire(node);
+            }
+            return result > 0 ? Outcome.COMPLETED.ordinal() : BOUNDED;
+        }
+
+        /**
+         * 下一个要处理的令牌位置：正在跟踪的需求节点序列等待的令牌（上一个需求节点发往下一个需求节点）优先；
+         * 否则栈顶可触发时取栈顶；栈顶是未就绪的汇合时，取目标离该汇合最近的可触发令牌，
+         * 先走完同一分叉的其他分支（同距离取靠近栈顶的）；没有可触发的令牌返回-1
+         */
+        private int enabled() {
+            if (goal != null && goalPosition >= 0 && goalPosition < goal.length - 1) {
+                int next = goal[goalPosition + 1];
+                for (int i = stackSize - 1; i >= 0; i--) {
+                    if (stackFrom[i] == goalFiring && flow.edgeTarget[stackEdge[i]] == next
+                            && (flow.kind[next] != ControlFlow.JOIN || joinReady(next))) {
+                        return i;
+                    }
+                }
+            }
+            int top = stackSize - 1;
+            int blocked = flow.edgeTarget[stackEdge[top]];
+            if (flow.kind[blocked] != ControlFlow.JOIN || joinReady(blocked)) {
+                return top;
+            }
+            int[] toJoin = distanceTo(blocked);
+            int best = -1;
+            for (int i = top - 1; i >= 0; i--) {
+                int node = flow.edgeTarget[stackEdge[i]];
+                if ((flow.kind[node] != ControlFlow.JOIN || joinReady(node))
+                        && (best < 0 || toJoin[node] < toJoin[flow.edgeTarget[stackEdge[best]]])) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+
+        private boolean joinReady(int node) {
+            for (int i = flow.inStart[node]; i < flow.inStart[node + 1]; i++) {
+                if (tokens[flow.inEdges[i]] == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int find(int edge) {
+            for (int i = stackSize - 1; i >= 0; i--) {
+                if (stackEdge[i] == edge) {
+                    return i;
+                }
+            }
+            throw new IllegalStateException("No token on edge " + edge);
+        }
+
+        /** 取出令牌，记为下一次触发的原因 */
+        private void take(int position) {
+            tokens[stackEdge[position]]--;
+            if (causeSize == causeFrom.length) {
+                causeFrom = Arrays.copyOf(causeFrom, causeSize * 2);
+            }
+            causeFrom[causeSize++] = stackFrom[position];
+            System.arraycopy(stackEdge, position + 1, stackEdge, position, stackSize - position - 1);
+            System.arraycopy(stackFrom, position + 1, stackFrom, position, stackSize - position - 1);
+            stackSize--;
+        }
+
+        private void give(int edge, int firing) {
+            if (stackSize == stackEdge.length) {
+                stackEdge = Arrays.copyOf(stackEdge, stackSize * 2);
+                stackFrom = Arrays.copyOf(stackFrom, stackSize * 2);
+            }
+            stackEdge[stackSize] = edge;
+            stackFrom[stackSize++] = firing;
+            tokens[edge]++;
+        }
+
+        /**
+         * 触发节点（原因已由take记录）；返回0继续，1到达活动终止节点，-1决策没有可用分支
+         */
+        private int fire(int node) {
+            int f = firedSize++;
+            if (firedSize == fired.length) {
+                fired = Arrays.copyOf(fired, firedSize * 2);
+                causeStart = Arrays.copyOf(causeStart, firedSize * 2 + 1);
+            }
+            fired[f] = node;
+            causeStart[f + 1] = causeSize;
+            hash = (hash ^ (node + 1)) * FNV_PRIME;
+            advanceGoal(f, node);
+
+            switch (flow.kind[node]) {
+                case ControlFlow.ACTIVITY_FINAL:
+                    return 1;
+                case ControlFlow.FLOW_FINAL:
+                    return 0;
+                case ControlFlow.DECISION: {
+                    int degree = flow.outStart[node + 1] - flow.outStart[node];
+                    if (degree == 0) {
+                        return 0;
+                    }
+                    int d = decisionCount;
+                    ensureDecisionCapacity(degree);
+                    altStart[d + 1] = altStart[d];
+                    for (int i = 0; i < degree; i++) {
+                        if (uses[flow.outEdges[flow.outStart[node] + i]] <= loopBound) {
+                            alts[altStart[d + 1]++] = i;
+                        }
+                    }
+                    int choice = d < prefix.length ? prefix[d] : choose(node, f, d);
+                    if (choice < 0 || uses[flow.outEdges[flow.outStart[node] + choice]] > loopBound) {
+                        return -1;
+                    }
+                    choices[d] = choice;
+                    decisionAt[d] = f;
+                    decisionCount++;
+                    int edge = flow.outEdges[flow.outStart[node] + choice];
+                    uses[edge]++;
+                    give(edge, f);
+                    return 0;
+                }
+                default:
+                    // 逆序压栈，第一条出边先处理
+                    for (int i = flow.outStart[node + 1] - 1; i >= flow.outStart[node]; i--) {
+                        give(flow.outEdges[i], f);
+                    }
+                    return 0;
+            }
+        }
+
+        private void ensureDecisionCapacity(int degree) {
+            int d = decisionCount;
+            if (d + 1 >= choices.length) {
+                choices = Arrays.copyOf(choices, choices.length * 2);
+                decisionAt = Arrays.copyOf(decisionAt, decisionAt.length * 2);
+                altStart = Arrays.copyOf(altStart, altStart.length * 2);
+            }
+            if (altStart[d] + degree > alts.length) {
+                alts = Arrays.copyOf(alts, Math.max(alts.length * 2, altStart[d] + degree));
+            }
+        }
+
+        /**
+         * 跟踪需求节点序列：触发的节点是下一个需求节点且消耗了上一个需求节点产生的令牌时前进，
+         * 遇到第一个需求节点时（重新）开始
+         */
+        private void advanceGoal(int f, int node) {
+            if (goal == null || goalPosition == goal.length - 1) {
+                return;
+            }
+            if (goalPosition >= 0 && node == goal[goalPosition + 1] && causedBy(f, goalFiring)) {
+                goalPosition++;
+                goalFiring = f;
+            } else if (node == goal[0]) {
+                goalPosition = 0;
+                goalFiring = f;
+            }
+        }
+
+        private boolean causedBy(int f, int producer) {
+            for (int c = causeStart[f]; c < causeStart[f + 1]; c++) {
+                if (causeFrom[c] == producer) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 选择决策分支（第d个决策，当时可用的分支在alts中）：
+         * 正在跟踪的需求节点序列经过本决策时选向下一个需求节点的分支，
+         * 否则选离下一个需求节点最近的分支，没有需求或都不可达时选离终点最近的，距离相同取位置靠前的
+         */
+        private int choose(int node, int f, int d) {
+            int from = altStart[d];
+            int to = altStart[d + 1];
+            if (from == to) {
+                return -1;
+            }
+            boolean tracking = goal != null && goalPosition >= 0 && goalPosition < goal.length - 1;
+            if (tracking && goalFiring == f) {
+                for (int a = from; a < to; a++) {
+                    if (flow.edgeTarget[flow.outEdges[flow.outStart[node] + alts[a]]] == goal[goalPosition + 1]) {
+                        return alts[a];
+                    }
+                }
+            }
+            int[] toGoal = null;
+            if (goal != null && goalPosition < goal.length - 1) {
+                toGoal = distanceTo(goal[goalPosition + 1]);
+            }
+            int best = -1;
+            int bestGoal = Integer.MAX_VALUE;
+            int bestEnd = Integer.MAX_VALUE;
+            int bestSink = Integer.MAX_VALUE;
+            for (int a = from; a < to; a++) {
+                int w = flow.edgeTarget[flow.outEdges[flow.outStart[node] + alts[a]]];
+                int distanceGoal = toGoal != null ? toGoal[w] : 0;
+                if (best < 0 || distanceGoal < bestGoal
+                        || distanceGoal == bestGoal && (toEnd[w] < bestEnd || toEnd[w] == bestEnd && toSink[w] < bestSink)) {
+                    best = alts[a];
+                    bestGoal = distanceGoal;
+                    bestEnd = toEnd[w];
+                    bestSink = toSink[w];
+                }
+            }
+            return best;
+        }
+    }
+}
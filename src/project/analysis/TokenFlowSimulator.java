@@ -0,0 +1,594 @@
+package project.analysis;
+
+import project.graph.ActivityGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 活动图的令牌流模拟器 - 在随机决策下反复执行令牌博弈，检查分叉/汇合能否完成、循环能否终止
+ * 活动图先编译为基本类型数组（只含控制流），每次执行在工作线程内复用同一组数组，内层循环不分配对象。
+ * 执行规则：初始节点开始时向所有出边发出令牌；动作、合并等节点消耗任一入边的一个令牌后向所有出边发出令牌；
+ * 决策节点随机选择一条出边；分叉向所有出边发出；汇合在每条入边都有令牌时才触发；
+ * 流终止节点消耗令牌；活动终止节点结束本次执行。全局备选流由外部事件触发，其事件节点不参与模拟。
+ * 每次执行由（种子, 执行序号）确定随机序列，与线程数无关，可用replay重放任意一次执行。
+ */
+public class TokenFlowSimulator {
+
+    /**
+     * 一次执行的结果
+     */
+    public enum Outcome {
+        /** 到达活动终止节点 */
+        COMPLETED,
+        /** 所有令牌被消耗（流终止或无出边的节点），未到达活动终止节点 */
+        ENDED,
+        /** 仍有令牌但没有可触发的节点（汇合等待永远不会到达的令牌） */
+        DEADLOCK,
+        /** 超过步数上限，通常是循环未终止或令牌无限增长 */
+        STEP_LIMIT
+    }
+
+    /**
+     * 一条路径（按决策节点、第几次经过、选择的分支区分，与并行分支的交错顺序无关）的统计
+     */
+    public static class PathStats {
+        private final long signature;
+        private final Outcome outcome;
+        private final long count;
+        private final long exampleRun;
+
+        PathStats(long signature, Outcome outcome, long count, long exampleRun) {
+            this.signature = signature;
+            this.outcome = outcome;
+            this.count = count;
+            this.exampleRun = exampleRun;
+        }
+
+        public long getSignature() { return signature; }
+        public Outcome getOutcome() { return outcome; }
+        public long getCount() { return count; }
+        /** 走这条路径的一次执行的序号，可传给replay */
+        public long getExampleRun() { return exampleRun; }
+    }
+
+    /**
+     * 模拟结果汇总
+     */
+    public static class Report {
+        private final ActivityGraph graph;
+        private final long runs;
+        private final long[] outcomes;
+        private final long[] exampleRuns;
+        private final long[] fired;
+        private final long[] stuck;
+        private final boolean[] simulated;
+        private final boolean[] reachable;
+        private final List<PathStats> paths;
+        private final int distinctPaths;
+        private final long totalSteps;
+        private final long elapsedNanos;
+
+        Report(ActivityGraph graph, long runs, long[] outcomes, long[] exampleRuns, long[] fired, long[] stuck,
+               boolean[] simulated, boolean[] reachable, List<PathStats> paths, int distinctPaths,
+               long totalSteps, long elapsedNanos) {
+            this.graph = graph;
+            this.runs = runs;
+            this.outcomes = outcomes;
+            this.exampleRuns = exampleRuns;
+            this.fired = fired;
+            this.stuck = stuck;
+            this.simulated = simulated;
+            this.reachable = reachable;
+            this.paths = paths;
+            this.distinctPaths = distinctPaths;
+            this.totalSteps = totalSteps;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRuns() { return runs; }
+
+        public long getCount(Outcome outcome) {
+            return outcomes[outcome.ordinal()];
+        }
+
+        /** 该结果的第一次执行序号，没有时为-1 */
+        public long getExampleRun(Outcome outcome) {
+            return exampleRuns[outcome.ordinal()];
+        }
+
+        /** 节点在所有执行中被触发的总次数 */
+        public long getFireCount(ActivityGraph.Node node) {
+            return fired[node.getIndex()];
+        }
+
+        /**
+         * 从初始节点静态可达但在所有执行中从未被触发的节点（例如汇合之后的节点，或概率极低的分支）
+         */
+        public List<ActivityGraph.Node> getNeverExecuted() {
+            List<ActivityGraph.Node> result = new ArrayList<>();
+            for (ActivityGraph.Node node : graph.getNodes()) {
+                if (simulated[node.getIndex()] && fired[node.getIndex()] == 0) {
+                    result.add(node);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 从初始节点和全局备选流的事件节点都不可达的节点
+         */
+        public List<ActivityGraph.Node> getUnreachable() {
+            List<ActivityGraph.Node> result = new ArrayList<>();
+            for (ActivityGraph.Node node : graph.getNodes()) {
+                if (!reachable[node.getIndex()]) {
+                    result.add(node);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 死锁时仍有令牌在等待的汇合节点及次数（其他节点的计数为0）
+         */
+        public long getStuckCount(ActivityGraph.Node node) {
+            return stuck[node.getIndex()];
+        }
+
+        public List<ActivityGraph.Node> getDeadlockNodes() {
+            List<ActivityGraph.Node> result = new ArrayList<>();
+            for (ActivityGraph.Node node : graph.getNodes()) {
+                if (stuck[node.getIndex()] > 0) {
+                    result.add(node);
+                }
+            }
+            return result;
+        }
+
+        /** 按出现次数降序的最常见路径 */
+        public List<PathStats> getTopPaths() { return paths; }
+        public int getDistinctPaths() { return distinctPaths; }
+        public double getMeanSteps() { return runs == 0 ? 0 : totalSteps / (double) runs; }
+        public double getRunsPerSecond() { return elapsedNanos == 0 ? 0 : runs * 1e9 / elapsedNanos; }
+
+        /** 所有执行都到达终点且没有死锁和未终止的执行 */
+        public boolean isSound() {
+            return getCount(Outcome.DEADLOCK) == 0 && getCount(Outcome.STEP_LIMIT) == 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d 次执行：完成 %d，结束 %d，死锁 %d，超出步数 %d；%d 条不同路径，平均 %.1f 步，%.0f 次/秒；"
+                            + "从未执行 %d 个节点，不可达 %d 个节点",
+                    runs, getCount(Outcome.COMPLETED), getCount(Outcome.ENDED), getCount(Outcome.DEADLOCK),
+                    getCount(Outcome.STEP_LIMIT), distinctPaths, getMeanSteps(), getRunsPerSecond(),
+                    getNeverExecuted().size(), getUnreachable().size());
+        }
+    }
+
+    private static final byte DECISION = ControlFlow.DECISION;
+    private static final byte JOIN = ControlFlow.JOIN;
+    private static final byte FLOW_FINAL = ControlFlow.FLOW_FINAL;
+    private static final byte ACTIVITY_FINAL = ControlFlow.ACTIVITY_FINAL;
+
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private final ActivityGraph graph;
+    private final int nodeCount;
+    private final int edgeCount;
+    private final byte[] kind;
+    private final int[] outStart;     // 节点 -> 出边（编译后的边号）
+    private final int[] outEdges;
+    private final int[] inStart;      // 节点 -> 入边
+    private final int[] inEdges;
+    private final int[] edgeTarget;
+    private final int[] startNodes;
+    private final boolean[] simulated; // 从初始节点静态可达
+    private final boolean[] reachable; // 从初始节点或事件节点静态可达
+
+    private long seed = 42;
+    private int maxSteps = 10_000;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int topPaths = 10;
+
+    public TokenFlowSimulator(ActivityGraph graph) {
+        ControlFlow flow = new ControlFlow(graph);
+        this.graph = graph;
+        this.nodeCount = flow.nodeCount;
+        this.edgeCount = flow.edgeCount;
+        this.kind = flow.kind;
+        this.outStart = flow.outStart;
+        this.outEdges = flow.outEdges;
+        this.inStart = flow.inStart;
+        this.inEdges = flow.inEdges;
+        this.edgeTarget = flow.edgeTarget;
+        this.startNodes = flow.initialNodes;
+        this.simulated = flow.reach(flow.initialNodes);
+        this.reachable = flow.reach(flow.initialNodes, flow.eventNodes);
+    }
+
+    public TokenFlowSimulator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /** 单次执行的最大触发次数，超过记为STEP_LIMIT */
+    public TokenFlowSimulator setMaxSteps(int maxSteps) {
+        if (maxSteps < 1) {
+            throw new IllegalArgumentException("maxSteps must be at least 1");
+        }
+        this.maxSteps = maxSteps;
+        return this;
+    }
+
+    public TokenFlowSimulator setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /** 报告中保留的最常见路径数 */
+    public TokenFlowSimulator setTopPaths(int topPaths) {
+        this.topPaths = Math.max(0, topPaths);
+        return this;
+    }
+
+    /**
+     * 执行runs次随机令牌博弈，按线程数均分后合并统计
+     */
+    public Report run(long runs) {
+        if (runs < 0) {
+            throw new IllegalArgumentException("runs must not be negative");
+        }
+        long start = System.nanoTime();
+        int parts = (int) Math.max(1, Math.min(threads, runs));
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < parts; i++) {
+            workers.add(new Worker(runs * i / parts, runs * (i + 1) / parts));
+        }
+        if (parts == 1) {
+            workers.get(0).call();
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(parts, runnable -> {
+                Thread thread = new Thread(runnable, "token-flow");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<Worker>> futures = new ArrayList<>();
+                for (Worker worker : workers) {
+                    futures.add(executor.submit(worker));
+                }
+                for (Future<Worker> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Simulation interrupted", e);
+            } catch (java.util.concurrent.ExecutionException e) {
+                throw new IllegalStateException("Simulation failed", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        return merge(workers, runs, System.nanoTime() - start);
+    }
+
+    private Report merge(List<Worker> workers, long runs, long elapsedNanos) {
+        long[] outcomes = new long[Outcome.values().length];
+        long[] exampleRuns = new long[Outcome.values().length];
+        Arrays.fill(exampleRuns, -1);
+        long[] fired = new long[nodeCount];
+        long[] stuck = new long[nodeCount];
+        long totalSteps = 0;
+        PathTable paths = new PathTable(1024);
+        for (Worker worker : workers) {
+            for (int o = 0; o < outcomes.length; o++) {
+                outcomes[o] += worker.outcomes[o];
+                // 工作线程按执行序号分段，取序号最小的例子
+                if (exampleRuns[o] < 0) {
+                    exampleRuns[o] = worker.exampleRuns[o];
+                }
+            }
+            for (int v = 0; v < nodeCount; v++) {
+                fired[v] += worker.fired[v];
+                stuck[v] += worker.stuck[v];
+            }
+            totalSteps += worker.totalSteps;
+            PathTable table = worker.paths;
+            paths.overflow += table.overflow;
+            for (int slot = 0; slot < table.keys.length; slot++) {
+                if (table.keys[slot] != 0) {
+                    paths.add(table.keys[slot], table.counts[slot], table.firstRuns[slot]);
+                }
+            }
+        }
+
+        List<PathStats> top = new ArrayList<>();
+        for (int slot = 0; slot < paths.keys.length; slot++) {
+            if (paths.keys[slot] != 0) {
+                long signature = paths.keys[slot];
+                top.add(new PathStats(signature, Outcome.values()[(int) (signature & 3)], paths.counts[slot],
+                        paths.firstRuns[slot]));
+            }
+        }
+        int distinct = top.size();
+        top.sort((a, b) -> a.count != b.count ? Long.compare(b.count, a.count) : Long.compare(a.exampleRun, b.exampleRun));
+        if (top.size() > topPaths) {
+            top = new ArrayList<>(top.subList(0, topPaths));
+        }
+        if (paths.overflow > 0) {
+            System.out.println("⚠ 不同路径过多，" + paths.overflow + " 次执行未计入路径统计");
+        }
+        return new Report(graph, runs, outcomes, exampleRuns, fired, stuck, simulated, reachable,
+                Collections.unmodifiableList(top), distinct, totalSteps, elapsedNanos);
+    }
+
+    /**
+     * 重放第run次执行，返回按触发顺序的节点ID（决策节点后附"->"和选择的目标节点）
+     */
+    public List<String> replay(long run) {
+        Worker worker = new Worker(run, run + 1);
+        worker.trace = new ArrayList<>();
+        worker.call();
+        return worker.trace;
+    }
+
+    // ==================== 执行 ====================
+
+    /**
+     * 处理一段执行序号；所有状态数组在构造时分配，执行之间只重置被使用过的部分
+     */
+    private final class Worker implements java.util.concurrent.Callable<Worker> {
+        private final long from;
+        private final long to;
+        private final int[] tokens = new int[edgeCount];
+        private final int[] active = new int[edgeCount];      // 有令牌的边
+        private final int[] activePosition = new int[edgeCount];
+        private int activeSize;
+        private final int[] visits = new int[nodeCount];      // 本次执行中决策节点经过的次数
+        private final int[] touched = new int[nodeCount];
+        private int touchedSize;
+        private final long[] outcomes = new long[Outcome.values().length];
+        private final long[] exampleRuns = new long[Outcome.values().length];
+        private final long[] fired = new long[nodeCount];
+        private final long[] stuck = new long[nodeCount];
+        private final PathTable paths = new PathTable(256);
+        private long totalSteps;
+        private long random;
+        private long signature;
+        private List<String> trace; // 仅重放时使用
+
+        Worker(long from, long to) {
+            this.from = from;
+            this.to = to;
+            Arrays.fill(exampleRuns, -1);
+        }
+
+        @Override
+        public Worker call() {
+            for (long run = from; run < to; run++) {
+                Outcome outcome = execute(run);
+                outcomes[outcome.ordinal()]++;
+                if (exampleRuns[outcome.ordinal()] < 0) {
+                    exampleRuns[outcome.ordinal()] = run;
+                }
+                // 低两位存放结果，签名为0的槽表示空
+                long key = (signature & ~3L) | outcome.ordinal();
+                paths.add(key == 0 ? 4 : key, 1, run);
+            }
+            return this;
+        }
+
+        private Outcome execute(long run) {
+            random = mix(seed + run * GOLDEN);
+            signature = 0;
+            for (int i = 0; i < activeSize; i++) {
+                tokens[active[i]] = 0;
+            }
+            activeSize = 0;
+            for (int i = 0; i < touchedSize; i++) {
+                visits[touched[i]] = 0;
+            }
+            touchedSize = 0;
+
+            for (int start : startNodes) {
+                fire(start, -1);
+            }
+            int steps = 0;
+            while (true) {
+                if (activeSize == 0) {
+                    totalSteps += steps;
+                    return Outcome.ENDED;
+                }
+                if (steps++ >= maxSteps) {
+                    totalSteps += steps;
+                    return Outcome.STEP_LIMIT;
+                }
+                int edge = active[nextInt(activeSize)];
+                int node = edgeTarget[edge];
+                if (kind[node] == JOIN && !joinReady(node)) {
+                    edge = findEnabled();
+                    if (edge < 0) {
+                        for (int i = 0; i < activeSize; i++) {
+                            stuck[edgeTarget[active[i]]]++;
+                        }
+                        totalSteps += steps;
+                        return Outcome.DEADLOCK;
+                    }
+                    node = edgeTarget[edge];
+                }
+                if (fire(node, edge)) {
+                    totalSteps += steps;
+                    return Outcome.COMPLETED;
+                }
+            }
+        }
+
+        /** 线性查找一条目标可触发的边；只在随机选中的汇合未就绪时调用 */
+        private int findEnabled() {
+            for (int i = 0; i < activeSize; i++) {
+                int node = edgeTarget[active[i]];
+                if (kind[node] != JOIN || joinReady(node)) {
+                    return active[i];
+                }
+            }
+            return -1;
+        }
+
+        private boolean joinReady(int node) {
+            for (int i = inStart[node]; i < inStart[node + 1]; i++) {
+                if (tokens[inEdges[i]] == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 触发节点；edge为消耗令牌的入边（初始节点为-1）。到达活动终止节点时返回true
+         */
+        private boolean fire(int node, int edge) {
+            if (kind[node] == JOIN) {
+                for (int i = inStart[node]; i < inStart[node + 1]; i++) {
+                    take(inEdges[i]);
+                }
+            } else if (edge >= 0) {
+                take(edge);
+            }
+            fired[node]++;
+            switch (kind[node]) {
+                case ACTIVITY_FINAL:
+                    record(node, -1);
+                    return true;
+                case FLOW_FINAL:
+                    record(node, -1);
+                    return false;
+                case DECISION: {
+                    int degree = outStart[node + 1] - outStart[node];
+                    if (degree == 0) {
+                        record(node, -1);
+                        return false;
+                    }
+                    int choice = nextInt(degree);
+                    if (visits[node] == 0) {
+                        touched[touchedSize++] = node;
+                    }
+                    int visit = visits[node]++;
+                    // 求和与顺序无关：并行分支中决策的交错顺序不影响路径签名
+                    signature += mix(((long) node << 32 | choice) * GOLDEN + visit);
+                    int out = outEdges[outStart[node] + choice];
+                    record(node, edgeTarget[out]);
+                    give(out);
+                    return false;
+                }
+                default:
+                    record(node, -1);
+                    for (int i = outStart[node]; i < outStart[node + 1]; i++) {
+                        give(outEdges[i]);
+                    }
+                    return false;
+            }
+        }
+
+        private void take(int edge) {
+            if (--tokens[edge] == 0) {
+                int position = activePosition[edge];
+                int last = active[--activeSize];
+                active[position] = last;
+                activePosition[last] = position;
+            }
+        }
+
+        private void give(int edge) {
+            if (tokens[edge]++ == 0) {
+                activePosition[edge] = activeSize;
+                active[activeSize++] = edge;
+            }
+        }
+
+        private void record(int node, int target) {
+            if (trace != null) {
+                String id = graph.getNode(node).getId();
+                trace.add(target < 0 ? id : id + "->" + graph.getNode(target).getId());
+            }
+        }
+
+        /** SplitMix64 */
+        private int nextInt(int bound) {
+            random += GOLDEN;
+            long value = mix(random);
+            return (int) (((value >>> 32) * bound) >>> 32);
+        }
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 签名 -> 次数的开放寻址哈希表，键0表示空槽；达到容量上限后新路径只计入overflow
+     */
+    private static final class PathTable {
+        private static final int MAX_CAPACITY = 1 << 21;
+
+        long[] keys;
+        long[] counts;
+        long[] firstRuns;
+        long overflow;
+        private int size;
+
+        PathTable(int capacity) {
+            keys = new long[capacity];
+            counts = new long[capacity];
+            firstRuns = new long[capacity];
+        }
+
+        void add(long key, long count, long run) {
+            if (size * 2 >= keys.length && keys.length < MAX_CAPACITY) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = (int) mix(key) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0 && size * 2 >= keys.length) {
+                overflow += count;
+                return;
+            }
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                firstRuns[slot] = run;
+                size++;
+            } else if (run < firstRuns[slot]) {
+                firstRuns[slot] = run;
+            }
+            counts[slot] += count;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldCounts = counts;
+            long[] oldRuns = firstRuns;
+            keys = new long[oldKeys.length * 2];
+            counts = new long[oldKeys.length * 2];
+            firstRuns = new long[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    add(oldKeys[i], oldCounts[i], oldRuns[i]);
+                }
+            }
+        }
+    }
+}
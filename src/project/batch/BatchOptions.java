@@ -0,0 +1,356 @@
+package project.batch;
+
+import project.analysis.TestPathGenerator;
+import project.export.ExportFormat;
+import project.rules.UCMetaToActivityTransformer;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 批量转换的命令行参数
+ */
+public class BatchOptions {
+
+    /**
+     * 生成模式：详细图、概览图或两者
+     */
+    public enum Mode {
+        DETAILED("detailed"),
+        OVERVIEW("overview");
+
+        private final String suffix;
+
+        Mode(String suffix) {
+            this.suffix = suffix;
+        }
+
+        /** 输出文件名后缀，与主程序的 *_detailed.uml / *_overview.uml 一致 */
+        public String getSuffix() {
+            return suffix;
+        }
+
+        public boolean isDetailed() {
+            return this == DETAILED;
+        }
+    }
+
+    public static final String USAGE = String.join("\n",
+            "用法: UCMetaToActivityMain [选项] <.ucm文件或目录>...",
+            "  -o, --output <目录>     输出目录（默认 output）",
+            "  -m, --mode <模式>       detailed | overview | both（默认 detailed）",
+            "      --detail-level <K>  详细图只展开K层嵌套，更深的分支折叠为调用子活动（同一文件中）的动作",
+            "      --share-fragments <N> 详细图中重复出现、至少N个句子的分支片段只生成一次共享子活动，各处调用它",
+            "  -t, --threads <N>       转换线程数（默认 CPU核数）",
+            "  -f, --format <格式>     uml | dot | puml | json（默认 uml）",
+            "      --progress <秒>     进度输出间隔，0表示关闭（默认 5）",
+            "      --checkpoint <文件> 检查点日志（默认 <输出目录>/.checkpoint），重新运行时跳过已完成的用例",
+            "      --fresh             忽略并清空检查点日志，全部重新转换",
+            "      --errors <文件>     失败报告（默认 <输出目录>/errors.log）",
+            "      --no-trace          不写追溯索引sidecar（输出文件名加.trace）",
+            "      --test-paths <准则> 生成测试路径sidecar（输出文件名加.paths）：node | edge | prime | basis | all",
+            "      --layout            计算分层布局，坐标作为注解写入模型（uml格式）或bounds/points字段（json格式）",
+            "      --store <目录>      结果写入段文件存储（ActivityStore）而不是单独的文件，已存储且内容未变的用例跳过",
+            "      --stream            流式转换：规格文件按需解析，用例经有界并发的流水线转换后写出，不使用检查点",
+            "      --async-save <N>    uml格式的XMI序列化和写盘交给N个I/O线程，转换线程不等待写盘",
+            "  -w, --watch             先完整转换一次，然后监视输入目录，只重新转换内容变化的用例",
+            "      --debounce <毫秒>   监视模式下合并连续变化的等待时间（默认 300）",
+            "      --workers <N>       按用例名哈希分成N个分片，分别在N个子JVM中转换后合并统计",
+            "      --retries <N>       分片进程异常退出时的重试次数（默认 2）",
+            "      --worker-heap <大小> 子JVM的最大堆，如 512m（默认与JVM默认值相同）",
+            "  -h, --help              显示帮助",
+            "目录会递归查找 *.ucm 文件；有用例转换失败时退出码为1，参数错误为2。");
+
+    private final List<Path> inputs = new ArrayList<>();
+    private Path outputDir = Paths.get("output");
+    private List<Mode> modes = Collections.singletonList(Mode.DETAILED);
+    private int detailLevel = UCMetaToActivityTransformer.UNLIMITED_DETAIL;
+    private int shareFragments;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private ExportFormat format = ExportFormat.UML;
+    private int progressSeconds = 5;
+    private Path checkpointFile;
+    private boolean fresh;
+    private Path errorReport;
+    private Path storeDir;
+    private boolean stream;
+    private int asyncSave;
+    private boolean trace = true;
+    private TestPathGenerator.Criterion testPaths;
+    private boolean layout;
+    private boolean watch;
+    private int debounceMillis = 300;
+    private int workers;
+    private int retries = 2;
+    private String workerHeap;
+    private int shardIndex;
+    private int shardCount = 1;
+    private Path statsFile;
+    private boolean help;
+
+    /**
+     * 解析命令行参数，参数无效时抛出IllegalArgumentException
+     */
+    public static BatchOptions parse(String[] args) {
+        BatchOptions options = new BatchOptions();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-o":
+                case "--output":
+                    options.outputDir = Paths.get(value(args, ++i, arg));
+                    break;
+                case "-m":
+                case "--mode":
+                    options.modes = parseModes(value(args, ++i, arg));
+                    break;
+                case "--detail-level":
+                    options.detailLevel = Math.max(0, integer(value(args, ++i, arg), arg));
+                    break;
+                case "--share-fragments":
+                    options.shareFragments = positive(value(args, ++i, arg), arg);
+                    break;
+                case "-t":
+                case "--threads":
+                    options.threads = positive(value(args, ++i, arg), arg);
+                    break;
+                case "-f":
+                case "--format":
+                    options.format = ExportFormat.forName(value(args, ++i, arg));
+                    break;
+                case "--progress":
+                    options.progressSeconds = Math.max(0, integer(value(args, ++i, arg), arg));
+                    break;
+                case "--checkpoint":
+                    options.checkpointFile = Paths.get(value(args, ++i, arg));
+                    break;
+                case "--fresh":
+                    options.fresh = true;
+                    break;
+                case "--errors":
+                    options.errorReport = Paths.get(value(args, ++i, arg));
+                    break;
+                case "--no-trace":
+                    options.trace = false;
+                    break;
+                case "--test-paths":
+                    options.testPaths = TestPathGenerator.Criterion.forName(value(args, ++i, arg));
+                    break;
+                case "--layout":
+                    options.layout = true;
+                    break;
+                case "--store":
+                    options.storeDir = Paths.get(value(args, ++i, arg));
+                    break;
+                case "--stream":
+                    options.stream = true;
+                    break;
+                case "--async-save":
+                    options.asyncSave = positive(value(args, ++i, arg), arg);
+                    break;
+                case "-w":
+                case "--watch":
+                    options.watch = true;
+                    break;
+                case "--debounce":
+                    options.debounceMillis = Math.max(0, integer(value(args, ++i, arg), arg));
+                    break;
+                case "--workers":
+                    options.workers = positive(value(args, ++i, arg), arg);
+                    break;
+                case "--retries":
+                    options.retries = Math.max(0, integer(value(args, ++i, arg), arg));
+                    break;
+                case "--worker-heap":
+                    options.workerHeap = value(args, ++i, arg);
+                    break;
+                case "--shard":
+                    // 由协调器传给子进程：i/N
+                    options.parseShard(value(args, ++i, arg));
+                    break;
+                case "--stats":
+                    options.statsFile = Paths.get(value(args, ++i, arg));
+                    break;
+                case "-h":
+                case "--help":
+                    options.help = true;
+                    break;
+                default:
+                    if (arg.startsWith("-")) {
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                    options.inputs.add(Paths.get(arg));
+            }
+        }
+        if (options.inputs.isEmpty() && !options.help) {
+            throw new IllegalArgumentException("No input files or directories given");
+        }
+        if (options.workers > 0 && (options.watch || options.shardCount > 1)) {
+            throw new IllegalArgumentException("--workers cannot be combined with --watch or --shard");
+        }
+        if (options.storeDir != null && (options.watch || options.workers > 0 || options.shardCount > 1)) {
+            // 存储只允许一个进程写入
+            throw new IllegalArgumentException("--store cannot be combined with --watch, --workers or --shard");
+        }
+        if (options.stream && (options.watch || options.workers > 0 || options.storeDir != null)) {
+            throw new IllegalArgumentException("--stream cannot be combined with --watch, --workers or --store");
+        }
+        if (options.asyncSave > 0 && (options.format != ExportFormat.UML || options.storeDir != null || options.stream)) {
+            // 只有uml格式经saveToFile写盘；存储和流式转换在转换线程中序列化为字节
+            throw new IllegalArgumentException("--async-save only applies to uml output without --store or --stream");
+        }
+        return options;
+    }
+
+    private void parseShard(String value) {
+        int slash = value.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Invalid shard, expected i/N: " + value);
+        }
+        shardIndex = integer(value.substring(0, slash), "--shard");
+        shardCount = positive(value.substring(slash + 1), "--shard");
+        if (shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("Shard index out of range: " + value);
+        }
+    }
+
+    private static List<Mode> parseModes(String value) {
+        switch (value.toLowerCase()) {
+            case "detailed":
+                return Collections.singletonList(Mode.DETAILED);
+            case "overview":
+                return Collections.singletonList(Mode.OVERVIEW);
+            case "both":
+                List<Mode> both = new ArrayList<>();
+                both.add(Mode.DETAILED);
+                both.add(Mode.OVERVIEW);
+                return both;
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + value);
+        }
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    private static int integer(String value, String option) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + option + ": " + value);
+        }
+    }
+
+    private static int positive(String value, String option) {
+        int number = integer(value, option);
+        if (number < 1) {
+            throw new IllegalArgumentException(option + " must be at least 1");
+        }
+        return number;
+    }
+
+    public List<Path> getInputs() { return inputs; }
+    public Path getOutputDir() { return outputDir; }
+    public List<Mode> getModes() { return modes; }
+    /** 详细图的展开深度，未指定时为UNLIMITED_DETAIL */
+    public int getDetailLevel() { return detailLevel; }
+    /** 共享片段的最少句子数，0表示不共享 */
+    public int getShareFragments() { return shareFragments; }
+    public int getThreads() { return threads; }
+    public ExportFormat getFormat() { return format; }
+    public int getProgressSeconds() { return progressSeconds; }
+    public Path getCheckpointFile() { return checkpointFile != null ? checkpointFile : outputDir.resolve(".checkpoint"); }
+    public boolean isFresh() { return fresh; }
+    public Path getErrorReport() { return errorReport != null ? errorReport : outputDir.resolve("errors.log"); }
+    public Path getStoreDir() { return storeDir; }
+    public boolean isStream() { return stream; }
+    /** 异步保存的I/O线程数，0表示在转换线程中同步保存 */
+    public int getAsyncSave() { return asyncSave; }
+    public boolean isTrace() { return trace; }
+    /** 测试路径的覆盖准则，未指定时为null */
+    public TestPathGenerator.Criterion getTestPaths() { return testPaths; }
+    public boolean isLayout() { return layout; }
+    public boolean isWatch() { return watch; }
+    public int getDebounceMillis() { return debounceMillis; }
+    public int getWorkers() { return workers; }
+    public int getRetries() { return retries; }
+    public String getWorkerHeap() { return workerHeap; }
+    public int getShardIndex() { return shardIndex; }
+    public int getShardCount() { return shardCount; }
+    public Path getStatsFile() { return statsFile; }
+    public boolean isHelp() { return help; }
+
+    /** 模式的命令行写法，用于转发给子进程 */
+    public String getModeName() {
+        return modes.size() > 1 ? "both" : modes.get(0).getSuffix();
+    }
+
+    /**
+     * 用例是否属于本进程的分片；按用例名哈希划分，同一用例在重新运行时总落在同一分片
+     */
+    public boolean inShard(String useCaseName) {
+        return shardCount == 1 || Math.floorMod(useCaseName.hashCode(), shardCount) == shardIndex;
+    }
+
+    /**
+     * 给定模式的转换器：概览图保持原有行为，详细图按细节层级展开，并按需共享重复片段
+     */
+    public UCMetaToActivityTransformer newTransformer(Mode mode) {
+        if (!mode.isDetailed()) {
+            return new UCMetaToActivityTransformer(false);
+        }
+        UCMetaToActivityTransformer transformer = new UCMetaToActivityTransformer(detailLevel);
+        if (shareFragments > 0) {
+            transformer.setShareFragments(true);
+            transformer.setMinFragmentSize(shareFragments);
+        }
+        return transformer;
+    }
+
+    /**
+     * 用例在给定模式下的输出文件
+     */
+    public Path outputFile(String useCaseName, Mode mode) {
+        return outputDir.resolve(useCaseName + "_" + mode.getSuffix() + "." + format.getExtension());
+    }
+
+    /**
+     * 结果在存储中的变体名，如"detailed.uml"；非默认的输出选项以标签写在格式之前，如"detailed+detail1+layout.uml"
+     */
+    public String storeVariant(Mode mode) {
+        return mode.getSuffix() + outputTags(mode) + "." + format.getExtension();
+    }
+
+    /**
+     * 改变该模式输出内容（含sidecar）的非默认选项：细节层级、片段共享（只影响详细图）、布局、追溯和测试路径；
+     * 写入检查点日志的键和存储变体名，选项变化后重新运行不会跳过旧结果。全部为默认值时为空串
+     */
+    public String outputTags(Mode mode) {
+        StringBuilder tags = new StringBuilder();
+        if (mode.isDetailed()) {
+            if (detailLevel != UCMetaToActivityTransformer.UNLIMITED_DETAIL) {
+                tags.append("+detail").append(detailLevel);
+            }
+            if (shareFragments > 0) {
+                tags.append("+share").append(shareFragments);
+            }
+        }
+        if (layout) {
+            tags.append("+layout");
+        }
+        if (!trace) {
+            tags.append("+notrace");
+        }
+        if (testPaths != null) {
+            tags.append("+paths-").append(testPaths.name().toLowerCase());
+        }
+        return tags.toString();
+    }
+}
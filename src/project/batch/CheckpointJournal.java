@@ -0,0 +1,127 @@
+package project.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 只追加的检查点日志，记录每个输出文件最近一次写入时的键（用例内容哈希, 模式, 格式, 输出选项）
+ * 每行一条"输出文件名<TAB>键"，写完整行后才算完成；进程在写入中途崩溃时，末尾不完整的行在下次加载时被忽略。
+ * 同一输出文件以最后一行为准：重新运行时只有键与最近一次写入相同且文件仍存在的工作会被跳过，
+ * 换用其他选项写过之后再换回来也会重新转换。
+ */
+public class CheckpointJournal implements AutoCloseable {
+
+    private final Path file;
+    private final Map<String, String> completed = new ConcurrentHashMap<>(); // 输出文件名 -> 最近一次写入的键
+    private final FileChannel channel;
+
+    /**
+     * 打开日志；fresh为true时清空已有记录
+     */
+    public CheckpointJournal(Path file, boolean fresh) throws IOException {
+        this.file = file;
+        if (!fresh && Files.exists(file)) {
+            load();
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = fresh
+                ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)
+                : FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+        if (!fresh) {
+            terminateTornLine();
+        }
+    }
+
+    private void load() throws IOException {
+        // 文件不以换行结尾说明最后一行是写入中途崩溃留下的，不予采信
+        boolean tornTail = !endsWithNewline();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while (line != null) {
+                String next = reader.readLine();
+                int tab = line.indexOf('\t');
+                // 没有输出文件名的旧格式记录不予采信，相应的用例重新转换一次
+                if (!(next == null && tornTail) && tab > 0 && !line.startsWith("#")) {
+                    completed.put(line.substring(0, tab), line.substring(tab + 1));
+                }
+                line = next;
+            }
+        }
+    }
+
+    private boolean endsWithNewline() throws IOException {
+        try (FileChannel reader = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = reader.size();
+            if (size == 0) {
+                return true;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            reader.read(last, size - 1);
+            return last.get(0) == '\n';
+        }
+    }
+
+    /**
+     * 上次在写入中途崩溃时补一个换行，使后续记录从新行开始
+     */
+    private void terminateTornLine() throws IOException {
+        if (!endsWithNewline()) {
+            channel.write(ByteBuffer.wrap(new byte[] {'\n'}));
+        }
+    }
+
+    /**
+     * 记录的键：内容哈希、模式、格式和影响输出的选项标签（见BatchOptions.outputTags，默认选项时省略）
+     */
+    public static String key(String contentHash, BatchOptions.Mode mode, String format, String outputTags) {
+        String key = contentHash + ' ' + mode.getSuffix() + ' ' + format;
+        return outputTags.isEmpty() ? key : key + ' ' + outputTags;
+    }
+
+    /**
+     * 输出文件最近一次是否以该键写入
+     */
+    public boolean isCompleted(String output, String key) {
+        return key.equals(completed.get(output));
+    }
+
+    /**
+     * 追加一条完成记录，整行一次写入
+     */
+    public void record(String output, String key) throws IOException {
+        if (key.equals(completed.put(output, key))) {
+            return;
+        }
+        ByteBuffer line = ByteBuffer.wrap((output + '\t' + key + "\n").getBytes(StandardCharsets.UTF_8));
+        synchronized (channel) {
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+        }
+    }
+
+    public int size() {
+        return completed.size();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,446 @@
+package project.batch;
+
+import project.analysis.TestPathGenerator;
+import project.graph.ActivityGraph;
+import project.layout.LayeredLayout;
+import project.metrics.TransformMetrics;
+import project.pipeline.AsyncSaveService;
+import project.rules.ActivityDiagramManager;
+import project.rules.UCMetaToActivityTransformer;
+import project.store.ActivityStore;
+import project.trace.TraceIndex;
+import project.ucmeta.UCMetaModel.UseCase;
+import project.ucmeta.UCMetaParser;
+import project.ucmeta.UCMetaWriter;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量转换 - 读取.ucm规格文件，在线程池中并行转换每个用例并写出结果
+ * 主线程依次解析文件并提交用例；队列有界，队满时由主线程自己转换，内存中只保留少量待处理用例。
+ * 每完成一个（用例, 模式）就追加到检查点日志，中断后重新运行会跳过已完成的工作；
+ * 单个用例的失败写入失败报告，不影响其他用例。
+ * 指定--store时结果写入段文件存储，存储中已有相同内容哈希的结果即视为完成；
+ * 指定--async-save时XMI序列化和写盘在AsyncSaveService的I/O线程中进行，写盘完成后才记入检查点日志。
+ */
+public class CorpusBatchRunner {
+
+    /**
+     * 单个用例（或无法解析的文件）的失败记录
+     */
+    public static class Failure {
+        private final Path source;
+        private final String useCase;
+        private final String message;
+
+        public Failure(Path source, String useCase, String message) {
+            this.source = source;
+            this.useCase = useCase;
+            this.message = message;
+        }
+
+        public Path getSource() { return source; }
+        /** 文件无法解析时为null */
+        public String getUseCase() { return useCase; }
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return source + (useCase != null ? " [" + useCase + "]" : "") + ": " + message;
+        }
+    }
+
+    private final BatchOptions options;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final List<Failure> failures = Collections.synchronizedList(new ArrayList<>());
+    private long startNanos;
+    private CheckpointJournal journal;
+    private BufferedWriter errorReport;
+    private ActivityStore store;
+    private AsyncSaveService saveService;
+
+    public CorpusBatchRunner(BatchOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * 命令行入口，返回进程退出码：0成功，1有用例失败，2参数错误
+     */
+    public static int runCli(String[] args) {
+        BatchOptions options;
+        try {
+            options = BatchOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ " + e.getMessage());
+            System.err.println(BatchOptions.USAGE);
+            return 2;
+        }
+        if (options.isHelp()) {
+            System.out.println(BatchOptions.USAGE);
+            return 0;
+        }
+        try {
+            if (options.isWatch()) {
+                new SpecWatcher(options).run();
+                return 0;
+            }
+            if (options.getWorkers() > 0) {
+                return new ShardCoordinator(options).run();
+            }
+            if (options.isStream()) {
+                return new StreamBatchRunner(options).run() ? 0 : 1;
+            }
+            return new CorpusBatchRunner(options).run() ? 0 : 1;
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("❌ " + e.getMessage());
+            return 2;
+        }
+    }
+
+    /**
+     * 执行整个批次并打印摘要，全部成功时返回true
+     */
+    public boolean run() throws IOException {
+        List<Path> files = SpecFiles.collect(options.getInputs());
+        Files.createDirectories(options.getOutputDir());
+        System.out.println("📂 " + files.size() + " 个规格文件，" + options.getThreads() + " 个线程，输出到 "
+                + options.getOutputDir().toAbsolutePath()
+                + (options.getShardCount() > 1 ? "（分片 " + options.getShardIndex() + "/" + options.getShardCount() + "）" : ""));
+        journal = new CheckpointJournal(options.getCheckpointFile(), options.isFresh());
+        if (journal.size() > 0) {
+            System.out.println("⏭ 检查点日志中已有 " + journal.size() + " 条完成记录: " + journal.getFile());
+        }
+        Files.deleteIfExists(options.getErrorReport());
+        if (options.getStoreDir() != null) {
+            store = ActivityStore.open(options.getStoreDir());
+            System.out.println("🗄 存储中已有 " + store.size() + " 条结果: " + options.getStoreDir().toAbsolutePath());
+        }
+
+        startNanos = System.nanoTime();
+        int threads = options.getThreads();
+        if (options.getAsyncSave() > 0) {
+            saveService = new AsyncSaveService(options.getAsyncSave(), threads * 2);
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+        ScheduledExecutorService progress = null;
+        if (options.getProgressSeconds() > 0) {
+            progress = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "batch-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            progress.scheduleAtFixedRate(this::printProgress, options.getProgressSeconds(),
+                    options.getProgressSeconds(), TimeUnit.SECONDS);
+        }
+
+        try {
+            for (Path file : files) {
+                List<UseCase> useCases;
+                try {
+                    useCases = UCMetaParser.parseFile(file);
+                } catch (IOException | RuntimeException e) {
+                    // 每个分片都会解析全部文件，只由第一个分片报告解析失败
+                    if (options.getShardIndex() == 0) {
+                        fail(new Failure(file, null, describe(e)), e);
+                    }
+                    continue;
+                }
+                for (UseCase useCase : useCases) {
+                    if (!options.inShard(useCase.getName())) {
+                        continue;
+                    }
+                    submitted.incrementAndGet();
+                    executor.execute(() -> transform(file, useCase));
+                }
+            }
+        } finally {
+            executor.shutdown();
+            awaitQuietly(executor);
+            if (saveService != null) {
+                // 等待剩余的保存完成，它们的检查点记录在日志关闭之前写入
+                saveService.close();
+            }
+            if (progress != null) {
+                progress.shutdownNow();
+            }
+            journal.close();
+            if (store != null) {
+                if (store.compactIfNeeded(0.5)) {
+                    System.out.println("🗄 存储已压缩，当前 " + store.getTotalBytes() + " 字节");
+                }
+                store.close();
+            }
+            if (errorReport != null) {
+                errorReport.close();
+            }
+        }
+
+        printSummary();
+        if (options.getStatsFile() != null) {
+            ShardStats.capture(this, (System.nanoTime() - startNanos) / 1_000_000).write(options.getStatsFile());
+        }
+        return failures.isEmpty();
+    }
+
+    /**
+     * 转换单个用例尚未完成的模式；任何异常只记为该用例失败，不影响其他用例
+     */
+    private void transform(Path source, UseCase useCase) {
+        try {
+            String hash = UCMetaWriter.contentHash(useCase);
+            String format = options.getFormat().getExtension();
+            boolean didWork = false;
+            List<CompletableFuture<Void>> saves = new ArrayList<>();
+            for (BatchOptions.Mode mode : options.getModes()) {
+                if (store != null) {
+                    if (store.contains(useCase.getName(), options.storeVariant(mode), hash)) {
+                        continue;
+                    }
+                    storeOutput(useCase, mode, hash);
+                    didWork = true;
+                    continue;
+                }
+                String key = CheckpointJournal.key(hash, mode, format, options.outputTags(mode));
+                Path output = options.outputFile(useCase.getName(), mode);
+                String outputName = output.getFileName().toString();
+                if (journal.isCompleted(outputName, key) && Files.exists(output)) {
+                    continue;
+                }
+                if (saveService != null) {
+                    saves.add(saveAsync(useCase, mode).thenRun(() -> record(outputName, key)));
+                } else {
+                    writeOutput(options, useCase, mode);
+                    journal.record(outputName, key);
+                }
+                didWork = true;
+            }
+            if (!saves.isEmpty()) {
+                // 所有模式都写盘完成后才计为成功
+                CompletableFuture.allOf(saves.toArray(new CompletableFuture<?>[0])).whenComplete((done, e) -> {
+                    if (e == null) {
+                        succeeded.incrementAndGet();
+                    } else {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        fail(new Failure(source, useCase.getName(), describe(cause)), cause);
+                    }
+                });
+            } else if (didWork) {
+                succeeded.incrementAndGet();
+            } else {
+                skipped.incrementAndGet();
+            }
+        } catch (Exception | StackOverflowError e) {
+            fail(new Failure(source, useCase.getName(), describe(e)), e);
+        }
+    }
+
+    /**
+     * 记录失败并立即追加到失败报告，进程中途崩溃时报告也是完整的
+     */
+    private void fail(Failure failure, Throwable cause) {
+        failed.incrementAndGet();
+        failures.add(failure);
+        StringWriter trace = new StringWriter();
+        cause.printStackTrace(new PrintWriter(trace));
+        synchronized (failures) {
+            try {
+                if (errorReport == null) {
+                    errorReport = Files.newBufferedWriter(options.getErrorReport(), StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                errorReport.write(LocalDateTime.now() + "\t" + failure.getSource() + "\t"
+                        + (failure.getUseCase() != null ? failure.getUseCase() : "-") + "\t" + failure.getMessage());
+                errorReport.newLine();
+                errorReport.write(trace.toString());
+                errorReport.flush();
+            } catch (IOException e) {
+                System.err.println("❌ 无法写入失败报告: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 按选项中的每种模式转换用例并写出结果文件
+     */
+    static void writeOutputs(BatchOptions options, UseCase useCase) throws Exception {
+        for (BatchOptions.Mode mode : options.getModes()) {
+            writeOutput(options, useCase, mode);
+        }
+    }
+
+    static void writeOutput(BatchOptions options, UseCase useCase, BatchOptions.Mode mode) throws Exception {
+        ActivityDiagramManager manager = prepare(options, useCase, mode);
+        try {
+            Path output = options.outputFile(useCase.getName(), mode);
+            options.getFormat().export(manager, output);
+            writeSidecars(options, manager, output);
+        } finally {
+            manager.dispose();
+        }
+    }
+
+    /**
+     * 先写sidecar，再把模型交给保存服务；写盘完成后服务负责dispose
+     */
+    private CompletableFuture<?> saveAsync(UseCase useCase, BatchOptions.Mode mode) throws Exception {
+        ActivityDiagramManager manager = prepare(options, useCase, mode);
+        Path output = options.outputFile(useCase.getName(), mode);
+        try {
+            // sidecar先于模型写出，子目录不能等saveToFile创建
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            writeSidecars(options, manager, output);
+            return saveService.submit(manager, output.toString());
+        } catch (InterruptedException e) {
+            manager.dispose();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to save " + output);
+        } catch (Exception | Error e) {
+            manager.dispose();
+            throw e;
+        }
+    }
+
+    private void record(String outputName, String key) {
+        try {
+            journal.record(outputName, key);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 按选项转换用例并计算布局，调用方负责dispose
+     */
+    static ActivityDiagramManager prepare(BatchOptions options, UseCase useCase, BatchOptions.Mode mode) {
+        ActivityDiagramManager manager = options.newTransformer(mode).transformUseCase(useCase);
+        manager.setVerbose(false);
+        if (options.isLayout()) {
+            LayeredLayout.apply(manager);
+        }
+        return manager;
+    }
+
+    /**
+     * 写出追溯索引和测试路径sidecar；关闭的sidecar要删除，否则会留下以前选项生成的旧文件
+     */
+    private static void writeSidecars(BatchOptions options, ActivityDiagramManager manager, Path output) throws IOException {
+        if (options.isTrace()) {
+            TraceIndex.write(manager.getTrace(), TraceIndex.sidecar(output));
+        } else {
+            Files.deleteIfExists(TraceIndex.sidecar(output));
+        }
+        if (options.getTestPaths() != null) {
+            testPaths(options, manager).write(TestPathGenerator.sidecar(output));
+        } else {
+            Files.deleteIfExists(TestPathGenerator.sidecar(output));
+        }
+    }
+
+    /**
+     * 转换并写入存储；追溯索引作为变体加.trace的另一条记录
+     */
+    private void storeOutput(UseCase useCase, BatchOptions.Mode mode, String hash) throws Exception {
+        ActivityDiagramManager manager = prepare(options, useCase, mode);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            options.getFormat().export(manager, Channels.newChannel(bytes));
+            String variant = options.storeVariant(mode);
+            if (options.isTrace()) {
+                store.put(useCase.getName(), variant + TraceIndex.EXTENSION, hash, TraceIndex.toBytes(manager.getTrace()));
+            }
+            if (options.getTestPaths() != null) {
+                store.put(useCase.getName(), variant + TestPathGenerator.EXTENSION, hash, testPaths(options, manager).toBytes());
+            }
+            // 结果最后写入，存在结果即说明追溯记录也已写入
+            store.put(useCase.getName(), variant, hash, bytes.toByteArray());
+        } finally {
+            manager.dispose();
+        }
+    }
+
+    /**
+     * 按选项中的准则生成测试路径；用例之间已经并行，生成器只用当前线程
+     */
+    static TestPathGenerator.Result testPaths(BatchOptions options, ActivityDiagramManager manager) {
+        return new TestPathGenerator(ActivityGraph.fromManager(manager)).setThreads(1).generate(options.getTestPaths());
+    }
+
+    static String describe(Throwable e) {
+        return e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+    }
+
+    private static void awaitQuietly(ThreadPoolExecutor executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // 继续等待长时间运行的转换
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private double elapsedSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    private void printProgress() {
+        long done = succeeded.get() + failed.get() + skipped.get();
+        double seconds = elapsedSeconds();
+        System.out.printf("📈 %d/%d 个用例已处理（跳过 %d，失败 %d），%.1f 用例/秒%n",
+                done, submitted.get(), skipped.get(), failed.get(), seconds > 0 ? done / seconds : 0.0);
+    }
+
+    private void printSummary() {
+        double seconds = elapsedSeconds();
+        long done = succeeded.get() + failed.get() + skipped.get();
+        System.out.printf("%n=== 批量转换完成：成功 %d，跳过 %d，失败 %d，用时 %.1f 秒，%.1f 用例/秒 ===%n",
+                succeeded.get(), skipped.get(), failed.get(), seconds, seconds > 0 ? done / seconds : 0.0);
+        System.out.println("📊 " + TransformMetrics.get());
+        if (!failures.isEmpty()) {
+            System.out.println("❌ 失败列表（详见 " + options.getErrorReport() + "）：");
+            synchronized (failures) {
+                for (Failure failure : failures) {
+                    System.out.println("  - " + failure);
+                }
+            }
+        }
+    }
+
+    public long getSucceededCount() { return succeeded.get(); }
+    public long getFailedCount() { return failed.get(); }
+    public long getSkippedCount() { return skipped.get(); }
+
+    public List<Failure> getFailures() {
+        synchronized (failures) {
+            return new ArrayList<>(failures);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package project.batch;
+
+import project.main.UCMetaToActivityMain;
+import project.rules.UCMetaToActivityTransformer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 多进程分片转换 - 按用例名哈希把语料分成N个分片，每个分片在一个子JVM中运行批量转换
+ * 子进程使用与当前进程相同的java和类路径，参数为 --shard i/N；各自写独立的检查点、失败报告和统计文件，
+ * 输出文件直接写入共享的输出目录。子进程异常退出（崩溃、内存不足、被杀死）时重试该分片，
+ * 已完成的用例由检查点跳过。全部结束后合并统计并打印摘要。
+ */
+public class ShardCoordinator {
+
+    /** 子进程的退出码：0全部成功，1有用例失败，2参数错误；其余视为崩溃 */
+    private static final int EXIT_FAILURES = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private final BatchOptions options;
+    private final List<Process> running = new ArrayList<>();
+
+    public ShardCoordinator(BatchOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * 运行所有分片并返回退出码：0全部成功，1有用例失败或分片最终未能完成
+     */
+    public int run() throws IOException {
+        int workers = options.getWorkers();
+        Path outputDir = options.getOutputDir();
+        Files.createDirectories(outputDir);
+        Files.deleteIfExists(options.getErrorReport());
+        System.out.println("🧩 " + workers + " 个分片进程，输出到 " + outputDir.toAbsolutePath()
+                + "，子进程日志见 " + outputDir.resolve(".shard-*.log"));
+
+        Thread killChildren = new Thread(this::destroyAll, "shard-shutdown");
+        Runtime.getRuntime().addShutdownHook(killChildren);
+        long start = System.nanoTime();
+        ExecutorService waiters = Executors.newFixedThreadPool(workers);
+        List<Future<ShardStats>> results = new ArrayList<>();
+        try {
+            for (int shard = 0; shard < workers; shard++) {
+                int index = shard;
+                results.add(waiters.submit(() -> runShard(index)));
+            }
+            ShardStats total = new ShardStats();
+            int lost = 0;
+            for (int shard = 0; shard < workers; shard++) {
+                ShardStats stats = await(results.get(shard));
+                if (stats == null) {
+                    lost++;
+                } else {
+                    total.merge(stats);
+                }
+            }
+            mergeErrorReports();
+
+            System.out.printf("%n=== 分片转换完成（%d 个分片，用时 %.1f 秒）：%s ===%n",
+                    workers, (System.nanoTime() - start) / 1e9, total);
+            total.getCounters().forEach((name, count) -> {
+                if (name.startsWith("nodes.") || name.startsWith("edges.")) {
+                    System.out.println("  " + name + " = " + count);
+                }
+            });
+            if (options.getStatsFile() != null) {
+                total.write(options.getStatsFile());
+            }
+            if (lost > 0) {
+                System.out.println("❌ " + lost + " 个分片在重试后仍未完成，重新运行将从检查点继续");
+            }
+            if (total.getFailed() > 0) {
+                System.out.println("❌ 失败详情见 " + options.getErrorReport());
+            }
+            return lost == 0 && total.getFailed() == 0 ? 0 : EXIT_FAILURES;
+        } finally {
+            waiters.shutdownNow();
+            try {
+                Runtime.getRuntime().removeShutdownHook(killChildren);
+            } catch (IllegalStateException e) {
+                // 已在关闭过程中
+            }
+        }
+    }
+
+    /**
+     * 运行一个分片，必要时重试；返回该分片的统计，最终失败时返回null
+     */
+    private ShardStats runShard(int shard) throws IOException, InterruptedException {
+        Path stats = statsFile(shard);
+        Path log = options.getOutputDir().resolve(".shard-" + shard + ".log");
+        Files.deleteIfExists(stats);
+        Files.deleteIfExists(log);
+        for (int attempt = 0; attempt <= options.getRetries(); attempt++) {
+            long start = System.nanoTime();
+            // 只有第一次尝试才清空检查点，重试时从检查点继续
+            ProcessBuilder builder = new ProcessBuilder(command(shard, attempt == 0 && options.isFresh()))
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(log.toFile()));
+            Process process = start(builder);
+            if (process == null) {
+                return null;
+            }
+            int exit;
+            try {
+                exit = process.waitFor();
+            } finally {
+                synchronized (running) {
+                    running.remove(process);
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (exit == EXIT_USAGE) {
+                System.out.println("❌ 分片 " + shard + " 参数错误，详见 " + log);
+                return null;
+            }
+            if ((exit == 0 || exit == EXIT_FAILURES) && Files.exists(stats)) {
+                ShardStats result = ShardStats.read(stats);
+                System.out.printf("%s 分片 %d/%d 完成（%.1f 秒）：%s%n", exit == 0 ? "✅" : "⚠", shard,
+                        options.getWorkers(), seconds, result);
+                return result;
+            }
+            System.out.printf("❌ 分片 %d 异常退出（退出码 %d，%.1f 秒）%s%n", shard, exit, seconds,
+                    attempt < options.getRetries() ? "，重试第 " + (attempt + 1) + " 次" : "，不再重试");
+        }
+        return null;
+    }
+
+    private Process start(ProcessBuilder builder) throws IOException {
+        synchronized (running) {
+            // 协调器正在退出时不再启动新进程
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            Process process = builder.start();
+            running.add(process);
+            return process;
+        }
+    }
+
+    /**
+     * 子进程的完整命令行
+     */
+    List<String> command(int shard, boolean fresh) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (options.getWorkerHeap() != null) {
+            command.add("-Xmx" + options.getWorkerHeap());
+        }
+        command.add("-Dfile.encoding=" + System.getProperty("file.encoding"));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(UCMetaToActivityMain.class.getName());
+        for (Path input : options.getInputs()) {
+            command.add(input.toString());
+        }
+        add(command, "-o", options.getOutputDir().toString());
+        add(command, "-m", options.getModeName());
+        if (options.getDetailLevel() != UCMetaToActivityTransformer.UNLIMITED_DETAIL) {
+            add(command, "--detail-level", Integer.toString(options.getDetailLevel()));
+        }
+        if (options.getShareFragments() > 0) {
+            add(command, "--share-fragments", Integer.toString(options.getShareFragments()));
+        }
+        add(command, "-f", options.getFormat().getExtension());
+        // -t 在分片模式下表示所有子进程的线程总数
+        add(command, "-t", Integer.toString(Math.max(1, options.getThreads() / options.getWorkers())));
+        add(command, "--progress", Integer.toString(options.getProgressSeconds()));
+        add(command, "--shard", shard + "/" + options.getWorkers());
+        add(command, "--stats", statsFile(shard).toString());
+        add(command, "--checkpoint", options.getCheckpointFile() + "-" + shard);
+        add(command, "--errors", shardErrorReport(shard).toString());
+        if (!options.isTrace()) {
+            command.add("--no-trace");
+        }
+        if (options.getTestPaths() != null) {
+            add(command, "--test-paths", options.getTestPaths().name().toLowerCase());
+        }
+        if (options.isLayout()) {
+            command.add("--layout");
+        }
+        if (options.getAsyncSave() > 0) {
+            add(command, "--async-save", Integer.toString(options.getAsyncSave()));
+        }
+        if (fresh) {
+            command.add("--fresh");
+        }
+        return command;
+    }
+
+    private static void add(List<String> command, String option, String value) {
+        command.add(option);
+        command.add(value);
+    }
+
+    private Path statsFile(int shard) {
+        return options.getOutputDir().resolve(".shard-" + shard + ".stats");
+    }
+
+    private Path shardErrorReport(int shard) {
+        Path report = options.getErrorReport();
+        return report.resolveSibling(report.getFileName() + "." + shard);
+    }
+
+    /**
+     * 将各分片的失败报告按分片顺序拼接为一个，删除分片报告
+     */
+    private void mergeErrorReports() throws IOException {
+        for (int shard = 0; shard < options.getWorkers(); shard++) {
+            Path report = shardErrorReport(shard);
+            if (Files.exists(report)) {
+                Files.write(options.getErrorReport(), Files.readAllBytes(report),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                Files.delete(report);
+            }
+        }
+    }
+
+    private static ShardStats await(Future<ShardStats> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            System.out.println("❌ " + CorpusBatchRunner.describe(e.getCause() != null ? e.getCause() : e));
+            return null;
+        }
+    }
+
+    private void destroyAll() {
+        synchronized (running) {
+            for (Process process : running) {
+                process.destroyForcibly();
+            }
+            running.clear();
+        }
+    }
+}
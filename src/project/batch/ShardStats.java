@@ -0,0 +1,136 @@
+package project.batch;
+
+import project.metrics.LatencyHistogram;
+import project.metrics.TransformMetrics;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * 一个分片（或合并后的整个语料）的运行统计，以properties文件在工作进程与协调器之间传递
+ * 计数可以直接相加，延迟直方图按桶相加后重新估计分位数。
+ */
+public class ShardStats {
+
+    private long succeeded;
+    private long skipped;
+    private long failed;
+    private long elapsedMillis;
+    private final Map<String, Long> counters = new TreeMap<>(); // 指标名 -> 计数，如 sentences.SIMPLE
+    private final long[] transformBuckets = new long[64];
+    private long transformMaxNanos;
+
+    /**
+     * 从本进程的运行结果和TransformMetrics生成统计
+     */
+    public static ShardStats capture(CorpusBatchRunner runner, long elapsedMillis) {
+        ShardStats stats = new ShardStats();
+        stats.succeeded = runner.getSucceededCount();
+        stats.skipped = runner.getSkippedCount();
+        stats.failed = runner.getFailedCount();
+        stats.elapsedMillis = elapsedMillis;
+        TransformMetrics metrics = TransformMetrics.get();
+        stats.counters.put("useCases", metrics.getUseCasesTransformed());
+        stats.counters.put("saves", metrics.getSaveCount());
+        stats.counters.put("saveBytes", metrics.getSaveBytes());
+        metrics.getSentencesByType().forEach((type, count) -> stats.counters.put("sentences." + type, count));
+        metrics.getNodesByKind().forEach((kind, count) -> stats.counters.put("nodes." + kind, count));
+        metrics.getEdgesByKind().forEach((kind, count) -> stats.counters.put("edges." + kind, count));
+        LatencyHistogram latency = metrics.getTransformLatency();
+        System.arraycopy(latency.getBucketCounts(), 0, stats.transformBuckets, 0, 64);
+        stats.transformMaxNanos = latency.getMaxNanos();
+        return stats;
+    }
+
+    /**
+     * 原子地写入文件（先写临时文件再改名），协调器不会读到写了一半的统计
+     */
+    public void write(Path file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("succeeded", Long.toString(succeeded));
+        properties.setProperty("skipped", Long.toString(skipped));
+        properties.setProperty("failed", Long.toString(failed));
+        properties.setProperty("elapsedMillis", Long.toString(elapsedMillis));
+        for (Map.Entry<String, Long> entry : counters.entrySet()) {
+            properties.setProperty("metrics." + entry.getKey(), Long.toString(entry.getValue()));
+        }
+        StringBuilder buckets = new StringBuilder();
+        for (int i = 0; i < transformBuckets.length; i++) {
+            buckets.append(i > 0 ? "," : "").append(transformBuckets[i]);
+        }
+        properties.setProperty("transform.buckets", buckets.toString());
+        properties.setProperty("transform.maxNanos", Long.toString(transformMaxNanos));
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(writer, "shard stats");
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static ShardStats read(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        ShardStats stats = new ShardStats();
+        stats.succeeded = Long.parseLong(properties.getProperty("succeeded", "0"));
+        stats.skipped = Long.parseLong(properties.getProperty("skipped", "0"));
+        stats.failed = Long.parseLong(properties.getProperty("failed", "0"));
+        stats.elapsedMillis = Long.parseLong(properties.getProperty("elapsedMillis", "0"));
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith("metrics.")) {
+                stats.counters.put(name.substring("metrics.".length()), Long.parseLong(properties.getProperty(name)));
+            }
+        }
+        String[] buckets = properties.getProperty("transform.buckets", "").split(",");
+        for (int i = 0; i < buckets.length && i < stats.transformBuckets.length; i++) {
+            if (!buckets[i].isEmpty()) {
+                stats.transformBuckets[i] = Long.parseLong(buckets[i]);
+            }
+        }
+        stats.transformMaxNanos = Long.parseLong(properties.getProperty("transform.maxNanos", "0"));
+        return stats;
+    }
+
+    /**
+     * 将另一个分片的统计累加进来；耗时取最大值（分片并行运行）
+     */
+    public void merge(ShardStats other) {
+        succeeded += other.succeeded;
+        skipped += other.skipped;
+        failed += other.failed;
+        elapsedMillis = Math.max(elapsedMillis, other.elapsedMillis);
+        other.counters.forEach((name, count) -> counters.merge(name, count, Long::sum));
+        for (int i = 0; i < transformBuckets.length; i++) {
+            transformBuckets[i] += other.transformBuckets[i];
+        }
+        transformMaxNanos = Math.max(transformMaxNanos, other.transformMaxNanos);
+    }
+
+    public long getSucceeded() { return succeeded; }
+    public long getSkipped() { return skipped; }
+    public long getFailed() { return failed; }
+    public long getElapsedMillis() { return elapsedMillis; }
+    public Map<String, Long> getCounters() { return counters; }
+
+    public double getTransformPercentileMillis(double q) {
+        return LatencyHistogram.percentileMillis(transformBuckets, q, transformMaxNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("成功 %d，跳过 %d，失败 %d；用例 %d 个，转换 p50 %.2f ms / p99 %.2f ms，保存 %d 字节",
+                succeeded, skipped, failed, counters.getOrDefault("useCases", 0L),
+                getTransformPercentileMillis(0.5), getTransformPercentileMillis(0.99),
+                counters.getOrDefault("saveBytes", 0L));
+    }
+}
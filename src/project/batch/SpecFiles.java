@@ -0,0 +1,47 @@
+package project.batch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 收集批量转换的输入文件
+ */
+public final class SpecFiles {
+
+    /** 规格文件扩展名 */
+    public static final String EXTENSION = ".ucm";
+
+    private SpecFiles() {
+    }
+
+    /**
+     * 展开输入路径：文件原样保留，目录递归查找*.ucm；每个目录内按路径排序，保证处理顺序稳定
+     */
+    public static List<Path> collect(List<Path> inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> walk = Files.walk(input)) {
+                    List<Path> found = walk.filter(SpecFiles::isSpecFile).collect(Collectors.toList());
+                    Collections.sort(found);
+                    files.addAll(found);
+                }
+            } else if (Files.isRegularFile(input)) {
+                files.add(input);
+            } else {
+                throw new IllegalArgumentException("Input not found: " + input);
+            }
+        }
+        return files;
+    }
+
+    public static boolean isSpecFile(Path path) {
+        return Files.isRegularFile(path) && path.getFileName().toString().endsWith(EXTENSION);
+    }
+}
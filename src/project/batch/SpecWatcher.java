@@ -0,0 +1,213 @@
+package project.batch;
+
+import project.analysis.TestPathGenerator;
+import project.ucmeta.UCMetaModel.UseCase;
+import project.ucmeta.UCMetaParser;
+import project.trace.TraceIndex;
+import project.ucmeta.UCMetaWriter;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 监视模式 - 监视输入目录中的.ucm文件，只重新转换内容发生变化的用例
+ * 每个文件记录其中各用例规范化文本的哈希；文件变化后重新解析，哈希未变的用例不重新生成，
+ * 从文件中消失的用例会删除其输出文件。连续的文件事件在debounce时间内合并为一次处理。
+ */
+public class SpecWatcher {
+
+    private final BatchOptions options;
+    private final Map<Path, Map<String, String>> hashesByFile = new HashMap<>(); // 文件 -> 用例名 -> 内容哈希
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+    private final Set<Path> explicitFiles = new LinkedHashSet<>(); // 命令行直接给出的文件（不限扩展名）
+    private WatchService watchService;
+
+    public SpecWatcher(BatchOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * 完整转换一次后持续监视，直到线程被中断
+     */
+    public void run() throws IOException {
+        Files.createDirectories(options.getOutputDir());
+        try (WatchService service = FileSystems.getDefault().newWatchService()) {
+            watchService = service;
+            for (Path input : options.getInputs()) {
+                Path absolute = input.toAbsolutePath().normalize();
+                if (Files.isDirectory(absolute)) {
+                    registerTree(absolute);
+                } else if (Files.isRegularFile(absolute)) {
+                    explicitFiles.add(absolute);
+                    register(absolute.getParent());
+                } else {
+                    throw new IllegalArgumentException("Input not found: " + input);
+                }
+            }
+
+            long start = System.nanoTime();
+            Set<Path> initial = new LinkedHashSet<>(explicitFiles);
+            for (Path file : SpecFiles.collect(options.getInputs())) {
+                initial.add(file.toAbsolutePath().normalize());
+            }
+            process(initial);
+            System.out.printf("👀 已完成首次转换（%d 个文件，%.1f 秒），监视中，Ctrl+C退出%n",
+                    initial.size(), (System.nanoTime() - start) / 1e9);
+
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> touched = awaitChanges();
+                if (!touched.isEmpty()) {
+                    process(touched);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 阻塞到第一个事件，然后继续收集直到debounce时间内没有新事件，返回涉及的规格文件
+     */
+    private Set<Path> awaitChanges() throws InterruptedException, IOException {
+        Set<Path> touched = new LinkedHashSet<>();
+        WatchKey key = watchService.take();
+        while (key != null) {
+            Path dir = watchedDirs.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                    // 事件丢失时退回到重新检查所有已知文件
+                    touched.addAll(hashesByFile.keySet());
+                    continue;
+                }
+                Path path = dir.resolve((Path) event.context());
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                    registerTree(path);
+                    try (Stream<Path> walk = Files.walk(path)) {
+                        walk.filter(SpecFiles::isSpecFile).forEach(touched::add);
+                    }
+                } else if (isWatchedFile(path)) {
+                    touched.add(path);
+                }
+            }
+            if (!key.reset()) {
+                watchedDirs.remove(key);
+            }
+            key = watchService.poll(options.getDebounceMillis(), TimeUnit.MILLISECONDS);
+        }
+        return touched;
+    }
+
+    private boolean isWatchedFile(Path path) {
+        return explicitFiles.contains(path) || hashesByFile.containsKey(path)
+                || path.getFileName().toString().endsWith(SpecFiles.EXTENSION);
+    }
+
+    /**
+     * 重新解析涉及的文件，只转换新增或内容变化的用例，删除已消失用例的输出
+     */
+    private void process(Set<Path> files) {
+        long start = System.nanoTime();
+        int changed = 0;
+        int unchanged = 0;
+        int removed = 0;
+        int failed = 0;
+        for (Path file : files) {
+            Map<String, String> previous = hashesByFile.getOrDefault(file, new HashMap<>());
+            Map<String, String> current = new LinkedHashMap<>();
+            if (Files.isRegularFile(file)) {
+                List<UseCase> useCases;
+                try {
+                    useCases = UCMetaParser.parseFile(file);
+                } catch (IOException | RuntimeException e) {
+                    // 保留上次成功的状态，文件修正后再比较
+                    System.out.println("❌ " + file + ": " + CorpusBatchRunner.describe(e));
+                    failed++;
+                    continue;
+                }
+                for (UseCase useCase : useCases) {
+                    String hash = UCMetaWriter.contentHash(useCase);
+                    current.put(useCase.getName(), hash);
+                    if (hash.equals(previous.get(useCase.getName()))) {
+                        unchanged++;
+                        continue;
+                    }
+                    try {
+                        CorpusBatchRunner.writeOutputs(options, useCase);
+                        changed++;
+                    } catch (Exception | StackOverflowError e) {
+                        // 不记录哈希，下次保存文件时重试
+                        current.remove(useCase.getName());
+                        System.out.println("❌ " + file + " [" + useCase.getName() + "]: " + CorpusBatchRunner.describe(e));
+                        failed++;
+                    }
+                }
+            }
+            if (current.isEmpty()) {
+                hashesByFile.remove(file);
+            } else {
+                hashesByFile.put(file, current);
+            }
+            for (String name : previous.keySet()) {
+                if (!current.containsKey(name) && deleteOutputs(name)) {
+                    removed++;
+                }
+            }
+        }
+        if (changed + removed + failed > 0) {
+            System.out.printf("🔄 %d 个文件：更新 %d，未变化 %d，删除 %d，失败 %d（%d ms）%n", files.size(),
+                    changed, unchanged, removed, failed, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private boolean deleteOutputs(String useCaseName) {
+        // 同名用例可能已移到另一个文件中
+        for (Map<String, String> hashes : hashesByFile.values()) {
+            if (hashes.containsKey(useCaseName)) {
+                return false;
+            }
+        }
+        boolean deleted = false;
+        for (BatchOptions.Mode mode : options.getModes()) {
+            try {
+                deleted |= Files.deleteIfExists(options.outputFile(useCaseName, mode));
+                Files.deleteIfExists(TraceIndex.sidecar(options.outputFile(useCaseName, mode)));
+                Files.deleteIfExists(TestPathGenerator.sidecar(options.outputFile(useCaseName, mode)));
+            } catch (IOException e) {
+                System.out.println("❌ 无法删除 " + options.outputFile(useCaseName, mode) + ": " + e.getMessage());
+            }
+        }
+        return deleted;
+    }
+
+    private void registerTree(Path root) throws IOException {
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path dir : (Iterable<Path>) walk.filter(Files::isDirectory)::iterator) {
+                register(dir);
+            }
+        }
+    }
+
+    private void register(Path dir) throws IOException {
+        if (watchedDirs.containsValue(dir)) {
+            return;
+        }
+        WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        watchedDirs.put(key, dir);
+    }
+}
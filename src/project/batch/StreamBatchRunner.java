@@ -0,0 +1,161 @@
+package project.batch;
+
+import project.analysis.TestPathGenerator;
+import project.metrics.TransformMetrics;
+import project.pipeline.FileSinkSubscriber;
+import project.pipeline.IterablePublisher;
+import project.pipeline.TransformProcessor;
+import project.rules.ActivityDiagramManager;
+import project.trace.TraceIndex;
+import project.ucmeta.UCMetaModel.UseCase;
+import project.ucmeta.UCMetaParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流式批量转换（--stream）
+ * 规格文件在下游请求时才逐个解析，用例经IterablePublisher → TransformProcessor → FileSinkSubscriber转换并写出，
+ * 同时在转换或等待写出的用例不超过线程数的两倍，语料再大堆中也只有少量模型和结果。
+ * 结果与普通批量转换相同（含细节层级、片段共享、布局和sidecar），但不读写检查点日志，每次全部重新转换。
+ */
+public class StreamBatchRunner {
+
+    private final BatchOptions options;
+    private final AtomicLong parseFailures = new AtomicLong();
+
+    public StreamBatchRunner(BatchOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * 执行整个流并打印摘要，全部成功时返回true
+     */
+    public boolean run() throws IOException {
+        List<Path> files = SpecFiles.collect(options.getInputs());
+        Files.createDirectories(options.getOutputDir());
+        int threads = options.getThreads();
+        System.out.println("📂 " + files.size() + " 个规格文件，" + threads + " 个线程，流式输出到 "
+                + options.getOutputDir().toAbsolutePath());
+
+        long start = System.nanoTime();
+        ExecutorService source = Executors.newSingleThreadExecutor(daemon("stream-source"));
+        ExecutorService workers = Executors.newFixedThreadPool(threads, daemon("stream-transform"));
+        FileSinkSubscriber sink = new FileSinkSubscriber(options.getOutputDir(), threads * 2);
+        try {
+            TransformProcessor processor = new TransformProcessor(useCase -> render(options, useCase), workers, threads * 2);
+            processor.subscribe(sink);
+            new IterablePublisher<>(() -> new UseCaseIterator(files), source).subscribe(processor);
+            sink.getCompletion().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while streaming", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Stream failed: " + CorpusBatchRunner.describe(e.getCause()), e.getCause());
+        } finally {
+            source.shutdownNow();
+            workers.shutdownNow();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long failed = sink.getFailedCount() + parseFailures.get();
+        System.out.printf("%n=== 流式转换完成：成功 %d，失败 %d，用时 %.1f 秒，%.1f 用例/秒 ===%n",
+                sink.getWrittenCount(), failed, seconds, seconds > 0 ? (sink.getWrittenCount() + failed) / seconds : 0.0);
+        System.out.println("📊 " + TransformMetrics.get());
+        return failed == 0;
+    }
+
+    /**
+     * 按选项中的每种模式转换用例，结果和sidecar以相对输出目录的文件名保存在内存中
+     */
+    static Map<String, byte[]> render(BatchOptions options, UseCase useCase) throws Exception {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        for (BatchOptions.Mode mode : options.getModes()) {
+            ActivityDiagramManager manager = CorpusBatchRunner.prepare(options, useCase, mode);
+            try {
+                String output = options.getOutputDir().relativize(options.outputFile(useCase.getName(), mode)).toString();
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+                options.getFormat().export(manager, Channels.newChannel(bytes));
+                files.put(output, bytes.toByteArray());
+                if (options.isTrace()) {
+                    files.put(output + TraceIndex.EXTENSION, TraceIndex.toBytes(manager.getTrace()));
+                }
+                if (options.getTestPaths() != null) {
+                    files.put(output + TestPathGenerator.EXTENSION, CorpusBatchRunner.testPaths(options, manager).toBytes());
+                }
+            } finally {
+                manager.dispose();
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 逐个文件解析的用例迭代器，只持有当前文件的用例；无法解析的文件报告后跳过
+     */
+    private final class UseCaseIterator implements Iterator<UseCase> {
+        private final Iterator<Path> files;
+        private Iterator<UseCase> current = Collections.emptyIterator();
+        private UseCase next;
+
+        UseCaseIterator(List<Path> files) {
+            this.files = files.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                while (!current.hasNext()) {
+                    if (!files.hasNext()) {
+                        return false;
+                    }
+                    Path file = files.next();
+                    try {
+                        current = UCMetaParser.parseFile(file).iterator();
+                    } catch (IOException | RuntimeException e) {
+                        parseFailures.incrementAndGet();
+                        System.err.println("❌ " + file + ": " + CorpusBatchRunner.describe(e));
+                    }
+                }
+                UseCase useCase = current.next();
+                if (options.inShard(useCase.getName())) {
+                    next = useCase;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public UseCase next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            UseCase useCase = next;
+            next = null;
+            return useCase;
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicLong count = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package project.export;
+
+import org.eclipse.uml2.uml.Activity;
+import org.eclipse.uml2.uml.ActivityNode;
+import project.graph.ActivityGraph;
+import project.rules.ActivityDiagramManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 轻量格式导出器基类
+ * 直接遍历活动中的节点和边，经缓冲写入NIO通道，不经过EMF序列化，也不构建中间文档
+ */
+public abstract class ActivityExporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 导出到文件
+     */
+    public void export(ActivityDiagramManager manager, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            export(manager, channel);
+        }
+    }
+
+    /**
+     * 导出到通道，完成后刷新缓冲区但不关闭通道
+     */
+    public void export(ActivityDiagramManager manager, WritableByteChannel channel) throws IOException {
+        Writer out = new BufferedWriter(
+                Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+        write(manager, out);
+        out.flush();
+    }
+
+    /**
+     * 写出主活动及细节层级、片段共享生成的全部子活动；默认依次写出各活动，格式需要单一文档时覆盖
+     */
+    protected void write(ActivityDiagramManager manager, Writer out) throws IOException {
+        write(manager, manager.getActivity(), out);
+        for (Activity subActivity : manager.getSubActivities()) {
+            write(manager, subActivity, out);
+        }
+    }
+
+    /**
+     * 将一个活动写出为具体格式
+     */
+    protected abstract void write(ActivityDiagramManager manager, Activity activity, Writer out) throws IOException;
+
+    /**
+     * 节点的导出ID：优先使用自定义ID，引脚归到所属动作；
+     * 没有自定义ID时按所在活动中的位置编号，子活动中的编号加上子活动ID前缀，保证同一文件内不重复
+     */
+    protected static String nodeId(ActivityDiagramManager manager, ActivityNode node) {
+        ActivityNode owner = ActivityGraph.ownerOf(node);
+        String id = manager.getCustomId(owner);
+        if (id == null) {
+            Activity activity = owner.getActivity();
+            id = "n" + activity.getOwnedNodes().indexOf(owner);
+            if (activity != manager.getActivity()) {
+                id = manager.getCustomId(activity) + "." + id;
+            }
+        }
+        return id;
+    }
+
+    /**
+     * 节点的显示名称，无名节点使用类别名
+     */
+    protected static String label(ActivityNode node) {
+        if (node.getName() != null && !node.getName().isEmpty()) {
+            return node.getName();
+        }
+        return ActivityGraph.kindOf(node).name().toLowerCase();
+    }
+}
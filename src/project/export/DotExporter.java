@@ -0,0 +1,123 @@
+package project.export;
+
+import org.eclipse.uml2.uml.Activity;
+import org.eclipse.uml2.uml.ActivityEdge;
+import org.eclipse.uml2.uml.ActivityNode;
+import org.eclipse.uml2.uml.ObjectFlow;
+import project.graph.ActivityGraph;
+import project.rules.ActivityDiagramManager;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Graphviz DOT导出器
+ * 子活动作为同一有向图中的cluster子图输出，节点ID在整个文件内唯一
+ */
+public class DotExporter extends ActivityExporter {
+
+    @Override
+    protected void write(ActivityDiagramManager manager, Writer out) throws IOException {
+        header(out, manager.getActivity());
+        body(manager, manager.getActivity(), "  ", out);
+        for (Activity subActivity : manager.getSubActivities()) {
+            out.write("  subgraph ");
+            quote(out, "cluster_" + manager.getCustomId(subActivity));
+            out.write(" {\n    label=");
+            quote(out, subActivity.getName());
+            out.write(";\n    style=rounded;\n");
+            body(manager, subActivity, "    ", out);
+            out.write("  }\n");
+        }
+        out.write("}\n");
+    }
+
+    @Override
+    protected void write(ActivityDiagramManager manager, Activity activity, Writer out) throws IOException {
+        header(out, activity);
+        body(manager, activity, "  ", out);
+        out.write("}\n");
+    }
+
+    private static void header(Writer out, Activity activity) throws IOException {
+        out.write("digraph ");
+        quote(out, activity.getName());
+        out.write(" {\n  rankdir=TB;\n  node [fontname=\"sans-serif\"];\n");
+    }
+
+    private static void body(ActivityDiagramManager manager, Activity activity, String indent, Writer out) throws IOException {
+        for (ActivityNode node : activity.getOwnedNodes()) {
+            out.write(indent);
+            quote(out, nodeId(manager, node));
+            out.write(" [");
+            out.write(attributes(node));
+            out.write("];\n");
+        }
+
+        for (ActivityEdge edge : activity.getEdges()) {
+            out.write(indent);
+            quote(out, nodeId(manager, edge.getSource()));
+            out.write(" -> ");
+            quote(out, nodeId(manager, edge.getTarget()));
+            boolean objectFlow = edge instanceof ObjectFlow;
+            if (edge.getName() != null || objectFlow) {
+                out.write(" [");
+                if (edge.getName() != null) {
+                    out.write("label=");
+                    quote(out, edge.getName());
+                }
+                if (objectFlow) {
+                    out.write(edge.getName() != null ? " style=dashed" : "style=dashed");
+                }
+                out.write("]");
+            }
+            out.write(";\n");
+        }
+    }
+
+    private static String attributes(ActivityNode node) {
+        switch (ActivityGraph.kindOf(node)) {
+            case INITIAL:
+                return "shape=circle style=filled fillcolor=black label=\"\" width=0.25";
+            case ACTIVITY_FINAL:
+                return "shape=doublecircle style=filled fillcolor=black label=\"\" width=0.2";
+            case FLOW_FINAL:
+                return "shape=circle label=\"X\" width=0.25";
+            case DECISION:
+            case MERGE:
+                return "shape=diamond label=\"\" width=0.3 height=0.3";
+            case FORK:
+            case JOIN:
+                return "shape=box style=filled fillcolor=black label=\"\" height=0.06 width=1.2";
+            case ACCEPT_EVENT:
+                return "shape=cds label=" + escape(label(node));
+            default:
+                return "shape=box style=rounded label=" + escape(label(node));
+        }
+    }
+
+    private static void quote(Writer out, String value) throws IOException {
+        out.write(escape(value));
+    }
+
+    /**
+     * 写成DOT的双引号字符串，null写作空字符串（活动和子活动可以没有名称）
+     */
+    private static String escape(String value) {
+        if (value == null) {
+            return "\"\"";
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
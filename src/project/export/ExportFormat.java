@@ -0,0 +1,67 @@
+package project.export;
+
+import project.rules.ActivityDiagramManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * 活动图输出格式
+ */
+public enum ExportFormat {
+    UML("uml", null),
+    DOT("dot", new DotExporter()),
+    PLANTUML("puml", new PlantUmlExporter()),
+    JSON("json", new JsonExporter());
+
+    private final String extension;
+    private final ActivityExporter exporter;
+
+    ExportFormat(String extension, ActivityExporter exporter) {
+        this.extension = extension;
+        this.exporter = exporter;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * 写入文件；UML格式走saveToFile，保留稳定ID和未变化跳过写入的行为
+     */
+    public void export(ActivityDiagramManager manager, Path file) throws Exception {
+        if (exporter == null) {
+            manager.saveToFile(file.toString());
+        } else {
+            exporter.export(manager, file);
+        }
+    }
+
+    /**
+     * 写入通道，完成后不关闭通道
+     */
+    public void export(ActivityDiagramManager manager, WritableByteChannel channel) throws IOException {
+        if (exporter == null) {
+            ByteBuffer buffer = ByteBuffer.wrap(manager.toXmiBytes());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } else {
+            exporter.export(manager, channel);
+        }
+    }
+
+    /**
+     * 按名称或扩展名解析格式，忽略大小写
+     */
+    public static ExportFormat forName(String name) {
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name) || format.extension.equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown export format: " + name);
+    }
+}
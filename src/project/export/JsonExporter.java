@@ -0,0 +1,150 @@
+package project.export;
+
+import org.eclipse.uml2.uml.Activity;
+import org.eclipse.uml2.uml.ActivityEdge;
+import org.eclipse.uml2.uml.ActivityNode;
+import org.eclipse.uml2.uml.Behavior;
+import org.eclipse.uml2.uml.CallBehaviorAction;
+import org.eclipse.uml2.uml.ObjectFlow;
+import project.graph.ActivityGraph;
+import project.layout.LayeredLayout;
+import project.rules.ActivityDiagramManager;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 紧凑JSON图导出器
+ * 格式：{"name":..,"nodes":[{"id","kind","type","name","calls","bounds"}],"edges":[{"id","source","target","name","object","points"}],
+ * "subActivities":[{"id","name","nodes","edges"}]}
+ * calls是调用动作所调用子活动的ID；subActivities只在有子活动时输出；bounds和points只在模型带有布局注解时输出（见LayeredLayout）
+ */
+public class JsonExporter extends ActivityExporter {
+
+    @Override
+    protected void write(ActivityDiagramManager manager, Writer out) throws IOException {
+        out.write('{');
+        members(manager, manager.getActivity(), out);
+        if (!manager.getSubActivities().isEmpty()) {
+            out.write(",\"subActivities\":[");
+            boolean first = true;
+            for (Activity subActivity : manager.getSubActivities()) {
+                out.write(first ? "{\"id\":" : ",{\"id\":");
+                first = false;
+                string(out, manager.getCustomId(subActivity));
+                out.write(',');
+                members(manager, subActivity, out);
+                out.write('}');
+            }
+            out.write(']');
+        }
+        out.write("}\n");
+    }
+
+    @Override
+    protected void write(ActivityDiagramManager manager, Activity activity, Writer out) throws IOException {
+        out.write('{');
+        members(manager, activity, out);
+        out.write("}\n");
+    }
+
+    private static void members(ActivityDiagramManager manager, Activity activity, Writer out) throws IOException {
+        out.write("\"name\":");
+        string(out, activity.getName());
+        out.write(",\"nodes\":[");
+        boolean first = true;
+        for (ActivityNode node : activity.getOwnedNodes()) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.write("{\"id\":");
+            string(out, nodeId(manager, node));
+            out.write(",\"kind\":\"");
+            out.write(ActivityGraph.kindOf(node).name());
+            out.write("\",\"type\":\"");
+            out.write(node.eClass().getName());
+            out.write('"');
+            if (node.getName() != null) {
+                out.write(",\"name\":");
+                string(out, node.getName());
+            }
+            Behavior behavior = node instanceof CallBehaviorAction ? ((CallBehaviorAction) node).getBehavior() : null;
+            if (behavior != null && manager.getCustomId(behavior) != null) {
+                out.write(",\"calls\":");
+                string(out, manager.getCustomId(behavior));
+            }
+            coordinates(out, "bounds", LayeredLayout.getBounds(node));
+            out.write('}');
+        }
+        out.write("],\"edges\":[");
+        first = true;
+        int index = 0;
+        for (ActivityEdge edge : activity.getEdges()) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            String id = manager.getCustomId(edge);
+            out.write("{\"id\":");
+            string(out, id != null ? id : "e" + index);
+            out.write(",\"source\":");
+            string(out, nodeId(manager, edge.getSource()));
+            out.write(",\"target\":");
+            string(out, nodeId(manager, edge.getTarget()));
+            if (edge.getName() != null) {
+                out.write(",\"name\":");
+                string(out, edge.getName());
+            }
+            if (edge instanceof ObjectFlow) {
+                out.write(",\"object\":true");
+            }
+            coordinates(out, "points", LayeredLayout.getPoints(edge));
+            out.write('}');
+            index++;
+        }
+        out.write(']');
+    }
+
+    private static void coordinates(Writer out, String key, int[] values) throws IOException {
+        if (values == null) {
+            return;
+        }
+        out.write(",\"" + key + "\":[");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(Integer.toString(values[i]));
+        }
+        out.write(']');
+    }
+
+    /**
+     * 写出JSON字符串，null写作null（活动和子活动可以没有名称）
+     */
+    private static void string(Writer out, String value) throws IOException {
+        if (value == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
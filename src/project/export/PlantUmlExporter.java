@@ -0,0 +1,147 @@
+package project.export;
+
+import org.eclipse.uml2.uml.*;
+import project.graph.ActivityGraph;
+import project.rules.ActivityDiagramManager;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * PlantUML活动图导出器（箭头语法）
+ * 箭头语法要求节点先以"标签 as 别名"出现一次，因此按从初始节点出发的广度优先顺序输出边，
+ * 保证每条边的源节点都已声明；没有入边的AcceptEventAction作为额外的起点输出。
+ * 别名按首次出现的顺序编号为n0、n1…，与ID中的字符无关；标题、标签中的引号、换行等按PlantUML的写法转义。
+ */
+public class PlantUmlExporter extends ActivityExporter {
+
+    @Override
+    protected void write(ActivityDiagramManager manager, Activity activity, Writer out) throws IOException {
+        out.write("@startuml\n");
+        if (activity.getName() != null) {
+            // 没有名称的活动不写标题
+            out.write("title ");
+            out.write(escape(activity.getName()));
+            out.write('\n');
+        }
+
+        Map<ActivityNode, String> aliases = new HashMap<>();
+        Set<ActivityNode> visited = new HashSet<>();
+        Deque<ActivityNode> queue = new ArrayDeque<>();
+
+        for (ActivityNode node : activity.getOwnedNodes()) {
+            if (node instanceof InitialNode) {
+                visited.add(node);
+                queue.add(node);
+            }
+        }
+        drain(queue, visited, aliases, out);
+
+        for (ActivityNode node : activity.getOwnedNodes()) {
+            if (visited.contains(node)) {
+                continue;
+            }
+            if (node instanceof AcceptEventAction || node.getIncomings().isEmpty()) {
+                out.write("(*) --> ");
+                out.write(reference(node, aliases));
+                out.write('\n');
+                visited.add(node);
+                queue.add(node);
+                drain(queue, visited, aliases, out);
+            }
+        }
+        out.write("@enduml\n");
+    }
+
+    private static void drain(Deque<ActivityNode> queue, Set<ActivityNode> visited,
+                              Map<ActivityNode, String> aliases, Writer out) throws IOException {
+        while (!queue.isEmpty()) {
+            ActivityNode node = queue.poll();
+            if (node instanceof FinalNode) {
+                // 终止节点在箭头语法中与起点同写作(*)，其出边无法表达
+                continue;
+            }
+            for (ActivityEdge edge : outgoings(node)) {
+                ActivityNode target = ActivityGraph.ownerOf(edge.getTarget());
+                out.write(reference(node, aliases));
+                out.write(edge instanceof ObjectFlow ? " ..>" : " -->");
+                if (edge.getName() != null) {
+                    out.write("[");
+                    out.write(escape(edge.getName()).replace("]", "&#93;"));
+                    out.write("]");
+                }
+                out.write(' ');
+                out.write(reference(target, aliases));
+                out.write('\n');
+                if (visited.add(target)) {
+                    queue.add(target);
+                }
+            }
+        }
+    }
+
+    private static List<ActivityEdge> outgoings(ActivityNode node) {
+        if (!(node instanceof Action) || ((Action) node).getOutputs().isEmpty()) {
+            return node.getOutgoings();
+        }
+        List<ActivityEdge> edges = new ArrayList<>(node.getOutgoings());
+        for (OutputPin pin : ((Action) node).getOutputs()) {
+            edges.addAll(pin.getOutgoings());
+        }
+        return edges;
+    }
+
+    /**
+     * 节点的引用写法：首次出现时声明标签和别名，之后只写别名
+     */
+    private static String reference(ActivityNode node, Map<ActivityNode, String> aliases) {
+        switch (ActivityGraph.kindOf(node)) {
+            case INITIAL:
+            case ACTIVITY_FINAL:
+            case FLOW_FINAL:
+                return "(*)";
+            case FORK:
+            case JOIN:
+                return "===" + alias(node, aliases) + "===";
+            default:
+                String alias = aliases.get(node);
+                if (alias != null) {
+                    return alias;
+                }
+                return "\"" + escape(label(node)) + "\" as " + alias(node, aliases);
+        }
+    }
+
+    /**
+     * 节点的别名，首次请求时按已分配的数量编号
+     */
+    private static String alias(ActivityNode node, Map<ActivityNode, String> aliases) {
+        String alias = aliases.get(node);
+        if (alias == null) {
+            alias = "n" + aliases.size();
+            aliases.put(node, alias);
+        }
+        return alias;
+    }
+
+    /**
+     * 转义单行文本：引号和反斜杠写成数字字符引用，换行写成PlantUML的\n，其他控制字符去掉
+     */
+    private static String escape(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                sb.append("&#34;");
+            } else if (c == '\\') {
+                sb.append("&#92;");
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else if (c >= 0x20) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
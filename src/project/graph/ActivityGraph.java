@@ -0,0 +1,296 @@
+package project.graph;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.eclipse.uml2.uml.*;
+import org.eclipse.uml2.uml.resources.util.UMLResourcesUtil;
+import project.rules.ActivityDiagramManager;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * 活动图的轻量级图中间表示
+ * 节点和边按下标存放，邻接关系压缩为数组，供哈希、比较、导出和分析使用
+ */
+public class ActivityGraph {
+
+    /**
+     * 节点类别
+     */
+    public enum NodeKind {
+        INITIAL,
+        ACTIVITY_FINAL,
+        FLOW_FINAL,
+        DECISION,
+        MERGE,
+        FORK,
+        JOIN,
+        ACTION,
+        CALL_BEHAVIOR,
+        ACCEPT_EVENT,
+        OTHER
+    }
+
+    /**
+     * 图节点
+     */
+    public static class Node {
+        private final int index;
+        private final String id;
+        private final NodeKind kind;
+        private final String umlType;
+        private final String name;
+        private final List<String> pins;
+        private final boolean stableId;
+
+        Node(int index, String id, boolean stableId, NodeKind kind, String umlType, String name, List<String> pins) {
+            this.index = index;
+            this.id = id;
+            this.stableId = stableId;
+            this.kind = kind;
+            this.umlType = umlType;
+            this.name = name;
+            this.pins = pins;
+        }
+
+        public int getIndex() { return index; }
+        public String getId() { return id; }
+        /** ID来自模型（自定义ID或xmi:id），而不是按下标生成，可用于跨版本配对 */
+        public boolean hasStableId() { return stableId; }
+        public NodeKind getKind() { return kind; }
+        public String getUmlType() { return umlType; }
+        public String getName() { return name; }
+        /** 引脚描述，形如"in:input:Type"或"out:output:Type" */
+        public List<String> getPins() { return pins; }
+    }
+
+    /**
+     * 图的边，对象流的端点为引脚所属的动作节点
+     */
+    public static class Edge {
+        private final int index;
+        private final String id;
+        private final int source;
+        private final int target;
+        private final String name;
+        private final boolean objectFlow;
+
+        Edge(int index, String id, int source, int target, String name, boolean objectFlow) {
+            this.index = index;
+            this.id = id;
+            this.source = source;
+            this.target = target;
+            this.name = name;
+            this.objectFlow = objectFlow;
+        }
+
+        public int getIndex() { return index; }
+        public String getId() { return id; }
+        public int getSource() { return source; }
+        public int getTarget() { return target; }
+        public String getName() { return name; }
+        public boolean isObjectFlow() { return objectFlow; }
+    }
+
+    private final String name;
+    private final List<Node> nodes = new ArrayList<>();
+    private final List<Edge> edges = new ArrayList<>();
+    private final List<String> constraints = new ArrayList<>();
+    private final Map<String, Node> nodesById = new HashMap<>();
+
+    // 压缩邻接表：第i个节点的出边为outEdges[outStart[i] .. outStart[i+1])
+    private int[] outStart;
+    private int[] outEdges;
+    private int[] inStart;
+    private int[] inEdges;
+
+    private ActivityGraph(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 由活动图管理器构建，节点和边使用管理器中的自定义ID
+     */
+    public static ActivityGraph fromManager(ActivityDiagramManager manager) {
+        return fromActivity(manager.getActivity(), manager::getCustomId);
+    }
+
+    /**
+     * 由活动构建，若活动位于XML资源中则使用xmi:id，否则按下标生成ID
+     */
+    public static ActivityGraph fromActivity(Activity activity) {
+        Resource resource = activity.eResource();
+        if (resource instanceof XMLResource) {
+            XMLResource xml = (XMLResource) resource;
+            return fromActivity(activity, xml::getID);
+        }
+        return fromActivity(activity, element -> null);
+    }
+
+    /**
+     * 由活动构建，idLookup返回null的元素使用按下标生成的ID
+     */
+    public static ActivityGraph fromActivity(Activity activity, java.util.function.Function<EObject, String> idLookup) {
+        ActivityGraph graph = new ActivityGraph(activity.getName());
+        Map<ActivityNode, Integer> indexOf = new HashMap<>();
+
+        for (ActivityNode node : activity.getOwnedNodes()) {
+            String id = idLookup.apply(node);
+            boolean stableId = id != null;
+            if (!stableId) {
+                id = "n" + graph.nodes.size();
+            }
+            indexOf.put(node, graph.nodes.size());
+            graph.addNode(id, stableId, kindOf(node), node.eClass().getName(), node.getName(), pinsOf(node));
+        }
+
+        for (ActivityEdge edge : activity.getEdges()) {
+            Integer source = indexOf.get(ownerOf(edge.getSource()));
+            Integer target = indexOf.get(ownerOf(edge.getTarget()));
+            if (source == null || target == null) {
+                continue;
+            }
+            String id = idLookup.apply(edge);
+            if (id == null) {
+                id = "e" + graph.edges.size();
+            }
+            graph.edges.add(new Edge(graph.edges.size(), id, source, target, edge.getName(), edge instanceof ObjectFlow));
+        }
+
+        for (Constraint constraint : activity.getPreconditions()) {
+            graph.constraints.add("pre:" + constraintText(constraint));
+        }
+        for (Constraint constraint : activity.getPostconditions()) {
+            graph.constraints.add("post:" + constraintText(constraint));
+        }
+
+        graph.buildAdjacency();
+        return graph;
+    }
+
+    /**
+     * 从.uml文件读取其中所有活动
+     */
+    public static List<ActivityGraph> readActivities(File file) {
+        ResourceSet resourceSet = new ResourceSetImpl();
+        UMLResourcesUtil.init(resourceSet);
+        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("uml", new XMIResourceFactoryImpl());
+        Resource resource = resourceSet.getResource(URI.createFileURI(file.getAbsolutePath()), true);
+
+        List<ActivityGraph> graphs = new ArrayList<>();
+        for (Iterator<EObject> it = resource.getAllContents(); it.hasNext(); ) {
+            EObject element = it.next();
+            if (element instanceof Activity) {
+                graphs.add(fromActivity((Activity) element));
+            }
+        }
+        return graphs;
+    }
+
+    private void addNode(String id, boolean stableId, NodeKind kind, String umlType, String nodeName, List<String> pins) {
+        Node node = new Node(nodes.size(), id, stableId, kind, umlType, nodeName, pins);
+        nodes.add(node);
+        nodesById.put(id, node);
+    }
+
+    private void buildAdjacency() {
+        int n = nodes.size();
+        outStart = new int[n + 1];
+        inStart = new int[n + 1];
+        for (Edge edge : edges) {
+            outStart[edge.source + 1]++;
+            inStart[edge.target + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            outStart[i + 1] += outStart[i];
+            inStart[i + 1] += inStart[i];
+        }
+        outEdges = new int[edges.size()];
+        inEdges = new int[edges.size()];
+        int[] outFill = Arrays.copyOf(outStart, n);
+        int[] inFill = Arrays.copyOf(inStart, n);
+        for (Edge edge : edges) {
+            outEdges[outFill[edge.source]++] = edge.index;
+            inEdges[inFill[edge.target]++] = edge.index;
+        }
+    }
+
+    /**
+     * 边端点所属的节点：对象流连接的是引脚，归到引脚所属的动作上
+     */
+    public static ActivityNode ownerOf(ActivityNode node) {
+        if (node instanceof Pin && node.eContainer() instanceof ActivityNode) {
+            return (ActivityNode) node.eContainer();
+        }
+        return node;
+    }
+
+    private static List<String> pinsOf(ActivityNode node) {
+        if (!(node instanceof Action)) {
+            return Collections.emptyList();
+        }
+        List<String> pins = new ArrayList<>();
+        for (InputPin pin : ((Action) node).getInputs()) {
+            pins.add("in:" + pin.getName() + ":" + (pin.getType() != null ? pin.getType().getName() : ""));
+        }
+        for (OutputPin pin : ((Action) node).getOutputs()) {
+            pins.add("out:" + pin.getName() + ":" + (pin.getType() != null ? pin.getType().getName() : ""));
+        }
+        return pins;
+    }
+
+    private static String constraintText(Constraint constraint) {
+        ValueSpecification specification = constraint.getSpecification();
+        return specification != null ? specification.stringValue() : "";
+    }
+
+    /**
+     * UML节点对应的节点类别
+     */
+    public static NodeKind kindOf(ActivityNode node) {
+        if (node instanceof InitialNode) return NodeKind.INITIAL;
+        if (node instanceof ActivityFinalNode) return NodeKind.ACTIVITY_FINAL;
+        if (node instanceof FlowFinalNode) return NodeKind.FLOW_FINAL;
+        if (node instanceof DecisionNode) return NodeKind.DECISION;
+        if (node instanceof MergeNode) return NodeKind.MERGE;
+        if (node instanceof ForkNode) return NodeKind.FORK;
+        if (node instanceof JoinNode) return NodeKind.JOIN;
+        if (node instanceof AcceptEventAction) return NodeKind.ACCEPT_EVENT;
+        if (node instanceof CallBehaviorAction) return NodeKind.CALL_BEHAVIOR;
+        if (node instanceof Action) return NodeKind.ACTION;
+        return NodeKind.OTHER;
+    }
+
+    public String getName() { return name; }
+    public List<Node> getNodes() { return nodes; }
+    public List<Edge> getEdges() { return edges; }
+    public int getNodeCount() { return nodes.size(); }
+    public int getEdgeCount() { return edges.size(); }
+    /** 前置条件和后置条件文本，分别以"pre:"和"post:"开头 */
+    public List<String> getConstraints() { return constraints; }
+
+    public Node getNode(int index) { return nodes.get(index); }
+    public Edge getEdge(int index) { return edges.get(index); }
+
+    /**
+     * 根据ID获取节点，不存在时返回null
+     */
+    public Node getNodeById(String id) {
+        return nodesById.get(id);
+    }
+
+    public int getOutDegree(int node) { return outStart[node + 1] - outStart[node]; }
+    public int getInDegree(int node) { return inStart[node + 1] - inStart[node]; }
+
+    /** 第node个节点的第i条出边的下标 */
+    public int getOutEdge(int node, int i) { return outEdges[outStart[node] + i]; }
+
+    /** 第node个节点的第i条入边的下标 */
+    public int getInEdge(int node, int i) { return inEdges[inStart[node] + i]; }
+}
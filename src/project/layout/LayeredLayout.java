@@ -0,0 +1,778 @@
+package project.layout;
+
+import org.eclipse.emf.common.util.EMap;
+import org.eclipse.emf.ecore.EAnnotation;
+import org.eclipse.uml2.uml.Activity;
+import org.eclipse.uml2.uml.ActivityEdge;
+import org.eclipse.uml2.uml.ActivityNode;
+import org.eclipse.uml2.uml.Element;
+import project.graph.ActivityGraph;
+import project.rules.ActivityDiagramManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 活动图的分层（Sugiyama）自动布局，结果作为EAnnotation随模型一起保存，打开时不必重新布局
+ * 步骤：DFS找回边（重试、循环、跳回的恢复边），回边不参与分层，单独沿右侧通道绕行；
+ * 在剩下的DAG上按最长路径分层，跨层的边拆成虚拟节点链；按块展开的拓扑DFS顺序作为初始顺序，
+ * 再用重心法上下扫描减少交叉；最后逐层做保序回归（PAV）分配横坐标。
+ * 转换器记录的fork/join、decision/merge配对作为结构提示：汇合节点对齐到分支节点的正下方。
+ * 除排序外每一步都与节点数加虚拟节点数成线性，宽图（成千上万个并行分支）也不会退化。
+ */
+public class LayeredLayout {
+
+    /** 坐标注解的source：节点上有x、y、width、height，边上有points，活动上有整幅图的width、height */
+    public static final String SOURCE = "layout";
+
+    private static final int MARGIN = 20;
+    private static final int DUMMY_SPACING = 10;    // 相邻两个虚拟节点之间的最小间距
+    private static final int CHANNEL_SPACING = 8;   // 同一位置的多条回边通道之间的间距
+
+    private final ActivityGraph graph;
+    private final int[] pairedOpen;   // 汇合节点 -> 配对的分支节点，没有配对时为-1
+    private int nodeSpacing = 30;
+    private int layerSpacing = 40;
+    private int sweeps = 8;
+
+    // 计算状态：下标小于n的是真实节点，其余是长边上的虚拟节点
+    private int n;
+    private boolean[] back;
+    private int[] layer;
+    private int layers;
+    private int[] width;
+    private int[] height;
+    private int[] edgeDummy;          // 边 -> 第一个虚拟节点（同一条边的虚拟节点连续编号），没有时为-1
+    private int[] downStart;          // 虚拟图中相邻层之间的连接（CSR），down指向下一层，up指向上一层
+    private int[] down;
+    private int[] upStart;
+    private int[] up;
+    private int[] layerStart;         // 层 -> order中的区间
+    private int[] order;              // 按层、层内从左到右排列的节点
+    private int[] pos;                // 节点在所在层中的位置
+    private double[] x;               // 节点中心的横坐标
+
+    public LayeredLayout(ActivityGraph graph) {
+        this(graph, Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * blocks为分支节点ID到汇合节点ID的配对（见ActivityDiagramManager.getBlockPairs），图中不存在的ID忽略
+     */
+    public LayeredLayout(ActivityGraph graph, Map<String, String> blocks) {
+        this.graph = graph;
+        this.pairedOpen = new int[graph.getNodeCount()];
+        Arrays.fill(pairedOpen, -1);
+        for (Map.Entry<String, String> pair : blocks.entrySet()) {
+            ActivityGraph.Node open = graph.getNodeById(pair.getKey());
+            ActivityGraph.Node close = graph.getNodeById(pair.getValue());
+            if (open != null && close != null) {
+                pairedOpen[close.getIndex()] = open.getIndex();
+            }
+        }
+    }
+
+    /** 同一层相邻节点之间的最小间距（默认30） */
+    public LayeredLayout setNodeSpacing(int nodeSpacing) {
+        if (nodeSpacing < 0) {
+            throw new IllegalArgumentException("Node spacing must not be negative: " + nodeSpacing);
+        }
+        this.nodeSpacing = nodeSpacing;
+        return this;
+    }
+
+    /** 相邻两层之间的垂直间距（默认40） */
+    public LayeredLayout setLayerSpacing(int layerSpacing) {
+        if (layerSpacing < 0) {
+            throw new IllegalArgumentException("Layer spacing must not be negative: " + layerSpacing);
+        }
+        this.layerSpacing = layerSpacing;
+        return this;
+    }
+
+    /** 减少交叉的最大上下扫描轮数（默认8），交叉数不再下降时提前结束，0表示保持初始顺序 */
+    public LayeredLayout setSweeps(int sweeps) {
+        if (sweeps < 0) {
+            throw new IllegalArgumentException("Sweeps must not be negative: " + sweeps);
+        }
+        this.sweeps = sweeps;
+        return this;
+    }
+
+    /**
+     * 计算管理器中活动（包括折叠分支的子活动）的布局，并把坐标作为EAnnotation写入节点、边和活动；返回主活动的结果
+     */
+    public static Result apply(ActivityDiagramManager manager) {
+        for (Activity subActivity : manager.getSubActivities()) {
+            new LayeredLayout(ActivityGraph.fromActivity(subActivity, manager::getCustomId), manager.getBlockPairs())
+                    .compute().annotate(manager, subActivity);
+        }
+        Result result = new LayeredLayout(ActivityGraph.fromManager(manager), manager.getBlockPairs()).compute();
+        result.annotate(manager);
+        return result;
+    }
+
+    /**
+     * 读取元素上保存的位置和大小{x, y, width, height}，没有布局注解时返回null
+     */
+    public static int[] getBounds(Element element) {
+        EAnnotation annotation = element.getEAnnotation(SOURCE);
+        if (annotation == null || !annotation.getDetails().containsKey("x")) {
+            return null;
+        }
+        EMap<String, String> details = annotation.getDetails();
+        return new int[] {
+                Integer.parseInt(details.get("x")), Integer.parseInt(details.get("y")),
+                Integer.parseInt(details.get("width")), Integer.parseInt(details.get("height"))
+        };
+    }
+
+    /**
+     * 读取边上保存的折线点{x1, y1, x2, y2, ...}，没有布局注解时返回null
+     */
+    public static int[] getPoints(Element element) {
+        EAnnotation annotation = element.getEAnnotation(SOURCE);
+        String text = annotation != null ? annotation.getDetails().get("points") : null;
+        if (text == null) {
+            return null;
+        }
+        String[] pairs = text.split(" ");
+        int[] points = new int[2 * pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            int comma = pairs[i].indexOf(',');
+            points[2 * i] = Integer.parseInt(pairs[i].substring(0, comma));
+            points[2 * i + 1] = Integer.parseInt(pairs[i].substring(comma + 1));
+        }
+        return points;
+    }
+
+    public Result compute() {
+        n = graph.getNodeCount();
+        findBackEdges();
+        buildLayeredGraph(assignLayers());
+        initialOrder();
+        long crossings = reduceCrossings();
+        assignCoordinates();
+        return buildResult(crossings);
+    }
+
+    // ---------------------------------------------------------------- 去环
+
+    /**
+     * 迭代DFS，指向栈中节点的边是回边；先从没有入边的节点（初始节点、事件节点）出发，
+     * 这样重试边和循环的continue边被识别为回边，主流程方向保持自上而下
+     */
+    private void findBackEdges() {
+        back = new boolean[graph.getEdgeCount()];
+        byte[] state = new byte[n]; // 0 未访问，1 在栈中，2 已完成
+        int[] stack = new int[n];
+        int[] cursor = new int[n];
+        for (int pass = 0; pass < 2; pass++) {
+            for (int root = 0; root < n; root++) {
+                if (state[root] != 0 || (pass == 0 && graph.getInDegree(root) > 0)) {
+                    continue;
+                }
+                int top = 0;
+                stack[0] = root;
+                state[root] = 1;
+                while (top >= 0) {
+                    int v = stack[top];
+                    if (cursor[v] < graph.getOutDegree(v)) {
+                        int e = graph.getOutEdge(v, cursor[v]++);
+                        int target = graph.getEdge(e).getTarget();
+                        if (state[target] == 1) {
+                            back[e] = true;
+                        } else if (state[target] == 0) {
+                            state[target] = 1;
+                            stack[++top] = target;
+                        }
+                    } else {
+                        state[v] = 2;
+                        top--;
+                    }
+                }
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- 分层
+
+    /**
+     * 按拓扑序计算最长路径层号，层数即流程的最长步数
+     */
+    private int[] assignLayers() {
+        int[] realLayer = new int[n];
+        int[] remaining = new int[n];
+        for (ActivityGraph.Edge edge : graph.getEdges()) {
+            if (!back[edge.getIndex()]) {
+                remaining[edge.getTarget()]++;
+            }
+        }
+        int[] queue = new int[n];
+        int tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (remaining[v] == 0) {
+                queue[tail++] = v;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int v = queue[head];
+            for (int i = 0; i < graph.getOutDegree(v); i++) {
+                int e = graph.getOutEdge(v, i);
+                if (back[e]) {
+                    continue;
+                }
+                int target = graph.getEdge(e).getTarget();
+                realLayer[target] = Math.max(realLayer[target], realLayer[v] + 1);
+                if (--remaining[target] == 0) {
+                    queue[tail++] = target;
+                }
+            }
+        }
+        return realLayer;
+    }
+
+    /**
+     * 跨多层的边拆成虚拟节点链，得到只连接相邻层的分层图
+     */
+    private void buildLayeredGraph(int[] realLayer) {
+        int m = graph.getEdgeCount();
+        edgeDummy = new int[m];
+        Arrays.fill(edgeDummy, -1);
+        int total = n;
+        int segments = 0;
+        for (ActivityGraph.Edge edge : graph.getEdges()) {
+            if (back[edge.getIndex()]) {
+                continue;
+            }
+            int span = realLayer[edge.getTarget()] - realLayer[edge.getSource()];
+            if (span > 1) {
+                edgeDummy[edge.getIndex()] = total;
+                total += span - 1;
+            }
+            segments += span;
+        }
+
+        layer = Arrays.copyOf(realLayer, total);
+        width = new int[total];
+        height = new int[total];
+        layers = 0;
+        for (int v = 0; v < n; v++) {
+            layers = Math.max(layers, realLayer[v] + 1);
+            size(v);
+        }
+
+        int[] from = new int[segments];
+        int[] to = new int[segments];
+        int s = 0;
+        for (ActivityGraph.Edge edge : graph.getEdges()) {
+            if (back[edge.getIndex()]) {
+                continue;
+            }
+            int previous = edge.getSource();
+            int dummy = edgeDummy[edge.getIndex()];
+            for (int l = realLayer[previous] + 1; l < realLayer[edge.getTarget()]; l++) {
+                layer[dummy] = l;
+                from[s] = previous;
+                to[s++] = dummy;
+                previous = dummy++;
+            }
+            from[s] = previous;
+            to[s++] = edge.getTarget();
+        }
+
+        downStart = new int[total + 1];
+        upStart = new int[total + 1];
+        for (int i = 0; i < segments; i++) {
+            downStart[from[i] + 1]++;
+            upStart[to[i] + 1]++;
+        }
+        for (int v = 0; v < total; v++) {
+            downStart[v + 1] += downStart[v];
+            upStart[v + 1] += upStart[v];
+        }
+        down = new int[segments];
+        up = new int[segments];
+        int[] downFill = Arrays.copyOf(downStart, total);
+        int[] upFill = Arrays.copyOf(upStart, total);
+        for (int i = 0; i < segments; i++) {
+            down[downFill[from[i]]++] = to[i];
+            up[upFill[to[i]]++] = from[i];
+        }
+    }
+
+    /**
+     * 节点大小：动作按名称长度（中文按两个字符宽），控制节点固定大小，fork/join横条随分支数变宽
+     */
+    private void size(int v) {
+        ActivityGraph.Node node = graph.getNode(v);
+        switch (node.getKind()) {
+            case INITIAL:
+            case ACTIVITY_FINAL:
+            case FLOW_FINAL:
+                width[v] = 24;
+                height[v] = 24;
+                break;
+            case DECISION:
+            case MERGE:
+                width[v] = 32;
+                height[v] = 32;
+                break;
+            case FORK:
+            case JOIN:
+                int branches = Math.max(graph.getOutDegree(v), graph.getInDegree(v));
+                width[v] = Math.max(60, Math.min(400, 40 * branches));
+                height[v] = 6;
+                break;
+            default:
+                int label = 16;
+                String name = node.getName();
+                if (name != null) {
+                    for (int i = 0; i < name.length(); i++) {
+                        label += name.charAt(i) < 0x2E80 ? 7 : 13;
+                    }
+                }
+                width[v] = Math.max(80, Math.min(240, label));
+                height[v] = 40;
+                break;
+        }
+    }
+
+    // ---------------------------------------------------------------- 排序
+
+    /**
+     * 初始顺序：所有前驱都已放置后才放置节点的DFS，分支按出边顺序从左到右依次展开，
+     * fork/join和decision/merge之间的整个块在各层中保持连续，汇合节点排在所有分支之后
+     */
+    private void initialOrder() {
+        int total = layer.length;
+        layerStart = new int[layers + 1];
+        for (int v = 0; v < total; v++) {
+            layerStart[layer[v] + 1]++;
+        }
+        for (int l = 0; l < layers; l++) {
+            layerStart[l + 1] += layerStart[l];
+        }
+        order = new int[total];
+        pos = new int[total];
+        int[] next = Arrays.copyOf(layerStart, layers);
+        int[] remaining = new int[total];
+        int[] stack = new int[total];
+        int top = -1;
+        for (int v = total - 1; v >= 0; v--) {
+            remaining[v] = upStart[v + 1] - upStart[v];
+            if (remaining[v] == 0) {
+                stack[++top] = v;
+            }
+        }
+        while (top >= 0) {
+            int v = stack[top--];
+            int slot = next[layer[v]]++;
+            order[slot] = v;
+            pos[v] = slot - layerStart[layer[v]];
+            for (int i = downStart[v + 1] - 1; i >= downStart[v]; i--) {
+                if (--remaining[down[i]] == 0) {
+                    stack[++top] = down[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * 重心法：向下扫描按上一层邻居的平均位置排序，向上扫描按下一层邻居排序；保留交叉最少的顺序
+     */
+    private long reduceCrossings() {
+        long best = countCrossings();
+        int[] bestOrder = order.clone();
+        int widest = 0;
+        for (int l = 0; l < layers; l++) {
+            widest = Math.max(widest, layerStart[l + 1] - layerStart[l]);
+        }
+        long[] keys = new long[widest];
+        int[] slice = new int[widest];
+        for (int round = 0; round < sweeps && best > 0; round++) {
+            for (int l = 1; l < layers; l++) {
+                sortLayer(l, upStart, up, keys, slice);
+            }
+            for (int l = layers - 2; l >= 0; l--) {
+                sortLayer(l, downStart, down, keys, slice);
+            }
+            long crossings = countCrossings();
+            if (crossings >= best) {
+                break;
+            }
+            best = crossings;
+            bestOrder = order.clone();
+        }
+        order = bestOrder;
+        for (int l = 0; l < layers; l++) {
+            for (int i = layerStart[l]; i < layerStart[l + 1]; i++) {
+                pos[order[i]] = i - layerStart[l];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 按邻层邻居的平均位置稳定排序一层；没有邻居的节点以自身位置为键，基本保持不动
+     */
+    private void sortLayer(int l, int[] adjStart, int[] adj, long[] keys, int[] slice) {
+        int from = layerStart[l];
+        int count = layerStart[l + 1] - from;
+        for (int i = 0; i < count; i++) {
+            int v = order[from + i];
+            slice[i] = v;
+            int degree = adjStart[v + 1] - adjStart[v];
+            float key = i;
+            if (degree > 0) {
+                long sum = 0;
+                for (int j = adjStart[v]; j < adjStart[v + 1]; j++) {
+                    sum += pos[adj[j]];
+                }
+                key = (float) sum / degree;
+            }
+            // 非负浮点数的位模式与数值同序，低32位的原位置使排序稳定
+            keys[i] = ((long) Float.floatToIntBits(key) << 32) | i;
+        }
+        Arrays.sort(keys, 0, count);
+        for (int i = 0; i < count; i++) {
+            int v = slice[(int) keys[i]];
+            order[from + i] = v;
+            pos[v] = i;
+        }
+    }
+
+    /**
+     * 相邻层之间的交叉数：按上端位置排列连接后，统计下端位置的逆序对（树状数组）
+     */
+    private long countCrossings() {
+        long crossings = 0;
+        int[] targets = new int[down.length];
+        int[] tree = new int[order.length + 1];
+        for (int l = 0; l + 1 < layers; l++) {
+            int k = 0;
+            for (int i = layerStart[l]; i < layerStart[l + 1]; i++) {
+                int v = order[i];
+                int start = k;
+                for (int j = downStart[v]; j < downStart[v + 1]; j++) {
+                    targets[k++] = pos[down[j]];
+                }
+                Arrays.sort(targets, start, k);
+            }
+            int size = layerStart[l + 2] - layerStart[l + 1];
+            Arrays.fill(tree, 0, size + 1, 0);
+            for (int j = 0; j < k; j++) {
+                int notAfter = 0; // 已加入且下端位置不大于当前的连接数
+                for (int p = targets[j] + 1; p > 0; p -= p & -p) {
+                    notAfter += tree[p];
+                }
+                crossings += j - notAfter;
+                for (int p = targets[j] + 1; p <= size; p += p & -p) {
+                    tree[p]++;
+                }
+            }
+        }
+        return crossings;
+    }
+
+    // ---------------------------------------------------------------- 坐标
+
+    /**
+     * 先每层紧密排列，再按"下、上、下"三遍把节点拉向邻层邻居的平均位置；
+     * 每层在最小间距约束下最小化加权偏移平方和，虚拟节点权重更高以拉直长边，
+     * 有配对的汇合节点以分支节点的位置为目标且权重最高
+     */
+    private void assignCoordinates() {
+        int total = order.length;
+        x = new double[total];
+        for (int l = 0; l < layers; l++) {
+            double current = 0;
+            for (int i = layerStart[l]; i < layerStart[l + 1]; i++) {
+                if (i > layerStart[l]) {
+                    current += gap(order[i - 1], order[i]);
+                }
+                x[order[i]] = current;
+            }
+        }
+        double[] desired = new double[total];
+        double[] weight = new double[total];
+        double[] offsets = new double[total];
+        int[] blockEnd = new int[total];
+        double[] blockWeight = new double[total];
+        double[] blockMean = new double[total];
+        for (int pass = 0; pass < 3; pass++) {
+            boolean downward = pass != 1;
+            for (int k = 1; k < layers; k++) {
+                int l = downward ? k : layers - 1 - k;
+                for (int i = layerStart[l]; i < layerStart[l + 1]; i++) {
+                    int v = order[i];
+                    int[] adjStart = downward ? upStart : downStart;
+                    int[] adj = downward ? up : down;
+                    int degree = adjStart[v + 1] - adjStart[v];
+                    if (downward && v < n && pairedOpen[v] >= 0) {
+                        desired[i] = x[pairedOpen[v]];
+                        weight[i] = 8;
+                    } else if (degree > 0) {
+                        double sum = 0;
+                        for (int j = adjStart[v]; j < adjStart[v + 1]; j++) {
+                            sum += x[adj[j]];
+                        }
+                        desired[i] = sum / degree;
+                        weight[i] = v >= n ? 2 : 1;
+                    } else {
+                        desired[i] = x[v];
+                        weight[i] = 0.25;
+                    }
+                }
+                placeLayer(l, desired, weight, offsets, blockEnd, blockWeight, blockMean);
+            }
+        }
+    }
+
+    /**
+     * 保序回归：令y_i = x_i - offset_i（offset为到层首的最小间距之和），间距约束变为y单调不减，
+     * 用PAV合并违反单调性的相邻块，每块取目标位置的加权平均，线性时间得到最优解
+     */
+    private void placeLayer(int l, double[] desired, double[] weight, double[] offsets,
+                            int[] blockEnd, double[] blockWeight, double[] blockMean) {
+        int from = layerStart[l];
+        int to = layerStart[l + 1];
+        int top = -1;
+        double offset = 0;
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                offset += gap(order[i - 1], order[i]);
+            }
+            offsets[i] = offset;
+            top++;
+            blockEnd[top] = i;
+            blockWeight[top] = weight[i];
+            blockMean[top] = desired[i] - offset;
+            while (top > 0 && blockMean[top - 1] >= blockMean[top]) {
+                double merged = blockWeight[top - 1] + blockWeight[top];
+                blockMean[top - 1] = (blockMean[top - 1] * blockWeight[top - 1] + blockMean[top] * blockWeight[top]) / merged;
+                blockWeight[top - 1] = merged;
+                blockEnd[top - 1] = blockEnd[top];
+                top--;
+            }
+        }
+        int i = from;
+        for (int b = 0; b <= top; b++) {
+            for (; i <= blockEnd[b]; i++) {
+                x[order[i]] = blockMean[b] + offsets[i];
+            }
+        }
+    }
+
+    private double gap(int left, int right) {
+        double spacing = left >= n && right >= n ? DUMMY_SPACING : nodeSpacing;
+        return (width[left] + width[right]) / 2.0 + spacing;
+    }
+
+    // ---------------------------------------------------------------- 结果
+
+    private Result buildResult(long crossings) {
+        double minLeft = Double.MAX_VALUE;
+        for (int v = 0; v < x.length; v++) {
+            minLeft = Math.min(minLeft, x[v] - width[v] / 2.0);
+        }
+        double shift = MARGIN - (x.length > 0 ? minLeft : 0);
+
+        int[] layerTop = new int[layers];
+        int[] layerHeight = new int[layers];
+        int[] layerRight = new int[layers];
+        for (int v = 0; v < x.length; v++) {
+            layerHeight[layer[v]] = Math.max(layerHeight[layer[v]], height[v]);
+        }
+        int y = MARGIN;
+        for (int l = 0; l < layers; l++) {
+            layerTop[l] = y;
+            y += layerHeight[l] + layerSpacing;
+        }
+
+        int[] bounds = new int[4 * n];
+        int[] center = new int[x.length];
+        int right = MARGIN;
+        for (int v = 0; v < x.length; v++) {
+            center[v] = (int) Math.round(x[v] + shift);
+            int edge = center[v] + (width[v] + 1) / 2;
+            layerRight[layer[v]] = Math.max(layerRight[layer[v]], edge);
+            right = Math.max(right, edge);
+            if (v < n) {
+                bounds[4 * v] = center[v] - width[v] / 2;
+                bounds[4 * v + 1] = layerTop[layer[v]] + (layerHeight[layer[v]] - height[v]) / 2;
+                bounds[4 * v + 2] = width[v];
+                bounds[4 * v + 3] = height[v];
+            }
+        }
+
+        RangeMax rightmost = new RangeMax(layerRight);
+        Map<Integer, Integer> channels = new HashMap<>();
+        int[][] points = new int[graph.getEdgeCount()][];
+        for (ActivityGraph.Edge edge : graph.getEdges()) {
+            int s = edge.getSource();
+            int t = edge.getTarget();
+            if (back[edge.getIndex()]) {
+                // 回边从源节点右侧出发，沿两层之间所有节点右边的通道向上，回到目标节点右侧
+                int base = rightmost.max(layer[t], layer[s]) + nodeSpacing / 2;
+                int channel = base + CHANNEL_SPACING * channels.merge(base, 1, Integer::sum) - CHANNEL_SPACING;
+                int sourceY = bounds[4 * s + 1] + height[s] / 2;
+                int targetY = bounds[4 * t + 1] + height[t] / 2;
+                points[edge.getIndex()] = new int[] {
+                        bounds[4 * s] + width[s], sourceY, channel, sourceY,
+                        channel, targetY, bounds[4 * t] + width[t], targetY
+                };
+                right = Math.max(right, channel);
+                continue;
+            }
+            int dummies = layer[t] - layer[s] - 1;
+            int[] line = new int[4 + 2 * dummies];
+            line[0] = center[s];
+            line[1] = bounds[4 * s + 1] + height[s];
+            for (int k = 0; k < dummies; k++) {
+                int dummy = edgeDummy[edge.getIndex()] + k;
+                line[2 + 2 * k] = center[dummy];
+                line[3 + 2 * k] = layerTop[layer[dummy]] + layerHeight[layer[dummy]] / 2;
+            }
+            line[line.length - 2] = center[t];
+            line[line.length - 1] = bounds[4 * t + 1];
+            points[edge.getIndex()] = line;
+        }
+
+        int totalHeight = layers > 0 ? y - layerSpacing + MARGIN : 2 * MARGIN;
+        return new Result(graph, bounds, points, back, layers, x.length - n, crossings, right + MARGIN, totalHeight);
+    }
+
+    /**
+     * 稀疏表区间最大值，O(L log L)预处理后常数时间查询，回边通道位置不随跨度增长
+     */
+    private static final class RangeMax {
+        private final int[][] table;
+
+        RangeMax(int[] values) {
+            int levels = 1;
+            while ((1 << levels) <= values.length) {
+                levels++;
+            }
+            table = new int[levels][];
+            table[0] = values;
+            for (int k = 1; k < levels; k++) {
+                int length = values.length - (1 << k) + 1;
+                table[k] = new int[Math.max(0, length)];
+                for (int i = 0; i < length; i++) {
+                    table[k][i] = Math.max(table[k - 1][i], table[k - 1][i + (1 << (k - 1))]);
+                }
+            }
+        }
+
+        int max(int from, int to) {
+            int k = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+            return Math.max(table[k][from], table[k][to - (1 << k) + 1]);
+        }
+    }
+
+    /**
+     * 布局结果：节点的位置和大小（左上角坐标），边的折线点，以及整幅图的大小
+     */
+    public static class Result {
+        private final ActivityGraph graph;
+        private final int[] bounds;
+        private final int[][] points;
+        private final boolean[] backEdges;
+        private final int layers;
+        private final int dummies;
+        private final long crossings;
+        private final int width;
+        private final int height;
+
+        Result(ActivityGraph graph, int[] bounds, int[][] points, boolean[] backEdges,
+               int layers, int dummies, long crossings, int width, int height) {
+            this.graph = graph;
+            this.bounds = bounds;
+            this.points = points;
+            this.backEdges = backEdges;
+            this.layers = layers;
+            this.dummies = dummies;
+            this.crossings = crossings;
+            this.width = width;
+            this.height = height;
+        }
+
+        public ActivityGraph getGraph() { return graph; }
+        public int getX(int node) { return bounds[4 * node]; }
+        public int getY(int node) { return bounds[4 * node + 1]; }
+        public int getWidth(int node) { return bounds[4 * node + 2]; }
+        public int getHeight(int node) { return bounds[4 * node + 3]; }
+        /** 边的折线点，依次为x1, y1, x2, y2, ... */
+        public int[] getPoints(int edge) { return points[edge].clone(); }
+        /** 是否为绕右侧通道的回边 */
+        public boolean isBackEdge(int edge) { return backEdges[edge]; }
+        public int getLayerCount() { return layers; }
+        /** 长边拆出的虚拟节点数 */
+        public int getDummyCount() { return dummies; }
+        /** 分层图中相邻层之间的交叉数（不含回边） */
+        public long getCrossings() { return crossings; }
+        public int getWidth() { return width; }
+        public int getHeight() { return height; }
+
+        /**
+         * 把坐标写成source为SOURCE的EAnnotation，重复布局时覆盖上次的结果
+         */
+        public void annotate(ActivityDiagramManager manager) {
+            annotate(manager, manager.getActivity());
+        }
+
+        /**
+         * 同上，整幅图的大小写到给定的活动上（结果由该活动构建的图计算得到）
+         */
+        public void annotate(ActivityDiagramManager manager, Activity activity) {
+            for (ActivityGraph.Node node : graph.getNodes()) {
+                ActivityNode element = manager.getNodeById(node.getId());
+                if (element == null) {
+                    continue;
+                }
+                int v = node.getIndex();
+                EMap<String, String> details = details(element);
+                details.put("x", Integer.toString(getX(v)));
+                details.put("y", Integer.toString(getY(v)));
+                details.put("width", Integer.toString(getWidth(v)));
+                details.put("height", Integer.toString(getHeight(v)));
+            }
+            for (ActivityGraph.Edge edge : graph.getEdges()) {
+                ActivityEdge element = manager.getEdgeById(edge.getId());
+                if (element == null) {
+                    continue;
+                }
+                StringBuilder text = new StringBuilder();
+                int[] line = points[edge.getIndex()];
+                for (int i = 0; i < line.length; i += 2) {
+                    if (i > 0) {
+                        text.append(' ');
+                    }
+                    text.append(line[i]).append(',').append(line[i + 1]);
+                }
+                details(element).put("points", text.toString());
+            }
+            EMap<String, String> details = details(activity);
+            details.put("width", Integer.toString(width));
+            details.put("height", Integer.toString(height));
+        }
+
+        private static EMap<String, String> details(Element element) {
+            EAnnotation annotation = element.getEAnnotation(SOURCE);
+            if (annotation == null) {
+                annotation = element.createEAnnotation(SOURCE);
+            }
+            annotation.getDetails().clear();
+            return annotation.getDetails();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("布局: %d 个节点, %d 层, %d 个虚拟节点, %d 处交叉, 画布 %dx%d",
+                    graph.getNodeCount(), layers, dummies, crossings, width, height);
+        }
+    }
+}
@@ -1,16 +1,29 @@
 package project.main;
 
+import project.batch.CorpusBatchRunner;
+import project.metrics.TransformMetrics;
+import project.service.TransformServer;
+import project.trace.TraceIndex;
 import project.ucmeta.UCMetaParser;
 import project.rules.UCMetaToActivityTransformer;
 import project.rules.ActivityDiagramManager;
 
+import java.nio.file.Paths;
+
 /**
  * UCMeta到活动图转换的主程序
- * 演示完整的转换流程
+ * 无参数时演示完整的转换流程；带参数时批量转换.ucm规格文件（参数见BatchOptions），
+ * 以--serve开头时启动HTTP转换服务（见TransformServer）
  */
 public class UCMetaToActivityMain {
     
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--serve")) {
+            System.exit(TransformServer.runCli(args));
+        }
+        if (args.length > 0) {
+            System.exit(CorpusBatchRunner.runCli(args));
+        }
         try {
             System.out.println("=== UCMeta到活动图转换系统 ===\n");
             
@@ -57,6 +70,7 @@ public class UCMetaToActivityMain {
             System.out.println("- shopping_activity_detailed.uml (详细购物活动图)");
             System.out.println("- shopping_activity_overview.uml (概览购物活动图)");
             System.out.println("- upload_activity_detailed.uml (详细上传活动图)");
+            System.out.println("\n📊 " + TransformMetrics.get());
             
         } catch (Exception e) {
             System.err.println("转换过程中发生错误: " + e.getMessage());
@@ -81,6 +95,7 @@ public class UCMetaToActivityMain {
             
             // 保存到文件
             manager.saveToFile(filename);
+            TraceIndex.write(manager.getTrace(), TraceIndex.sidecar(Paths.get(filename)));
             
             System.out.println("  ✅ 已保存为: " + filename + "\n");
             
@@ -0,0 +1,30 @@
+package project.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：处理一个全局备选流（规则1.4c）
+ */
+@Name("project.ucmeta.GlobalAlternativeFlow")
+@Label("UCMeta Global Alternative Flow")
+@Category({"UCMeta", "Transform"})
+public class GlobalFlowEvent extends Event {
+
+    @Label("Use Case")
+    public String useCase;
+
+    @Label("Trigger Event")
+    public String triggerEvent;
+
+    @Label("Sentences")
+    public int sentences;
+
+    @Label("Nodes Created")
+    public int nodesCreated;
+
+    @Label("Edges Created")
+    public int edgesCreated;
+}
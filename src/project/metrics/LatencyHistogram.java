@@ -0,0 +1,115 @@
+package project.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的延迟直方图：按纳秒值的log2分桶，每个桶是一个LongAdder
+ * 第i个桶统计[2^(i-1), 2^i)纳秒的样本，分位数按桶上界估计，误差在2倍以内。
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets[64 - Long.numberOfLeadingZeros(value)].increment();
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : sum.sum() / (double) n / 1_000_000.0;
+    }
+
+    public double getMaxMillis() {
+        return max.get() / 1_000_000.0;
+    }
+
+    /**
+     * 估计分位数（q在0到1之间），返回毫秒
+     */
+    public double getPercentileMillis(double q) {
+        return percentileMillis(getBucketCounts(), q, max.get());
+    }
+
+    /**
+     * 按桶计数估计分位数，供合并多个进程的直方图后使用；maxNanos用于限制最高桶的上界
+     */
+    public static double percentileMillis(long[] counts, double q, long maxNanos) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxNanos) / 1_000_000.0;
+            }
+        }
+        return maxNanos / 1_000_000.0;
+    }
+
+    /** 各桶计数的快照，长度为64 */
+    public long[] getBucketCounts() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * 非空桶的快照，键为桶上界（如"<=1.05ms"），值为样本数
+     */
+    public Map<String, Long> getBuckets() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            long n = buckets[i].sum();
+            if (n > 0) {
+                result.put(String.format("<=%.3fms", upperBound(i) / 1_000_000.0), n);
+            }
+        }
+        return result;
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket);
+    }
+}
@@ -0,0 +1,34 @@
+package project.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：对单个句子应用一条转换规则（process*Sentence），复合句的事件包含其子句的事件
+ */
+@Name("project.ucmeta.Rule")
+@Label("UCMeta Rule")
+@Description("对一个句子应用转换规则")
+@Category({"UCMeta", "Transform"})
+public class RuleEvent extends Event {
+
+    @Label("Use Case")
+    public String useCase;
+
+    @Label("Sentence Id")
+    public String sentenceId;
+
+    @Label("Sentence Type")
+    public String sentenceType;
+
+    @Label("Nodes Created")
+    @Description("包括子句创建的节点")
+    public int nodesCreated;
+
+    @Label("Edges Created")
+    @Description("包括子句创建的边")
+    public int edgesCreated;
+}
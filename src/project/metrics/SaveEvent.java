@@ -0,0 +1,32 @@
+package project.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：一次saveToFile，包括XMI序列化和（内容变化时的）写盘
+ */
+@Name("project.ucmeta.Save")
+@Label("UCMeta Save")
+@Category({"UCMeta", "Save"})
+public class SaveEvent extends Event {
+
+    @Label("File")
+    public String file;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Written")
+    public boolean written;
+
+    @Label("Nodes")
+    public int nodes;
+
+    @Label("Edges")
+    public int edges;
+}
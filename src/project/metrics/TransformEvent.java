@@ -0,0 +1,33 @@
+package project.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR事件：一次transformUseCase，覆盖从前置条件到全局备选流的整个转换
+ */
+@Name("project.ucmeta.Transform")
+@Label("UCMeta Transform")
+@Description("将一个用例转换为活动图")
+@Category({"UCMeta", "Transform"})
+public class TransformEvent extends Event {
+
+    @Label("Use Case")
+    public String useCase;
+
+    @Label("Detailed")
+    public boolean detailed;
+
+    @Label("Sentences")
+    @Description("主流程顶层句子数")
+    public int sentences;
+
+    @Label("Nodes")
+    public int nodes;
+
+    @Label("Edges")
+    public int edges;
+}
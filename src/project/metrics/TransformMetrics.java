@@ -0,0 +1,229 @@
+package project.metrics;
+
+import project.ucmeta.UCMetaModel.SentenceType;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 转换流水线的进程级指标注册表
+ * 计数器都是LongAdder，多个转换线程同时更新时几乎没有竞争；首次使用时注册到平台MBeanServer。
+ */
+public final class TransformMetrics implements TransformMetricsMXBean {
+
+    public static final String OBJECT_NAME = "project.metrics:type=TransformMetrics";
+
+    private static final TransformMetrics INSTANCE = new TransformMetrics();
+
+    static {
+        INSTANCE.register();
+    }
+
+    private final LongAdder useCases = new LongAdder();
+    private final LongAdder[] sentences = new LongAdder[SentenceType.values().length];
+    private final ConcurrentMap<String, LongAdder> nodes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> edges = new ConcurrentHashMap<>();
+    private final LongAdder saves = new LongAdder();
+    private final LongAdder savesSkipped = new LongAdder();
+    private final LongAdder saveBytes = new LongAdder();
+    private final LatencyHistogram transformLatency = new LatencyHistogram();
+    private final LatencyHistogram saveLatency = new LatencyHistogram();
+
+    private TransformMetrics() {
+        for (int i = 0; i < sentences.length; i++) {
+            sentences[i] = new LongAdder();
+        }
+    }
+
+    public static TransformMetrics get() {
+        return INSTANCE;
+    }
+
+    private void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // 同一JVM中由其他类加载器注册过，沿用已有的实例
+        } catch (Exception | LinkageError e) {
+            System.err.println("⚠ 无法注册JMX指标: " + e.getMessage());
+        }
+    }
+
+    public void recordTransform(long nanos) {
+        useCases.increment();
+        transformLatency.record(nanos);
+    }
+
+    public void recordSentence(SentenceType type) {
+        sentences[type.ordinal()].increment();
+    }
+
+    public void recordNode(String kind) {
+        counter(nodes, kind).increment();
+    }
+
+    public void recordEdge(String kind) {
+        counter(edges, kind).increment();
+    }
+
+    public void recordSave(long bytes, boolean written, long nanos) {
+        saves.increment();
+        if (!written) {
+            savesSkipped.increment();
+        }
+        saveBytes.add(bytes);
+        saveLatency.record(nanos);
+    }
+
+    private static LongAdder counter(ConcurrentMap<String, LongAdder> counters, String kind) {
+        // 先无锁读取，只有首次出现的类型才走putIfAbsent
+        LongAdder counter = counters.get(kind);
+        if (counter == null) {
+            LongAdder created = new LongAdder();
+            counter = counters.putIfAbsent(kind, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    @Override
+    public long getUseCasesTransformed() {
+        return useCases.sum();
+    }
+
+    @Override
+    public Map<String, Long> getSentencesByType() {
+        Map<String, Long> result = new TreeMap<>();
+        for (SentenceType type : SentenceType.values()) {
+            result.put(type.name(), sentences[type.ordinal()].sum());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getNodesByKind() {
+        return snapshot(nodes);
+    }
+
+    @Override
+    public Map<String, Long> getEdgesByKind() {
+        return snapshot(edges);
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counters) {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        return result;
+    }
+
+    @Override
+    public long getSaveCount() {
+        return saves.sum();
+    }
+
+    @Override
+    public long getSavesSkipped() {
+        return savesSkipped.sum();
+    }
+
+    @Override
+    public long getSaveBytes() {
+        return saveBytes.sum();
+    }
+
+    @Override
+    public double getTransformMeanMillis() {
+        return transformLatency.getMeanMillis();
+    }
+
+    @Override
+    public double getTransformP50Millis() {
+        return transformLatency.getPercentileMillis(0.5);
+    }
+
+    @Override
+    public double getTransformP99Millis() {
+        return transformLatency.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getTransformMaxMillis() {
+        return transformLatency.getMaxMillis();
+    }
+
+    @Override
+    public Map<String, Long> getTransformLatencyHistogram() {
+        return transformLatency.getBuckets();
+    }
+
+    @Override
+    public double getSaveMeanMillis() {
+        return saveLatency.getMeanMillis();
+    }
+
+    @Override
+    public double getSaveP50Millis() {
+        return saveLatency.getPercentileMillis(0.5);
+    }
+
+    @Override
+    public double getSaveP99Millis() {
+        return saveLatency.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getSaveMaxMillis() {
+        return saveLatency.getMaxMillis();
+    }
+
+    @Override
+    public Map<String, Long> getSaveLatencyHistogram() {
+        return saveLatency.getBuckets();
+    }
+
+    /** 转换延迟直方图本身，用于导出原始桶计数 */
+    public LatencyHistogram getTransformLatency() {
+        return transformLatency;
+    }
+
+    public LatencyHistogram getSaveLatency() {
+        return saveLatency;
+    }
+
+    @Override
+    public void reset() {
+        useCases.reset();
+        for (LongAdder counter : sentences) {
+            counter.reset();
+        }
+        nodes.clear();
+        edges.clear();
+        saves.reset();
+        savesSkipped.reset();
+        saveBytes.reset();
+        transformLatency.reset();
+        saveLatency.reset();
+    }
+
+    /**
+     * 单行摘要，供命令行程序在结束时打印
+     */
+    @Override
+    public String toString() {
+        return String.format("用例 %d 个，转换 p50 %.2f ms / p99 %.2f ms，保存 %d 次（跳过 %d），共 %d 字节",
+                getUseCasesTransformed(), getTransformP50Millis(), getTransformP99Millis(),
+                getSaveCount(), getSavesSkipped(), getSaveBytes());
+    }
+}
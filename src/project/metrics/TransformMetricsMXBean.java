@@ -0,0 +1,55 @@
+package project.metrics;
+
+import java.util.Map;
+
+/**
+ * 转换流水线的JMX指标视图，可在JConsole或通过JMX客户端读取
+ * 对象名为 project.metrics:type=TransformMetrics
+ */
+public interface TransformMetricsMXBean {
+
+    /** 已转换的用例数 */
+    long getUseCasesTransformed();
+
+    /** 按句型统计的已处理句子数 */
+    Map<String, Long> getSentencesByType();
+
+    /** 按UML元类统计的已创建节点数（含引脚） */
+    Map<String, Long> getNodesByKind();
+
+    /** 按UML元类统计的已创建边数 */
+    Map<String, Long> getEdgesByKind();
+
+    long getSaveCount();
+
+    /** 内容未变化而跳过写入的保存次数 */
+    long getSavesSkipped();
+
+    /** 所有保存序列化出的字节总数 */
+    long getSaveBytes();
+
+    double getTransformMeanMillis();
+
+    double getTransformP50Millis();
+
+    double getTransformP99Millis();
+
+    double getTransformMaxMillis();
+
+    /** 转换延迟直方图，键为桶上界 */
+    Map<String, Long> getTransformLatencyHistogram();
+
+    double getSaveMeanMillis();
+
+    double getSaveP50Millis();
+
+    double getSaveP99Millis();
+
+    double getSaveMaxMillis();
+
+    /** 保存延迟直方图，键为桶上界 */
+    Map<String, Long> getSaveLatencyHistogram();
+
+    /** 清零所有计数器 */
+    void reset();
+}
@@ -0,0 +1,120 @@
+package project.pipeline;
+
+import project.rules.ActivityDiagramManager;
+import project.rules.SaveResult;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异步保存服务 - 将XMI序列化和写盘从转换线程中剥离
+ * 保存在专用的有界I/O线程池中执行；待处理的保存数达到上限时submit阻塞，形成背压。
+ * 每个模型在写盘完成后立即释放，返回的Future只持有SaveResult。
+ */
+public class AsyncSaveService implements AutoCloseable {
+
+    private final ThreadPoolExecutor executor;
+    private final Semaphore pending;
+    private final int maxPending;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * @param ioThreads  I/O线程数
+     * @param maxPending 已提交但尚未写完的保存数上限
+     */
+    public AsyncSaveService(int ioThreads, int maxPending) {
+        if (ioThreads < 1 || maxPending < 1) {
+            throw new IllegalArgumentException("ioThreads and maxPending must be positive");
+        }
+        this.maxPending = maxPending;
+        this.pending = new Semaphore(maxPending);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(ioThreads, ioThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "activity-save-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 提交一个保存任务；待处理数达到上限时阻塞直到有保存完成
+     * 提交后调用方不应再访问该管理器，写盘完成后它会被dispose
+     */
+    public CompletableFuture<SaveResult> submit(ActivityDiagramManager manager, String filename)
+            throws InterruptedException {
+        pending.acquire();
+        long submitted = System.nanoTime();
+        CompletableFuture<SaveResult> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    long queued = System.nanoTime() - submitted;
+                    SaveResult result = manager.saveToFile(filename).withQueueNanos(queued);
+                    record(result.getLatencyNanos());
+                    future.complete(result);
+                } catch (Throwable e) {
+                    failed.increment();
+                    future.completeExceptionally(e);
+                } finally {
+                    manager.dispose();
+                    pending.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.release();
+            throw e;
+        }
+        return future;
+    }
+
+    private void record(long latencyNanos) {
+        completed.increment();
+        totalLatencyNanos.add(latencyNanos);
+        long max;
+        while (latencyNanos > (max = maxLatencyNanos.get())) {
+            if (maxLatencyNanos.compareAndSet(max, latencyNanos)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 等待所有已提交的保存完成
+     */
+    public void flush() throws InterruptedException {
+        pending.acquire(maxPending);
+        pending.release(maxPending);
+    }
+
+    public long getCompletedCount() { return completed.sum(); }
+    public long getFailedCount() { return failed.sum(); }
+    public int getPendingCount() { return maxPending - pending.availablePermits(); }
+
+    public double getAverageLatencyMillis() {
+        long count = completed.sum();
+        return count == 0 ? 0 : totalLatencyNanos.sum() / 1e6 / count;
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / 1e6;
+    }
+
+    /**
+     * 等待剩余保存完成后关闭I/O线程池；等待中被中断时不再等待，恢复中断标志后返回，已提交的保存继续在后台完成
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
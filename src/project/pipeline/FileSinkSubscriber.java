@@ -0,0 +1,85 @@
+package project.pipeline;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流水线的终点：把成功结果中的每个文件写入输出目录，转换失败或写入失败的结果只计数并报告，不终止整个流
+ * 每次只向上游请求window个结果，处理完一半后再补充。
+ */
+public class FileSinkSubscriber implements Flow.Subscriber<TransformResult> {
+
+    private final Path outputDir;
+    private final int window;
+    private final CompletableFuture<Long> completion = new CompletableFuture<>();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private Flow.Subscription subscription;
+    private int outstanding;
+
+    public FileSinkSubscriber(Path outputDir, int window) {
+        this.outputDir = outputDir;
+        this.window = Math.max(1, window);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        outstanding = window;
+        subscription.request(window);
+    }
+
+    @Override
+    public void onNext(TransformResult result) {
+        Throwable error = result.getError();
+        if (error == null) {
+            try {
+                for (Map.Entry<String, byte[]> file : result.getFiles().entrySet()) {
+                    // 用例名可以含路径分隔符，与saveToFile一样按需创建子目录
+                    Path target = outputDir.resolve(file.getKey());
+                    Files.createDirectories(target.getParent());
+                    Files.write(target, file.getValue());
+                }
+                written.incrementAndGet();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            failed.incrementAndGet();
+            System.err.println("❌ " + result.getUseCaseName() + ": " + error);
+        }
+        if (--outstanding <= window / 2) {
+            subscription.request(window - outstanding);
+            outstanding = window;
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        completion.complete(written.get());
+    }
+
+    /** 流结束时完成，值为写出的用例数 */
+    public CompletableFuture<Long> getCompletion() {
+        return completion;
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+}
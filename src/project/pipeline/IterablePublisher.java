@@ -0,0 +1,118 @@
+package project.pipeline;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 按需从迭代器拉取元素的发布者，只支持一个订阅者
+ * 元素只在订阅者request之后才从迭代器中取出，配合UseCaseGenerator.corpus或逐个解析文件的迭代器，
+ * 源可以任意长而不驻留内存。发送在给定的Executor上进行，避免request与onNext相互递归。
+ */
+public class IterablePublisher<T> implements Flow.Publisher<T> {
+
+    private final Supplier<? extends Iterator<? extends T>> source;
+    private final Executor executor;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    public IterablePublisher(Supplier<? extends Iterator<? extends T>> source, Executor executor) {
+        this.source = source;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("IterablePublisher supports a single subscriber"));
+            return;
+        }
+        new IteratorSubscription(subscriber).start();
+    }
+
+    private final class IteratorSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private Iterator<? extends T> iterator;
+        private boolean done;
+
+        IteratorSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void start() {
+            subscriber.onSubscribe(this);
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancelled = true;
+                subscriber.onError(new IllegalArgumentException("request must be positive: " + n));
+                return;
+            }
+            long current;
+            long next;
+            do {
+                current = requested.get();
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!requested.compareAndSet(current, next));
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        /**
+         * 发送循环，同一时刻只有一个线程执行
+         */
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                try {
+                    if (iterator == null && !cancelled) {
+                        iterator = source.get();
+                    }
+                    while (!cancelled && !done && requested.get() > 0) {
+                        if (!iterator.hasNext()) {
+                            done = true;
+                            subscriber.onComplete();
+                            break;
+                        }
+                        T item = iterator.next();
+                        requested.decrementAndGet();
+                        subscriber.onNext(item);
+                    }
+                } catch (RuntimeException e) {
+                    done = true;
+                    cancelled = true;
+                    subscriber.onError(e);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package project.pipeline;
+
+import project.export.ExportFormat;
+import project.rules.ActivityDiagramManager;
+import project.rules.UCMetaToActivityTransformer;
+import project.ucmeta.UCMetaModel.UseCase;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 流水线的转换阶段：UseCase → 转换 → 序列化 → TransformResult
+ * 向上游最多请求maxInFlight个用例，正在转换和等待下游消费的结果合计不超过这个数；
+ * 每个结果交给下游后才向上游补请求一个。管理器在序列化后立即dispose，结果只持有字节，
+ * 因此无论流有多长，堆中同时存在的模型最多maxInFlight个。
+ * 单个用例转换失败时发出失败的TransformResult，不终止整个流。
+ */
+public class TransformProcessor implements Flow.Processor<UseCase, TransformResult> {
+
+    /**
+     * 把一个用例转换为一组输出文件（文件名 → 内容）；在转换线程上调用，每次调用应使用新的转换器
+     */
+    @FunctionalInterface
+    public interface Renderer {
+        Map<String, byte[]> render(UseCase useCase) throws Exception;
+    }
+
+    private final Renderer renderer;
+    private final Executor executor;
+    private final int maxInFlight;
+
+    private final Queue<TransformResult> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    private volatile Flow.Subscription upstream;
+    private volatile Flow.Subscriber<? super TransformResult> downstream;
+    private volatile boolean upstreamDone;
+    private volatile Throwable upstreamError;
+    private volatile boolean cancelled;
+    private boolean terminated;
+
+    /**
+     * @param renderer    用例到输出文件的转换，如批量转换按BatchOptions生成的结果和sidecar
+     * @param executor    执行转换的线程池
+     * @param maxInFlight 同时转换或等待下游消费的用例数上限
+     */
+    public TransformProcessor(Renderer renderer, Executor executor, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.renderer = renderer;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * 每个用例用transformers提供的新转换器（细节层级、片段共享等在其上设置）转换，输出一个 用例名.扩展名 文件
+     */
+    public TransformProcessor(ExportFormat format, Supplier<UCMetaToActivityTransformer> transformers,
+                              Executor executor, int maxInFlight) {
+        this(useCase -> Collections.singletonMap(useCase.getName() + "." + format.getExtension(),
+                render(format, transformers.get(), useCase)), executor, maxInFlight);
+    }
+
+    private static byte[] render(ExportFormat format, UCMetaToActivityTransformer transformer, UseCase useCase)
+            throws Exception {
+        ActivityDiagramManager manager = transformer.transformUseCase(useCase);
+        try {
+            manager.setVerbose(false);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+            format.export(manager, Channels.newChannel(out));
+            return out.toByteArray();
+        } finally {
+            manager.dispose();
+        }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super TransformResult> subscriber) {
+        if (!subscribed.compareAndSet(false, true)) {
+            throw new IllegalStateException("TransformProcessor supports a single subscriber");
+        }
+        downstream = subscriber;
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    cancel();
+                    subscriber.onError(new IllegalArgumentException("request must be positive: " + n));
+                    return;
+                }
+                long current;
+                long next;
+                do {
+                    current = requested.get();
+                    next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                } while (!requested.compareAndSet(current, next));
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                Flow.Subscription subscription = upstream;
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+            }
+        });
+        requestUpstream();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        requestUpstream();
+    }
+
+    /**
+     * 上下游都就绪后一次性请求maxInFlight个用例
+     */
+    private synchronized void requestUpstream() {
+        if (upstream != null && downstream != null && !cancelled) {
+            upstream.request(maxInFlight);
+        }
+    }
+
+    @Override
+    public void onNext(UseCase useCase) {
+        if (cancelled) {
+            return;
+        }
+        inFlight.incrementAndGet();
+        executor.execute(() -> {
+            ready.offer(transform(useCase));
+            inFlight.decrementAndGet();
+            drain();
+        });
+    }
+
+    private TransformResult transform(UseCase useCase) {
+        long start = System.nanoTime();
+        try {
+            return TransformResult.success(useCase.getName(), renderer.render(useCase), System.nanoTime() - start);
+        } catch (Exception | StackOverflowError e) {
+            return TransformResult.failure(useCase.getName(), e, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        upstreamError = throwable;
+        upstreamDone = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        drain();
+    }
+
+    /**
+     * 按下游需求发出已完成的结果；同一时刻只有一个线程执行
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Flow.Subscriber<? super TransformResult> subscriber = downstream;
+            if (subscriber != null && !terminated) {
+                while (!cancelled && requested.get() > 0) {
+                    TransformResult result = ready.poll();
+                    if (result == null) {
+                        break;
+                    }
+                    requested.decrementAndGet();
+                    subscriber.onNext(result);
+                    // 结果已交出，为上游补一个名额
+                    if (!upstreamDone) {
+                        upstream.request(1);
+                    }
+                }
+                if (!cancelled && upstreamDone && inFlight.get() == 0 && ready.isEmpty()) {
+                    terminated = true;
+                    if (upstreamError != null) {
+                        subscriber.onError(upstreamError);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+}
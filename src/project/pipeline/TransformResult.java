@@ -0,0 +1,53 @@
+package project.pipeline;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 流水线中一个用例的转换结果，只持有序列化后的字节，不持有EMF模型
+ * 一个用例可以产生多个文件（如详细图、概览图及其sidecar），按生成顺序保存为 文件名 → 内容。
+ */
+public class TransformResult {
+    private final String useCaseName;
+    private final Map<String, byte[]> files;
+    private final Throwable error;
+    private final long elapsedNanos;
+
+    private TransformResult(String useCaseName, Map<String, byte[]> files, Throwable error, long elapsedNanos) {
+        this.useCaseName = useCaseName;
+        this.files = files;
+        this.error = error;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public static TransformResult success(String useCaseName, Map<String, byte[]> files, long elapsedNanos) {
+        return new TransformResult(useCaseName, Collections.unmodifiableMap(files), null, elapsedNanos);
+    }
+
+    public static TransformResult failure(String useCaseName, Throwable error, long elapsedNanos) {
+        return new TransformResult(useCaseName, Collections.<String, byte[]>emptyMap(), error, elapsedNanos);
+    }
+
+    public String getUseCaseName() { return useCaseName; }
+    /** 输出文件名（相对输出目录）到内容；转换失败时为空 */
+    public Map<String, byte[]> getFiles() { return files; }
+    /** 转换成功时为null */
+    public Throwable getError() { return error; }
+    public boolean isSuccess() { return error == null; }
+    /** 转换与序列化的耗时 */
+    public long getElapsedNanos() { return elapsedNanos; }
+
+    /** 全部文件的字节数 */
+    public long getSize() {
+        long size = 0;
+        for (byte[] content : files.values()) {
+            size += content.length;
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return useCaseName + (isSuccess() ? " (" + files.size() + " files, " + getSize() + " bytes)" : " (failed: " + error + ")");
+    }
+}
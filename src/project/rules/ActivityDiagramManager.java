@@ -1,12 +1,19 @@
 package project.rules;
 
 import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.XMLResource;
 import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
 import org.eclipse.uml2.uml.*;
 import org.eclipse.uml2.uml.resources.util.UMLResourcesUtil;
+import org.eclipse.uml2.uml.util.UMLUtil;
+
+import project.metrics.SaveEvent;
+import project.metrics.TransformMetrics;
+import project.trace.TraceRecorder;
 
 import java.io.File;
 import java.util.*;
@@ -17,21 +24,28 @@ import java.util.*;
 public class ActivityDiagramManager {
     private Model model;
     private Activity activity;
+    private Activity currentActivity; // 新建节点放入的活动：主活动或某个子活动
+    private final List<Activity> subActivities = new ArrayList<>(); // 与主活动同包的子活动，按创建顺序
     private UMLFactory factory;
     private Map<String, ActivityNode> nodeRegistry; // 节点注册表，用于快速定位
     private Map<String, ActivityEdge> edgeRegistry; // 边注册表
+    private Map<EObject, String> elementIds; // 元素到自定义ID的反向映射，用于生成稳定的xmi:id
     private ResourceSet resourceSet;
+    private boolean ownsResourceSet; // 共享模型中的管理器不负责释放资源集
+    private boolean verbose = true; // 保存时是否输出提示
+    private final TraceRecorder trace = new TraceRecorder(); // 句子ID到创建的节点/边ID
+    private final Map<String, String> blockPairs = new LinkedHashMap<>(); // 分支节点ID -> 对应的汇合节点ID，供布局使用
+    private final TypeRegistry types; // Pin类型表，共享模型中由CorpusModel持有
     
     public ActivityDiagramManager(String modelName, String activityName) {
         this.factory = UMLFactory.eINSTANCE;
         this.nodeRegistry = new HashMap<>();
         this.edgeRegistry = new HashMap<>();
+        this.elementIds = new HashMap<>();
         
         // 初始化资源集
-        this.resourceSet = new ResourceSetImpl();
-        UMLResourcesUtil.init(resourceSet);
-        Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap()
-                .put("uml", new XMIResourceFactoryImpl());
+        this.resourceSet = createResourceSet();
+        this.ownsResourceSet = true;
         
         // 创建模型和活动
         this.model = factory.createModel();
@@ -40,6 +54,40 @@ public class ActivityDiagramManager {
         this.activity = factory.createActivity();
         this.activity.setName(activityName);
         this.model.getPackagedElements().add(activity);
+        this.currentActivity = activity;
+        this.elementIds.put(activity, activityName);
+        this.types = new TypeRegistry(model, elementIds);
+    }
+    
+    /**
+     * 在共享模型中管理一个已存在的活动（见CorpusModel）
+     */
+    ActivityDiagramManager(Model sharedModel, Activity activity, ResourceSet resourceSet, TypeRegistry types) {
+        this.factory = UMLFactory.eINSTANCE;
+        this.nodeRegistry = new HashMap<>();
+        this.edgeRegistry = new HashMap<>();
+        this.elementIds = new HashMap<>();
+        this.resourceSet = resourceSet;
+        this.model = sharedModel;
+        this.activity = activity;
+        this.currentActivity = activity;
+        this.types = types;
+    }
+    
+    static {
+        // 全局注册表只初始化一次，避免多线程创建管理器时并发改写
+        UMLResourcesUtil.initGlobalRegistries();
+        Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap()
+                .put("uml", new XMIResourceFactoryImpl());
+    }
+    
+    /**
+     * 创建已注册UML资源工厂的资源集，只修改资源集自身的注册表
+     */
+    static ResourceSet createResourceSet() {
+        ResourceSet resourceSet = new ResourceSetImpl();
+        UMLUtil.init(resourceSet);
+        return resourceSet;
     }
     
     /**
@@ -49,13 +97,8 @@ public class ActivityDiagramManager {
         OpaqueAction action = factory.createOpaqueAction();
         action.setName(name);
         
-        // 将节点添加到活动中
-        activity.getOwnedNodes().add(action);
-        
-        // 注册到节点表中，使用自定义ID
-        nodeRegistry.put(customId, action);
-        
-        return action;
+        // 将节点添加到活动中，并使用自定义ID注册到节点表
+        return registerNode(customId, action);
     }
     
     /**
@@ -63,9 +106,7 @@ public class ActivityDiagramManager {
      */
     public InitialNode createInitialNode(String customId) {
         InitialNode initialNode = factory.createInitialNode();
-        activity.getOwnedNodes().add(initialNode);
-        nodeRegistry.put(customId, initialNode);
-        return initialNode;
+        return registerNode(customId, initialNode);
     }
     
     /**
@@ -73,9 +114,7 @@ public class ActivityDiagramManager {
      */
     public ActivityFinalNode createFinalNode(String customId) {
         ActivityFinalNode finalNode = factory.createActivityFinalNode();
-        activity.getOwnedNodes().add(finalNode);
-        nodeRegistry.put(customId, finalNode);
-        return finalNode;
+        return registerNode(customId, finalNode);
     }
     
     /**
@@ -83,9 +122,7 @@ public class ActivityDiagramManager {
      */
     public DecisionNode createDecisionNode(String customId) {
         DecisionNode decisionNode = factory.createDecisionNode();
-        activity.getOwnedNodes().add(decisionNode);
-        nodeRegistry.put(customId, decisionNode);
-        return decisionNode;
+        return registerNode(customId, decisionNode);
     }
     
     /**
@@ -93,9 +130,7 @@ public class ActivityDiagramManager {
      */
     public MergeNode createMergeNode(String customId) {
         MergeNode mergeNode = factory.createMergeNode();
-        activity.getOwnedNodes().add(mergeNode);
-        nodeRegistry.put(customId, mergeNode);
-        return mergeNode;
+        return registerNode(customId, mergeNode);
     }
 
     /**
@@ -103,9 +138,7 @@ public class ActivityDiagramManager {
      */
     public ForkNode createForkNode(String customId) {
         ForkNode forkNode = factory.createForkNode();
-        activity.getOwnedNodes().add(forkNode);
-        nodeRegistry.put(customId, forkNode);
-        return forkNode;
+        return registerNode(customId, forkNode);
     }
 
     /**
@@ -113,9 +146,7 @@ public class ActivityDiagramManager {
      */
     public JoinNode createJoinNode(String customId) {
         JoinNode joinNode = factory.createJoinNode();
-        activity.getOwnedNodes().add(joinNode);
-        nodeRegistry.put(customId, joinNode);
-        return joinNode;
+        return registerNode(customId, joinNode);
     }
 
     /**
@@ -124,9 +155,7 @@ public class ActivityDiagramManager {
     public CallOperationAction createCallOperationAction(String customId, String name) {
         CallOperationAction action = factory.createCallOperationAction();
         action.setName(name);
-        activity.getOwnedNodes().add(action);
-        nodeRegistry.put(customId, action);
-        return action;
+        return registerNode(customId, action);
     }
 
     /**
@@ -135,9 +164,7 @@ public class ActivityDiagramManager {
     public CallBehaviorAction createCallBehaviorAction(String customId, String name) {
         CallBehaviorAction action = factory.createCallBehaviorAction();
         action.setName(name);
-        activity.getOwnedNodes().add(action);
-        nodeRegistry.put(customId, action);
-        return action;
+        return registerNode(customId, action);
     }
 
     /**
@@ -145,9 +172,7 @@ public class ActivityDiagramManager {
      */
     public FlowFinalNode createFlowFinalNode(String customId) {
         FlowFinalNode finalNode = factory.createFlowFinalNode();
-        activity.getOwnedNodes().add(finalNode);
-        nodeRegistry.put(customId, finalNode);
-        return finalNode;
+        return registerNode(customId, finalNode);
     }
 
     /**
@@ -156,11 +181,31 @@ public class ActivityDiagramManager {
     public AcceptEventAction createAcceptEventAction(String customId, String name) {
         AcceptEventAction action = factory.createAcceptEventAction();
         action.setName(name);
-        activity.getOwnedNodes().add(action);
-        nodeRegistry.put(customId, action);
-        return action;
+        return registerNode(customId, action);
     }
     
+    /**
+     * 将节点加入活动并按自定义ID注册
+     */
+    private <T extends ActivityNode> T registerNode(String customId, T node) {
+        currentActivity.getOwnedNodes().add(node);
+        nodeRegistry.put(customId, node);
+        elementIds.put(node, customId);
+        trace.recordNode(customId);
+        TransformMetrics.get().recordNode(node.eClass().getName());
+        return node;
+    }
+    
+    /** 已注册的节点数（不含引脚） */
+    public int getNodeCount() {
+        return nodeRegistry.size();
+    }
+
+    /** 已注册的边数 */
+    public int getEdgeCount() {
+        return edgeRegistry.size();
+    }
+
     /**
      * 根据自定义ID获取节点
      */
@@ -169,7 +214,28 @@ public class ActivityDiagramManager {
     }
 
     /**
-     * 为CallOperationAction添加InputPin
+     * 根据自定义ID获取边
+     */
+    public ActivityEdge getEdgeById(String customId) {
+        return edgeRegistry.get(customId);
+    }
+
+    /**
+     * 记录一对结构上配对的分支/汇合节点（fork/join、decision/merge）
+     */
+    public void pairBlock(String openId, String closeId) {
+        blockPairs.put(openId, closeId);
+    }
+
+    /**
+     * 分支节点ID到汇合节点ID，按创建顺序
+     */
+    public Map<String, String> getBlockPairs() {
+        return Collections.unmodifiableMap(blockPairs);
+    }
+
+    /**
+     * 为CallOperationAction添加InputPin，类型取自模型的类型表（同名类型只创建一次）
      */
     public InputPin addInputPin(String nodeId, String pinName, String typeName) {
         ActivityNode node = nodeRegistry.get(nodeId);
@@ -177,18 +243,16 @@ public class ActivityDiagramManager {
             CallOperationAction action = (CallOperationAction) node;
             InputPin inputPin = factory.createInputPin();
             inputPin.setName(pinName);
-            if (typeName != null) {
-                // 这里可以设置类型，暂时用名称表示
-                inputPin.setType(null); // 需要具体的Type对象
-            }
+            inputPin.setType(types.getType(typeName));
             action.getArguments().add(inputPin);
+            TransformMetrics.get().recordNode("InputPin");
             return inputPin;
         }
         throw new IllegalArgumentException("Node is not a CallOperationAction: " + nodeId);
     }
 
     /**
-     * 为CallOperationAction添加OutputPin
+     * 为CallOperationAction添加OutputPin，类型取自模型的类型表（同名类型只创建一次）
      */
     public OutputPin addOutputPin(String nodeId, String pinName, String typeName) {
         ActivityNode node = nodeRegistry.get(nodeId);
@@ -196,11 +260,9 @@ public class ActivityDiagramManager {
             CallOperationAction action = (CallOperationAction) node;
             OutputPin outputPin = factory.createOutputPin();
             outputPin.setName(pinName);
-            if (typeName != null) {
-                // 这里可以设置类型，暂时用名称表示
-                outputPin.setType(null); // 需要具体的Type对象
-            }
+            outputPin.setType(types.getType(typeName));
             action.getResults().add(outputPin);
+            TransformMetrics.get().recordNode("OutputPin");
             return outputPin;
         }
         throw new IllegalArgumentException("Node is not a CallOperationAction: " + nodeId);
@@ -238,7 +300,7 @@ public class ActivityDiagramManager {
     }
     
     /**
-     * 创建控制流连接两个节点
+     * 创建控制流连接两个节点，边放入两端节点所在的活动
      */
     public ControlFlow createControlFlow(String customId, String sourceId, String targetId, String name) {
         ActivityNode source = nodeRegistry.get(sourceId);
@@ -247,6 +309,9 @@ public class ActivityDiagramManager {
         if (source == null || target == null) {
             throw new IllegalArgumentException("Source or target node not found");
         }
+        if (source.getActivity() != target.getActivity()) {
+            throw new IllegalArgumentException("Source and target are in different activities: " + sourceId + " -> " + targetId);
+        }
         
         ControlFlow flow = factory.createControlFlow();
         if (name != null) {
@@ -255,12 +320,40 @@ public class ActivityDiagramManager {
         flow.setSource(source);
         flow.setTarget(target);
         
-        activity.getEdges().add(flow);
+        source.getActivity().getEdges().add(flow);
         edgeRegistry.put(customId, flow);
-        
+        elementIds.put(flow, customId);
+        trace.recordEdge(customId);
+        TransformMetrics.get().recordEdge("ControlFlow");
+
         return flow;
     }
-    
+
+    /**
+     * 创建对象流，从上游动作的OutputPin连到下游动作的InputPin，边放入两个动作所在的活动
+     */
+    public ObjectFlow createObjectFlow(String customId, OutputPin source, InputPin target, String name) {
+        Activity owner = ((ActivityNode) source.getOwner()).getActivity();
+        if (owner != ((ActivityNode) target.getOwner()).getActivity()) {
+            throw new IllegalArgumentException("Source and target pins are in different activities: " + customId);
+        }
+
+        ObjectFlow flow = factory.createObjectFlow();
+        if (name != null) {
+            flow.setName(name);
+        }
+        flow.setSource(source);
+        flow.setTarget(target);
+
+        owner.getEdges().add(flow);
+        edgeRegistry.put(customId, flow);
+        elementIds.put(flow, customId);
+        trace.recordEdge(customId);
+        TransformMetrics.get().recordEdge("ObjectFlow");
+
+        return flow;
+    }
+
     /**
      * 在指定节点后插入新的节点和流程
      */
@@ -309,6 +402,39 @@ public class ActivityDiagramManager {
         createControlFlow(flowId, newNodeId, beforeNodeId, null);
     }
     
+    /**
+     * 在主活动所在的包中创建子活动（例如折叠的分支），节点和边仍按自定义ID注册在本管理器中
+     */
+    public Activity createSubActivity(String customId, String name) {
+        Activity subActivity = factory.createActivity();
+        subActivity.setName(name);
+        activity.getNearestPackage().getPackagedElements().add(subActivity);
+        elementIds.put(subActivity, customId);
+        subActivities.add(subActivity);
+        return subActivity;
+    }
+    
+    /**
+     * 切换之后创建的节点所放入的活动，只能是主活动或本管理器创建的子活动
+     */
+    public void setCurrentActivity(Activity target) {
+        if (target != activity && !subActivities.contains(target)) {
+            throw new IllegalArgumentException("Activity not managed: " + (target != null ? target.getName() : null));
+        }
+        this.currentActivity = target;
+    }
+    
+    public Activity getCurrentActivity() {
+        return currentActivity;
+    }
+    
+    /**
+     * 本管理器创建的子活动，按创建顺序
+     */
+    public List<Activity> getSubActivities() {
+        return Collections.unmodifiableList(subActivities);
+    }
+    
     /**
      * 获取所有注册的节点ID
      */
@@ -316,19 +442,130 @@ public class ActivityDiagramManager {
         return nodeRegistry.keySet();
     }
     
+    /**
+     * 获取元素的自定义ID，未注册的元素返回null
+     */
+    public String getCustomId(EObject element) {
+        return elementIds.get(element);
+    }
+    
+    /**
+     * 追溯记录：转换器处理每个句子时开始和结束，期间创建的节点和边记在该句子下
+     */
+    public TraceRecorder getTrace() {
+        return trace;
+    }
+    
+    /**
+     * 设置保存时是否在控制台输出提示，批量处理时可关闭
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+    
+    /**
+     * 已注册元素到自定义ID的映射
+     */
+    Map<EObject, String> getElementIds() {
+        return elementIds;
+    }
+    
+    public Model getModel() {
+        return model;
+    }
+    
+    /**
+     * 模型的Pin类型表
+     */
+    public TypeRegistry getTypeRegistry() {
+        return types;
+    }
+    
+    public Activity getActivity() {
+        return activity;
+    }
+    
     /**
      * 保存活动图到文件
+     * xmi:id由自定义ID确定性地生成；序列化内容与磁盘上的文件哈希一致时跳过写入
+     */
+    public SaveResult saveToFile(String filename) throws Exception {
+        SaveEvent event = new SaveEvent();
+        event.begin();
+        long start = System.nanoTime();
+        File outputFile = new File(filename).getAbsoluteFile();
+        XMLResource resource = attachToResource(outputFile);
+        StableXmiWriter.assignIds(resource, model, elementIds, "");
+        byte[] content = StableXmiWriter.serialize(resource);
+        boolean written = StableXmiWriter.writeIfChanged(outputFile, content);
+        SaveResult result = new SaveResult(outputFile, content.length, written, System.nanoTime() - start);
+        TransformMetrics.get().recordSave(result.getBytes(), written, result.getElapsedNanos());
+        if (event.shouldCommit()) {
+            event.file = outputFile.getPath();
+            event.bytes = content.length;
+            event.written = written;
+            event.nodes = getNodeCount();
+            event.edges = getEdgeCount();
+            event.commit();
+        }
+        if (!verbose) {
+            return result;
+        }
+        if (written) {
+            System.out.println("✅ 活动图已保存为: " + outputFile.getAbsolutePath());
+        } else {
+            System.out.println("⏭ 活动图未变化，跳过写入: " + outputFile.getAbsolutePath());
+        }
+        return result;
+    }
+    
+    /**
+     * 将活动图序列化为XMI字节（使用与saveToFile相同的稳定ID），不写文件
+     */
+    public byte[] toXmiBytes() throws java.io.IOException {
+        XMLResource resource = (XMLResource) model.eResource();
+        if (resource == null) {
+            resource = (XMLResource) resourceSet.createResource(URI.createURI(model.getName() + ".uml"));
+            resource.getContents().add(model);
+        }
+        StableXmiWriter.assignIds(resource, model, elementIds, "");
+        return StableXmiWriter.serialize(resource);
+    }
+    
+    /**
+     * 将模型放入目标文件对应的资源中，重复保存时复用同一资源
      */
-    public void saveToFile(String filename) throws Exception {
-        File outputFile = new File(filename);
+    private XMLResource attachToResource(File outputFile) {
         URI outputURI = URI.createFileURI(outputFile.getAbsolutePath());
-        Resource resource = resourceSet.createResource(outputURI);
-        resource.getContents().add(model);
-        // 设置 UTF-8 编码
-        Map<Object, Object> options = new HashMap<>();
-        options.put(org.eclipse.emf.ecore.xmi.XMLResource.OPTION_ENCODING, "UTF-8");
-        resource.save(options);
-        System.out.println("✅ 活动图已保存为: " + outputFile.getAbsolutePath());
+        Resource resource = resourceSet.getResource(outputURI, false);
+        if (resource == null) {
+            resource = resourceSet.createResource(outputURI);
+        }
+        if (model.eResource() != resource) {
+            resource.getContents().add(model);
+        }
+        return (XMLResource) resource;
+    }
+    
+    /**
+     * 释放模型和注册表，使EMF对象可以被回收；之后该管理器不可再使用
+     */
+    public void dispose() {
+        if (ownsResourceSet) {
+            for (Resource resource : new ArrayList<>(resourceSet.getResources())) {
+                resource.unload();
+            }
+            resourceSet.getResources().clear();
+        }
+        nodeRegistry.clear();
+        edgeRegistry.clear();
+        elementIds.clear();
+        blockPairs.clear();
+        subActivities.clear();
+        if (ownsResourceSet) {
+            types.clear();
+        }
+        trace.clear();
     }
     
     /**
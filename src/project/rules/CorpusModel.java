@@ -0,0 +1,180 @@
+package project.rules;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.uml2.uml.*;
+import org.eclipse.uml2.uml.Package;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * 语料级共享模型 - 将多个用例的活动放入同一个Model，并以一次缓冲保存写出
+ * 每个用例的活动可放在独立的Package中，也可作为Model下的兄弟Activity；
+ * 包含句的CallBehaviorAction直接引用被包含用例的活动，被包含用例尚未转换时先创建占位活动。
+ */
+public class CorpusModel {
+    private final Model model;
+    private final ResourceSet resourceSet;
+    private final UMLFactory factory;
+    private final boolean packagePerUseCase;
+    private final Map<String, Activity> activities; // 用例名到活动的映射，保持加入顺序
+    private final Map<String, ActivityDiagramManager> managers;
+    private final Map<EObject, String> typeIds = new HashMap<>(); // 类型表元素的自定义ID，整个模型共用不加用例前缀
+    private final TypeRegistry types;
+    private boolean verbose = true; // 保存时是否输出提示
+
+    public CorpusModel(String modelName, boolean packagePerUseCase) {
+        this.factory = UMLFactory.eINSTANCE;
+        this.resourceSet = ActivityDiagramManager.createResourceSet();
+        this.packagePerUseCase = packagePerUseCase;
+        this.activities = new LinkedHashMap<>();
+        this.managers = new LinkedHashMap<>();
+
+        this.model = factory.createModel();
+        this.model.setName(modelName);
+        this.types = new TypeRegistry(model, typeIds);
+    }
+
+    /**
+     * 为用例创建活动图管理器，若此前已因包含关系创建了占位活动则复用它
+     */
+    public ActivityDiagramManager createManager(String useCaseName) {
+        if (managers.containsKey(useCaseName)) {
+            throw new IllegalArgumentException("Use case already transformed: " + useCaseName);
+        }
+        ActivityDiagramManager manager = new ActivityDiagramManager(model, getOrCreateActivity(useCaseName), resourceSet, types);
+        managers.put(useCaseName, manager);
+        return manager;
+    }
+
+    /**
+     * 获取用例对应的活动，不存在时创建占位活动
+     */
+    public Activity getOrCreateActivity(String useCaseName) {
+        Activity activity = activities.get(useCaseName);
+        if (activity == null) {
+            activity = factory.createActivity();
+            activity.setName(useCaseName + "_Activity");
+            if (packagePerUseCase) {
+                Package owner = factory.createPackage();
+                owner.setName(useCaseName);
+                model.getPackagedElements().add(owner);
+                owner.getPackagedElements().add(activity);
+            } else {
+                model.getPackagedElements().add(activity);
+            }
+            activities.put(useCaseName, activity);
+        }
+        return activity;
+    }
+
+    /**
+     * 获取已转换用例的活动图管理器
+     */
+    public ActivityDiagramManager getManager(String useCaseName) {
+        return managers.get(useCaseName);
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    public Collection<Activity> getActivities() {
+        return activities.values();
+    }
+
+    /**
+     * 设置保存时是否在控制台输出提示，与ActivityDiagramManager.setVerbose一致，批量处理和服务中可关闭
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * 所有用例共用的Pin类型表
+     */
+    public TypeRegistry getTypeRegistry() {
+        return types;
+    }
+
+    /**
+     * 将整个语料模型序列化为一个文件，xmi:id以用例名为前缀保证全局唯一
+     */
+    public SaveResult saveToFile(String filename) throws Exception {
+        long start = System.nanoTime();
+        File outputFile = new File(filename).getAbsoluteFile();
+        URI outputURI = URI.createFileURI(outputFile.getAbsolutePath());
+        Resource resource = resourceSet.getResource(outputURI, false);
+        if (resource == null) {
+            resource = resourceSet.createResource(outputURI);
+        }
+        if (model.eResource() != resource) {
+            resource.getContents().add(model);
+        }
+
+        XMLResource xml = (XMLResource) resource;
+        StableXmiWriter.assignIds(xml, model, collectIds(), "");
+        byte[] content = StableXmiWriter.serialize(xml);
+        boolean written = StableXmiWriter.writeIfChanged(outputFile, content);
+        SaveResult result = new SaveResult(outputFile, content.length, written, System.nanoTime() - start);
+        if (!verbose) {
+            return result;
+        }
+        System.out.println((written ? "✅ 语料模型已保存为: " : "⏭ 语料模型未变化，跳过写入: ")
+                + outputFile.getAbsolutePath() + " (" + activities.size() + " 个活动)");
+        return result;
+    }
+
+    /**
+     * 将整个语料模型序列化为XMI字节（使用与saveToFile相同的稳定ID），不写文件
+     */
+    public byte[] toXmiBytes() throws java.io.IOException {
+        XMLResource resource = (XMLResource) model.eResource();
+        if (resource == null) {
+            resource = (XMLResource) resourceSet.createResource(URI.createURI(model.getName() + ".uml"));
+            resource.getContents().add(model);
+        }
+        StableXmiWriter.assignIds(resource, model, collectIds(), "");
+        return StableXmiWriter.serialize(resource);
+    }
+
+    /**
+     * 卸载资源并释放所有用例的管理器
+     */
+    public void dispose() {
+        for (Resource resource : new ArrayList<>(resourceSet.getResources())) {
+            resource.unload();
+        }
+        resourceSet.getResources().clear();
+        for (ActivityDiagramManager manager : managers.values()) {
+            manager.dispose();
+        }
+        managers.clear();
+        activities.clear();
+        types.clear();
+        typeIds.clear();
+    }
+
+    private Map<EObject, String> collectIds() {
+        Map<EObject, String> ids = new HashMap<>(typeIds);
+        for (Map.Entry<String, Activity> entry : activities.entrySet()) {
+            String useCaseName = entry.getKey();
+            Activity activity = entry.getValue();
+            ids.put(activity, activity.getName());
+            if (packagePerUseCase) {
+                ids.put(activity.getOwner(), useCaseName);
+            }
+            ActivityDiagramManager manager = managers.get(useCaseName);
+            if (manager != null) {
+                for (Map.Entry<EObject, String> element : manager.getElementIds().entrySet()) {
+                    ids.put(element.getKey(), useCaseName + "." + element.getValue());
+                }
+            }
+        }
+        return ids;
+    }
+}
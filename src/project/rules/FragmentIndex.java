@@ -0,0 +1,204 @@
+package project.rules;
+
+import project.ucmeta.UCMetaModel.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 用例中重复分支片段的索引
+ * 对每个分支句子列表（备选流、条件分支、并行分支、循环体）自底向上计算与句子ID无关的规范哈希，
+ * 统计每种片段的出现次数；重复出现的片段由转换器只生成一次共享活动，各处用CallBehaviorAction调用。
+ * 含恢复句或中止句的片段不共享：它们的控制流跳出片段，放进被调用的活动后语义会改变。
+ */
+final class FragmentIndex {
+
+    private static final long SEED = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private final int minSize;
+    private final Map<List<Sentence>, Long> eligible = new IdentityHashMap<>(); // 可共享的分支 -> 规范哈希
+    private final Map<Long, Integer> occurrences = new HashMap<>();
+
+    /**
+     * minSize为片段（含嵌套）最少的句子数，更小的片段内联比调用更紧凑
+     */
+    FragmentIndex(UseCase useCase, int minSize) {
+        this.minSize = minSize;
+        List<List<Sentence>> flows = new ArrayList<>();
+        flows.add(useCase.getMainFlow());
+        for (GlobalAlternativeFlow flow : useCase.getGlobalAlternativeFlows()) {
+            flows.add(flow.getSentences());
+        }
+        for (List<Sentence> flow : flows) {
+            for (Sentence sentence : flow) {
+                hashSentence(sentence, new int[1]);
+            }
+        }
+        // 只计入第一份副本内部的嵌套片段：共享后其余副本不再展开
+        Set<Long> descended = new HashSet<>();
+        for (List<Sentence> flow : flows) {
+            count(flow, descended);
+        }
+    }
+
+    /**
+     * 分支应共享时返回其规范哈希，否则返回null
+     */
+    Long sharedKey(List<Sentence> sentences) {
+        Long hash = eligible.get(sentences);
+        return hash != null && occurrences.getOrDefault(hash, 0) > 1 ? hash : null;
+    }
+
+    /**
+     * 复合句的各个分支句子列表，按转换器处理的顺序
+     */
+    static List<List<Sentence>> branchesOf(Sentence sentence) {
+        switch (sentence.getType()) {
+            case CONDITION_CHECK:
+                return Collections.singletonList(((ConditionCheckSentence) sentence).getAlternativeFlow());
+            case CONDITIONAL: {
+                ConditionalSentence conditional = (ConditionalSentence) sentence;
+                List<List<Sentence>> branches = new ArrayList<>();
+                branches.add(conditional.getThenBranch());
+                branches.add(conditional.getElseBranch());
+                for (ConditionalSentence.ConditionalBranch branch : conditional.getElseIfBranches()) {
+                    branches.add(branch.getSentences());
+                }
+                return branches;
+            }
+            case PARALLEL:
+                return ((ParallelSentence) sentence).getParallelBranches();
+            case ITERATIVE:
+                return Collections.singletonList(((IterativeSentence) sentence).getBody());
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 两个句子列表除ID外是否完全相同，用于排除哈希碰撞
+     */
+    static boolean sameStructure(List<Sentence> left, List<Sentence> right) {
+        if (left.size() != right.size()) {
+            return false;
+        }
+        for (int i = 0; i < left.size(); i++) {
+            Sentence a = left.get(i);
+            Sentence b = right.get(i);
+            if (a.getType() != b.getType() || !Arrays.equals(fieldsOf(a), fieldsOf(b))) {
+                return false;
+            }
+            List<List<Sentence>> branchesA = branchesOf(a);
+            List<List<Sentence>> branchesB = branchesOf(b);
+            if (branchesA.size() != branchesB.size()) {
+                return false;
+            }
+            for (int j = 0; j < branchesA.size(); j++) {
+                if (!sameStructure(branchesA.get(j), branchesB.get(j))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 返回句子的规范哈希；size累计句子数（含嵌套），分支列表的哈希记入eligible
+     * 哈希的最低位标记"含恢复句或中止句"，这样的片段及包含它的片段都不共享
+     */
+    private long hashSentence(Sentence sentence, int[] size) {
+        size[0]++;
+        long hash = mix(SEED, sentence.getType().name());
+        for (String field : fieldsOf(sentence)) {
+            hash = mix(hash, field);
+        }
+        boolean escapes = sentence.getType() == SentenceType.RESUME_STEP || sentence.getType() == SentenceType.ABORT;
+        for (List<Sentence> branch : branchesOf(sentence)) {
+            int[] branchSize = new int[1];
+            long branchHash = SEED;
+            boolean branchEscapes = false;
+            for (Sentence child : branch) {
+                long childHash = hashSentence(child, branchSize);
+                branchEscapes |= (childHash & 1) != 0;
+                branchHash = (branchHash ^ childHash) * PRIME;
+            }
+            branchHash = (branchHash ^ branch.size()) * PRIME;
+            if (!branchEscapes && branchSize[0] >= minSize) {
+                eligible.put(branch, branchHash);
+            }
+            escapes |= branchEscapes;
+            size[0] += branchSize[0];
+            hash = (hash ^ branchHash) * PRIME;
+        }
+        return escapes ? hash | 1 : hash & ~1L;
+    }
+
+    private void count(List<Sentence> sentences, Set<Long> descended) {
+        for (Sentence sentence : sentences) {
+            for (List<Sentence> branch : branchesOf(sentence)) {
+                Long hash = eligible.get(branch);
+                if (hash != null) {
+                    occurrences.merge(hash, 1, Integer::sum);
+                    if (!descended.add(hash)) {
+                        continue;
+                    }
+                }
+                count(branch, descended);
+            }
+        }
+    }
+
+    /**
+     * 参与比较的句子字段（不含ID），与UCMetaWriter写出的字段一致
+     */
+    private static String[] fieldsOf(Sentence sentence) {
+        switch (sentence.getType()) {
+            case SIMPLE: {
+                SimpleSentence simple = (SimpleSentence) sentence;
+                return new String[] {sentence.getContent(), Objects.toString(simple.getTransactionType(), null),
+                        simple.getActor(), simple.getAction(), simple.getObject()};
+            }
+            case CONDITION_CHECK:
+                return new String[] {sentence.getContent(), ((ConditionCheckSentence) sentence).getCondition()};
+            case CONDITIONAL: {
+                ConditionalSentence conditional = (ConditionalSentence) sentence;
+                String[] fields = new String[2 + conditional.getElseIfBranches().size()];
+                fields[0] = sentence.getContent();
+                fields[1] = conditional.getCondition();
+                for (int i = 0; i < conditional.getElseIfBranches().size(); i++) {
+                    fields[2 + i] = conditional.getElseIfBranches().get(i).getCondition();
+                }
+                return fields;
+            }
+            case ITERATIVE:
+                return new String[] {sentence.getContent(), ((IterativeSentence) sentence).getCondition()};
+            case INCLUDE:
+                return new String[] {sentence.getContent(), ((IncludeSentence) sentence).getIncludedUseCase()};
+            case EXTEND:
+                return new String[] {sentence.getContent(), ((ExtendSentence) sentence).getExtendingUseCase()};
+            case RESUME_STEP:
+                return new String[] {sentence.getContent(), ((ResumeStepSentence) sentence).getTargetStepId()};
+            default:
+                return new String[] {sentence.getContent()};
+        }
+    }
+
+    private static long mix(long hash, String value) {
+        if (value == null) {
+            return (hash ^ 0xff) * PRIME;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * PRIME;
+        }
+        return (hash ^ value.length()) * PRIME;
+    }
+}
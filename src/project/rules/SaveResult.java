@@ -0,0 +1,51 @@
+package project.rules;
+
+import java.io.File;
+
+/**
+ * 一次保存操作的结果
+ */
+public class SaveResult {
+    private final File file;
+    private final long bytes;
+    private final boolean written;
+    private final long elapsedNanos;
+    private final long queueNanos;
+
+    public SaveResult(File file, long bytes, boolean written, long elapsedNanos) {
+        this(file, bytes, written, elapsedNanos, 0);
+    }
+
+    public SaveResult(File file, long bytes, boolean written, long elapsedNanos, long queueNanos) {
+        this.file = file;
+        this.bytes = bytes;
+        this.written = written;
+        this.elapsedNanos = elapsedNanos;
+        this.queueNanos = queueNanos;
+    }
+
+    /**
+     * 返回附加了排队等待时间的副本
+     */
+    public SaveResult withQueueNanos(long queueNanos) {
+        return new SaveResult(file, bytes, written, elapsedNanos, queueNanos);
+    }
+
+    public File getFile() { return file; }
+    public long getBytes() { return bytes; }
+    /** 内容与磁盘一致而跳过写入时为false */
+    public boolean isWritten() { return written; }
+    /** 序列化与写入的总耗时 */
+    public long getElapsedNanos() { return elapsedNanos; }
+    /** 异步保存时在I/O队列中的等待时间，同步保存为0 */
+    public long getQueueNanos() { return queueNanos; }
+    /** 从提交保存到写盘完成的总延迟 */
+    public long getLatencyNanos() { return queueNanos + elapsedNanos; }
+
+    @Override
+    public String toString() {
+        return file.getName() + " (" + bytes + " bytes, " + (written ? "written" : "unchanged")
+                + ", " + elapsedNanos / 1_000_000 + " ms"
+                + (queueNanos > 0 ? ", queued " + queueNanos / 1_000_000 + " ms" : "") + ")";
+    }
+}
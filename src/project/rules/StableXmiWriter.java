@@ -0,0 +1,213 @@
+package project.rules;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 确定性XMI序列化工具
+ * 负责由自定义ID推导稳定的xmi:id，并在内容未变化时跳过磁盘写入
+ */
+final class StableXmiWriter {
+
+    private StableXmiWriter() {
+    }
+
+    /**
+     * 为root及其所有子元素分配稳定的xmi:id
+     * 已注册的元素直接使用自定义ID，其余元素由父元素ID、包含特征名和下标推导；
+     * 写出前转换为合法的NCName，否则含空格的ID在多值引用中会被拆开，重新加载时无法解析
+     */
+    static void assignIds(XMLResource resource, EObject root, Map<EObject, String> customIds, String prefix) {
+        Map<EObject, String> assigned = new HashMap<>();
+        Set<String> used = new HashSet<>();
+
+        String rootId = customIds.get(root);
+        if (rootId == null) {
+            rootId = root instanceof org.eclipse.uml2.uml.NamedElement
+                    && ((org.eclipse.uml2.uml.NamedElement) root).getName() != null
+                    ? ((org.eclipse.uml2.uml.NamedElement) root).getName() : "root";
+        }
+        assign(resource, root, prefix + rootId, assigned, used);
+
+        for (TreeIterator<EObject> it = root.eAllContents(); it.hasNext(); ) {
+            EObject element = it.next();
+            String customId = customIds.get(element);
+            String id;
+            if (customId != null) {
+                id = prefix + customId;
+            } else {
+                id = assigned.get(element.eContainer()) + "." + containmentSegment(element);
+            }
+            assign(resource, element, id, assigned, used);
+        }
+    }
+
+    private static void assign(XMLResource resource, EObject element, String id,
+                               Map<EObject, String> assigned, Set<String> used) {
+        String base = toNCName(id);
+        String unique = base;
+        for (int i = 1; !used.add(unique); i++) {
+            unique = base + "-" + i;
+        }
+        assigned.put(element, unique);
+        resource.setID(element, unique);
+    }
+
+    /**
+     * 把ID中NCName不允许的字符（空白、冒号、斜杠等）替换为'_'，不能作首字符的数字、'-'、'.'前加'_'
+     * 合法的ID（包括中文）保持不变
+     */
+    static String toNCName(String id) {
+        if (id.isEmpty()) {
+            return "_";
+        }
+        StringBuilder result = null;
+        for (int i = 0; i < id.length(); ) {
+            int c = id.codePointAt(i);
+            boolean valid = i == 0 ? isNameStart(c) : isNameStart(c) || isNamePart(c);
+            if (!valid && result == null) {
+                result = new StringBuilder(id.length() + 1).append(id, 0, i);
+            }
+            if (result != null) {
+                if (valid) {
+                    result.appendCodePoint(c);
+                } else if (i == 0 && isNamePart(c)) {
+                    result.append('_').appendCodePoint(c);
+                } else {
+                    result.append('_');
+                }
+            }
+            i += Character.charCount(c);
+        }
+        return result != null ? result.toString() : id;
+    }
+
+    private static boolean isNameStart(int c) {
+        return c == '_' || Character.isLetter(c);
+    }
+
+    private static boolean isNamePart(int c) {
+        return c == '-' || c == '.' || Character.isDigit(c)
+                || Character.getType(c) == Character.NON_SPACING_MARK
+                || Character.getType(c) == Character.COMBINING_SPACING_MARK;
+    }
+
+    private static String containmentSegment(EObject element) {
+        EStructuralFeature feature = element.eContainingFeature();
+        if (feature.isMany()) {
+            List<?> siblings = (List<?>) element.eContainer().eGet(feature);
+            return feature.getName() + "." + siblings.indexOf(element);
+        }
+        return feature.getName();
+    }
+
+    /**
+     * 将资源序列化为UTF-8编码的字节
+     */
+    static byte[] serialize(XMLResource resource) throws IOException {
+        Map<Object, Object> options = new HashMap<>();
+        options.put(XMLResource.OPTION_ENCODING, "UTF-8");
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        resource.save(out, options);
+        return out.toByteArray();
+    }
+
+    /**
+     * 内容哈希与磁盘上的文件不同时才写入，返回是否发生了写入
+     * 写入先落到同目录的临时文件再原子替换，避免留下半个文件
+     */
+    static boolean writeIfChanged(File file, byte[] content) throws IOException {
+        Path target = file.toPath();
+        if (Files.isRegularFile(target) && Files.size(target) == content.length
+                && Arrays.equals(sha256(content), sha256(target))) {
+            return false;
+        }
+        Path dir = target.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        Path temp = createSibling(target);
+        try {
+            Files.write(temp, content);
+            copyPermissions(target, temp);
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return true;
+    }
+
+    /**
+     * 在目标旁创建临时文件；不用Files.createTempFile，它固定为0600，替换后输出文件会变成仅属主可读，
+     * 这里按普通文件创建，权限与直接写目标文件时一样由umask决定
+     */
+    private static Path createSibling(Path target) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        while (true) {
+            Path temp = dir.resolve(target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).close();
+                return temp;
+            } catch (FileAlreadyExistsException e) {
+                // 名字冲突，换一个再试
+            }
+        }
+    }
+
+    /**
+     * 目标已存在时沿用它的POSIX权限，替换文件不改变用户设置过的模式
+     */
+    private static void copyPermissions(Path from, Path to) throws IOException {
+        if (Files.isRegularFile(from) && Files.getFileAttributeView(from, PosixFileAttributeView.class) != null) {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(from);
+            Files.setPosixFilePermissions(to, permissions);
+        }
+    }
+
+    static byte[] sha256(byte[] content) {
+        return newDigest().digest(content);
+    }
+
+    static byte[] sha256(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package project.rules;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.uml2.uml.*;
+import org.eclipse.uml2.uml.Package;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 模型级的Pin类型表
+ * 每个类型名只创建一次：Boolean、String、Integer、Real为PrimitiveType，其余数据对象为Class，
+ * 都放在模型下首次使用时创建的"Types"包中；同一模型中的所有Pin（语料模型中跨用例）引用同一个类型对象。
+ * 查找走名称哈希表，不扫描包内元素，数千个数据对象时每次查找仍是常数时间。
+ */
+public final class TypeRegistry {
+
+    /** 类型所在包的名称和自定义ID */
+    public static final String PACKAGE_NAME = "Types";
+
+    private static final Set<String> PRIMITIVES = new HashSet<>(Arrays.asList("Boolean", "String", "Integer", "Real"));
+
+    private final Model model;
+    private final Map<EObject, String> elementIds; // 类型和包的自定义ID写入这里，保存时生成稳定的xmi:id
+    private final Map<String, Type> types = new HashMap<>(1024);
+    private Package typesPackage;
+
+    TypeRegistry(Model model, Map<EObject, String> elementIds) {
+        this.model = model;
+        this.elementIds = elementIds;
+    }
+
+    /**
+     * 类型名对应的类型，首次使用时创建；名称为null或空时返回null
+     */
+    public Type getType(String typeName) {
+        if (typeName == null || typeName.isEmpty()) {
+            return null;
+        }
+        Type type = types.get(typeName);
+        if (type == null) {
+            type = createType(typeName);
+            types.put(typeName, type);
+        }
+        return type;
+    }
+
+    /**
+     * 已创建的类型数
+     */
+    public int size() {
+        return types.size();
+    }
+
+    /**
+     * 类型名到类型，按名称哈希排列
+     */
+    public Map<String, Type> getTypes() {
+        return Collections.unmodifiableMap(types);
+    }
+
+    /**
+     * 只清空查找表，模型中的类型随模型一起释放
+     */
+    void clear() {
+        types.clear();
+        typesPackage = null;
+    }
+
+    private Type createType(String typeName) {
+        if (typesPackage == null) {
+            typesPackage = UMLFactory.eINSTANCE.createPackage();
+            typesPackage.setName(PACKAGE_NAME);
+            model.getPackagedElements().add(typesPackage);
+            elementIds.put(typesPackage, PACKAGE_NAME);
+        }
+        Type type = PRIMITIVES.contains(typeName)
+                ? UMLFactory.eINSTANCE.createPrimitiveType()
+                : UMLFactory.eINSTANCE.createClass();
+        type.setName(typeName);
+        typesPackage.getPackagedElements().add(type);
+        elementIds.put(type, "type_" + typeName);
+        return type;
+    }
+}
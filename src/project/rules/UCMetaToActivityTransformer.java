@@ -1,8 +1,16 @@
 package project.rules;
 
+import project.metrics.GlobalFlowEvent;
+import project.metrics.RuleEvent;
+import project.metrics.TransformEvent;
+import project.metrics.TransformMetrics;
 import project.ucmeta.UCMetaModel.*;
 import org.eclipse.uml2.uml.*;
 
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
@@ -13,22 +21,124 @@ import java.util.List;
  */
 public class UCMetaToActivityTransformer {
     
+    /** 不限制展开深度，等同于详细图 */
+    public static final int UNLIMITED_DETAIL = Integer.MAX_VALUE;
+    
     private ActivityDiagramManager manager;
     private Map<String, String> stepToNodeMapping; // 步骤ID到节点ID的映射
     private int nodeCounter = 0;
     private boolean generateDetailedDiagram = true; // 是否生成详细活动图
+    private CorpusModel corpus; // 共享语料模型，独立输出时为null
+    private String useCaseName; // 当前用例名，用于JFR事件
+    private int detailLevel = UNLIMITED_DETAIL; // 就地展开的最大嵌套深度，更深的分支折叠为子活动调用
+    private int depth; // 当前句子所在的嵌套深度，主流程（及每个子活动的顶层）为0
+    private final List<SubFlow> pendingSubFlows = new ArrayList<>(); // 折叠的分支，主流程完成后依次生成子活动
+    private SubFlow currentSubFlow; // 正在生成的子活动，主活动中为null
+    private final Map<String, SubFlow> collapsedSteps = new HashMap<>(); // 被折叠的步骤ID -> 包含它的最内层子活动
+    private boolean shareFragments = false; // 重复的分支片段是否只生成一次共享活动
+    private int minFragmentSize = 2; // 参与共享的片段最少句子数（含嵌套）
+    private FragmentIndex fragments; // 当前用例的重复片段索引，未启用共享时为null
+    private final Map<Long, SubFlow> sharedFragments = new HashMap<>(); // 片段规范哈希 -> 第一次出现的折叠分支
+    private int fragmentCounter;
+    private final Map<String, OutputPin> objectSources = new HashMap<>(); // 数据对象 -> 当前位置最近的上游OutputPin
+    private final Deque<Map.Entry<String, OutputPin>> objectUndoLog = new ArrayDeque<>(); // 被覆盖的旧值，退出分支时回滚
+    private int objectFlowCounter;
+    
+    /**
+     * 被折叠的分支：调用它的CallBehaviorAction、分支中的句子，以及调用动作所在的活动
+     */
+    private static final class SubFlow {
+        final String callId;
+        final List<Sentence> sentences;
+        final Activity caller;
+        final SubFlow parent; // 调用动作所在的子活动，位于主活动时为null
+        final SubFlow origin; // 重复片段第一次出现的分支，调用它的活动而不再生成；其余情况为null
+        final boolean shared; // 是否为共享片段的第一次出现
+        Activity activity; // 生成的子活动
+        
+        SubFlow(String callId, List<Sentence> sentences, Activity caller, SubFlow parent, SubFlow origin, boolean shared) {
+            this.callId = callId;
+            this.sentences = sentences;
+            this.caller = caller;
+            this.parent = parent;
+            this.origin = origin;
+            this.shared = shared;
+        }
+    }
     
     public UCMetaToActivityTransformer(boolean generateDetailedDiagram) {
         this.generateDetailedDiagram = generateDetailedDiagram;
         this.stepToNodeMapping = new HashMap<>();
     }
     
+    /**
+     * 按细节层级转换：嵌套深度不超过detailLevel的句子就地展开，更深的分支（备选流、条件分支、并行分支、循环体）
+     * 折叠为一个CallBehaviorAction，调用同一模型中随后生成的子活动；子活动内部同样最多展开detailLevel层。
+     * 0表示只展开主流程，UNLIMITED_DETAIL等同于详细图
+     */
+    public UCMetaToActivityTransformer(int detailLevel) {
+        this(true);
+        if (detailLevel < 0) {
+            throw new IllegalArgumentException("Detail level must not be negative: " + detailLevel);
+        }
+        this.detailLevel = detailLevel;
+    }
+    
+    /**
+     * 启用后，同一用例中除句子ID外完全相同的分支片段（备选流、条件分支、并行分支、循环体）只生成一次共享活动，
+     * 每处出现都折叠为调用它的CallBehaviorAction；含恢复句或中止句的片段始终就地生成
+     */
+    public void setShareFragments(boolean shareFragments) {
+        this.shareFragments = shareFragments;
+    }
+    
+    /**
+     * 参与共享的片段最少包含的句子数（含嵌套句子），默认2
+     */
+    public void setMinFragmentSize(int minFragmentSize) {
+        if (minFragmentSize < 1) {
+            throw new IllegalArgumentException("Minimum fragment size must be positive: " + minFragmentSize);
+        }
+        this.minFragmentSize = minFragmentSize;
+    }
+    
     /**
      * 规则1c：为每个用例生成一个活动图实例
      */
     public ActivityDiagramManager transformUseCase(project.ucmeta.UCMetaModel.UseCase useCase) {
         // 创建活动图管理器
+        corpus = null;
         manager = new ActivityDiagramManager(useCase.getName() + "_Model", useCase.getName() + "_Activity");
+        return transformInto(useCase);
+    }
+    
+    /**
+     * 规则1c：将用例转换为共享语料模型中的一个活动
+     * 包含句的CallBehaviorAction会直接引用被包含用例在同一模型中的活动
+     */
+    public ActivityDiagramManager transformUseCase(project.ucmeta.UCMetaModel.UseCase useCase, CorpusModel corpus) {
+        this.corpus = corpus;
+        manager = corpus.createManager(useCase.getName());
+        return transformInto(useCase);
+    }
+    
+    private ActivityDiagramManager transformInto(project.ucmeta.UCMetaModel.UseCase useCase) {
+        TransformEvent event = new TransformEvent();
+        event.begin();
+        long start = System.nanoTime();
+        // 每个用例从相同的初始状态开始，保证生成的ID可重复
+        nodeCounter = 0;
+        stepToNodeMapping.clear();
+        pendingSubFlows.clear();
+        collapsedSteps.clear();
+        sharedFragments.clear();
+        fragmentCounter = 0;
+        resetObjectSources();
+        objectFlowCounter = 0;
+        fragments = shareFragments ? new FragmentIndex(useCase, minFragmentSize) : null;
+        currentSubFlow = null;
+        depth = 0;
+        useCaseName = useCase.getName();
         
         // 规则1.5a：处理前置条件
         for (String precondition : useCase.getPreconditions()) {
@@ -65,6 +175,17 @@ public class UCMetaToActivityTransformer {
             processGlobalAlternativeFlow(globalFlow);
         }
         
+        generateSubActivities();
+        
+        TransformMetrics.get().recordTransform(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.useCase = useCaseName;
+            event.detailed = generateDetailedDiagram;
+            event.sentences = useCase.getMainFlow().size();
+            event.nodes = manager.getNodeCount();
+            event.edges = manager.getEdgeCount();
+            event.commit();
+        }
         return manager;
     }
     
@@ -72,6 +193,42 @@ public class UCMetaToActivityTransformer {
      * 处理单个句子，返回最后一个节点的ID
      */
     private String processSentence(Sentence sentence, String previousNodeId) {
+        TransformMetrics.get().recordSentence(sentence.getType());
+        RuleEvent event = new RuleEvent();
+        if (!event.isEnabled()) {
+            return tracedRule(sentence, previousNodeId);
+        }
+        int nodesBefore = manager.getNodeCount();
+        int edgesBefore = manager.getEdgeCount();
+        event.begin();
+        String lastNodeId = tracedRule(sentence, previousNodeId);
+        if (event.shouldCommit()) {
+            event.useCase = useCaseName;
+            event.sentenceId = sentence.getId();
+            event.sentenceType = sentence.getType().name();
+            event.nodesCreated = manager.getNodeCount() - nodesBefore;
+            event.edgesCreated = manager.getEdgeCount() - edgesBefore;
+            event.commit();
+        }
+        return lastNodeId;
+    }
+    
+    /**
+     * 应用规则，期间创建的元素记入该句子的追溯记录
+     */
+    private String tracedRule(Sentence sentence, String previousNodeId) {
+        manager.getTrace().begin(sentence.getId());
+        try {
+            return applyRule(sentence, previousNodeId);
+        } finally {
+            manager.getTrace().end();
+        }
+    }
+    
+    /**
+     * 按句型分派到对应的转换规则
+     */
+    private String applyRule(Sentence sentence, String previousNodeId) {
         switch (sentence.getType()) {
             case SIMPLE:
                 return processSimpleSentence((SimpleSentence) sentence, previousNodeId);
@@ -142,13 +299,12 @@ public class UCMetaToActivityTransformer {
         // 处理备选流
         String mergeNodeId = "merge_" + sentence.getId();
         MergeNode mergeNode = manager.createMergeNode(mergeNodeId);
+        manager.pairBlock(decisionNodeId, mergeNodeId);
 
         if (generateDetailedDiagram) {
             // 详细图：递归处理备选流中的句子
-            String lastAlternativeNodeId = decisionNodeId;
-            for (Sentence altSentence : sentence.getAlternativeFlow()) {
-                lastAlternativeNodeId = processSentence(altSentence, lastAlternativeNodeId);
-            }
+            String lastAlternativeNodeId = processBranch(sentence.getAlternativeFlow(), decisionNodeId,
+                    "alt_behavior_" + sentence.getId(), "Alternative Flow", "alternative");
 
             // 关键修复：备选流处理完后，应该回到验证步骤重新检查
             // 而不是直接到MergeNode
@@ -187,13 +343,13 @@ public class UCMetaToActivityTransformer {
         // 创建MergeNode用于汇合
         String mergeNodeId = "merge_conditional_" + sentence.getId();
         MergeNode mergeNode = manager.createMergeNode(mergeNodeId);
+        manager.pairBlock(decisionNodeId, mergeNodeId);
         
         // 处理THEN分支
         String lastThenNodeId = decisionNodeId;
         if (generateDetailedDiagram) {
-            for (Sentence thenSentence : sentence.getThenBranch()) {
-                lastThenNodeId = processSentence(thenSentence, lastThenNodeId);
-            }
+            lastThenNodeId = processBranch(sentence.getThenBranch(), decisionNodeId,
+                    "then_behavior_" + sentence.getId(), "Then Branch", "then");
         } else {
             String thenActionId = "then_behavior_" + sentence.getId();
             CallBehaviorAction thenAction = manager.createCallBehaviorAction(thenActionId, "Then Branch");
@@ -206,9 +362,8 @@ public class UCMetaToActivityTransformer {
         if (!sentence.getElseBranch().isEmpty()) {
             String lastElseNodeId = decisionNodeId;
             if (generateDetailedDiagram) {
-                for (Sentence elseSentence : sentence.getElseBranch()) {
-                    lastElseNodeId = processSentence(elseSentence, lastElseNodeId);
-                }
+                lastElseNodeId = processBranch(sentence.getElseBranch(), decisionNodeId,
+                        "else_behavior_" + sentence.getId(), "Else Branch", "else");
             } else {
                 String elseActionId = "else_behavior_" + sentence.getId();
                 CallBehaviorAction elseAction = manager.createCallBehaviorAction(elseActionId, "Else Branch");
@@ -222,9 +377,8 @@ public class UCMetaToActivityTransformer {
         for (ConditionalSentence.ConditionalBranch elseIfBranch : sentence.getElseIfBranches()) {
             String lastElseIfNodeId = decisionNodeId;
             if (generateDetailedDiagram) {
-                for (Sentence elseIfSentence : elseIfBranch.getSentences()) {
-                    lastElseIfNodeId = processSentence(elseIfSentence, lastElseIfNodeId);
-                }
+                lastElseIfNodeId = processBranch(elseIfBranch.getSentences(), decisionNodeId,
+                        "elseif_behavior_" + sentence.getId() + "_" + nodeCounter, "ElseIf Branch", "elseif");
             } else {
                 String elseIfActionId = "elseif_behavior_" + sentence.getId() + "_" + nodeCounter;
                 CallBehaviorAction elseIfAction = manager.createCallBehaviorAction(elseIfActionId, "ElseIf Branch");
@@ -253,15 +407,13 @@ public class UCMetaToActivityTransformer {
         // 创建JoinNode
         String joinNodeId = "join_" + sentence.getId();
         JoinNode joinNode = manager.createJoinNode(joinNodeId);
+        manager.pairBlock(forkNodeId, joinNodeId);
         
         // 处理每个并行分支
         for (int i = 0; i < sentence.getParallelBranches().size(); i++) {
             List<Sentence> branch = sentence.getParallelBranches().get(i);
-            String lastBranchNodeId = forkNodeId;
-            
-            for (Sentence branchSentence : branch) {
-                lastBranchNodeId = processSentence(branchSentence, lastBranchNodeId);
-            }
+            String lastBranchNodeId = processBranch(branch, forkNodeId,
+                    "branch_behavior_" + sentence.getId() + "_" + i, "Parallel Branch " + (i + 1), null);
             
             // 连接分支的最后一个节点到JoinNode
             manager.createControlFlow("flow_" + nodeCounter++, lastBranchNodeId, joinNodeId, null);
@@ -284,10 +436,8 @@ public class UCMetaToActivityTransformer {
         }
         
         // 处理循环体
-        String lastBodyNodeId = decisionNodeId;
-        for (Sentence bodySentence : sentence.getBody()) {
-            lastBodyNodeId = processSentence(bodySentence, lastBodyNodeId);
-        }
+        String lastBodyNodeId = processBranch(sentence.getBody(), decisionNodeId,
+                "body_behavior_" + sentence.getId(), "Loop Body", null);
         
         // 创建循环回边
         manager.createControlFlow("flow_" + nodeCounter++, lastBodyNodeId, decisionNodeId, "continue");
@@ -295,8 +445,110 @@ public class UCMetaToActivityTransformer {
         return decisionNodeId; // 循环结束时从决策节点继续
     }
     
+    /**
+     * 处理复合句中的一个分支：未超过细节层级且不是重复片段时就地展开，否则折叠为调用子活动的CallBehaviorAction，
+     * 子活动在主流程处理完后生成（见generateSubActivities）。返回分支的最后一个节点
+     */
+    private String processBranch(List<Sentence> sentences, String previousNodeId, String callId, String label, String edgeName) {
+        if (sentences.isEmpty()) {
+            return previousNodeId;
+        }
+        Long key = fragments != null ? fragments.sharedKey(sentences) : null;
+        SubFlow origin = key != null ? sharedFragments.get(key) : null;
+        if (origin != null && !FragmentIndex.sameStructure(origin.sentences, sentences)) {
+            key = null; // 哈希碰撞，按普通分支处理
+            origin = null;
+        }
+        if (key == null && depth < detailLevel) {
+            depth++;
+            int objectMark = objectUndoLog.size();
+            try {
+                String lastNodeId = previousNodeId;
+                for (Sentence branchSentence : sentences) {
+                    lastNodeId = processSentence(branchSentence, lastNodeId);
+                }
+                return lastNodeId;
+            } finally {
+                // 分支中产生的数据对象不一定在分支之后可用，恢复为分支前的上游
+                rollbackObjectSources(objectMark);
+                depth--;
+            }
+        }
+        manager.createCallBehaviorAction(callId, label);
+        if (previousNodeId != null) {
+            manager.createControlFlow("flow_" + nodeCounter++, previousNodeId, callId, edgeName);
+        }
+        SubFlow subFlow = new SubFlow(callId, sentences, manager.getCurrentActivity(), currentSubFlow, origin, key != null && origin == null);
+        if (subFlow.shared) {
+            sharedFragments.put(key, subFlow);
+        }
+        pendingSubFlows.add(subFlow);
+        indexCollapsedSteps(sentences, subFlow);
+        return callId;
+    }
+    
+    /**
+     * 记录折叠分支中（含更深嵌套）的简单句，子活动生成前恢复到这些步骤时改为指向调用动作
+     */
+    private void indexCollapsedSteps(List<Sentence> sentences, SubFlow subFlow) {
+        for (Sentence sentence : sentences) {
+            if (sentence.getType() == SentenceType.SIMPLE) {
+                collapsedSteps.put(sentence.getId(), subFlow);
+            }
+            for (List<Sentence> branch : FragmentIndex.branchesOf(sentence)) {
+                indexCollapsedSteps(branch, subFlow);
+            }
+        }
+    }
+    
+    /**
+     * 为折叠的分支依次生成子活动并设为调用动作的behavior；
+     * 子活动中超过细节层级的分支继续折叠，追加到列表末尾，因此每个活动的嵌套深度都有上限；
+     * 重复片段只在第一次出现时生成活动，之后的调用动作直接引用它
+     */
+    private void generateSubActivities() {
+        for (int i = 0; i < pendingSubFlows.size(); i++) {
+            SubFlow subFlow = pendingSubFlows.get(i);
+            CallBehaviorAction callAction = (CallBehaviorAction) manager.getNodeById(subFlow.callId);
+            if (subFlow.origin != null) {
+                // 第一次出现总是先入队，其活动此时已生成
+                callAction.setBehavior(subFlow.origin.activity);
+                continue;
+            }
+            Activity subActivity;
+            if (subFlow.shared) {
+                String fragmentId = "fragment_" + fragmentCounter++;
+                subActivity = manager.createSubActivity(fragmentId, useCaseName + "_" + fragmentId);
+            } else {
+                subActivity = manager.createSubActivity("sub_" + subFlow.callId, useCaseName + "_" + subFlow.callId);
+            }
+            subFlow.activity = subActivity;
+            callAction.setBehavior(subActivity);
+            manager.setCurrentActivity(subActivity);
+            currentSubFlow = subFlow;
+            depth = 0;
+            resetObjectSources(); // 对象流不跨活动
+            
+            String startNodeId = "start_" + subFlow.callId;
+            manager.createInitialNode(startNodeId);
+            String lastNodeId = startNodeId;
+            for (Sentence sentence : subFlow.sentences) {
+                lastNodeId = processSentence(sentence, lastNodeId);
+            }
+            String endNodeId = "end_" + subFlow.callId;
+            manager.createFinalNode(endNodeId);
+            if (lastNodeId != null) {
+                manager.createControlFlow("flow_" + nodeCounter++, lastNodeId, endNodeId, null);
+            }
+        }
+        currentSubFlow = null;
+        manager.setCurrentActivity(manager.getActivity());
+    }
+    
     /**
      * 处理数据流（规则2）
+     * InputPin连到同一数据对象最近的上游OutputPin（对象流），按对象名哈希查找；
+     * 分支结束时回滚分支内的记录，因此上游总是在分支之前或同一分支中
      */
     private void processDataFlow(SimpleSentence sentence, String nodeId) {
         switch (sentence.getTransactionType()) {
@@ -304,22 +556,57 @@ public class UCMetaToActivityTransformer {
             case RESPONSE_TO_PRIMARY_ACTOR:
             case RESPONSE_TO_SECONDARY_ACTOR:
                 // 规则2.1a：添加OutputPin
-                manager.addOutputPin(nodeId, "output", sentence.getObject());
+                publishObject(sentence.getObject(), manager.addOutputPin(nodeId, "output", sentence.getObject()));
                 break;
             case INTERNAL_TRANSACTION:
                 // 规则2.2a：添加InputPin和OutputPin
-                manager.addInputPin(nodeId, "input", sentence.getObject());
-                manager.addOutputPin(nodeId, "output", sentence.getObject());
+                InputPin inputPin = manager.addInputPin(nodeId, "input", sentence.getObject());
+                OutputPin source = sentence.getObject() != null ? objectSources.get(sentence.getObject()) : null;
+                if (source != null) {
+                    manager.createObjectFlow("object_flow_" + objectFlowCounter++, source, inputPin, sentence.getObject());
+                }
+                publishObject(sentence.getObject(), manager.addOutputPin(nodeId, "output", sentence.getObject()));
                 break;
         }
     }
     
+    /**
+     * 记录数据对象最近的上游OutputPin，旧值进入回滚日志
+     */
+    private void publishObject(String object, OutputPin pin) {
+        if (object != null) {
+            objectUndoLog.push(new AbstractMap.SimpleEntry<>(object, objectSources.put(object, pin)));
+        }
+    }
+    
+    /**
+     * 撤销mark之后的记录，每条记录只撤销一次，总代价与记录数成正比
+     */
+    private void rollbackObjectSources(int mark) {
+        while (objectUndoLog.size() > mark) {
+            Map.Entry<String, OutputPin> entry = objectUndoLog.pop();
+            if (entry.getValue() == null) {
+                objectSources.remove(entry.getKey());
+            } else {
+                objectSources.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+    
+    private void resetObjectSources() {
+        objectSources.clear();
+        objectUndoLog.clear();
+    }
+    
     /**
      * 规则1.3.1a：处理包含句
      */
     private String processIncludeSentence(IncludeSentence sentence, String previousNodeId) {
         String nodeId = "include_" + sentence.getId();
         CallBehaviorAction action = manager.createCallBehaviorAction(nodeId, "Include: " + sentence.getIncludedUseCase());
+        if (corpus != null) {
+            action.setBehavior(corpus.getOrCreateActivity(sentence.getIncludedUseCase()));
+        }
         
         if (previousNodeId != null) {
             manager.createControlFlow("flow_" + nodeCounter++, previousNodeId, nodeId, null);
@@ -361,19 +648,61 @@ public class UCMetaToActivityTransformer {
      */
     private String processResumeStepSentence(ResumeStepSentence sentence, String previousNodeId) {
         String targetNodeId = stepToNodeMapping.get(sentence.getTargetStepId());
+        SubFlow container = collapsedSteps.get(sentence.getTargetStepId());
+        if (container != null || (targetNodeId != null
+                && manager.getNodeById(targetNodeId).getActivity() != manager.getCurrentActivity())) {
+            return resumeAcrossActivities(targetNodeId, container, previousNodeId);
+        }
         if (targetNodeId != null && previousNodeId != null) {
             manager.createControlFlow("flow_resume_" + nodeCounter++, previousNodeId, targetNodeId, "resume");
         }
         return targetNodeId;
     }
     
+    /**
+     * 恢复目标被折叠进子活动时不能跨活动连边：依次尝试目标节点（子活动已生成时）和包含它的各层调用动作，
+     * 候选在当前活动中则照常连恢复边；在外层活动中则从当前子活动所在的那一层调用动作连恢复边，
+     * 子活动中的这条分支在此结束
+     */
+    private String resumeAcrossActivities(String targetNodeId, SubFlow container, String previousNodeId) {
+        List<String> candidates = new ArrayList<>();
+        if (targetNodeId != null) {
+            candidates.add(targetNodeId);
+        }
+        for (SubFlow subFlow = container; subFlow != null; subFlow = subFlow.parent) {
+            candidates.add(subFlow.callId);
+        }
+        for (String candidate : candidates) {
+            Activity owner = manager.getNodeById(candidate).getActivity();
+            if (owner == manager.getCurrentActivity()) {
+                if (previousNodeId != null) {
+                    manager.createControlFlow("flow_resume_" + nodeCounter++, previousNodeId, candidate, "resume");
+                }
+                return candidate;
+            }
+            for (SubFlow caller = currentSubFlow; caller != null; caller = caller.parent) {
+                if (caller.caller == owner) {
+                    manager.createControlFlow("flow_resume_" + nodeCounter++, caller.callId, candidate, "resume");
+                    return previousNodeId;
+                }
+            }
+        }
+        return previousNodeId;
+    }
+    
     /**
      * 规则1.4c：处理全局备选流
      */
     private void processGlobalAlternativeFlow(GlobalAlternativeFlow globalFlow) {
+        GlobalFlowEvent event = new GlobalFlowEvent();
+        event.begin();
+        int nodesBefore = manager.getNodeCount();
+        int edgesBefore = manager.getEdgeCount();
+        
         // 创建AcceptEventAction
         String eventNodeId = "global_event_" + nodeCounter++;
         AcceptEventAction eventAction = manager.createAcceptEventAction(eventNodeId, "Trigger: " + globalFlow.getTriggerEvent());
+        resetObjectSources(); // 全局备选流可在任意时刻触发，没有确定的上游
         
         // 处理全局备选流中的句子
         String lastNodeId = eventNodeId;
@@ -382,5 +711,14 @@ public class UCMetaToActivityTransformer {
         }
         
         // 注意：InterruptibleActivityRegion的创建需要更复杂的逻辑，这里简化处理
+        
+        if (event.shouldCommit()) {
+            event.useCase = useCaseName;
+            event.triggerEvent = globalFlow.getTriggerEvent();
+            event.sentences = globalFlow.getSentences().size();
+            event.nodesCreated = manager.getNodeCount() - nodesBefore;
+            event.edgesCreated = manager.getEdgeCount() - edgesBefore;
+            event.commit();
+        }
     }
 }
@@ -0,0 +1,203 @@
+package project.service;
+
+import project.export.ExportFormat;
+import project.rules.ActivityDiagramManager;
+import project.rules.CorpusModel;
+import project.rules.UCMetaToActivityTransformer;
+import project.ucmeta.UCMetaModel.UseCase;
+import project.ucmeta.UCMetaParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 转换请求的微批处理器
+ * 请求处理线程只负责排队和等待；分派线程在有空闲工作线程时取出队列中已积压的全部请求（最多maxBatch个）
+ * 作为一批交给工作线程顺序转换。负载低时每批只有一个请求，不增加延迟；负载高时批次自然变大，
+ * 同一批复用转换器，且CPU密集的EMF构建工作始终只占用固定数量的线程。
+ */
+public class TransformBatcher implements AutoCloseable {
+
+    /**
+     * 一个待处理的转换请求
+     */
+    private static final class Job {
+        final String spec;
+        final ExportFormat format;
+        final boolean detailed;
+        final CompletableFuture<byte[]> result = new CompletableFuture<>();
+
+        Job(String spec, ExportFormat format, boolean detailed) {
+            this.spec = spec;
+            this.format = format;
+            this.detailed = detailed;
+        }
+    }
+
+    private final BlockingQueue<Job> queue;
+    private final ExecutorService workers;
+    private final Semaphore idleWorkers;
+    private final int maxBatch;
+    private final Thread dispatcher;
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * @param workerThreads 转换线程数
+     * @param maxBatch      每批最多请求数
+     * @param maxQueued     排队请求上限，超出时submit立即拒绝
+     */
+    public TransformBatcher(int workerThreads, int maxBatch, int maxQueued) {
+        this.queue = new ArrayBlockingQueue<>(maxQueued);
+        this.idleWorkers = new Semaphore(workerThreads);
+        this.maxBatch = maxBatch;
+        this.workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "transform-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = new Thread(this::dispatch, "transform-batcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * 提交.ucm规格文本，返回转换结果；队列已满时抛出RejectedExecutionException
+     */
+    public CompletableFuture<byte[]> submit(String spec, ExportFormat format, boolean detailed) {
+        if (closed) {
+            throw new RejectedExecutionException("Batcher is closed");
+        }
+        Job job = new Job(spec, format, detailed);
+        if (!queue.offer(job)) {
+            throw new RejectedExecutionException("Too many pending requests");
+        }
+        return job.result;
+    }
+
+    private void dispatch() {
+        try {
+            while (!closed) {
+                idleWorkers.acquire();
+                Job first = queue.take();
+                List<Job> batch = new ArrayList<>();
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                batches.incrementAndGet();
+                requests.addAndGet(batch.size());
+                workers.execute(() -> {
+                    try {
+                        process(batch);
+                    } finally {
+                        idleWorkers.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void process(List<Job> batch) {
+        UCMetaToActivityTransformer detailed = null;
+        UCMetaToActivityTransformer overview = null;
+        for (Job job : batch) {
+            try {
+                UCMetaToActivityTransformer transformer;
+                if (job.detailed) {
+                    transformer = detailed != null ? detailed : (detailed = new UCMetaToActivityTransformer(true));
+                } else {
+                    transformer = overview != null ? overview : (overview = new UCMetaToActivityTransformer(false));
+                }
+                List<UseCase> useCases = UCMetaParser.parse(job.spec, "request");
+                job.result.complete(render(useCases, job.format, transformer));
+            } catch (Exception | StackOverflowError e) {
+                job.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 转换并渲染请求中的用例
+     * 多个用例时：UML格式放入同一个语料模型，JSON输出为数组，DOT和PlantUML依次拼接
+     */
+    static byte[] render(List<UseCase> useCases, ExportFormat format, UCMetaToActivityTransformer transformer)
+            throws IOException {
+        if (useCases.isEmpty()) {
+            throw new IllegalArgumentException("Request contains no use case");
+        }
+        if (format == ExportFormat.UML && useCases.size() > 1) {
+            CorpusModel corpus = new CorpusModel("Request_Model", true);
+            try {
+                for (UseCase useCase : useCases) {
+                    transformer.transformUseCase(useCase, corpus);
+                }
+                return corpus.toXmiBytes();
+            } finally {
+                corpus.dispose();
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        WritableByteChannel channel = Channels.newChannel(out);
+        boolean array = format == ExportFormat.JSON && useCases.size() > 1;
+        if (array) {
+            channel.write(ByteBuffer.wrap("[".getBytes(StandardCharsets.UTF_8)));
+        }
+        for (int i = 0; i < useCases.size(); i++) {
+            if (array && i > 0) {
+                channel.write(ByteBuffer.wrap(",".getBytes(StandardCharsets.UTF_8)));
+            }
+            ActivityDiagramManager manager = transformer.transformUseCase(useCases.get(i));
+            try {
+                format.export(manager, channel);
+            } finally {
+                manager.dispose();
+            }
+        }
+        if (array) {
+            channel.write(ByteBuffer.wrap("]".getBytes(StandardCharsets.UTF_8)));
+        }
+        return out.toByteArray();
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /** 平均每批请求数，大于1说明发生了合批 */
+    public double getAverageBatchSize() {
+        long count = batches.get();
+        return count == 0 ? 0 : requests.get() / (double) count;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        dispatcher.interrupt();
+        workers.shutdown();
+        Job job;
+        while ((job = queue.poll()) != null) {
+            job.result.completeExceptionally(new RejectedExecutionException("Batcher is closed"));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package project.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import project.export.ExportFormat;
+import project.metrics.TransformMetrics;
+import project.ucmeta.UCMetaParser;
+import project.ucmeta.UCMetaWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 常驻的本地HTTP转换服务，避免每次转换都启动JVM和初始化EMF/UML
+ *
+ * POST /transform?format=uml|dot|puml|json&amp;mode=detailed|overview，请求体为.ucm规格文本（UTF-8），
+ * 响应为转换结果；GET /health返回运行状态。
+ * 请求处理使用虚拟线程（Java 21+，通过反射获取，低版本退回到缓存线程池），转换由TransformBatcher微批执行。
+ */
+public class TransformServer implements AutoCloseable {
+
+    /** 请求体上限 */
+    private static final int MAX_BODY_BYTES = 4 * 1024 * 1024;
+    private static final long REQUEST_TIMEOUT_SECONDS = 30;
+
+    private final HttpServer server;
+    private final ExecutorService handlerExecutor;
+    private final TransformBatcher batcher;
+
+    public TransformServer(InetSocketAddress address, int workerThreads, int maxBatch) throws IOException {
+        this.batcher = new TransformBatcher(workerThreads, maxBatch, 1024);
+        this.handlerExecutor = newHandlerExecutor();
+        this.server = HttpServer.create(address, 128);
+        this.server.createContext("/transform", this::handleTransform);
+        this.server.createContext("/health", this::handleHealth);
+        this.server.setExecutor(handlerExecutor);
+    }
+
+    /**
+     * 有虚拟线程时每个请求一个虚拟线程，否则使用缓存线程池
+     * 虚拟线程需要Java 21，项目以Java 11为基线，因此反射查找
+     */
+    static ExecutorService newHandlerExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "transform-http");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * 用示例用例预热各格式和模式的转换路径后开始接受请求
+     */
+    public void start() throws Exception {
+        String spec = UCMetaWriter.toText(UCMetaParser.createOnlineShoppingUseCase());
+        for (ExportFormat format : ExportFormat.values()) {
+            batcher.submit(spec, format, true).get();
+            batcher.submit(spec, format, false).get();
+        }
+        server.start();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private void handleTransform(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                send(exchange, 405, "Use POST with a .ucm spec as the request body\n");
+                return;
+            }
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            ExportFormat format = ExportFormat.forName(query.getOrDefault("format", "uml"));
+            String mode = query.getOrDefault("mode", "detailed");
+            if (!mode.equals("detailed") && !mode.equals("overview")) {
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+            }
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                send(exchange, 413, "Request body exceeds " + MAX_BODY_BYTES + " bytes\n");
+                return;
+            }
+            byte[] result = batcher.submit(new String(body, StandardCharsets.UTF_8), format, mode.equals("detailed"))
+                    .get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            exchange.getResponseHeaders().set("Content-Type", contentType(format));
+            exchange.sendResponseHeaders(200, result.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(result);
+            }
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, e.getMessage() + "\n");
+        } catch (RejectedExecutionException e) {
+            send(exchange, 503, e.getMessage() + "\n");
+        } catch (TimeoutException e) {
+            send(exchange, 504, "Transformation timed out\n");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            int status = cause instanceof IllegalArgumentException ? 400 : 500;
+            send(exchange, status, cause.getClass().getSimpleName() + ": " + cause.getMessage() + "\n");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, "Interrupted\n");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try {
+            send(exchange, 200, String.format("ok%nqueued %d, batches %d, average batch %.2f%n%s%n",
+                    batcher.getQueuedCount(), batcher.getBatchCount(), batcher.getAverageBatchSize(),
+                    TransformMetrics.get()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String contentType(ExportFormat format) {
+        switch (format) {
+            case UML: return "application/xml; charset=utf-8";
+            case DOT: return "text/vnd.graphviz; charset=utf-8";
+            case JSON: return "application/json; charset=utf-8";
+            default: return "text/plain; charset=utf-8";
+        }
+    }
+
+    /**
+     * 读取请求体，超过上限时返回null
+     */
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(4096);
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            if (body.size() + read > MAX_BODY_BYTES) {
+                return null;
+            }
+            body.write(buffer, 0, read);
+        }
+        return body.toByteArray();
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), "UTF-8");
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), "UTF-8");
+            query.put(key, value);
+        }
+        return query;
+    }
+
+    private static void send(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        batcher.close();
+        handlerExecutor.shutdown();
+    }
+
+    /**
+     * 命令行入口：--serve [--port N] [--bind 地址] [--threads N] [--max-batch N]，运行直到进程被终止
+     */
+    public static int runCli(String[] args) {
+        int port = 8088;
+        String bind = "127.0.0.1";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxBatch = 32;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--serve":
+                        break;
+                    case "--port":
+                        port = Integer.parseInt(args[++i]);
+                        break;
+                    case "--bind":
+                        bind = args[++i];
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--max-batch":
+                        maxBatch = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("❌ " + e.getMessage());
+            System.err.println("用法: UCMetaToActivityMain --serve [--port N] [--bind 地址] [--threads N] [--max-batch N]");
+            return 2;
+        }
+
+        try {
+            TransformServer server = new TransformServer(new InetSocketAddress(bind, port), threads, maxBatch);
+            server.start();
+            CountDownLatch stopped = new CountDownLatch(1);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                stopped.countDown();
+            }));
+            System.out.println("✅ 转换服务已启动: http://" + bind + ":" + server.getAddress().getPort()
+                    + "/transform（" + threads + " 个转换线程）");
+            stopped.await();
+            return 0;
+        } catch (Exception e) {
+            System.err.println("❌ 转换服务启动失败: " + e.getMessage());
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,665 @@
+package project.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+
+/**
+ * 生成结果的持久化存储 - 只追加的段文件，按（用例名, 变体）索引，记录带内容哈希
+ * 变体是模式和格式，如"detailed.uml"。每条记录为 [CRC32][长度][类型][键][哈希][数据]，
+ * 写完整条记录后才更新内存索引；进程崩溃留下的不完整记录在下次打开时按CRC识别并截断。
+ * 读取通过内存映射直接返回数据切片，不经过EMF解析。
+ * 段按ID顺序扫描，后写的记录覆盖先写的；压缩把所有存活记录写入新段，新段头部记录它取代的最大段ID，
+ * 重命名完成后旧段才失效，压缩中途崩溃不会丢数据。
+ * 内存索引定期保存为index文件，打开时只需扫描索引之后追加的部分。
+ * 同一目录只允许一个进程写入；读取可以与写入并发。
+ */
+public class ActivityStore implements AutoCloseable {
+
+    /**
+     * 一条存储的结果；数据是映射内存的只读切片，存储关闭后不应再访问
+     */
+    public static final class Entry {
+        private final String useCaseName;
+        private final String variant;
+        private final String contentHash;
+        private final ByteBuffer data;
+
+        Entry(String useCaseName, String variant, String contentHash, ByteBuffer data) {
+            this.useCaseName = useCaseName;
+            this.variant = variant;
+            this.contentHash = contentHash;
+            this.data = data;
+        }
+
+        public String getUseCaseName() { return useCaseName; }
+        public String getVariant() { return variant; }
+        public String getContentHash() { return contentHash; }
+
+        /** 只读数据，每次调用返回独立的position/limit */
+        public ByteBuffer getData() {
+            return data.duplicate();
+        }
+
+        public byte[] toByteArray() {
+            byte[] bytes = new byte[data.remaining()];
+            data.duplicate().get(bytes);
+            return bytes;
+        }
+    }
+
+    /** 记录数据在段中的位置 */
+    private static final class Location {
+        final int segment;
+        final int offset;
+        final int length;
+        final String contentHash;
+
+        Location(int segment, int offset, int length, String contentHash) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.contentHash = contentHash;
+        }
+    }
+
+    /**
+     * 一个段文件；写入只在持有写锁时进行，读取按需映射已写入的部分
+     */
+    private static final class Segment {
+        final int id;
+        final Path path;
+        final int compactedThrough;
+        final FileChannel channel;
+        volatile long size;
+        private volatile MappedByteBuffer map;
+
+        Segment(int id, Path path, int compactedThrough, FileChannel channel, long size) {
+            this.id = id;
+            this.path = path;
+            this.compactedThrough = compactedThrough;
+            this.channel = channel;
+            this.size = size;
+        }
+
+        ByteBuffer read(int offset, int length) throws IOException {
+            MappedByteBuffer current = map;
+            if (current == null || current.capacity() < offset + length) {
+                synchronized (this) {
+                    current = map;
+                    if (current == null || current.capacity() < offset + length) {
+                        // 活动段增长后重新映射到当前长度
+                        current = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                        map = current;
+                    }
+                }
+            }
+            ByteBuffer view = current.duplicate();
+            view.limit(offset + length);
+            view.position(offset);
+            return view.slice();
+        }
+
+        long append(ByteBuffer record) throws IOException {
+            long offset = size;
+            long position = offset;
+            while (record.hasRemaining()) {
+                position += channel.write(record, position);
+            }
+            size = position;
+            return offset;
+        }
+    }
+
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    /** 段内偏移用int表示 */
+    private static final long MAX_SEGMENT_BYTES = Integer.MAX_VALUE;
+
+    private static final int SEGMENT_MAGIC = 0x55434153; // "UCAS"
+    private static final int INDEX_MAGIC = 0x55434149;   // "UCAI"
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 16;          // magic, version, 保留, compactedThrough, 保留
+    private static final int RECORD_HEADER_BYTES = 8;    // crc, 记录体长度
+    private static final byte PUT = 0;
+    private static final byte DELETE = 1;
+    private static final char KEY_SEPARATOR = '\0';
+    private static final String INDEX_FILE = "index";
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Object writeLock = new Object();
+    private Segment active;
+    private boolean syncOnWrite;
+    private volatile boolean closed;
+
+    public static ActivityStore open(Path directory) throws IOException {
+        return new ActivityStore(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * 打开（或创建）存储目录，maxSegmentBytes为活动段滚动的大小
+     */
+    public ActivityStore(Path directory, long maxSegmentBytes) throws IOException {
+        if (maxSegmentBytes < HEADER_BYTES * 2 || maxSegmentBytes > MAX_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Invalid segment size: " + maxSegmentBytes);
+        }
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        Files.createDirectories(directory);
+        openSegments();
+        long[] resume = loadIndex();
+        for (Segment segment : segments.values()) {
+            if (segment.id < resume[0]) {
+                continue;
+            }
+            long from = segment.id == resume[0] ? resume[1] : HEADER_BYTES;
+            scan(segment, from, segment.id == segments.lastKey());
+        }
+        active = segments.isEmpty() ? createSegment(1, 0) : segments.lastEntry().getValue();
+    }
+
+    /**
+     * 每次写入后是否force到磁盘（默认关闭：崩溃时可能丢失最近的记录，但不会留下损坏的记录）
+     */
+    public void setSyncOnWrite(boolean syncOnWrite) {
+        this.syncOnWrite = syncOnWrite;
+    }
+
+    // ==================== 读取 ====================
+
+    /**
+     * 用例在给定变体下的最新结果，不存在时返回null
+     */
+    public Entry get(String useCaseName, String variant) throws IOException {
+        String key = key(useCaseName, variant);
+        while (true) {
+            ensureOpen();
+            Location location = index.get(key);
+            if (location == null) {
+                return null;
+            }
+            Segment segment = segments.get(location.segment);
+            if (segment != null) {
+                return new Entry(useCaseName, variant, location.contentHash,
+                        segment.read(location.offset, location.length));
+            }
+            // 段刚被压缩移除，索引已指向新位置，重新查找
+        }
+    }
+
+    /**
+     * 仅当存储的结果是由给定内容哈希的用例生成时返回，否则返回null
+     */
+    public Entry getIfCurrent(String useCaseName, String variant, String contentHash) throws IOException {
+        Entry entry = get(useCaseName, variant);
+        return entry != null && entry.getContentHash().equals(contentHash) ? entry : null;
+    }
+
+    public boolean contains(String useCaseName, String variant, String contentHash) {
+        Location location = index.get(key(useCaseName, variant));
+        return location != null && location.contentHash.equals(contentHash);
+    }
+
+    /**
+     * 所有存储的用例名（去重，按字母序）
+     */
+    public List<String> getUseCaseNames() {
+        TreeMap<String, Boolean> names = new TreeMap<>();
+        for (String key : index.keySet()) {
+            names.put(key.substring(0, key.indexOf(KEY_SEPARATOR)), Boolean.TRUE);
+        }
+        return new ArrayList<>(names.keySet());
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /** 存活记录（含记录头、键和哈希）占用的字节数 */
+    public long getLiveBytes() {
+        long live = 0;
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            Location location = entry.getValue();
+            live += RECORD_HEADER_BYTES + 4 + entry.getKey().getBytes(StandardCharsets.UTF_8).length
+                    + location.contentHash.length() + location.length;
+        }
+        return live;
+    }
+
+    /** 所有段文件的总字节数 */
+    public long getTotalBytes() {
+        long total = 0;
+        for (Segment segment : segments.values()) {
+            total += segment.size;
+        }
+        return total;
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 追加一条结果，覆盖该用例和变体之前的结果
+     */
+    public void put(String useCaseName, String variant, String contentHash, byte[] data) throws IOException {
+        String key = key(useCaseName, variant);
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] hashBytes = contentHash.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = encode(PUT, keyBytes, hashBytes, data, 0, data.length);
+        synchronized (writeLock) {
+            ensureOpen();
+            Segment segment = segmentFor(record.remaining());
+            long offset = segment.append(record);
+            if (syncOnWrite) {
+                segment.channel.force(false);
+            }
+            int dataOffset = (int) offset + RECORD_HEADER_BYTES + 4 + keyBytes.length + hashBytes.length;
+            index.put(key, new Location(segment.id, dataOffset, data.length, contentHash));
+        }
+    }
+
+    /**
+     * 删除一个用例在给定变体下的结果（追加删除标记），不存在时返回false
+     */
+    public boolean remove(String useCaseName, String variant) throws IOException {
+        String key = key(useCaseName, variant);
+        synchronized (writeLock) {
+            ensureOpen();
+            if (!index.containsKey(key)) {
+                return false;
+            }
+            ByteBuffer record = encode(DELETE, key.getBytes(StandardCharsets.UTF_8), new byte[0], new byte[0], 0, 0);
+            Segment segment = segmentFor(record.remaining());
+            segment.append(record);
+            if (syncOnWrite) {
+                segment.channel.force(false);
+            }
+            index.remove(key);
+            return true;
+        }
+    }
+
+    /**
+     * 将数据刷到磁盘并保存索引
+     */
+    public void sync() throws IOException {
+        synchronized (writeLock) {
+            ensureOpen();
+            writeIndex();
+        }
+    }
+
+    /**
+     * 垃圾（被覆盖或删除的记录）占比达到阈值时压缩，返回是否执行了压缩
+     */
+    public boolean compactIfNeeded(double garbageRatio) throws IOException {
+        long total = getTotalBytes();
+        long garbage = total - getLiveBytes() - (long) segments.size() * HEADER_BYTES;
+        if (garbage <= 0 || garbage < garbageRatio * total) {
+            return false;
+        }
+        compact();
+        return true;
+    }
+
+    /**
+     * 将所有存活记录重写到新段中并删除旧段；压缩期间写入被阻塞，读取不受影响
+     */
+    public void compact() throws IOException {
+        synchronized (writeLock) {
+            ensureOpen();
+            List<Segment> old = new ArrayList<>(segments.values());
+            int through = active.id;
+            List<Map.Entry<String, Location>> live = new ArrayList<>(index.entrySet());
+            // 按原位置排序，顺序读取映射内存
+            live.sort((a, b) -> a.getValue().segment != b.getValue().segment
+                    ? Integer.compare(a.getValue().segment, b.getValue().segment)
+                    : Integer.compare(a.getValue().offset, b.getValue().offset));
+
+            // 可能产生多个新段；只有最后一个新段声明取代旧段，之前的段在中途崩溃时只是重复数据
+            List<Path> written = new ArrayList<>();
+            List<Map<String, Location>> moved = new ArrayList<>();
+            int nextId = through + 1;
+            int i = 0;
+            do {
+                Path temp = directory.resolve(segmentFileName(nextId) + ".tmp");
+                Map<String, Location> locations = new HashMap<>();
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    long position = HEADER_BYTES;
+                    out.write(header(0), 0);
+                    for (; i < live.size(); i++) {
+                        String key = live.get(i).getKey();
+                        Location location = live.get(i).getValue();
+                        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+                        byte[] hashBytes = location.contentHash.getBytes(StandardCharsets.UTF_8);
+                        ByteBuffer data = segments.get(location.segment).read(location.offset, location.length);
+                        byte[] value = new byte[location.length];
+                        data.get(value);
+                        ByteBuffer record = encode(PUT, keyBytes, hashBytes, value, 0, value.length);
+                        if (position > HEADER_BYTES && position + record.remaining() > maxSegmentBytes) {
+                            break;
+                        }
+                        int dataOffset = (int) position + RECORD_HEADER_BYTES + 4 + keyBytes.length + hashBytes.length;
+                        while (record.hasRemaining()) {
+                            position += out.write(record, position);
+                        }
+                        locations.put(key, new Location(nextId, dataOffset, location.length, location.contentHash));
+                    }
+                    if (i == live.size()) {
+                        out.write(header(through), 0);
+                    }
+                    out.force(true);
+                }
+                written.add(temp);
+                moved.add(locations);
+                nextId++;
+            } while (i < live.size());
+
+            List<Segment> created = new ArrayList<>();
+            for (int n = 0; n < written.size(); n++) {
+                int id = through + 1 + n;
+                Path path = directory.resolve(segmentFileName(id));
+                Files.move(written.get(n), path, StandardCopyOption.ATOMIC_MOVE);
+                Segment segment = openSegment(id, path);
+                segments.put(id, segment);
+                created.add(segment);
+            }
+            // 先让索引指向新段，再移除旧段；读取方找不到旧段时会重新查找索引
+            for (Map<String, Location> locations : moved) {
+                index.putAll(locations);
+            }
+            active = created.get(created.size() - 1);
+            for (Segment segment : old) {
+                segments.remove(segment.id);
+                segment.channel.close();
+                deleteQuietly(segment.path);
+            }
+            writeIndex();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            writeIndex();
+            closed = true;
+            for (Segment segment : segments.values()) {
+                segment.channel.close();
+            }
+        }
+    }
+
+    // ==================== 段文件 ====================
+
+    private Segment segmentFor(int recordBytes) throws IOException {
+        if (recordBytes + HEADER_BYTES > maxSegmentBytes && recordBytes + HEADER_BYTES > MAX_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Record too large: " + recordBytes + " bytes");
+        }
+        if (active.size > HEADER_BYTES && active.size + recordBytes > maxSegmentBytes) {
+            active.channel.force(false);
+            active = createSegment(active.id + 1, 0);
+        }
+        return active;
+    }
+
+    private Segment createSegment(int id, int compactedThrough) throws IOException {
+        Path path = directory.resolve(segmentFileName(id));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        channel.write(header(compactedThrough), 0);
+        channel.force(true);
+        Segment segment = new Segment(id, path, compactedThrough, channel, HEADER_BYTES);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private Segment openSegment(int id, Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            // 读满头部
+        }
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != SEGMENT_MAGIC || header.getShort() != VERSION) {
+            channel.close();
+            throw new IOException("Not a segment file: " + path);
+        }
+        header.getShort();
+        int compactedThrough = header.getInt();
+        return new Segment(id, path, compactedThrough, channel, channel.size());
+    }
+
+    /**
+     * 打开目录中的段文件，删除压缩中途留下的临时文件和已被压缩取代的旧段
+     */
+    private void openSegments() throws IOException {
+        TreeMap<Integer, Path> found = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    deleteQuietly(path);
+                } else if (name.startsWith("segment-") && name.endsWith(".seg")) {
+                    found.put(Integer.parseInt(name.substring("segment-".length(), name.length() - ".seg".length())), path);
+                }
+            }
+        }
+        int compactedThrough = 0;
+        for (Map.Entry<Integer, Path> entry : found.entrySet()) {
+            Segment segment = openSegment(entry.getKey(), entry.getValue());
+            segments.put(segment.id, segment);
+            compactedThrough = Math.max(compactedThrough, segment.compactedThrough);
+        }
+        while (!segments.isEmpty() && segments.firstKey() <= compactedThrough) {
+            Segment obsolete = segments.pollFirstEntry().getValue();
+            obsolete.channel.close();
+            deleteQuietly(obsolete.path);
+        }
+    }
+
+    /**
+     * 从指定位置扫描段中的记录并更新索引；遇到不完整或CRC错误的记录时停止，
+     * 最后一个段从该处截断（崩溃时写了一半的记录）
+     */
+    private void scan(Segment segment, long from, boolean last) throws IOException {
+        long size = segment.size;
+        long position = from;
+        ByteBuffer view = size > 0 ? segment.read(0, (int) size) : ByteBuffer.allocate(0);
+        CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER_BYTES <= size) {
+            int expected = view.getInt((int) position);
+            int bodyLength = view.getInt((int) position + 4);
+            long bodyStart = position + RECORD_HEADER_BYTES;
+            if (bodyLength < 4 || bodyStart + bodyLength > size) {
+                break;
+            }
+            ByteBuffer body = view.duplicate();
+            body.limit((int) (bodyStart + bodyLength));
+            body.position((int) bodyStart);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != expected) {
+                break;
+            }
+            byte type = body.get();
+            int keyLength = body.getShort() & 0xffff;
+            int hashLength = body.get() & 0xff;
+            byte[] keyBytes = new byte[keyLength];
+            byte[] hashBytes = new byte[hashLength];
+            body.get(keyBytes).get(hashBytes);
+            String key = new String(keyBytes, StandardCharsets.UTF_8);
+            if (type == DELETE) {
+                index.remove(key);
+            } else {
+                index.put(key, new Location(segment.id, body.position(), body.remaining(),
+                        new String(hashBytes, StandardCharsets.UTF_8)));
+            }
+            position = bodyStart + bodyLength;
+        }
+        if (position < size) {
+            if (last) {
+                // 截断前丢弃映射，避免映射区域超出文件末尾
+                segment.map = null;
+                segment.channel.truncate(position);
+                segment.size = position;
+            } else {
+                System.err.println("❌ 段文件损坏，忽略 " + segment.path + " 中偏移 " + position + " 之后的记录");
+            }
+        }
+    }
+
+    // ==================== 索引文件 ====================
+
+    /**
+     * 保存内存索引及其覆盖到的位置（活动段ID和长度），写临时文件后原子替换
+     */
+    private void writeIndex() throws IOException {
+        // 索引覆盖的数据必须先落盘，否则断电后索引可能指向未写入的记录
+        active.channel.force(false);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(INDEX_MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(active.id);
+        out.writeLong(active.size);
+        out.writeInt(index.size());
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            Location location = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeUTF(location.contentHash);
+            out.writeInt(location.segment);
+            out.writeInt(location.offset);
+            out.writeInt(location.length);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+
+        Path temp = directory.resolve(INDEX_FILE + ".tmp");
+        Files.write(temp, bytes.toByteArray());
+        Files.move(temp, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 加载索引文件，返回需要继续扫描的起点 {段ID, 偏移}；索引不存在或与段文件不一致时返回从头扫描
+     */
+    private long[] loadIndex() throws IOException {
+        long[] fromStart = {0, HEADER_BYTES};
+        Path file = directory.resolve(INDEX_FILE);
+        if (!Files.exists(file)) {
+            return fromStart;
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < Long.BYTES) {
+            return fromStart;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - Long.BYTES);
+        if (crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - Long.BYTES, Long.BYTES).getLong()) {
+            return fromStart;
+        }
+        Map<String, Location> loaded = new HashMap<>();
+        int activeId;
+        long activeSize;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != INDEX_MAGIC || in.readShort() != VERSION) {
+                return fromStart;
+            }
+            activeId = in.readInt();
+            activeSize = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                String hash = in.readUTF();
+                Location location = new Location(in.readInt(), in.readInt(), in.readInt(), hash);
+                Segment segment = segments.get(location.segment);
+                if (segment == null || location.offset + (long) location.length > segment.size) {
+                    return fromStart;
+                }
+                loaded.put(key, location);
+            }
+        }
+        Segment resume = segments.get(activeId);
+        if (resume == null || resume.size < activeSize) {
+            return fromStart;
+        }
+        index.putAll(loaded);
+        return new long[] {activeId, activeSize};
+    }
+
+    // ==================== 编码 ====================
+
+    private static ByteBuffer header(int compactedThrough) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(SEGMENT_MAGIC).putShort(VERSION).putShort((short) 0).putInt(compactedThrough).putInt(0);
+        header.flip();
+        return header;
+    }
+
+    private static ByteBuffer encode(byte type, byte[] key, byte[] hash, byte[] data, int offset, int length) {
+        if (key.length > 0xffff || hash.length > 0xff) {
+            throw new IllegalArgumentException("Key or content hash too long");
+        }
+        int bodyLength = 4 + key.length + hash.length + length;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + bodyLength);
+        record.putInt(0).putInt(bodyLength);
+        record.put(type).putShort((short) key.length).put((byte) hash.length).put(key).put(hash).put(data, offset, length);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER_BYTES, bodyLength);
+        record.putInt(0, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    private static String key(String useCaseName, String variant) {
+        if (useCaseName.indexOf(KEY_SEPARATOR) >= 0) {
+            throw new IllegalArgumentException("Invalid use case name: " + useCaseName);
+        }
+        return useCaseName + KEY_SEPARATOR + variant;
+    }
+
+    private static String segmentFileName(int id) {
+        return String.format("segment-%06d.seg", id);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // 仍被映射时（Windows）无法删除；下次打开时按compactedThrough清理
+            System.err.println("❌ 无法删除 " + path + ": " + e.getMessage());
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Store is closed: " + directory);
+        }
+    }
+}
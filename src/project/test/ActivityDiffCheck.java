@@ -0,0 +1,112 @@
+package project.test;
+
+import org.eclipse.uml2.uml.Activity;
+import org.eclipse.uml2.uml.ActivityEdge;
+import org.eclipse.uml2.uml.ActivityNode;
+import org.eclipse.uml2.uml.UMLFactory;
+import org.eclipse.uml2.uml.UMLPackage;
+import project.analysis.ActivityDiff;
+import project.graph.ActivityGraph;
+
+import java.util.*;
+
+/**
+ * 活动图差异检查
+ * 活动不在XML资源中时节点ID按下标生成，差异结果不应受节点顺序影响：
+ * 打乱顺序、在前面插入一个孤立节点都只报告真正的变化；ID来自模型时仍按ID配对。
+ */
+public class ActivityDiffCheck {
+
+    private static final String[] ACTIONS = {"Enter credentials", "Validate credentials", "Show home page", "Log access"};
+
+    public static void main(String[] args) {
+        Checks checks = new Checks("活动图差异检查");
+
+        ActivityGraph base = ActivityGraph.fromActivity(createActivity(false, false, null));
+        ActivityGraph reversed = ActivityGraph.fromActivity(createActivity(true, false, null));
+        checks.expect(!base.getNode(0).hasStableId(), "不在资源中的活动使用按下标生成的ID");
+        checks.expect(ActivityDiff.compare(base, reversed).isEmpty(), "节点顺序颠倒时没有差异");
+
+        ActivityDiff extra = ActivityDiff.compare(base, ActivityGraph.fromActivity(createActivity(false, true, null)));
+        checks.expectEquals(1, extra.getAddedNodes().size(), "在前面插入孤立节点时只报告一个新增节点");
+        checks.expectEquals(Collections.emptyList(), extra.getChangedNodes(), "插入孤立节点时没有变化的节点");
+        checks.expectEquals(Collections.emptyList(), extra.getRemovedNodes(), "插入孤立节点时没有删除的节点");
+        checks.expect(extra.getAddedEdges().isEmpty() && extra.getRemovedEdges().isEmpty() && extra.getChangedEdges().isEmpty(),
+                "插入孤立节点时边没有差异");
+
+        ActivityDiff renamed = ActivityDiff.compare(base,
+                ActivityGraph.fromActivity(createActivity(true, false, "Show dashboard")));
+        checks.expectEquals(1, renamed.getChangedNodes().size(), "顺序颠倒且一个动作改名时只报告一个变化的节点");
+        checks.expect(renamed.getAddedNodes().isEmpty() && renamed.getRemovedNodes().isEmpty(),
+                "顺序颠倒且改名时没有新增或删除的节点");
+
+        // ID来自模型时按ID配对：改名的节点报告为变化，而不是删除加新增
+        ActivityGraph named = ActivityGraph.fromActivity(createActivity(false, false, null), ActivityDiffCheck::idOf);
+        ActivityGraph namedRenamed = ActivityGraph.fromActivity(createActivity(true, false, "Show dashboard"), ActivityDiffCheck::idOf);
+        checks.expect(named.getNode(0).hasStableId(), "ID查找返回的ID视为模型中的ID");
+        ActivityDiff byId = ActivityDiff.compare(named, namedRenamed);
+        checks.expectEquals(Collections.singletonList("action2"), byId.getChangedNodes(), "模型ID相同的节点按ID配对");
+
+        checks.finish();
+    }
+
+    /**
+     * 初始节点→四个动作→终止节点的顺序流；reversed颠倒节点和边的创建顺序，
+     * isolated在最前面插入一个没有边的动作，rename替换第三个动作的名称
+     */
+    private static Activity createActivity(boolean reversed, boolean isolated, String rename) {
+        Activity activity = UMLFactory.eINSTANCE.createActivity();
+        activity.setName("Login");
+        List<ActivityNode> chain = new ArrayList<>();
+        chain.add(UMLFactory.eINSTANCE.createInitialNode());
+        for (int i = 0; i < ACTIONS.length; i++) {
+            ActivityNode action = UMLFactory.eINSTANCE.createOpaqueAction();
+            action.setName(i == 2 && rename != null ? rename : ACTIONS[i]);
+            chain.add(action);
+        }
+        chain.add(UMLFactory.eINSTANCE.createActivityFinalNode());
+
+        List<ActivityNode> order = new ArrayList<>(chain);
+        if (reversed) {
+            Collections.reverse(order);
+        }
+        if (isolated) {
+            ActivityNode note = UMLFactory.eINSTANCE.createOpaqueAction();
+            note.setName("Audit");
+            order.add(0, note);
+        }
+        activity.getOwnedNodes().addAll(order);
+
+        List<ActivityEdge> edges = new ArrayList<>();
+        for (int i = 0; i + 1 < chain.size(); i++) {
+            ActivityEdge edge = activity.createEdge(null, UMLPackage.Literals.CONTROL_FLOW);
+            edge.setSource(chain.get(i));
+            edge.setTarget(chain.get(i + 1));
+            edges.add(edge);
+        }
+        if (reversed) {
+            Collections.reverse(edges);
+            activity.getEdges().clear();
+            activity.getEdges().addAll(edges);
+        }
+        return activity;
+    }
+
+    /**
+     * 模拟资源中的ID：按节点在链中的位置命名，与创建顺序无关
+     */
+    private static String idOf(org.eclipse.emf.ecore.EObject element) {
+        if (!(element instanceof ActivityNode)) {
+            return null;
+        }
+        ActivityNode node = (ActivityNode) element;
+        if (node.getIncomings().isEmpty() && node.getOutgoings().isEmpty()) {
+            return "isolated";
+        }
+        int position = 0;
+        for (ActivityNode previous = node; !previous.getIncomings().isEmpty(); previous = previous.getIncomings().get(0).getSource()) {
+            position++;
+        }
+        return position == 0 ? "start" : position == ACTIONS.length + 1 ? "end" : "action" + (position - 1);
+    }
+}
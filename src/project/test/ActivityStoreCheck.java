@@ -0,0 +1,120 @@
+package project.test;
+
+import project.store.ActivityStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 结果存储往返检查
+ * 写入、覆盖、删除后的内容在重新打开、压缩以及段末尾出现不完整记录后都与内存中的期望一致。
+ * 段大小设得很小，使记录分布在多个段中。
+ */
+public class ActivityStoreCheck {
+
+    private static final long SEGMENT_BYTES = 8 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        Checks checks = new Checks("结果存储往返检查");
+        Path dir = Files.createTempDirectory("store-check");
+        Random random = new Random(42);
+        Map<String, byte[]> expected = new TreeMap<>();
+        Map<String, String> hashes = new HashMap<>();
+        try {
+            try (ActivityStore store = new ActivityStore(dir, SEGMENT_BYTES)) {
+                for (int i = 0; i < 20; i++) {
+                    for (String variant : new String[]{"detailed.uml", "overview.uml"}) {
+                        put(store, expected, hashes, "UC" + i, variant, "hash" + i, random);
+                    }
+                }
+                checks.expect(segments(dir).size() > 1, "记录分布在 " + segments(dir).size() + " 个段中");
+                checks.expect(matches(store, expected, hashes), "写入后逐条读回的内容和哈希一致");
+                checks.expect(store.getIfCurrent("UC0", "detailed.uml", "stale") == null, "内容哈希不同时getIfCurrent返回null");
+                checks.expect(store.contains("UC0", "detailed.uml", "hash0"), "内容哈希相同时contains为true");
+
+                put(store, expected, hashes, "UC0", "detailed.uml", "hash0-v2", random);
+                checks.expect(store.remove("UC1", "detailed.uml"), "删除已有的结果");
+                expected.remove(key("UC1", "detailed.uml"));
+                checks.expect(!store.remove("UC1", "detailed.uml"), "重复删除返回false");
+                checks.expect(matches(store, expected, hashes), "覆盖和删除后内容一致");
+            }
+
+            try (ActivityStore store = new ActivityStore(dir, SEGMENT_BYTES)) {
+                checks.expect(matches(store, expected, hashes), "重新打开后内容一致");
+                long before = store.getTotalBytes();
+                store.compact();
+                checks.expect(store.getTotalBytes() < before, "压缩回收了覆盖和删除留下的空间（"
+                        + before + " → " + store.getTotalBytes() + " 字节）");
+                checks.expect(matches(store, expected, hashes), "压缩后内容一致");
+            }
+
+            try (ActivityStore store = new ActivityStore(dir, SEGMENT_BYTES)) {
+                checks.expect(matches(store, expected, hashes), "压缩后重新打开内容一致");
+            }
+
+            // 模拟写入中途崩溃：最后一个段末尾留下半条记录
+            Path last = segments(dir).get(segments(dir).size() - 1);
+            try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                channel.write(ByteBuffer.wrap(new byte[]{0x12, 0x34, 0x56, 0x78, 0, 0, 0x10}));
+            }
+            try (ActivityStore store = new ActivityStore(dir, SEGMENT_BYTES)) {
+                checks.expect(matches(store, expected, hashes), "末尾有不完整记录时内容一致");
+                put(store, expected, hashes, "UC99", "detailed.uml", "hash99", random);
+            }
+            try (ActivityStore store = new ActivityStore(dir, SEGMENT_BYTES)) {
+                checks.expect(matches(store, expected, hashes), "截断不完整记录后追加的结果可以读回");
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        checks.finish();
+    }
+
+    private static void put(ActivityStore store, Map<String, byte[]> expected, Map<String, String> hashes,
+                            String useCase, String variant, String hash, Random random) throws IOException {
+        byte[] data = new byte[200 + random.nextInt(1500)];
+        random.nextBytes(data);
+        store.put(useCase, variant, hash, data);
+        expected.put(key(useCase, variant), data);
+        hashes.put(key(useCase, variant), hash);
+    }
+
+    /**
+     * 存储中的条目与期望完全一致：每条期望的结果都能读回，且没有多余的条目
+     */
+    private static boolean matches(ActivityStore store, Map<String, byte[]> expected, Map<String, String> hashes)
+            throws IOException {
+        if (store.size() != expected.size()) {
+            return false;
+        }
+        for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            String[] parts = entry.getKey().split("\t");
+            ActivityStore.Entry stored = store.get(parts[0], parts[1]);
+            if (stored == null || !Arrays.equals(entry.getValue(), stored.toByteArray())
+                    || !hashes.get(entry.getKey()).equals(stored.getContentHash())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String key(String useCase, String variant) {
+        return useCase + "\t" + variant;
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".seg")).sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package project.test;
+
+import project.batch.BatchOptions;
+import project.batch.CorpusBatchRunner;
+import project.store.ActivityStore;
+import project.trace.TraceIndex;
+import project.ucmeta.UCMetaModel.UseCase;
+import project.ucmeta.UCMetaParser;
+import project.ucmeta.UCMetaWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 检查点与存储的失效检查
+ * 相同参数重新运行时跳过已完成的用例；改变细节层级、布局、测试路径等影响输出的选项后必须重新转换，
+ * 写出新的结果和sidecar，而不是沿用旧文件。
+ */
+public class CheckpointCheck {
+
+    private static final List<UseCase> USE_CASES = Arrays.asList(UCMetaParser.createLoginUseCase(),
+            UCMetaParser.createOnlineShoppingUseCase(), UCMetaParser.createFileUploadUseCase());
+
+    public static void main(String[] args) throws Exception {
+        Checks checks = new Checks("检查点失效检查");
+        Path dir = Files.createTempDirectory("checkpoint-check");
+        try {
+            Path spec = dir.resolve("examples.ucm");
+            StringBuilder text = new StringBuilder();
+            for (UseCase useCase : USE_CASES) {
+                text.append(UCMetaWriter.toText(useCase)).append('\n');
+            }
+            Files.write(spec, text.toString().getBytes(StandardCharsets.UTF_8));
+            checkJournal(checks, dir, spec);
+            checkStore(checks, dir, spec);
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        checks.finish();
+    }
+
+    private static void checkJournal(Checks checks, Path dir, Path spec) throws IOException {
+        String out = dir.resolve("out").toString();
+        Path output = dir.resolve("out").resolve(USE_CASES.get(0).getName() + "_detailed.uml");
+        Path paths = dir.resolve("out").resolve(USE_CASES.get(0).getName() + "_detailed.uml.paths");
+
+        CorpusBatchRunner first = run(spec.toString(), "-o", out);
+        checks.expectEquals(3L, first.getSucceededCount(), "首次运行转换全部用例");
+        byte[] defaultBytes = Files.readAllBytes(output);
+
+        checks.expectEquals(3L, run(spec.toString(), "-o", out).getSkippedCount(), "相同参数重新运行时全部跳过");
+
+        String[] changed = {spec.toString(), "-o", out, "--detail-level", "0", "--layout", "--test-paths", "edge"};
+        checks.expectEquals(3L, run(changed).getSucceededCount(), "改变细节层级、布局和测试路径后重新转换");
+        checks.expect(!Arrays.equals(defaultBytes, Files.readAllBytes(output)), "输出文件按新选项更新");
+        checks.expect(Files.exists(paths), "写出了测试路径sidecar");
+        checks.expectEquals(3L, run(changed).getSkippedCount(), "新选项下再次运行时跳过");
+
+        checks.expectEquals(3L, run(spec.toString(), "-o", out, "--no-trace").getSucceededCount(), "关闭追溯后重新转换");
+        checks.expectEquals(3L, run(spec.toString(), "-o", out).getSucceededCount(), "恢复默认选项后重新转换");
+        checks.expect(Arrays.equals(defaultBytes, Files.readAllBytes(output)), "恢复默认选项后输出与首次运行一致");
+        checks.expect(!Files.exists(paths), "不再生成测试路径时删除旧的sidecar");
+        checks.expect(Files.exists(TraceIndex.sidecar(output)), "恢复默认选项后重新写出追溯sidecar");
+    }
+
+    private static void checkStore(Checks checks, Path dir, Path spec) throws IOException {
+        Path storeDir = dir.resolve("store");
+        String[] defaults = {spec.toString(), "-o", dir.resolve("store-out").toString(), "--store", storeDir.toString()};
+        checks.expectEquals(3L, run(defaults).getSucceededCount(), "存储模式首次运行转换全部用例");
+        checks.expectEquals(3L, run(defaults).getSkippedCount(), "存储模式相同参数时全部跳过");
+
+        String[] layout = Arrays.copyOf(defaults, defaults.length + 1);
+        layout[defaults.length] = "--layout";
+        checks.expectEquals(3L, run(layout).getSucceededCount(), "存储模式加上布局后重新转换");
+        try (ActivityStore store = ActivityStore.open(storeDir)) {
+            String name = USE_CASES.get(0).getName();
+            checks.expect(store.get(name, "detailed.uml") != null, "默认选项的结果仍在原变体名下");
+            checks.expect(store.get(name, "detailed+layout.uml") != null, "带布局的结果存为单独的变体");
+        }
+    }
+
+    private static CorpusBatchRunner run(String... args) throws IOException {
+        String[] all = Arrays.copyOf(args, args.length + 4);
+        all[args.length] = "--progress";
+        all[args.length + 1] = "0";
+        all[args.length + 2] = "-t";
+        all[args.length + 3] = "2";
+        CorpusBatchRunner runner = new CorpusBatchRunner(BatchOptions.parse(all));
+        runner.run();
+        return runner;
+    }
+}
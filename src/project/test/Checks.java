@@ -0,0 +1,46 @@
+package project.test;
+
+/**
+ * 检查程序共用的断言记录：逐条输出结果，结束时有失败则以非零状态退出
+ */
+final class Checks {
+    private final String name;
+    private int passed;
+    private int failed;
+
+    Checks(String name) {
+        this.name = name;
+        System.out.println("=== " + name + " ===");
+    }
+
+    /**
+     * 记录一条检查结果
+     */
+    void expect(boolean condition, String description) {
+        if (condition) {
+            passed++;
+            System.out.println("  ✅ " + description);
+        } else {
+            failed++;
+            System.out.println("  ❌ " + description);
+        }
+    }
+
+    /**
+     * 记录一条相等检查，失败时输出两边的值
+     */
+    void expectEquals(Object expected, Object actual, String description) {
+        boolean equal = expected == null ? actual == null : expected.equals(actual);
+        expect(equal, equal ? description : description + "（期望 " + expected + "，实际 " + actual + "）");
+    }
+
+    /**
+     * 输出汇总；有失败的检查时以状态1退出，便于在脚本中使用
+     */
+    void finish() {
+        System.out.println(name + ": " + passed + " 项通过，" + failed + " 项失败");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+}
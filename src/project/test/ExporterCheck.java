@@ -0,0 +1,369 @@
+package project.test;
+
+import project.export.ExportFormat;
+import project.rules.ActivityDiagramManager;
+import project.rules.UCMetaToActivityTransformer;
+import project.ucmeta.UCMetaParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 轻量格式导出检查
+ * 名称含引号、反斜杠、换行和方括号，活动没有名称时，JSON输出能被解析且名称原样往返，
+ * PlantUML的标签按约定转义、别名先声明后引用，DOT的字符串引号成对；带子活动的用例中每个calls都指向导出的子活动。
+ */
+public class ExporterCheck {
+
+    private static final String TRICKY = "Say \"hi\" \\ to C:\\temp\nthen [stop]";
+    private static final Pattern DECLARATION = Pattern.compile("\"[^\"]*\" as (n\\d+)");
+    private static final Pattern REFERENCE = Pattern.compile("^(\\S+) (?:-->|\\.\\.>)(?:\\[[^\\]]*\\])? (\\S+)$");
+
+    public static void main(String[] args) throws Exception {
+        Checks checks = new Checks("轻量格式导出检查");
+
+        ActivityDiagramManager manager = createManager();
+        checkJson(checks, manager);
+        checkPlantUml(checks, manager);
+        checkDot(checks, manager);
+        manager.dispose();
+
+        // 细节层级0：备选流折叠为子活动
+        ActivityDiagramManager collapsed = new UCMetaToActivityTransformer(0).transformUseCase(UCMetaParser.createLoginUseCase());
+        collapsed.setVerbose(false);
+        checkCalls(checks, collapsed);
+        String puml = export(ExportFormat.PLANTUML, collapsed);
+        checks.expectEquals(1 + collapsed.getSubActivities().size(), count(puml, "@startuml"),
+                "PlantUML中每个活动一个@startuml块");
+        collapsed.dispose();
+
+        checks.finish();
+    }
+
+    /**
+     * 没有名称的活动：初始→动作(TRICKY)→分叉→两个动作→汇合→终止，边名同样含需转义的字符
+     */
+    private static ActivityDiagramManager createManager() {
+        ActivityDiagramManager manager = new ActivityDiagramManager("ExportModel", null);
+        manager.setVerbose(false);
+        manager.createInitialNode("start");
+        manager.createOpaqueAction("say", TRICKY);
+        manager.createForkNode("fork");
+        manager.createOpaqueAction("left", "Left \"branch\"");
+        manager.createOpaqueAction("right", "Right\\branch");
+        manager.createJoinNode("join");
+        manager.createFinalNode("end");
+        manager.createControlFlow("f0", "start", "say", null);
+        manager.createControlFlow("f1", "say", "fork", "[ok] \"yes\"");
+        manager.createControlFlow("f2", "fork", "left", null);
+        manager.createControlFlow("f3", "fork", "right", null);
+        manager.createControlFlow("f4", "left", "join", null);
+        manager.createControlFlow("f5", "right", "join", "a]b\nc");
+        manager.createControlFlow("f6", "join", "end", null);
+        return manager;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void checkJson(Checks checks, ActivityDiagramManager manager) throws IOException {
+        String text = export(ExportFormat.JSON, manager);
+        Object parsed;
+        try {
+            parsed = new JsonReader(text).read();
+        } catch (IllegalArgumentException e) {
+            checks.expect(false, "JSON可以解析：" + e.getMessage());
+            return;
+        }
+        checks.expect(parsed instanceof Map, "JSON顶层是对象");
+        Map<String, Object> root = (Map<String, Object>) parsed;
+        checks.expect(root.containsKey("name") && root.get("name") == null, "没有名称的活动写作\"name\":null");
+
+        List<Object> nodes = (List<Object>) root.get("nodes");
+        List<Object> edges = (List<Object>) root.get("edges");
+        checks.expectEquals(manager.getActivity().getOwnedNodes().size(), nodes.size(), "节点数与活动一致");
+        checks.expectEquals(manager.getActivity().getEdges().size(), edges.size(), "边数与活动一致");
+
+        Map<String, String> names = new HashMap<>();
+        for (Object node : nodes) {
+            Map<String, Object> map = (Map<String, Object>) node;
+            names.put((String) map.get("id"), (String) map.get("name"));
+        }
+        checks.expectEquals(TRICKY, names.get("say"), "含引号、反斜杠、换行的节点名称原样往返");
+        checks.expectEquals("Right\\branch", names.get("right"), "反斜杠原样往返");
+
+        boolean endpoints = true;
+        Map<String, String> edgeNames = new HashMap<>();
+        for (Object edge : edges) {
+            Map<String, Object> map = (Map<String, Object>) edge;
+            endpoints &= names.containsKey(map.get("source")) && names.containsKey(map.get("target"));
+            edgeNames.put((String) map.get("id"), (String) map.get("name"));
+        }
+        checks.expect(endpoints, "每条边的source和target都是导出的节点ID");
+        checks.expectEquals("a]b\nc", edgeNames.get("f5"), "边名原样往返");
+    }
+
+    private static void checkPlantUml(Checks checks, ActivityDiagramManager manager) throws IOException {
+        String text = export(ExportFormat.PLANTUML, manager);
+        checks.expect(!text.contains("title"), "没有名称的活动不写标题");
+        checks.expect(text.contains("Say &#34;hi&#34; &#92; to C:&#92;temp\\nthen [stop]"),
+                "节点标签中的引号、反斜杠写成字符引用，换行写成\\n");
+
+        boolean balanced = true;
+        boolean arrows = true;
+        boolean edgeLabels = true;
+        boolean uniqueDeclarations = true;
+        boolean declaredBeforeUse = true;
+        Set<String> declared = new HashSet<>();
+        for (String line : text.split("\n")) {
+            if (line.startsWith("@")) {
+                continue;
+            }
+            balanced &= count(line, "\"") % 2 == 0;
+            Matcher label = Pattern.compile("-->\\[(.*?)\\] ").matcher(line);
+            if (label.find()) {
+                edgeLabels &= !label.group(1).contains("]") && !label.group(1).contains("\"");
+            }
+            // 声明写作D:别名，之后按"源 箭头[标签] 目标"拆开，检查两端的别名
+            Matcher reference = REFERENCE.matcher(DECLARATION.matcher(line).replaceAll("D:$1"));
+            if (!reference.matches()) {
+                arrows = false;
+                continue;
+            }
+            for (int side = 1; side <= 2; side++) {
+                String token = reference.group(side);
+                if (token.startsWith("D:")) {
+                    uniqueDeclarations &= declared.add(token.substring(2));
+                } else if (token.startsWith("===")) {
+                    declared.add(token.replace("=", ""));
+                } else if (!token.equals("(*)")) {
+                    declaredBeforeUse &= declared.contains(token);
+                }
+            }
+        }
+        checks.expect(balanced, "PlantUML每行的引号成对");
+        checks.expect(arrows, "每行都是完整的箭头语句，标签中的换行没有拆开语句");
+        checks.expect(edgeLabels, "边标签中的]和引号已转义");
+        checks.expect(uniqueDeclarations, "每个别名只声明一次");
+        checks.expect(declaredBeforeUse, "别名先声明后引用");
+        checks.expectEquals(5, declared.size(), "三个动作、分叉和汇合共用一套别名编号（n0…n4）");
+    }
+
+    private static void checkDot(Checks checks, ActivityDiagramManager manager) throws IOException {
+        String text = export(ExportFormat.DOT, manager);
+        checks.expect(text.startsWith("digraph \"\" {"), "没有名称的活动写作空字符串图名");
+        boolean balanced = true;
+        for (String line : text.split("\n")) {
+            balanced &= count(line.replace("\\\\", "").replace("\\\"", ""), "\"") % 2 == 0;
+        }
+        checks.expect(balanced, "DOT每行的字符串引号成对，换行已转义");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void checkCalls(Checks checks, ActivityDiagramManager manager) throws IOException {
+        Map<String, Object> root = (Map<String, Object>) new JsonReader(export(ExportFormat.JSON, manager)).read();
+        List<Object> subActivities = (List<Object>) root.get("subActivities");
+        checks.expect(subActivities != null && subActivities.size() == manager.getSubActivities().size(),
+                "JSON输出全部 " + manager.getSubActivities().size() + " 个子活动");
+        if (subActivities == null) {
+            return;
+        }
+        Set<Object> ids = new HashSet<>();
+        List<Object> nodes = new ArrayList<>((List<Object>) root.get("nodes"));
+        for (Object subActivity : subActivities) {
+            ids.add(((Map<String, Object>) subActivity).get("id"));
+            nodes.addAll((List<Object>) ((Map<String, Object>) subActivity).get("nodes"));
+        }
+        int calls = 0;
+        boolean resolved = true;
+        for (Object node : nodes) {
+            Object target = ((Map<String, Object>) node).get("calls");
+            if (target != null) {
+                calls++;
+                resolved &= ids.contains(target);
+            }
+        }
+        checks.expect(calls > 0 && resolved, "每个calls都指向导出的子活动（" + calls + " 个调用）");
+    }
+
+    private static String export(ExportFormat format, ActivityDiagramManager manager) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        format.export(manager, Channels.newChannel(bytes));
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + part.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 最小的JSON读取器：对象读为LinkedHashMap，数组读为ArrayList，数字读为Double；格式错误时抛出IllegalArgumentException
+     */
+    private static final class JsonReader {
+        private final String text;
+        private int pos;
+
+        JsonReader(String text) {
+            this.text = text;
+        }
+
+        Object read() {
+            Object value = value();
+            skipSpace();
+            if (pos != text.length()) {
+                throw error("多余的内容");
+            }
+            return value;
+        }
+
+        private Object value() {
+            skipSpace();
+            if (pos >= text.length()) {
+                throw error("意外的结尾");
+            }
+            char c = text.charAt(pos);
+            switch (c) {
+                case '{': return object();
+                case '[': return array();
+                case '"': return string();
+                case 't': return literal("true", Boolean.TRUE);
+                case 'f': return literal("false", Boolean.FALSE);
+                case 'n': return literal("null", null);
+                default: return number();
+            }
+        }
+
+        private Map<String, Object> object() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            pos++;
+            skipSpace();
+            if (peek() == '}') {
+                pos++;
+                return map;
+            }
+            while (true) {
+                skipSpace();
+                if (peek() != '"') {
+                    throw error("需要字符串键");
+                }
+                String key = string();
+                if (map.containsKey(key)) {
+                    throw error("重复的键 " + key);
+                }
+                skipSpace();
+                expect(':');
+                map.put(key, value());
+                skipSpace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect('}');
+                    return map;
+                }
+            }
+        }
+
+        private List<Object> array() {
+            List<Object> list = new ArrayList<>();
+            pos++;
+            skipSpace();
+            if (peek() == ']') {
+                pos++;
+                return list;
+            }
+            while (true) {
+                list.add(value());
+                skipSpace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect(']');
+                    return list;
+                }
+            }
+        }
+
+        private String string() {
+            StringBuilder sb = new StringBuilder();
+            pos++;
+            while (true) {
+                if (pos >= text.length()) {
+                    throw error("字符串没有结束");
+                }
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c < 0x20) {
+                    throw error("字符串中有未转义的控制字符");
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char escape = text.charAt(pos++);
+                switch (escape) {
+                    case '"': case '\\': case '/': sb.append(escape); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default: throw error("未知的转义 \\" + escape);
+                }
+            }
+        }
+
+        private Object literal(String word, Object value) {
+            if (!text.startsWith(word, pos)) {
+                throw error("未知的字面量");
+            }
+            pos += word.length();
+            return value;
+        }
+
+        private Double number() {
+            int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+                pos++;
+            }
+            try {
+                return Double.valueOf(text.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw error("无效的值");
+            }
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("需要 " + c);
+            }
+            pos++;
+        }
+
+        private char peek() {
+            return pos < text.length() ? text.charAt(pos) : '\0';
+        }
+
+        private void skipSpace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + "（位置 " + pos + "）");
+        }
+    }
+}
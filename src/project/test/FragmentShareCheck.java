@@ -0,0 +1,172 @@
+package project.test;
+
+import org.eclipse.uml2.uml.Activity;
+import org.eclipse.uml2.uml.ActivityEdge;
+import org.eclipse.uml2.uml.ActivityNode;
+import org.eclipse.uml2.uml.CallBehaviorAction;
+import org.eclipse.uml2.uml.CallOperationAction;
+import org.eclipse.uml2.uml.FlowFinalNode;
+import org.eclipse.uml2.uml.Pin;
+import project.rules.ActivityDiagramManager;
+import project.rules.UCMetaToActivityTransformer;
+import project.ucmeta.UCMetaModel.*;
+
+import java.util.*;
+
+/**
+ * 片段共享检查
+ * 两个相同的备选流只生成一个fragment_0活动，两处调用动作都调用它；含中止句或恢复句的片段总是就地展开；
+ * 规范哈希碰撞但结构不同的片段经sameStructure判别后不被错误共享；恢复到被折叠进片段的步骤时连到对应的调用动作。
+ */
+public class FragmentShareCheck {
+
+    public static void main(String[] args) {
+        Checks checks = new Checks("片段共享检查");
+
+        // 两个条件检查句，备选流除句子ID外相同
+        UseCase twice = new UseCase("Twice");
+        twice.getMainFlow().add(check("c1", "Validate card", simple("x1", "Re-enter card"), simple("x2", "Submit card")));
+        twice.getMainFlow().add(check("c2", "Validate address", simple("y1", "Re-enter card"), simple("y2", "Submit card")));
+        checks.expectEquals(0, transform(twice, false).getSubActivities().size(), "未启用共享：备选流都就地展开");
+        ActivityDiagramManager shared = transform(twice, true);
+        checks.expectEquals(Collections.singletonList("fragment_0"), ids(shared, shared.getSubActivities()),
+                "两个相同的备选流只生成一个fragment_0活动");
+        Activity fragment = shared.getSubActivities().get(0);
+        checks.expect(behavior(shared, "alt_behavior_c1") == fragment && behavior(shared, "alt_behavior_c2") == fragment,
+                "两个备选流的CallBehaviorAction都调用fragment_0");
+        checks.expectEquals(Arrays.asList("Re-enter card", "Submit card"), actionNames(fragment),
+                "fragment_0中是备选流的两个动作");
+        checks.expect(shared.getNodeById("action_x1") != null && shared.getNodeById("action_y1") == null,
+                "片段按第一次出现生成，第二份副本不再展开");
+
+        // 相同的备选流以中止句或恢复句结束
+        UseCase escaping = new UseCase("Escaping");
+        escaping.getMainFlow().add(simple("s1", "Open form"));
+        escaping.getMainFlow().add(check("c1", "Validate card", simple("x1", "Cancel order"), new AbortSentence("x2", "Abort")));
+        escaping.getMainFlow().add(check("c2", "Validate address", simple("y1", "Cancel order"), new AbortSentence("y2", "Abort")));
+        escaping.getMainFlow().add(check("c3", "Validate coupon", simple("z1", "Clear coupon"), new ResumeStepSentence("z2", "Resume", "s1")));
+        escaping.getMainFlow().add(check("c4", "Validate points", simple("w1", "Clear coupon"), new ResumeStepSentence("w2", "Resume", "s1")));
+        ActivityDiagramManager inline = transform(escaping, true);
+        checks.expectEquals(0, inline.getSubActivities().size(), "含中止句或恢复句的片段不共享");
+        checks.expect(inline.getNodeById("abort_x2") instanceof FlowFinalNode && inline.getNodeById("abort_y2") instanceof FlowFinalNode,
+                "两个中止句都在主活动中生成流终止节点");
+        checks.expectEquals(2, resumeEdges(inline, "action_s1").size(), "两个恢复句都连回主活动中的步骤s1");
+
+        // 两个片段的规范哈希相同但内容不同：这两组句子内容是离线搜索得到的一次64位哈希碰撞
+        UseCase colliding = new UseCase("Colliding");
+        colliding.getMainFlow().add(conditional("k1", Arrays.asList(simple("a1", "Record item 181497"), simple("a2", "Record item 79860")),
+                Arrays.asList(simple("b1", "Record item 6288975"), simple("b2", "Record item 6409620"))));
+        colliding.getMainFlow().add(conditional("k2", Arrays.asList(simple("c1", "Record item 181497"), simple("c2", "Record item 79860")),
+                Arrays.asList(simple("d1", "Record item 6288975"), simple("d2", "Record item 6409620"))));
+        ActivityDiagramManager collided = transform(colliding, true);
+        checks.expectEquals(1, collided.getSubActivities().size(), "哈希碰撞的片段中只有第一个生成共享活动");
+        Activity first = collided.getSubActivities().isEmpty() ? null : collided.getSubActivities().get(0);
+        checks.expect(first != null && behavior(collided, "then_behavior_k1") == first && behavior(collided, "then_behavior_k2") == first
+                        && actionNames(first).equals(Arrays.asList("Record item 181497", "Record item 79860")),
+                "两个then分支调用同一个片段，片段内容是then分支");
+        checks.expect(collided.getNodeById("else_behavior_k1") == null && collided.getNodeById("else_behavior_k2") == null
+                        && collided.getNodeById("action_b1") != null && collided.getNodeById("action_d2") != null,
+                "结构不同的else分支经sameStructure判别后就地展开，不调用then分支的片段");
+
+        // 恢复到被折叠进片段的步骤：连到包含该步骤的那一处调用动作
+        UseCase resuming = new UseCase("Resuming");
+        resuming.getMainFlow().add(check("c1", "Validate card", simple("x1", "Re-enter card"), simple("x2", "Submit card")));
+        resuming.getMainFlow().add(check("c2", "Validate address", simple("y1", "Re-enter card"), simple("y2", "Submit card")));
+        resuming.getMainFlow().add(conditional("k1",
+                Arrays.asList(simple("r1", "Retry card"), new ResumeStepSentence("r2", "Resume", "x2")),
+                Arrays.asList(simple("r3", "Retry address"), new ResumeStepSentence("r4", "Resume", "y2"))));
+        ActivityDiagramManager resumed = transform(resuming, true);
+        checks.expectEquals(1, resumed.getSubActivities().size(), "恢复句不影响前面两个备选流的共享");
+        checks.expect(resumeEdges(resumed, "alt_behavior_c1").equals(Collections.singletonList("action_r1"))
+                        && resumeEdges(resumed, "alt_behavior_c2").equals(Collections.singletonList("action_r3")),
+                "恢复到x2、y2分别连到调用片段的alt_behavior_c1、alt_behavior_c2");
+        int crossing = 0;
+        for (Activity activity : activities(resumed)) {
+            for (ActivityEdge edge : activity.getEdges()) {
+                if (owner(edge.getSource()) != activity || owner(edge.getTarget()) != activity) {
+                    crossing++;
+                }
+            }
+        }
+        checks.expectEquals(0, crossing, "所有边的两端都在同一个活动中");
+
+        checks.finish();
+    }
+
+    private static ActivityDiagramManager transform(UseCase useCase, boolean share) {
+        UCMetaToActivityTransformer transformer = new UCMetaToActivityTransformer(true);
+        transformer.setShareFragments(share);
+        ActivityDiagramManager manager = transformer.transformUseCase(useCase);
+        manager.setVerbose(false);
+        return manager;
+    }
+
+    private static SimpleSentence simple(String id, String content) {
+        return new SimpleSentence(id, content, "System", "record", "Item", TransactionType.INTERNAL_TRANSACTION);
+    }
+
+    private static ConditionCheckSentence check(String id, String content, Sentence... alternativeFlow) {
+        ConditionCheckSentence sentence = new ConditionCheckSentence(id, content, content + " failed");
+        sentence.getAlternativeFlow().addAll(Arrays.asList(alternativeFlow));
+        return sentence;
+    }
+
+    private static ConditionalSentence conditional(String id, List<Sentence> thenBranch, List<Sentence> elseBranch) {
+        ConditionalSentence sentence = new ConditionalSentence(id, "Choose " + id, "condition " + id);
+        sentence.getThenBranch().addAll(thenBranch);
+        sentence.getElseBranch().addAll(elseBranch);
+        return sentence;
+    }
+
+    private static Activity behavior(ActivityDiagramManager manager, String callId) {
+        ActivityNode node = manager.getNodeById(callId);
+        return node instanceof CallBehaviorAction ? (Activity) ((CallBehaviorAction) node).getBehavior() : null;
+    }
+
+    private static List<String> actionNames(Activity activity) {
+        List<String> names = new ArrayList<>();
+        for (ActivityNode node : activity.getNodes()) {
+            if (node instanceof CallOperationAction) {
+                names.add(node.getName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 指向目标节点的恢复边的源节点ID
+     */
+    private static List<String> resumeEdges(ActivityDiagramManager manager, String targetId) {
+        List<String> sources = new ArrayList<>();
+        for (Activity activity : activities(manager)) {
+            for (ActivityEdge edge : activity.getEdges()) {
+                if ("resume".equals(edge.getName()) && edge.getTarget() == manager.getNodeById(targetId)) {
+                    sources.add(manager.getCustomId(edge.getSource()));
+                }
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * 节点所在的活动，Pin取其所属动作的活动
+     */
+    private static Activity owner(ActivityNode node) {
+        return node instanceof Pin ? ((ActivityNode) node.getOwner()).getActivity() : node.getActivity();
+    }
+
+    private static List<Activity> activities(ActivityDiagramManager manager) {
+        List<Activity> activities = new ArrayList<>();
+        activities.add(manager.getActivity());
+        activities.addAll(manager.getSubActivities());
+        return activities;
+    }
+
+    private static List<String> ids(ActivityDiagramManager manager, List<Activity> activities) {
+        List<String> ids = new ArrayList<>();
+        for (Activity activity : activities) {
+            ids.add(manager.getCustomId(activity));
+        }
+        return ids;
+    }
+}
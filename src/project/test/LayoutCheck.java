@@ -0,0 +1,168 @@
+package project.test;
+
+import project.graph.ActivityGraph;
+import project.layout.LayeredLayout;
+import project.rules.ActivityDiagramManager;
+import project.rules.UCMetaToActivityTransformer;
+import project.ucmeta.UCMetaModel.SentenceType;
+import project.ucmeta.UCMetaParser;
+import project.ucmeta.UseCaseGenerator;
+
+import java.util.*;
+
+/**
+ * 分层布局检查
+ * 手工构造的分叉/汇合、循环和跨层边，以及示例和合成用例上：节点的边界框互不重叠且都在画布内，
+ * 非回边总是从上层指向下层，分叉/汇合按顺序分层且汇合对齐到分叉正下方，循环的回边被识别；写入模型的注解与结果一致。
+ */
+public class LayoutCheck {
+
+    public static void main(String[] args) {
+        Checks checks = new Checks("分层布局检查");
+
+        // 初始→分叉→(a, b, c)→汇合→终止，分叉与汇合配对
+        ActivityDiagramManager parallel = manager();
+        parallel.createForkNode("fork");
+        parallel.createOpaqueAction("a", "Check stock");
+        parallel.createOpaqueAction("b", "Charge card");
+        parallel.createOpaqueAction("c", "Notify customer");
+        parallel.createJoinNode("join");
+        parallel.pairBlock("fork", "join");
+        flows(parallel, "start>fork", "fork>a", "fork>b", "fork>c", "a>join", "b>join", "c>join", "join>end");
+        LayeredLayout.Result forked = LayeredLayout.apply(parallel);
+        check(checks, "分叉/汇合", forked);
+        int fork = index(forked, "fork");
+        int join = index(forked, "join");
+        boolean ordered = forked.getY(index(forked, "start")) < forked.getY(fork) && forked.getY(join) < forked.getY(index(forked, "end"));
+        Set<Integer> branchRows = new HashSet<>();
+        for (String branch : new String[]{"a", "b", "c"}) {
+            int v = index(forked, branch);
+            ordered &= forked.getY(fork) < forked.getY(v) && forked.getY(v) < forked.getY(join);
+            branchRows.add(forked.getY(v));
+        }
+        checks.expect(ordered, "分叉/汇合：初始、分叉、各分支、汇合、终止依次分层");
+        checks.expectEquals(1, branchRows.size(), "分叉/汇合：三个分支在同一层");
+        checks.expectEquals(centerX(forked, fork), centerX(forked, join), "分叉/汇合：汇合对齐到分叉正下方");
+        int[] bounds = LayeredLayout.getBounds(parallel.getNodeById("join"));
+        checks.expect(bounds != null && bounds[0] == forked.getX(join) && bounds[1] == forked.getY(join),
+                "分叉/汇合：写入模型的坐标注解与结果一致");
+
+        // 初始→a→d→(a | 终止)：回边d→a
+        ActivityDiagramManager loop = manager();
+        loop.createOpaqueAction("a", "Enter code");
+        loop.createDecisionNode("d");
+        flows(loop, "start>a", "a>d", "d>a", "d>end");
+        LayeredLayout.Result looped = LayeredLayout.apply(loop);
+        check(checks, "循环", looped);
+        int backEdges = 0;
+        boolean backIsRetry = false;
+        for (ActivityGraph.Edge edge : looped.getGraph().getEdges()) {
+            if (looped.isBackEdge(edge.getIndex())) {
+                backEdges++;
+                backIsRetry = edge.getId().equals("d_a");
+            }
+        }
+        checks.expect(backEdges == 1 && backIsRetry, "循环：只有d→a被识别为回边");
+
+        // 初始→d→(x→y→m | m)→终止：d→m跨两层，拆成虚拟节点
+        ActivityDiagramManager skip = manager();
+        skip.createDecisionNode("d");
+        skip.createOpaqueAction("x", "X");
+        skip.createOpaqueAction("y", "Y");
+        skip.createMergeNode("m");
+        skip.pairBlock("d", "m");
+        flows(skip, "start>d", "d>x", "x>y", "y>m", "d>m", "m>end");
+        LayeredLayout.Result skipped = LayeredLayout.apply(skip);
+        check(checks, "跨层边", skipped);
+        checks.expectEquals(2, skipped.getDummyCount(), "跨层边：d→m跨过两层，拆出两个虚拟节点");
+        checks.expectEquals(0L, skipped.getCrossings(), "跨层边：没有交叉");
+
+        List<ActivityDiagramManager> managers = new ArrayList<>();
+        managers.add(new UCMetaToActivityTransformer(true).transformUseCase(UCMetaParser.createOnlineShoppingUseCase()));
+        UseCaseGenerator generator = new UseCaseGenerator(5).setSentenceCount(60).setMaxDepth(3)
+                .setWeight(SentenceType.PARALLEL, 20).setWeight(SentenceType.ITERATIVE, 10);
+        managers.add(new UCMetaToActivityTransformer(true).transformUseCase(generator.generate(0)));
+        for (ActivityDiagramManager manager : managers) {
+            manager.setVerbose(false);
+            check(checks, manager.getActivity().getName(), LayeredLayout.apply(manager));
+            manager.dispose();
+        }
+
+        checks.finish();
+    }
+
+    /**
+     * 通用性质：边界框不重叠、都在画布内，非回边从上层指向下层，折线两端落在源和目标节点上
+     */
+    private static void check(Checks checks, String name, LayeredLayout.Result result) {
+        ActivityGraph graph = result.getGraph();
+        int n = graph.getNodeCount();
+        int overlaps = 0;
+        int outside = 0;
+        for (int u = 0; u < n; u++) {
+            if (result.getX(u) < 0 || result.getY(u) < 0 || result.getX(u) + result.getWidth(u) > result.getWidth()
+                    || result.getY(u) + result.getHeight(u) > result.getHeight()) {
+                outside++;
+            }
+            for (int v = u + 1; v < n; v++) {
+                if (result.getX(u) < result.getX(v) + result.getWidth(v) && result.getX(v) < result.getX(u) + result.getWidth(u)
+                        && result.getY(u) < result.getY(v) + result.getHeight(v) && result.getY(v) < result.getY(u) + result.getHeight(u)) {
+                    overlaps++;
+                }
+            }
+        }
+        int upward = 0;
+        int detached = 0;
+        for (ActivityGraph.Edge edge : graph.getEdges()) {
+            if (edge.isObjectFlow()) {
+                continue;
+            }
+            int[] points = result.getPoints(edge.getIndex());
+            if (!result.isBackEdge(edge.getIndex()) && result.getY(edge.getSource()) >= result.getY(edge.getTarget())) {
+                upward++;
+            }
+            if (points.length < 4 || !touches(result, edge.getSource(), points[0], points[1])
+                    || !touches(result, edge.getTarget(), points[points.length - 2], points[points.length - 1])) {
+                detached++;
+            }
+        }
+        checks.expectEquals(0, overlaps, name + "：" + n + " 个节点的边界框互不重叠");
+        checks.expectEquals(0, outside, name + "：节点都在 " + result.getWidth() + "x" + result.getHeight() + " 的画布内");
+        checks.expectEquals(0, upward, name + "：非回边都从上层指向下层（共 " + result.getLayerCount() + " 层）");
+        checks.expectEquals(0, detached, name + "：每条边的折线从源节点开始、到目标节点结束");
+    }
+
+    /**
+     * 点落在节点边界框上或内部
+     */
+    private static boolean touches(LayeredLayout.Result result, int node, int x, int y) {
+        return x >= result.getX(node) && x <= result.getX(node) + result.getWidth(node)
+                && y >= result.getY(node) && y <= result.getY(node) + result.getHeight(node);
+    }
+
+    private static int centerX(LayeredLayout.Result result, int node) {
+        return result.getX(node) + result.getWidth(node) / 2;
+    }
+
+    private static int index(LayeredLayout.Result result, String id) {
+        return result.getGraph().getNodeById(id).getIndex();
+    }
+
+    private static ActivityDiagramManager manager() {
+        ActivityDiagramManager manager = new ActivityDiagramManager("LayoutModel", "LayoutActivity");
+        manager.setVerbose(false);
+        manager.createInitialNode("start");
+        manager.createFinalNode("end");
+        return manager;
+    }
+
+    /**
+     * 按"源>目标"创建控制流
+     */
+    private static void flows(ActivityDiagramManager manager, String... edges) {
+        for (String edge : edges) {
+            String[] ends = edge.split(">");
+            manager.createControlFlow(ends[0] + "_" + ends[1], ends[0], ends[1], null);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package project.test;
+
+import org.eclipse.uml2.uml.Activity;
+import org.eclipse.uml2.uml.ActivityEdge;
+import org.eclipse.uml2.uml.ActivityNode;
+import org.eclipse.uml2.uml.CallOperationAction;
+import org.eclipse.uml2.uml.InputPin;
+import org.eclipse.uml2.uml.ObjectFlow;
+import project.rules.ActivityDiagramManager;
+import project.rules.UCMetaToActivityTransformer;
+import project.ucmeta.UCMetaModel.*;
+
+import java.util.*;
+
+/**
+ * 对象流检查
+ * 内部事务句的InputPin连到同一数据对象最近的上游OutputPin；分支中产生的对象不作为分支之后或兄弟分支的上游；
+ * 对象流不跨进折叠的子活动，全局备选流从空索引开始。
+ */
+public class ObjectFlowCheck {
+
+    public static void main(String[] args) {
+        Checks checks = new Checks("对象流检查");
+
+        // 顺序的三个句子：s3的上游是最近的s2而不是s1
+        UseCase chain = new UseCase("Chain");
+        chain.getMainFlow().add(simple("s1", "Order", TransactionType.INITIATION));
+        chain.getMainFlow().add(simple("s2", "Order", TransactionType.INTERNAL_TRANSACTION));
+        chain.getMainFlow().add(simple("s3", "Order", TransactionType.INTERNAL_TRANSACTION));
+        chain.getMainFlow().add(simple("s4", "Invoice", TransactionType.INTERNAL_TRANSACTION));
+        ActivityDiagramManager chained = transform(chain, UCMetaToActivityTransformer.UNLIMITED_DETAIL);
+        checks.expectEquals("action_s1", source(chained, "s2"), "s2连到s1的OutputPin");
+        checks.expectEquals("action_s2", source(chained, "s3"),
+                "s3连到最近的上游s2，而不是更早的s1");
+        checks.expectEquals(null, source(chained, "s4"), "没有上游的数据对象不连对象流");
+        checks.expectEquals(2, objectFlows(chained.getActivity()).size(), "共2条对象流");
+
+        // 条件句的两个分支各自产生对象：分支之后和兄弟分支都只看到分支之前的上游
+        UseCase branches = new UseCase("Branches");
+        branches.getMainFlow().add(simple("s1", "Order", TransactionType.INITIATION));
+        ConditionalSentence conditional = new ConditionalSentence("k1", "Check stock", "in stock");
+        conditional.getThenBranch().add(simple("t1", "Order", TransactionType.INTERNAL_TRANSACTION));
+        conditional.getThenBranch().add(simple("t2", "Order", TransactionType.INTERNAL_TRANSACTION));
+        conditional.getElseBranch().add(simple("e1", "Order", TransactionType.INTERNAL_TRANSACTION));
+        conditional.getElseBranch().add(simple("e2", "Invoice", TransactionType.INITIATION));
+        branches.getMainFlow().add(conditional);
+        branches.getMainFlow().add(simple("s2", "Order", TransactionType.INTERNAL_TRANSACTION));
+        branches.getMainFlow().add(simple("s3", "Invoice", TransactionType.INTERNAL_TRANSACTION));
+        ActivityDiagramManager branched = transform(branches, UCMetaToActivityTransformer.UNLIMITED_DETAIL);
+        checks.expect("action_s1".equals(source(branched, "t1")) && "action_t1".equals(source(branched, "t2")),
+                "then分支内：t1连到分支之前的s1，t2连到同一分支中的t1");
+        checks.expectEquals("action_s1", source(branched, "e1"), "else分支的e1连到s1，而不是兄弟分支中的t2");
+        checks.expectEquals("action_s1", source(branched, "s2"), "分支之后的s2连到分支之前的s1，分支中的Order被回滚");
+        checks.expectEquals(null, source(branched, "s3"), "只在else分支中产生的Invoice在分支之后没有上游");
+
+        // 细节层级0：分支折叠为子活动，子活动中的句子从空索引开始
+        ActivityDiagramManager collapsed = transform(branches, 0);
+        checks.expectEquals(2, collapsed.getSubActivities().size(), "细节层级0时两个分支折叠为子活动");
+        checks.expect(source(collapsed, "t1") == null && source(collapsed, "e1") == null,
+                "子活动中的t1、e1不连到主活动中的s1");
+        checks.expect("action_t1".equals(source(collapsed, "t2")), "子活动内部的t2仍连到t1");
+        checks.expectEquals("action_s1", source(collapsed, "s2"), "主活动中的s2连到s1");
+        int crossing = 0;
+        List<Activity> activities = new ArrayList<>(collapsed.getSubActivities());
+        activities.add(collapsed.getActivity());
+        for (Activity activity : activities) {
+            for (ObjectFlow flow : objectFlows(activity)) {
+                if (action(flow.getSource()).getActivity() != activity || action(flow.getTarget()).getActivity() != activity) {
+                    crossing++;
+                }
+            }
+        }
+        checks.expectEquals(0, crossing, "没有跨活动的对象流");
+
+        // 全局备选流可在任意时刻触发，其中的句子没有上游
+        UseCase global = new UseCase("Global");
+        global.getMainFlow().add(simple("s1", "Order", TransactionType.INITIATION));
+        GlobalAlternativeFlow cancel = new GlobalAlternativeFlow("cancel");
+        cancel.getSentences().add(simple("g1", "Order", TransactionType.INTERNAL_TRANSACTION));
+        cancel.getSentences().add(simple("g2", "Order", TransactionType.INTERNAL_TRANSACTION));
+        global.getGlobalAlternativeFlows().add(cancel);
+        ActivityDiagramManager globals = transform(global, UCMetaToActivityTransformer.UNLIMITED_DETAIL);
+        checks.expect(source(globals, "g1") == null && "action_g1".equals(source(globals, "g2")),
+                "全局备选流的g1没有上游，g2连到g1");
+
+        checks.finish();
+    }
+
+    private static ActivityDiagramManager transform(UseCase useCase, int detailLevel) {
+        ActivityDiagramManager manager = new UCMetaToActivityTransformer(detailLevel).transformUseCase(useCase);
+        manager.setVerbose(false);
+        return manager;
+    }
+
+    private static SimpleSentence simple(String id, String object, TransactionType transactionType) {
+        return new SimpleSentence(id, "Handle " + object + " " + id, "System", "handle", object, transactionType);
+    }
+
+    /**
+     * 句子的InputPin所连对象流的源动作ID，没有对象流时为null
+     */
+    private static String source(ActivityDiagramManager manager, String sentenceId) {
+        CallOperationAction action = (CallOperationAction) manager.getNodeById("action_" + sentenceId);
+        InputPin input = action.getArguments().get(0);
+        if (input.getIncomings().isEmpty()) {
+            return null;
+        }
+        return manager.getCustomId(action(input.getIncomings().get(0).getSource()));
+    }
+
+    private static List<ObjectFlow> objectFlows(Activity activity) {
+        List<ObjectFlow> flows = new ArrayList<>();
+        for (ActivityEdge edge : activity.getEdges()) {
+            if (edge instanceof ObjectFlow) {
+                flows.add((ObjectFlow) edge);
+            }
+        }
+        return flows;
+    }
+
+    /**
+     * Pin所属的动作
+     */
+    private static ActivityNode action(ActivityNode pin) {
+        return (ActivityNode) pin.getOwner();
+    }
+}
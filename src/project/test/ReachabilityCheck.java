@@ -0,0 +1,148 @@
+package project.test;
+
+import project.analysis.ReachabilityIndex;
+import project.graph.ActivityGraph;
+import project.rules.ActivityDiagramManager;
+import project.rules.UCMetaToActivityTransformer;
+import project.ucmeta.UCMetaModel.SentenceType;
+import project.ucmeta.UCMetaModel.UseCase;
+import project.ucmeta.UCMetaParser;
+import project.ucmeta.UseCaseGenerator;
+
+import java.util.*;
+
+/**
+ * 可达性索引检查
+ * 在示例用例和带循环、重试、全局备选流的合成用例上，逐对比较ReachabilityIndex与直接的广度优先搜索：
+ * 可达、路径之间的节点、支配关系和避开某个节点的可达性必须完全一致。
+ */
+public class ReachabilityCheck {
+
+    public static void main(String[] args) {
+        Checks checks = new Checks("可达性索引检查");
+        List<UseCase> useCases = new ArrayList<>(Arrays.asList(UCMetaParser.createLoginUseCase(),
+                UCMetaParser.createOnlineShoppingUseCase(), UCMetaParser.createFileUploadUseCase()));
+        UseCaseGenerator generator = new UseCaseGenerator(7).setSentenceCount(25).setMaxDepth(3)
+                .setGlobalFlowRate(0.5).setWeight(SentenceType.ITERATIVE, 20);
+        for (int i = 0; i < 5; i++) {
+            useCases.add(generator.generate(i));
+        }
+
+        for (UseCase useCase : useCases) {
+            ActivityDiagramManager manager = new UCMetaToActivityTransformer(true).transformUseCase(useCase);
+            manager.setVerbose(false);
+            check(checks, useCase.getName(), ActivityGraph.fromManager(manager));
+            manager.dispose();
+        }
+        checks.finish();
+    }
+
+    private static void check(Checks checks, String name, ActivityGraph graph) {
+        int n = graph.getNodeCount();
+        ReachabilityIndex index = new ReachabilityIndex(graph);
+        boolean[][] reach = new boolean[n][];
+        for (int v = 0; v < n; v++) {
+            reach[v] = bfs(graph, Collections.singletonList(v), -1);
+        }
+
+        int reachMismatches = 0;
+        int betweenMismatches = 0;
+        int avoidMismatches = 0;
+        boolean cycle = false;
+        for (int from = 0; from < n; from++) {
+            cycle |= index.isOnCycle(from);
+            for (int to = 0; to < n; to++) {
+                if (index.canReach(from, to) != reach[from][to]) {
+                    reachMismatches++;
+                }
+                Set<Integer> expected = new HashSet<>();
+                for (int x = 0; x < n && reach[from][to]; x++) {
+                    if (reach[from][x] && reach[x][to]) {
+                        expected.add(x);
+                    }
+                }
+                if (!expected.equals(indices(index.between(from, to)))) {
+                    betweenMismatches++;
+                }
+            }
+        }
+        // 避开节点的可达性抽样检查，避免n^3次搜索
+        Random random = new Random(n);
+        for (int i = 0; i < 200 && n > 0; i++) {
+            int from = random.nextInt(n);
+            int to = random.nextInt(n);
+            int avoid = random.nextInt(n);
+            boolean expected = from != avoid && to != avoid && bfs(graph, Collections.singletonList(from), avoid)[to];
+            if (index.canReachAvoiding(from, to, avoid) != expected) {
+                avoidMismatches++;
+            }
+        }
+
+        List<Integer> starts = new ArrayList<>();
+        for (int v = 0; v < n; v++) {
+            if (inDegree(graph, v) == 0) {
+                starts.add(v);
+            }
+        }
+        boolean[] fromStart = bfs(graph, starts, -1);
+        int dominatorMismatches = 0;
+        for (int a = 0; a < n; a++) {
+            boolean[] withoutA = bfs(graph, starts, a);
+            for (int b = 0; b < n; b++) {
+                boolean expected = a == b || (fromStart[a] && fromStart[b] && !withoutA[b]);
+                if (index.dominates(a, b) != expected) {
+                    dominatorMismatches++;
+                }
+            }
+        }
+
+        checks.expectEquals(0, reachMismatches, name + "：可达性与BFS一致（" + n + " 个节点" + (cycle ? "，含环" : "") + "）");
+        checks.expectEquals(0, betweenMismatches, name + "：路径之间的节点与BFS一致");
+        checks.expectEquals(0, dominatorMismatches, name + "：支配关系与删点后的BFS一致");
+        checks.expectEquals(0, avoidMismatches, name + "：避开节点的可达性与BFS一致");
+    }
+
+    /**
+     * 从起点集合沿控制流的广度优先搜索，跳过avoid（-1表示不跳过）
+     */
+    private static boolean[] bfs(ActivityGraph graph, List<Integer> sources, int avoid) {
+        boolean[] seen = new boolean[graph.getNodeCount()];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int source : sources) {
+            if (source != avoid && !seen[source]) {
+                seen[source] = true;
+                queue.add(source);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            for (int i = 0; i < graph.getOutDegree(v); i++) {
+                ActivityGraph.Edge edge = graph.getEdge(graph.getOutEdge(v, i));
+                int target = edge.getTarget();
+                if (!edge.isObjectFlow() && target != avoid && !seen[target]) {
+                    seen[target] = true;
+                    queue.add(target);
+                }
+            }
+        }
+        return seen;
+    }
+
+    private static int inDegree(ActivityGraph graph, int node) {
+        int degree = 0;
+        for (int i = 0; i < graph.getInDegree(node); i++) {
+            if (!graph.getEdge(graph.getInEdge(node, i)).isObjectFlow()) {
+                degree++;
+            }
+        }
+        return degree;
+    }
+
+    private static Set<Integer> indices(List<ActivityGraph.Node> nodes) {
+        Set<Integer> result = new HashSet<>();
+        for (ActivityGraph.Node node : nodes) {
+            result.add(node.getIndex());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,199 @@
+package project.test;
+
+import project.analysis.TestPathGenerator;
+import project.analysis.TestPathGenerator.Criterion;
+import project.analysis.TestPathGenerator.Result;
+import project.analysis.TestPathGenerator.TestPath;
+import project.analysis.TokenFlowSimulator.Outcome;
+import project.graph.ActivityGraph;
+import project.rules.ActivityDiagramManager;
+
+import java.util.*;
+
+/**
+ * 测试路径生成检查
+ * 在路径数已知的小图上核对全路径枚举的数量和循环展开界；节点、边和主路径覆盖用独立的穷举结果验证：
+ * 每个节点、每条边、每条主路径（由简单路径直接求出）都被某条测试路径按顺序连续经过。
+ */
+public class TestPathCheck {
+
+    public static void main(String[] args) {
+        Checks checks = new Checks("测试路径生成检查");
+
+        // 两个先后的二选一：初始→d1→(a|b)→m1→d2→(c|e)→m2→终止，共4条路径，圈复杂度3
+        ActivityDiagramManager diamonds = manager();
+        diamonds.createDecisionNode("d1");
+        diamonds.createOpaqueAction("a", "A");
+        diamonds.createOpaqueAction("b", "B");
+        diamonds.createMergeNode("m1");
+        diamonds.createDecisionNode("d2");
+        diamonds.createOpaqueAction("c", "C");
+        diamonds.createOpaqueAction("e", "E");
+        diamonds.createMergeNode("m2");
+        flows(diamonds, "start>d1", "d1>a", "d1>b", "a>m1", "b>m1", "m1>d2", "d2>c", "d2>e", "c>m2", "e>m2", "m2>end");
+        ActivityGraph diamondGraph = ActivityGraph.fromManager(diamonds);
+        Result all = new TestPathGenerator(diamondGraph).generate(Criterion.ALL);
+        checks.expectEquals(4, distinct(all).size(), "两个先后的二选一：全路径枚举得到4条不同的路径");
+        checks.expect(completed(all), "全部路径到达活动终止节点");
+        checks.expectEquals(3, new TestPathGenerator(diamondGraph).generate(Criterion.BASIS).getPaths().size(),
+                "基本路径数等于圈复杂度 E-N+2 = 3");
+        checkCoverage(checks, "二选一", diamondGraph, 1);
+
+        // 有出口的循环：初始→a→d→(a | 终止)，回边最多选择 k+1 次，共 k+2 条路径
+        ActivityDiagramManager loop = manager();
+        loop.createOpaqueAction("a", "A");
+        loop.createDecisionNode("d");
+        flows(loop, "start>a", "a>d", "d>a", "d>end");
+        ActivityGraph loopGraph = ActivityGraph.fromManager(loop);
+        for (int bound = 0; bound <= 3; bound++) {
+            Result bounded = new TestPathGenerator(loopGraph).setLoopBound(bound).generate(Criterion.ALL);
+            int longest = 0;
+            for (TestPath path : bounded.getPaths()) {
+                longest = Math.max(longest, Collections.frequency(path.getDecisions(), "d->a"));
+            }
+            checks.expect(distinct(bounded).size() == bound + 2 && longest == bound + 1 && !bounded.isTruncated(),
+                    "循环展开界 " + bound + "：" + (bound + 2) + " 条路径，回边最多选择 " + (bound + 1) + " 次");
+        }
+        Result truncated = new TestPathGenerator(loopGraph).setLoopBound(20).setMaxPaths(5).generate(Criterion.ALL);
+        checks.expect(truncated.isTruncated() && truncated.getPaths().size() == 5, "路径数达到上限时结果标记为不完整");
+        checkCoverage(checks, "循环", loopGraph, 1);
+
+        // 分叉/汇合：一条路径串行经过两个分支，汇合在两个分支之后
+        ActivityDiagramManager parallel = manager();
+        parallel.createForkNode("fork");
+        parallel.createOpaqueAction("a", "A");
+        parallel.createOpaqueAction("b", "B");
+        parallel.createJoinNode("join");
+        flows(parallel, "start>fork", "fork>a", "fork>b", "a>join", "b>join", "join>end");
+        Result forked = new TestPathGenerator(ActivityGraph.fromManager(parallel)).generate(Criterion.ALL);
+        List<String> nodes = forked.getPaths().isEmpty() ? Collections.<String>emptyList() : forked.getPaths().get(0).getNodeIds();
+        checks.expect(forked.getPaths().size() == 1 && nodes.indexOf("join") > nodes.indexOf("a")
+                        && nodes.indexOf("join") > nodes.indexOf("b") && nodes.indexOf("a") >= 0 && nodes.indexOf("b") >= 0,
+                "分叉/汇合只有一条路径，汇合在两个分支之后 " + nodes);
+
+        checks.finish();
+    }
+
+    /**
+     * 节点、边、主路径覆盖：没有未满足的需求，且独立穷举的每个需求都被某条路径连续经过
+     */
+    private static void checkCoverage(Checks checks, String name, ActivityGraph graph, int loopBound) {
+        List<List<String>> edges = new ArrayList<>();
+        for (ActivityGraph.Edge edge : graph.getEdges()) {
+            edges.add(Arrays.asList(graph.getNode(edge.getSource()).getId(), graph.getNode(edge.getTarget()).getId()));
+        }
+        List<List<String>> nodes = new ArrayList<>();
+        for (ActivityGraph.Node node : graph.getNodes()) {
+            nodes.add(Collections.singletonList(node.getId()));
+        }
+        List<List<String>> primes = primePaths(graph);
+
+        Object[][] cases = {{Criterion.NODE, nodes}, {Criterion.EDGE, edges}, {Criterion.PRIME, primes}};
+        for (Object[] entry : cases) {
+            Criterion criterion = (Criterion) entry[0];
+            @SuppressWarnings("unchecked")
+            List<List<String>> requirements = (List<List<String>>) entry[1];
+            Result result = new TestPathGenerator(graph).setLoopBound(loopBound).generate(criterion);
+            List<List<String>> missing = new ArrayList<>();
+            for (List<String> requirement : requirements) {
+                if (!covered(result, requirement)) {
+                    missing.add(requirement);
+                }
+            }
+            checks.expect(result.getUnsatisfied().isEmpty() && result.getCoverage() == 1.0,
+                    name + "：" + criterion + " 覆盖率100%（" + result.getPaths().size() + " 条路径）");
+            checks.expectEquals(Collections.emptyList(), missing,
+                    name + "：" + requirements.size() + " 个" + criterion + "需求都被某条路径连续经过");
+        }
+        checks.expectEquals(primes.size(), new TestPathGenerator(graph).generate(Criterion.PRIME).getRequirements(),
+                name + "：主路径需求数与穷举一致");
+    }
+
+    /**
+     * 穷举主路径：节点不重复的简单路径（首尾相同的环也算），不是其他简单路径的真子路径
+     */
+    private static List<List<String>> primePaths(ActivityGraph graph) {
+        List<List<String>> simple = new ArrayList<>();
+        for (ActivityGraph.Node node : graph.getNodes()) {
+            extend(graph, new ArrayList<>(Collections.singletonList(node.getIndex())), simple);
+        }
+        List<List<String>> primes = new ArrayList<>();
+        for (List<String> path : simple) {
+            boolean prime = true;
+            for (List<String> other : simple) {
+                if (other.size() > path.size() && Collections.indexOfSubList(other, path) >= 0) {
+                    prime = false;
+                    break;
+                }
+            }
+            if (prime) {
+                primes.add(path);
+            }
+        }
+        return primes;
+    }
+
+    private static void extend(ActivityGraph graph, List<Integer> path, List<List<String>> out) {
+        List<String> ids = new ArrayList<>();
+        for (int v : path) {
+            ids.add(graph.getNode(v).getId());
+        }
+        out.add(ids);
+        int last = path.get(path.size() - 1);
+        if (path.size() > 1 && last == path.get(0)) {
+            return; // 环已闭合
+        }
+        for (int i = 0; i < graph.getOutDegree(last); i++) {
+            int next = graph.getEdge(graph.getOutEdge(last, i)).getTarget();
+            if (!path.contains(next) || next == path.get(0)) {
+                path.add(next);
+                extend(graph, path, out);
+                path.remove(path.size() - 1);
+            }
+        }
+    }
+
+    private static boolean covered(Result result, List<String> requirement) {
+        for (TestPath path : result.getPaths()) {
+            if (Collections.indexOfSubList(path.getNodeIds(), requirement) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<List<String>> distinct(Result result) {
+        Set<List<String>> paths = new HashSet<>();
+        for (TestPath path : result.getPaths()) {
+            paths.add(path.getNodeIds());
+        }
+        return paths;
+    }
+
+    private static boolean completed(Result result) {
+        for (TestPath path : result.getPaths()) {
+            if (path.getOutcome() != Outcome.COMPLETED) {
+                return false;
+            }
+        }
+        return !result.getPaths().isEmpty();
+    }
+
+    private static ActivityDiagramManager manager() {
+        ActivityDiagramManager manager = new ActivityDiagramManager("PathModel", "PathActivity");
+        manager.setVerbose(false);
+        manager.createInitialNode("start");
+        manager.createFinalNode("end");
+        return manager;
+    }
+
+    /**
+     * 按"源>目标"创建控制流
+     */
+    private static void flows(ActivityDiagramManager manager, String... edges) {
+        for (String edge : edges) {
+            String[] ends = edge.split(">");
+            manager.createControlFlow(ends[0] + "_" + ends[1], ends[0], ends[1], null);
+        }
+    }
+}
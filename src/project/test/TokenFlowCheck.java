@@ -0,0 +1,113 @@
+package project.test;
+
+import project.analysis.TokenFlowSimulator;
+import project.analysis.TokenFlowSimulator.Outcome;
+import project.analysis.TokenFlowSimulator.Report;
+import project.graph.ActivityGraph;
+import project.rules.ActivityDiagramManager;
+
+import java.util.*;
+
+/**
+ * 令牌流模拟器检查
+ * 在几个手工构造的小图上核对执行结果：决策后接汇合必然死锁，分叉后一支可能流终止时部分执行死锁，
+ * 孤立的节点不可达，有出口的循环总能完成、没有出口的循环超出步数；结果与线程数无关，重放与统计一致。
+ */
+public class TokenFlowCheck {
+
+    private static final int RUNS = 2000;
+
+    public static void main(String[] args) {
+        Checks checks = new Checks("令牌流模拟器检查");
+
+        // 初始→决策→(a|b)→汇合→终止：汇合只会收到一个令牌
+        ActivityDiagramManager choice = manager();
+        choice.createDecisionNode("d");
+        choice.createOpaqueAction("a", "A");
+        choice.createOpaqueAction("b", "B");
+        choice.createJoinNode("join");
+        flows(choice, "start>d", "d>a", "d>b", "a>join", "b>join", "join>end");
+        ActivityGraph choiceGraph = ActivityGraph.fromManager(choice);
+        Report always = new TokenFlowSimulator(choiceGraph).setSeed(1).run(RUNS);
+        checks.expectEquals((long) RUNS, always.getCount(Outcome.DEADLOCK), "决策后接汇合：每次执行都死锁");
+        checks.expectEquals(Collections.singletonList("join"), ids(always.getDeadlockNodes()), "死锁发生在汇合节点");
+        checks.expect(!always.isSound(), "有死锁的图不是sound");
+        checks.expect(always.getNeverExecuted().contains(choiceGraph.getNodeById("end")), "终止节点从未执行");
+
+        // 初始→分叉→(a, b)；a→决策→(汇合 | 流终止)；b→汇合→终止：决策选流终止时死锁
+        ActivityDiagramManager partial = manager();
+        partial.createForkNode("fork");
+        partial.createOpaqueAction("a", "A");
+        partial.createOpaqueAction("b", "B");
+        partial.createDecisionNode("d");
+        partial.createFlowFinalNode("ff");
+        partial.createJoinNode("join");
+        partial.createOpaqueAction("orphan", "Orphan");
+        flows(partial, "start>fork", "fork>a", "fork>b", "a>d", "d>join", "d>ff", "b>join", "join>end", "orphan>end");
+        ActivityGraph partialGraph = ActivityGraph.fromManager(partial);
+        Report sometimes = new TokenFlowSimulator(partialGraph).setSeed(7).setThreads(1).run(RUNS);
+        long deadlocks = sometimes.getCount(Outcome.DEADLOCK);
+        checks.expect(deadlocks > 0 && sometimes.getCount(Outcome.COMPLETED) > 0
+                        && deadlocks + sometimes.getCount(Outcome.COMPLETED) == RUNS,
+                "分叉后一支可能流终止：完成 " + sometimes.getCount(Outcome.COMPLETED) + " 次，死锁 " + deadlocks + " 次");
+        checks.expectEquals(deadlocks, sometimes.getStuckCount(partialGraph.getNodeById("join")), "每次死锁都卡在汇合节点");
+        checks.expectEquals(Collections.singletonList("orphan"), ids(sometimes.getUnreachable()), "孤立节点报告为不可达");
+        checks.expect(!sometimes.getNeverExecuted().contains(partialGraph.getNodeById("orphan")),
+                "不可达节点不计入从未执行");
+
+        Report parallel = new TokenFlowSimulator(partialGraph).setSeed(7).setThreads(4).run(RUNS);
+        checks.expect(deadlocks == parallel.getCount(Outcome.DEADLOCK)
+                        && sometimes.getDistinctPaths() == parallel.getDistinctPaths(),
+                "相同种子下结果与线程数无关");
+
+        long example = sometimes.getExampleRun(Outcome.DEADLOCK);
+        List<String> replay = new TokenFlowSimulator(partialGraph).setSeed(7).replay(example);
+        checks.expect(replay.contains("d->ff") && !replay.contains("join"),
+                "重放死锁的执行：决策选择了流终止，汇合没有触发 " + replay);
+
+        // 初始→a→决策→(a | 终止)：有出口的循环
+        ActivityDiagramManager loop = manager();
+        loop.createOpaqueAction("a", "A");
+        loop.createDecisionNode("d");
+        flows(loop, "start>a", "a>d", "d>a", "d>end");
+        Report exits = new TokenFlowSimulator(ActivityGraph.fromManager(loop)).setSeed(3).run(RUNS);
+        checks.expect(exits.isSound() && exits.getCount(Outcome.COMPLETED) == RUNS, "有出口的循环每次都完成");
+        checks.expect(exits.getDistinctPaths() > 1, "循环次数不同的执行是不同的路径（" + exits.getDistinctPaths() + " 条）");
+
+        // 初始→a→b→a：没有出口的循环
+        ActivityDiagramManager endless = manager();
+        endless.createOpaqueAction("a", "A");
+        endless.createOpaqueAction("b", "B");
+        flows(endless, "start>a", "a>b", "b>a");
+        Report spins = new TokenFlowSimulator(ActivityGraph.fromManager(endless)).setMaxSteps(500).run(100);
+        checks.expectEquals(100L, spins.getCount(Outcome.STEP_LIMIT), "没有出口的循环超出步数上限");
+
+        checks.finish();
+    }
+
+    private static ActivityDiagramManager manager() {
+        ActivityDiagramManager manager = new ActivityDiagramManager("SimModel", "SimActivity");
+        manager.setVerbose(false);
+        manager.createInitialNode("start");
+        manager.createFinalNode("end");
+        return manager;
+    }
+
+    /**
+     * 按"源>目标"创建控制流
+     */
+    private static void flows(ActivityDiagramManager manager, String... edges) {
+        for (String edge : edges) {
+            String[] ends = edge.split(">");
+            manager.createControlFlow(ends[0] + "_" + ends[1], ends[0], ends[1], null);
+        }
+    }
+
+    private static List<String> ids(List<ActivityGraph.Node> nodes) {
+        List<String> ids = new ArrayList<>();
+        for (ActivityGraph.Node node : nodes) {
+            ids.add(node.getId());
+        }
+        return ids;
+    }
+}
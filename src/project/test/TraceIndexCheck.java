@@ -0,0 +1,106 @@
+package project.test;
+
+import project.rules.ActivityDiagramManager;
+import project.rules.UCMetaToActivityTransformer;
+import project.trace.TraceIndex;
+import project.trace.TraceRecorder;
+import project.ucmeta.UCMetaModel.SentenceType;
+import project.ucmeta.UCMetaParser;
+import project.ucmeta.UseCaseGenerator;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * 追溯索引sidecar往返检查
+ * 转换后的追溯记录写成.trace文件，内存映射读回后，每个句子的节点/边ID和每个元素所属的句子都与记录一致，
+ * 元素ID都能在管理器中找到；未知的ID查不到，损坏的文件被拒绝。合成用例元素多，覆盖哈希表的线性探测。
+ */
+public class TraceIndexCheck {
+
+    public static void main(String[] args) throws Exception {
+        Checks checks = new Checks("追溯索引往返检查");
+        Path dir = Files.createTempDirectory("trace-check");
+        try {
+            ActivityDiagramManager shopping = transform(UCMetaParser.createOnlineShoppingUseCase());
+            Path file = dir.resolve("shopping_activity_detailed.uml" + TraceIndex.EXTENSION);
+            TraceIndex.write(shopping.getTrace(), file);
+            TraceIndex index = TraceIndex.open(file);
+            check(checks, "购物用例", shopping, index);
+
+            // README中的例子：循环句的决策节点映射回它的句子，句子映射到包含该节点的ID列表
+            String sentenceId = index.getSentenceId("loop_decision_shop_step4");
+            checks.expectEquals("shop_step4", sentenceId, "loop_decision_shop_step4来自句子shop_step4");
+            checks.expect(index.getNodeIds("shop_step4").contains("loop_decision_shop_step4"),
+                    "句子shop_step4的节点中有loop_decision_shop_step4");
+            checks.expect(TraceIndex.sidecar(dir.resolve("shopping_activity_detailed.uml")).equals(file),
+                    "sidecar路径为输出文件名加.trace");
+            shopping.dispose();
+
+            UseCaseGenerator generator = new UseCaseGenerator(11).setSentenceCount(300).setMaxDepth(3)
+                    .setWeight(SentenceType.CONDITIONAL, 20).setWeight(SentenceType.ITERATIVE, 20);
+            ActivityDiagramManager generated = transform(generator.generate(0));
+            TraceIndex fromBytes = new TraceIndex(ByteBuffer.wrap(TraceIndex.toBytes(generated.getTrace())));
+            check(checks, "合成用例", generated, fromBytes);
+            generated.dispose();
+
+            String rejected = null;
+            try {
+                new TraceIndex(ByteBuffer.wrap("not a trace index".getBytes(StandardCharsets.UTF_8)));
+            } catch (IllegalArgumentException e) {
+                rejected = e.getMessage();
+            }
+            checks.expect(rejected != null, "不是追溯索引的数据被拒绝");
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        checks.finish();
+    }
+
+    private static ActivityDiagramManager transform(project.ucmeta.UCMetaModel.UseCase useCase) {
+        ActivityDiagramManager manager = new UCMetaToActivityTransformer(true).transformUseCase(useCase);
+        manager.setVerbose(false);
+        return manager;
+    }
+
+    private static void check(Checks checks, String name, ActivityDiagramManager manager, TraceIndex index) {
+        TraceRecorder trace = manager.getTrace();
+        int records = 0;
+        int listMismatches = 0;
+        int sentenceMismatches = 0;
+        int missingElements = 0;
+        for (String sentenceId : trace.getSentenceIds()) {
+            records++;
+            if (!index.containsSentence(sentenceId)
+                    || !index.getNodeIds(sentenceId).equals(trace.getNodeIds(sentenceId))
+                    || !index.getEdgeIds(sentenceId).equals(trace.getEdgeIds(sentenceId))) {
+                listMismatches++;
+            }
+            for (String nodeId : trace.getNodeIds(sentenceId)) {
+                records++;
+                sentenceMismatches += sentenceId.equals(index.getSentenceId(nodeId)) ? 0 : 1;
+                missingElements += manager.getNodeById(nodeId) != null ? 0 : 1;
+            }
+            for (String edgeId : trace.getEdgeIds(sentenceId)) {
+                records++;
+                sentenceMismatches += sentenceId.equals(index.getSentenceId(edgeId)) ? 0 : 1;
+                missingElements += manager.getEdgeById(edgeId) != null ? 0 : 1;
+            }
+        }
+        checks.expect(records > trace.getSentenceIds().size(), name + "：有 " + trace.getSentenceIds().size()
+                + " 个句子、" + (records - trace.getSentenceIds().size()) + " 个元素的记录");
+        checks.expectEquals(records, index.size(), name + "：索引的记录数与追溯记录一致");
+        checks.expectEquals(0, listMismatches, name + "：每个句子读回的节点ID和边ID与记录一致");
+        checks.expectEquals(0, sentenceMismatches, name + "：每个元素ID读回创建它的句子");
+        checks.expectEquals(0, missingElements, name + "：索引中的元素ID都是管理器中的节点或边");
+        checks.expect(!index.containsSentence("no_such_sentence") && index.getNodeIds("no_such_sentence").isEmpty()
+                && index.getSentenceId("no_such_element") == null, name + "：未知的ID查不到");
+    }
+}
@@ -0,0 +1,117 @@
+package project.test;
+
+import org.eclipse.uml2.uml.Activity;
+import org.eclipse.uml2.uml.ActivityNode;
+import org.eclipse.uml2.uml.CallOperationAction;
+import org.eclipse.uml2.uml.Model;
+import org.eclipse.uml2.uml.Package;
+import org.eclipse.uml2.uml.PackageableElement;
+import org.eclipse.uml2.uml.Pin;
+import org.eclipse.uml2.uml.PrimitiveType;
+import org.eclipse.uml2.uml.Type;
+import project.rules.ActivityDiagramManager;
+import project.rules.CorpusModel;
+import project.rules.TypeRegistry;
+import project.rules.UCMetaToActivityTransformer;
+import project.ucmeta.UCMetaModel.*;
+
+import java.util.*;
+
+/**
+ * Pin类型表检查
+ * Boolean、String、Integer、Real映射为PrimitiveType，其余名称映射为Class；同名类型只创建一次，放在模型的Types包中；
+ * 语料模型中不同用例的Pin引用同一个类型对象。
+ */
+public class TypeRegistryCheck {
+
+    public static void main(String[] args) {
+        Checks checks = new Checks("Pin类型表检查");
+
+        ActivityDiagramManager manager = new ActivityDiagramManager("TypeModel", "TypeActivity");
+        manager.setVerbose(false);
+        TypeRegistry registry = manager.getTypeRegistry();
+        for (String name : new String[]{"Boolean", "String", "Integer", "Real"}) {
+            checks.expect(registry.getType(name) instanceof PrimitiveType, name + "映射为PrimitiveType");
+        }
+        for (String name : new String[]{"Order", "boolean", "Date"}) {
+            Type type = registry.getType(name);
+            checks.expect(type instanceof org.eclipse.uml2.uml.Class && !(type instanceof PrimitiveType), name + "映射为Class");
+        }
+        checks.expect(registry.getType(null) == null && registry.getType("") == null, "空的类型名没有类型");
+        checks.expect(registry.getType("Order") == registry.getType("Order"), "同名类型两次查找得到同一个对象");
+        checks.expectEquals(7, registry.size(), "7个类型名各创建一次");
+        checks.expectEquals(7, typeCount(manager.getModel()), "模型中只有一个Types包，其中有7个类型");
+        checks.expectEquals(TypeRegistry.PACKAGE_NAME, manager.getCustomId(typesPackage(manager.getModel())),
+                "Types包的自定义ID为" + TypeRegistry.PACKAGE_NAME);
+        checks.expectEquals("type_Order", manager.getCustomId(registry.getType("Order")), "类型的自定义ID为type_加类型名");
+        manager.dispose();
+
+        // 语料模型中两个用例都用到Order和条件检查的Boolean
+        CorpusModel corpus = new CorpusModel("Corpus", true);
+        corpus.setVerbose(false);
+        UCMetaToActivityTransformer transformer = new UCMetaToActivityTransformer(true);
+        List<ActivityDiagramManager> managers = new ArrayList<>();
+        for (String name : new String[]{"PlaceOrder", "CancelOrder"}) {
+            UseCase useCase = new UseCase(name);
+            useCase.getMainFlow().add(new SimpleSentence(name + "_s1", "Enter order", "Customer", "enter", "Order",
+                    TransactionType.INITIATION));
+            ConditionCheckSentence check = new ConditionCheckSentence(name + "_s2", "Validate order", "order invalid");
+            check.getAlternativeFlow().add(new SimpleSentence(name + "_s3", "Fix order", "Customer", "fix", "Order",
+                    TransactionType.INTERNAL_TRANSACTION));
+            useCase.getMainFlow().add(check);
+            managers.add(transformer.transformUseCase(useCase, corpus));
+        }
+        Map<String, Set<Type>> byName = new TreeMap<>();
+        int pins = 0;
+        for (ActivityDiagramManager used : managers) {
+            checks.expect(used.getTypeRegistry() == corpus.getTypeRegistry(), used.getActivity().getName() + "使用语料模型的类型表");
+            for (Pin pin : pins(used.getActivity())) {
+                pins++;
+                byName.computeIfAbsent(pin.getType().getName(), k -> Collections.newSetFromMap(new IdentityHashMap<>()))
+                        .add(pin.getType());
+            }
+        }
+        checks.expectEquals(new HashSet<>(Arrays.asList("Boolean", "Order")), byName.keySet(), pins + " 个Pin的类型为Boolean和Order");
+        boolean sharedTypes = true;
+        for (Map.Entry<String, Set<Type>> entry : byName.entrySet()) {
+            sharedTypes &= entry.getValue().size() == 1
+                    && entry.getValue().contains(corpus.getTypeRegistry().getType(entry.getKey()));
+        }
+        checks.expect(sharedTypes, "两个用例中同名的Pin引用同一个类型对象");
+        checks.expectEquals(2, typeCount(corpus.getModel()), "语料模型只有一个Types包，其中每个类型一个");
+        corpus.dispose();
+
+        checks.finish();
+    }
+
+    /**
+     * 唯一的Types包中的类型数，没有或有多个Types包时为-1
+     */
+    private static int typeCount(Model model) {
+        Package types = typesPackage(model);
+        return types != null ? types.getPackagedElements().size() : -1;
+    }
+
+    private static Package typesPackage(Model model) {
+        Package found = null;
+        int count = 0;
+        for (PackageableElement element : model.getPackagedElements()) {
+            if (element instanceof Package && TypeRegistry.PACKAGE_NAME.equals(element.getName())) {
+                found = (Package) element;
+                count++;
+            }
+        }
+        return count == 1 ? found : null;
+    }
+
+    private static List<Pin> pins(Activity activity) {
+        List<Pin> pins = new ArrayList<>();
+        for (ActivityNode node : activity.getNodes()) {
+            if (node instanceof CallOperationAction) {
+                pins.addAll(((CallOperationAction) node).getArguments());
+                pins.addAll(((CallOperationAction) node).getResults());
+            }
+        }
+        return pins;
+    }
+}
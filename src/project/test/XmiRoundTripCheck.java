@@ -0,0 +1,151 @@
+package project.test;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.eclipse.uml2.uml.Activity;
+import org.eclipse.uml2.uml.resources.util.UMLResourcesUtil;
+import project.analysis.StructuralHash;
+import project.graph.ActivityGraph;
+import project.rules.ActivityDiagramManager;
+import project.rules.UCMetaToActivityTransformer;
+import project.ucmeta.UCMetaModel.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * 保存→重新加载往返检查
+ * 用例名和步骤ID含空格、冒号时，保存的文件应能被新的资源集加载，所有xmi:id都是NCName，
+ * 重新加载的每个活动与内存中的结构哈希一致；替换输出文件不改变其权限。
+ */
+public class XmiRoundTripCheck {
+
+    private static final Pattern NC_NAME = Pattern.compile("[\\p{L}_][\\p{L}\\p{N}\\p{M}_.-]*");
+
+    public static void main(String[] args) throws Exception {
+        Checks checks = new Checks("XMI往返检查");
+        Path dir = Files.createTempDirectory("xmi-roundtrip");
+        try {
+            File file = dir.resolve("User Login_detailed.uml").toFile();
+            // 细节层级0：备选流折叠为子活动，往返也覆盖同一文件中的多个活动
+            ActivityDiagramManager manager = new UCMetaToActivityTransformer(0).transformUseCase(createUseCase("User Login"));
+            manager.setVerbose(false);
+            manager.saveToFile(file.getPath());
+
+            Resource resource = null;
+            String loadError = null;
+            try {
+                resource = load(file);
+            } catch (RuntimeException e) {
+                loadError = e.toString();
+            }
+            checks.expect(loadError == null, "新的资源集能加载保存的文件" + (loadError != null ? "：" + loadError : ""));
+            if (resource != null) {
+                checks.expect(resource.getErrors().isEmpty(), "加载时没有未解析的引用: " + resource.getErrors());
+                checkIds(checks, (XMLResource) resource);
+                checkStructure(checks, manager, resource);
+            }
+            checkPermissions(checks, dir, file);
+            manager.dispose();
+        } finally {
+            for (File child : Objects.requireNonNull(dir.toFile().listFiles())) {
+                Files.delete(child.toPath());
+            }
+            Files.delete(dir);
+        }
+        checks.finish();
+    }
+
+    private static Resource load(File file) {
+        ResourceSet resourceSet = new ResourceSetImpl();
+        UMLResourcesUtil.init(resourceSet);
+        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("uml", new XMIResourceFactoryImpl());
+        return resourceSet.getResource(URI.createFileURI(file.getAbsolutePath()), true);
+    }
+
+    private static void checkIds(Checks checks, XMLResource resource) {
+        List<String> invalid = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        int duplicates = 0;
+        for (Iterator<EObject> it = resource.getAllContents(); it.hasNext(); ) {
+            String id = resource.getID(it.next());
+            if (id == null) {
+                continue;
+            }
+            if (!NC_NAME.matcher(id).matches()) {
+                invalid.add(id);
+            }
+            if (!seen.add(id)) {
+                duplicates++;
+            }
+        }
+        checks.expect(invalid.isEmpty(), "所有xmi:id都是NCName" + (invalid.isEmpty() ? "" : "，非法: " + invalid));
+        checks.expectEquals(0, duplicates, "xmi:id没有重复");
+    }
+
+    private static void checkStructure(Checks checks, ActivityDiagramManager manager, Resource resource) {
+        Map<String, Long> expected = new TreeMap<>();
+        expected.put(manager.getActivity().getName(), StructuralHash.of(ActivityGraph.fromManager(manager)).getRootHash());
+        for (Activity sub : manager.getSubActivities()) {
+            expected.put(sub.getName(), StructuralHash.of(ActivityGraph.fromActivity(sub, manager::getCustomId)).getRootHash());
+        }
+        Map<String, Long> actual = new TreeMap<>();
+        for (Iterator<EObject> it = resource.getAllContents(); it.hasNext(); ) {
+            EObject element = it.next();
+            if (element instanceof Activity) {
+                actual.put(((Activity) element).getName(), StructuralHash.of(ActivityGraph.fromActivity((Activity) element)).getRootHash());
+            }
+        }
+        checks.expect(expected.size() > 1, "用例生成了主活动和子活动（" + expected.size() + " 个）");
+        checks.expectEquals(expected, actual, "重新加载的各活动与内存中的结构哈希一致");
+    }
+
+    /**
+     * 新文件的权限与直接创建的文件相同（由umask决定）；已存在的文件被替换后保持原有权限
+     */
+    private static void checkPermissions(Checks checks, Path dir, File file) throws Exception {
+        if (!Files.getFileStore(dir).supportsFileAttributeView("posix")) {
+            System.out.println("  ⏭ 文件系统不支持POSIX权限，跳过权限检查");
+            return;
+        }
+        Path reference = Files.createFile(dir.resolve("reference.txt"));
+        checks.expectEquals(PosixFilePermissions.toString(Files.getPosixFilePermissions(reference)),
+                PosixFilePermissions.toString(Files.getPosixFilePermissions(file.toPath())), "新输出文件的权限与普通新建文件相同");
+
+        Set<PosixFilePermission> custom = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(file.toPath(), custom);
+        ActivityDiagramManager changed = new UCMetaToActivityTransformer(true).transformUseCase(createUseCase("User Login"));
+        changed.setVerbose(false);
+        checks.expect(changed.saveToFile(file.getPath()).isWritten(), "内容变化时重新写入");
+        checks.expectEquals("rw-r-----", PosixFilePermissions.toString(Files.getPosixFilePermissions(file.toPath())),
+                "替换后保持原有权限");
+        changed.dispose();
+    }
+
+    private static UseCase createUseCase(String name) {
+        UseCase useCase = new UseCase(name);
+        useCase.getPreconditions().add("User is not logged in");
+        useCase.getPostconditions().add("User is logged in");
+        useCase.getMainFlow().add(new SimpleSentence("step 1", "User enters credentials", "User", "enter", "Login Form",
+                TransactionType.INITIATION));
+        ConditionCheckSentence check = new ConditionCheckSentence("step 2", "System validates credentials", "valid credentials");
+        check.getAlternativeFlow().add(new SimpleSentence("alt:1", "System shows an error", "System", "show", "Error Message",
+                TransactionType.RESPONSE_TO_PRIMARY_ACTOR));
+        check.getAlternativeFlow().add(new SimpleSentence("alt:2", "User re-enters credentials", "User", "enter", "Login Form",
+                TransactionType.INTERNAL_TRANSACTION));
+        useCase.getMainFlow().add(check);
+        useCase.getMainFlow().add(new SimpleSentence("step 3", "System shows the home page", "System", "show", "Home Page",
+                TransactionType.RESPONSE_TO_PRIMARY_ACTOR));
+        return useCase;
+    }
+}
@@ -0,0 +1,251 @@
+package project.trace;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 追溯索引的sidecar文件（输出文件名加.trace）- 开放寻址哈希表，内存映射后直接查询
+ * 文件结构：头部 [magic][版本][槽数][条目数]，槽数组（每槽 [哈希][记录偏移]，偏移0为空槽），然后是记录。
+ * 两类记录：句子记录 'S' 键为句子ID，值为节点ID和边ID列表；元素记录 'E' 键为节点/边ID，值为创建它的句子ID。
+ * 查询按键的FNV-1a哈希线性探测，负载因子不超过0.5，期望常数次比较，不需要把文件读入堆中。
+ */
+public class TraceIndex {
+
+    public static final String EXTENSION = ".trace";
+
+    private static final int MAGIC = 0x55435452; // "UCTR"
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int SLOT_BYTES = 8;
+    private static final byte SENTENCE = 'S';
+    private static final byte ELEMENT = 'E';
+
+    private final ByteBuffer buffer;
+    private final int slotMask;
+    private final int entries;
+
+    /**
+     * 从映射内存或字节数组读取（例如ActivityStore返回的数据）
+     */
+    public TraceIndex(ByteBuffer buffer) {
+        this.buffer = buffer.slice();
+        if (this.buffer.remaining() < HEADER_BYTES || this.buffer.getInt(0) != MAGIC || this.buffer.getShort(4) != VERSION) {
+            throw new IllegalArgumentException("Not a trace index");
+        }
+        int slots = this.buffer.getInt(8);
+        if (Integer.bitCount(slots) != 1 || HEADER_BYTES + (long) slots * SLOT_BYTES > this.buffer.limit()) {
+            throw new IllegalArgumentException("Corrupt trace index");
+        }
+        this.slotMask = slots - 1;
+        this.entries = this.buffer.getInt(12);
+    }
+
+    /**
+     * 内存映射打开sidecar文件
+     */
+    public static TraceIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new TraceIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /** 输出文件对应的sidecar路径 */
+    public static Path sidecar(Path outputFile) {
+        return outputFile.resolveSibling(outputFile.getFileName() + EXTENSION);
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * 句子创建的节点ID；未知句子返回空列表
+     */
+    public List<String> getNodeIds(String sentenceId) {
+        int record = find(SENTENCE, sentenceId);
+        return record < 0 ? Collections.<String>emptyList() : readIds(skipKey(record), 0);
+    }
+
+    /**
+     * 句子创建的边ID；未知句子返回空列表
+     */
+    public List<String> getEdgeIds(String sentenceId) {
+        int record = find(SENTENCE, sentenceId);
+        return record < 0 ? Collections.<String>emptyList() : readIds(skipKey(record), 1);
+    }
+
+    /**
+     * 创建该节点或边的句子ID，不是由句子创建的元素返回null
+     */
+    public String getSentenceId(String elementId) {
+        int record = find(ELEMENT, elementId);
+        return record < 0 ? null : readString(skipKey(record));
+    }
+
+    public boolean containsSentence(String sentenceId) {
+        return find(SENTENCE, sentenceId) >= 0;
+    }
+
+    /** 句子和元素记录的总数 */
+    public int size() {
+        return entries;
+    }
+
+    private int find(byte kind, String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(kind, bytes);
+        for (int probe = 0; probe <= slotMask; probe++) {
+            int slot = HEADER_BYTES + ((hash + probe) & slotMask) * SLOT_BYTES;
+            int record = buffer.getInt(slot + 4);
+            if (record == 0) {
+                return -1;
+            }
+            if (buffer.getInt(slot) == hash && keyEquals(record, kind, bytes)) {
+                return record;
+            }
+        }
+        return -1;
+    }
+
+    private boolean keyEquals(int record, byte kind, byte[] key) {
+        if (buffer.get(record) != kind || (buffer.getShort(record + 1) & 0xffff) != key.length) {
+            return false;
+        }
+        int start = record + 3;
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(start + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int skipKey(int record) {
+        return record + 3 + (buffer.getShort(record + 1) & 0xffff);
+    }
+
+    /** 句子记录的值为 [节点数][边数] 后接各ID；list为0取节点，1取边 */
+    private List<String> readIds(int position, int list) {
+        int nodeCount = buffer.getInt(position);
+        int edgeCount = buffer.getInt(position + 4);
+        position += 8;
+        if (list == 1) {
+            for (int i = 0; i < nodeCount; i++) {
+                position += 2 + (buffer.getShort(position) & 0xffff);
+            }
+        }
+        int count = list == 0 ? nodeCount : edgeCount;
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(readString(position));
+            position += 2 + (buffer.getShort(position) & 0xffff);
+        }
+        return ids;
+    }
+
+    private String readString(int position) {
+        int length = buffer.getShort(position) & 0xffff;
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + 2);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 将追溯记录写为sidecar文件，先写临时文件再原子替换
+     */
+    public static void write(TraceRecorder trace, Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, toBytes(trace));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static byte[] toBytes(TraceRecorder trace) throws IOException {
+        int count = 0;
+        for (String sentenceId : trace.getSentenceIds()) {
+            count += 1 + trace.getNodeIds(sentenceId).size() + trace.getEdgeIds(sentenceId).size();
+        }
+        int slots = Integer.highestOneBit(Math.max(8, count * 2 - 1)) << 1;
+        int recordsStart = HEADER_BYTES + slots * SLOT_BYTES;
+        ByteBuffer table = ByteBuffer.allocate(recordsStart);
+        table.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putInt(slots).putInt(count);
+
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(records);
+        for (String sentenceId : trace.getSentenceIds()) {
+            List<String> nodeIds = trace.getNodeIds(sentenceId);
+            List<String> edgeIds = trace.getEdgeIds(sentenceId);
+            insert(table, slots, SENTENCE, sentenceId, recordsStart + out.size());
+            writeKey(out, SENTENCE, sentenceId);
+            out.writeInt(nodeIds.size());
+            out.writeInt(edgeIds.size());
+            for (String id : nodeIds) {
+                writeString(out, id);
+            }
+            for (String id : edgeIds) {
+                writeString(out, id);
+            }
+            for (List<String> ids : Arrays.asList(nodeIds, edgeIds)) {
+                for (String id : ids) {
+                    insert(table, slots, ELEMENT, id, recordsStart + out.size());
+                    writeKey(out, ELEMENT, id);
+                    writeString(out, sentenceId);
+                }
+            }
+        }
+        out.flush();
+        byte[] result = new byte[recordsStart + records.size()];
+        System.arraycopy(table.array(), 0, result, 0, recordsStart);
+        System.arraycopy(records.toByteArray(), 0, result, recordsStart, records.size());
+        return result;
+    }
+
+    private static void insert(ByteBuffer table, int slots, byte kind, String key, int record) {
+        int hash = hash(kind, key.getBytes(StandardCharsets.UTF_8));
+        for (int probe = 0; ; probe++) {
+            int slot = HEADER_BYTES + ((hash + probe) & (slots - 1)) * SLOT_BYTES;
+            if (table.getInt(slot + 4) == 0) {
+                table.putInt(slot, hash);
+                table.putInt(slot + 4, record);
+                return;
+            }
+        }
+    }
+
+    private static void writeKey(DataOutputStream out, byte kind, String key) throws IOException {
+        out.writeByte(kind);
+        writeString(out, key);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xffff) {
+            throw new IllegalArgumentException("Id too long: " + value.substring(0, 32) + "...");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /** FNV-1a，种类字节参与哈希，句子ID与元素ID互不冲突 */
+    private static int hash(byte kind, byte[] key) {
+        int hash = 0x811c9dc5;
+        hash = (hash ^ (kind & 0xff)) * 0x01000193;
+        for (byte b : key) {
+            hash = (hash ^ (b & 0xff)) * 0x01000193;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,69 @@
+package project.trace;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 转换过程中的追溯记录：句子ID -> 该句子的规则创建的节点和边的自定义ID
+ * 转换器处理句子时压栈，管理器创建元素时记到栈顶（最内层）句子下；
+ * 复合句只记录它自己创建的决策/合并/分叉节点和连接边，子句创建的元素记在子句下。
+ * 句子之外创建的元素（初始/最终节点、全局备选流的事件节点）不记录。
+ */
+public class TraceRecorder {
+
+    private final Deque<String> stack = new ArrayDeque<>();
+    private final Map<String, List<String>> nodes = new LinkedHashMap<>();
+    private final Map<String, List<String>> edges = new LinkedHashMap<>();
+
+    /**
+     * 开始处理一个句子，之后创建的元素记在该句子下，直到对应的end
+     */
+    public void begin(String sentenceId) {
+        stack.push(sentenceId);
+        nodes.computeIfAbsent(sentenceId, id -> new ArrayList<>());
+        edges.computeIfAbsent(sentenceId, id -> new ArrayList<>());
+    }
+
+    public void end() {
+        stack.pop();
+    }
+
+    public void recordNode(String nodeId) {
+        String sentenceId = stack.peek();
+        if (sentenceId != null) {
+            nodes.get(sentenceId).add(nodeId);
+        }
+    }
+
+    public void recordEdge(String edgeId) {
+        String sentenceId = stack.peek();
+        if (sentenceId != null) {
+            edges.get(sentenceId).add(edgeId);
+        }
+    }
+
+    /** 按处理顺序的句子ID */
+    public Set<String> getSentenceIds() {
+        return Collections.unmodifiableSet(nodes.keySet());
+    }
+
+    public List<String> getNodeIds(String sentenceId) {
+        return Collections.unmodifiableList(nodes.getOrDefault(sentenceId, Collections.emptyList()));
+    }
+
+    public List<String> getEdgeIds(String sentenceId) {
+        return Collections.unmodifiableList(edges.getOrDefault(sentenceId, Collections.emptyList()));
+    }
+
+    public void clear() {
+        stack.clear();
+        nodes.clear();
+        edges.clear();
+    }
+}
@@ -2,9 +2,40 @@ package project.ucmeta;
 
 import project.ucmeta.UCMetaModel.*;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * UCMeta解析器 - 用于创建示例UCMeta数据
- * 在实际项目中，这里应该从文件或数据库中解析UCMeta数据
+ * UCMeta解析器 - 用于创建示例UCMeta数据，以及解析.ucm文本规格文件
+ *
+ * .ucm格式按缩进表示嵌套，一个文件可包含多个用例，#开头的行为注释：
+ * <pre>
+ * usecase UserLogin
+ *   description 用户登录系统的用例
+ *   pre 系统已启动
+ *   post 用户已成功登录
+ *   main
+ *     simple step1 INITIATION | 用户 | 输入 | 登录信息 | 用户输入用户名和密码
+ *     check step2 用户信息有效 | 系统验证用户信息
+ *       simple alt1 RESPONSE_TO_PRIMARY_ACTOR | 系统 | 显示 | 错误信息 | 系统显示错误信息
+ *     if step3 条件 | 内容          （子块为then、elseif 条件、else）
+ *     parallel step4 内容           （子块为branch）
+ *     loop step5 条件 | 内容
+ *     include step6 被包含用例 | 内容
+ *     extend step7 扩展用例 | 内容
+ *     abort step8 内容
+ *     resume step9 目标步骤ID | 内容
+ *   alt a1 条件                     （用例级备选流）
+ *   on 触发事件                      （全局备选流）
+ * </pre>
+ * 字段以|分隔，字段中的|、\和换行分别写作\|、\\和\n。UCMetaWriter输出同一格式。
  */
 public class UCMetaParser {
     
@@ -303,4 +334,314 @@ public class UCMetaParser {
         
         return uploadUseCase;
     }
+    
+    /**
+     * 解析.ucm规格文件（UTF-8）
+     */
+    public static List<UseCase> parseFile(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(reader, file.toString());
+        }
+    }
+    
+    /**
+     * 解析.ucm文本
+     */
+    public static List<UseCase> parse(String text, String sourceName) {
+        try {
+            return parse(new StringReader(text), sourceName);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * 解析.ucm文本，格式错误时抛出带文件名和行号的IllegalArgumentException
+     */
+    public static List<UseCase> parse(Reader reader, String sourceName) throws IOException {
+        List<SpecLine> lines = new ArrayList<>();
+        BufferedReader buffered = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        String raw;
+        int number = 0;
+        while ((raw = buffered.readLine()) != null) {
+            number++;
+            if (number == 1 && raw.startsWith("\uFEFF")) {
+                raw = raw.substring(1);
+            }
+            String trimmed = raw.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            int indent = 0;
+            for (int i = 0; raw.charAt(i) == ' ' || raw.charAt(i) == '\t'; i++) {
+                indent += raw.charAt(i) == '\t' ? 4 : 1;
+            }
+            lines.add(new SpecLine(sourceName, number, indent, trimmed));
+        }
+        return new SpecReader(lines).readUseCases();
+    }
+    
+    /**
+     * .ucm文件中的一个非空行
+     */
+    private static final class SpecLine {
+        final String source;
+        final int number;
+        final int indent;
+        final String keyword;
+        final String rest;
+        
+        SpecLine(String source, int number, int indent, String text) {
+            this.source = source;
+            this.number = number;
+            this.indent = indent;
+            int space = text.indexOf(' ');
+            this.keyword = space < 0 ? text : text.substring(0, space);
+            this.rest = space < 0 ? "" : text.substring(space + 1).trim();
+        }
+        
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(source + ":" + number + ": " + message);
+        }
+        
+        /** 第一个空白前的标识符（句子ID），其后为字段 */
+        String id() {
+            int space = rest.indexOf(' ');
+            String id = space < 0 ? rest : rest.substring(0, space);
+            if (id.isEmpty()) {
+                throw error("missing sentence id after '" + keyword + "'");
+            }
+            return id;
+        }
+        
+        /** 句子ID之后的count个字段，最后一个字段包含剩余全部文本 */
+        String[] fields(int count) {
+            int space = rest.indexOf(' ');
+            String text = space < 0 ? "" : rest.substring(space + 1);
+            String[] fields = splitFields(text, count);
+            if (fields == null) {
+                throw error("'" + keyword + "' expects " + count + " fields separated by '|'");
+            }
+            return fields;
+        }
+        
+        String text() {
+            return unescape(rest);
+        }
+    }
+    
+    /**
+     * 基于缩进的递归下降读取器
+     */
+    private static final class SpecReader {
+        private final List<SpecLine> lines;
+        private int pos;
+        
+        SpecReader(List<SpecLine> lines) {
+            this.lines = lines;
+        }
+        
+        List<UseCase> readUseCases() {
+            List<UseCase> useCases = new ArrayList<>();
+            while (pos < lines.size()) {
+                SpecLine line = lines.get(pos++);
+                if (line.indent != 0 || !line.keyword.equals("usecase") || line.rest.isEmpty()) {
+                    throw line.error("expected 'usecase <name>' at column 0");
+                }
+                useCases.add(readUseCase(line));
+            }
+            return useCases;
+        }
+        
+        private UseCase readUseCase(SpecLine header) {
+            UseCase useCase = new UseCase(header.text());
+            int indent = childIndent(header);
+            while (hasChild(header)) {
+                SpecLine line = nextChild(indent);
+                switch (line.keyword) {
+                    case "description":
+                        useCase.setDescription(line.text());
+                        break;
+                    case "pre":
+                        useCase.getPreconditions().add(line.text());
+                        break;
+                    case "post":
+                        useCase.getPostconditions().add(line.text());
+                        break;
+                    case "main":
+                        readSentences(line, useCase.getMainFlow());
+                        break;
+                    case "alt": {
+                        AlternativeFlow flow = new AlternativeFlow(line.id(), line.fields(1)[0]);
+                        readSentences(line, flow.getSentences());
+                        useCase.getAlternativeFlows().add(flow);
+                        break;
+                    }
+                    case "on": {
+                        GlobalAlternativeFlow flow = new GlobalAlternativeFlow(line.text());
+                        readSentences(line, flow.getSentences());
+                        useCase.getGlobalAlternativeFlows().add(flow);
+                        break;
+                    }
+                    default:
+                        throw line.error("unknown use case section '" + line.keyword + "'");
+                }
+            }
+            return useCase;
+        }
+        
+        private void readSentences(SpecLine parent, List<Sentence> into) {
+            int indent = childIndent(parent);
+            while (hasChild(parent)) {
+                into.add(readSentence(nextChild(indent)));
+            }
+        }
+        
+        private Sentence readSentence(SpecLine line) {
+            String id = line.id();
+            switch (line.keyword) {
+                case "simple": {
+                    String[] f = line.fields(5);
+                    TransactionType transactionType = null;
+                    if (!f[0].isEmpty()) {
+                        try {
+                            transactionType = TransactionType.valueOf(f[0]);
+                        } catch (IllegalArgumentException e) {
+                            throw line.error("unknown transaction type '" + f[0] + "'");
+                        }
+                    }
+                    return new SimpleSentence(id, f[4], f[1], f[2], f[3], transactionType);
+                }
+                case "check": {
+                    String[] f = line.fields(2);
+                    ConditionCheckSentence sentence = new ConditionCheckSentence(id, f[1], f[0]);
+                    readSentences(line, sentence.getAlternativeFlow());
+                    return sentence;
+                }
+                case "if": {
+                    String[] f = line.fields(2);
+                    ConditionalSentence sentence = new ConditionalSentence(id, f[1], f[0]);
+                    readBranches(line, sentence);
+                    return sentence;
+                }
+                case "parallel": {
+                    ParallelSentence sentence = new ParallelSentence(id, line.fields(1)[0]);
+                    int indent = childIndent(line);
+                    while (hasChild(line)) {
+                        SpecLine branch = nextChild(indent);
+                        if (!branch.keyword.equals("branch")) {
+                            throw branch.error("expected 'branch' inside 'parallel'");
+                        }
+                        List<Sentence> sentences = new ArrayList<>();
+                        readSentences(branch, sentences);
+                        sentence.getParallelBranches().add(sentences);
+                    }
+                    return sentence;
+                }
+                case "loop": {
+                    String[] f = line.fields(2);
+                    IterativeSentence sentence = new IterativeSentence(id, f[1], f[0]);
+                    readSentences(line, sentence.getBody());
+                    return sentence;
+                }
+                case "include": {
+                    String[] f = line.fields(2);
+                    return new IncludeSentence(id, f[1], f[0]);
+                }
+                case "extend": {
+                    String[] f = line.fields(2);
+                    return new ExtendSentence(id, f[1], f[0]);
+                }
+                case "abort":
+                    return new AbortSentence(id, line.fields(1)[0]);
+                case "resume": {
+                    String[] f = line.fields(2);
+                    return new ResumeStepSentence(id, f[1], f[0]);
+                }
+                default:
+                    throw line.error("unknown sentence type '" + line.keyword + "'");
+            }
+        }
+        
+        private void readBranches(SpecLine parent, ConditionalSentence sentence) {
+            int indent = childIndent(parent);
+            while (hasChild(parent)) {
+                SpecLine branch = nextChild(indent);
+                switch (branch.keyword) {
+                    case "then":
+                        readSentences(branch, sentence.getThenBranch());
+                        break;
+                    case "elseif": {
+                        ConditionalSentence.ConditionalBranch elseIf = new ConditionalSentence.ConditionalBranch(branch.text());
+                        readSentences(branch, elseIf.getSentences());
+                        sentence.getElseIfBranches().add(elseIf);
+                        break;
+                    }
+                    case "else":
+                        readSentences(branch, sentence.getElseBranch());
+                        break;
+                    default:
+                        throw branch.error("expected 'then', 'elseif' or 'else' inside 'if'");
+                }
+            }
+        }
+        
+        private boolean hasChild(SpecLine parent) {
+            return pos < lines.size() && lines.get(pos).indent > parent.indent;
+        }
+        
+        private int childIndent(SpecLine parent) {
+            return hasChild(parent) ? lines.get(pos).indent : -1;
+        }
+        
+        private SpecLine nextChild(int indent) {
+            SpecLine line = lines.get(pos++);
+            if (line.indent != indent) {
+                throw line.error("inconsistent indentation");
+            }
+            return line;
+        }
+    }
+    
+    /**
+     * 按未转义的|切分为恰好count个字段，字段少于count时返回null
+     */
+    static String[] splitFields(String text, int count) {
+        String[] fields = new String[count];
+        StringBuilder current = new StringBuilder();
+        int index = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                current.append(c).append(text.charAt(++i));
+            } else if (c == '|' && index < count - 1) {
+                fields[index++] = unescape(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (index != count - 1) {
+            return null;
+        }
+        fields[index] = unescape(current.toString().trim());
+        return fields;
+    }
+    
+    static String unescape(String text) {
+        if (text.indexOf('\\') < 0) {
+            return text;
+        }
+        StringBuilder result = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                char next = text.charAt(++i);
+                result.append(next == 'n' ? '\n' : next);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
 }
@@ -0,0 +1,189 @@
+package project.ucmeta;
+
+import project.ucmeta.UCMetaModel.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * 将用例写为规范化的.ucm文本（格式见UCMetaParser）
+ * 同一用例总是得到相同的文本，因此也可用于计算用例的内容哈希。
+ */
+public final class UCMetaWriter {
+
+    private static final String INDENT = "  ";
+
+    private UCMetaWriter() {
+    }
+
+    public static String toText(UseCase useCase) {
+        StringBuilder text = new StringBuilder(256);
+        write(useCase, text);
+        return text.toString();
+    }
+
+    public static String toText(List<UseCase> useCases) {
+        StringBuilder text = new StringBuilder(1024);
+        for (UseCase useCase : useCases) {
+            write(useCase, text);
+        }
+        return text.toString();
+    }
+
+    /**
+     * 用例规范化文本的SHA-256（十六进制），用例内容不变时哈希不变
+     */
+    public static String contentHash(UseCase useCase) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(toText(useCase).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void write(UseCase useCase, Appendable out) {
+        try {
+            line(out, 0, "usecase", escape(useCase.getName()));
+            if (useCase.getDescription() != null) {
+                line(out, 1, "description", escape(useCase.getDescription()));
+            }
+            for (String precondition : useCase.getPreconditions()) {
+                line(out, 1, "pre", escape(precondition));
+            }
+            for (String postcondition : useCase.getPostconditions()) {
+                line(out, 1, "post", escape(postcondition));
+            }
+            line(out, 1, "main", null);
+            writeSentences(out, 2, useCase.getMainFlow());
+            for (AlternativeFlow flow : useCase.getAlternativeFlows()) {
+                line(out, 1, "alt", flow.getId() + " " + escape(flow.getCondition()));
+                writeSentences(out, 2, flow.getSentences());
+            }
+            for (GlobalAlternativeFlow flow : useCase.getGlobalAlternativeFlows()) {
+                line(out, 1, "on", escape(flow.getTriggerEvent()));
+                writeSentences(out, 2, flow.getSentences());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeSentences(Appendable out, int depth, List<Sentence> sentences) throws IOException {
+        for (Sentence sentence : sentences) {
+            writeSentence(out, depth, sentence);
+        }
+    }
+
+    private static void writeSentence(Appendable out, int depth, Sentence sentence) throws IOException {
+        String id = sentence.getId();
+        String content = escape(sentence.getContent());
+        switch (sentence.getType()) {
+            case SIMPLE: {
+                SimpleSentence simple = (SimpleSentence) sentence;
+                String transaction = simple.getTransactionType() == null ? "" : simple.getTransactionType().name();
+                line(out, depth, "simple", id + " " + fields(transaction, escape(simple.getActor()),
+                        escape(simple.getAction()), escape(simple.getObject()), content));
+                break;
+            }
+            case CONDITION_CHECK: {
+                ConditionCheckSentence check = (ConditionCheckSentence) sentence;
+                line(out, depth, "check", id + " " + fields(escape(check.getCondition()), content));
+                writeSentences(out, depth + 1, check.getAlternativeFlow());
+                break;
+            }
+            case CONDITIONAL: {
+                ConditionalSentence conditional = (ConditionalSentence) sentence;
+                line(out, depth, "if", id + " " + fields(escape(conditional.getCondition()), content));
+                line(out, depth + 1, "then", null);
+                writeSentences(out, depth + 2, conditional.getThenBranch());
+                for (ConditionalSentence.ConditionalBranch branch : conditional.getElseIfBranches()) {
+                    line(out, depth + 1, "elseif", escape(branch.getCondition()));
+                    writeSentences(out, depth + 2, branch.getSentences());
+                }
+                if (!conditional.getElseBranch().isEmpty()) {
+                    line(out, depth + 1, "else", null);
+                    writeSentences(out, depth + 2, conditional.getElseBranch());
+                }
+                break;
+            }
+            case PARALLEL: {
+                ParallelSentence parallel = (ParallelSentence) sentence;
+                line(out, depth, "parallel", id + " " + content);
+                for (List<Sentence> branch : parallel.getParallelBranches()) {
+                    line(out, depth + 1, "branch", null);
+                    writeSentences(out, depth + 2, branch);
+                }
+                break;
+            }
+            case ITERATIVE: {
+                IterativeSentence iterative = (IterativeSentence) sentence;
+                line(out, depth, "loop", id + " " + fields(escape(iterative.getCondition()), content));
+                writeSentences(out, depth + 1, iterative.getBody());
+                break;
+            }
+            case INCLUDE:
+                line(out, depth, "include",
+                        id + " " + fields(escape(((IncludeSentence) sentence).getIncludedUseCase()), content));
+                break;
+            case EXTEND:
+                line(out, depth, "extend",
+                        id + " " + fields(escape(((ExtendSentence) sentence).getExtendingUseCase()), content));
+                break;
+            case ABORT:
+                line(out, depth, "abort", id + " " + content);
+                break;
+            case RESUME_STEP:
+                line(out, depth, "resume",
+                        id + " " + fields(escape(((ResumeStepSentence) sentence).getTargetStepId()), content));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown sentence type: " + sentence.getType());
+        }
+    }
+
+    private static void line(Appendable out, int depth, String keyword, String rest) throws IOException {
+        for (int i = 0; i < depth; i++) {
+            out.append(INDENT);
+        }
+        out.append(keyword);
+        if (rest != null && !rest.isEmpty()) {
+            out.append(' ').append(rest);
+        }
+        out.append('\n');
+    }
+
+    private static String fields(String... values) {
+        return String.join(" | ", values);
+    }
+
+    /**
+     * 转义\、|和换行；null写为空串
+     */
+    static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder result = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = c == '\\' ? "\\\\" : c == '|' ? "\\|" : c == '\n' ? "\\n" : c == '\r' ? "" : null;
+            if (replacement != null && result == null) {
+                result = new StringBuilder(value.length() + 8).append(value, 0, i);
+            }
+            if (result != null) {
+                result.append(replacement != null ? replacement : String.valueOf(c));
+            }
+        }
+        return result == null ? value : result.toString();
+    }
+}
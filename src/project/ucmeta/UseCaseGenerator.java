@@ -0,0 +1,338 @@
+package project.ucmeta;
+
+import project.ucmeta.UCMetaModel.*;
+
+import java.util.*;
+
+/**
+ * 确定性的合成用例生成器 - 用于负载测试、扩展性测试和基准测试
+ * 同一种子和配置总是生成相同的用例；语料中第i个用例只由种子和i决定，可以单独重新生成。
+ * 语料和句子流都是惰性迭代器，生成任意规模的输入时只有当前元素存活。
+ */
+public class UseCaseGenerator {
+
+    private final long seed;
+    private int sentenceCount = 50;
+    private int maxDepth = 3;
+    private int branchFactor = 2;
+    private int corpusSize = 1000;
+    private int objectVocabulary = 64;
+    private double globalFlowRate = 0.2;
+    private String namePrefix = "UC";
+    private final EnumMap<SentenceType, Integer> weights = new EnumMap<>(SentenceType.class);
+
+    public UseCaseGenerator(long seed) {
+        this.seed = seed;
+        weights.put(SentenceType.SIMPLE, 50);
+        weights.put(SentenceType.CONDITION_CHECK, 8);
+        weights.put(SentenceType.CONDITIONAL, 8);
+        weights.put(SentenceType.PARALLEL, 5);
+        weights.put(SentenceType.ITERATIVE, 5);
+        weights.put(SentenceType.INCLUDE, 4);
+        weights.put(SentenceType.EXTEND, 4);
+        weights.put(SentenceType.ABORT, 3);
+        weights.put(SentenceType.RESUME_STEP, 3);
+    }
+
+    /** 每个用例的句子总数（含嵌套句子） */
+    public UseCaseGenerator setSentenceCount(int sentenceCount) {
+        this.sentenceCount = sentenceCount;
+        return this;
+    }
+
+    /** 复合句的最大嵌套深度，0表示主流程只有非复合句 */
+    public UseCaseGenerator setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /** 并行句的分支数，条件句的分支数（then、elseif…、else） */
+    public UseCaseGenerator setBranchFactor(int branchFactor) {
+        this.branchFactor = Math.max(1, branchFactor);
+        return this;
+    }
+
+    /** 语料规模，包含句和扩展句引用的用例名在此范围内选取 */
+    public UseCaseGenerator setCorpusSize(int corpusSize) {
+        this.corpusSize = Math.max(1, corpusSize);
+        return this;
+    }
+
+    /** 简单句中数据对象名的取值个数 */
+    public UseCaseGenerator setObjectVocabulary(int objectVocabulary) {
+        this.objectVocabulary = Math.max(1, objectVocabulary);
+        return this;
+    }
+
+    /** 用例带有全局备选流的概率 */
+    public UseCaseGenerator setGlobalFlowRate(double globalFlowRate) {
+        this.globalFlowRate = globalFlowRate;
+        return this;
+    }
+
+    public UseCaseGenerator setNamePrefix(String namePrefix) {
+        this.namePrefix = namePrefix;
+        return this;
+    }
+
+    /**
+     * 设置句型权重；中止句和恢复步骤句只出现在分支末尾
+     */
+    public UseCaseGenerator setWeight(SentenceType type, int weight) {
+        weights.put(type, Math.max(0, weight));
+        return this;
+    }
+
+    public String useCaseName(long index) {
+        return namePrefix + index;
+    }
+
+    /**
+     * 生成语料中第index个用例
+     */
+    public UseCase generate(long index) {
+        Run run = new Run(index);
+        UseCase useCase = new UseCase(useCaseName(index));
+        useCase.setDescription("合成用例 #" + index);
+        useCase.getPreconditions().add("前置条件 " + run.random.nextInt(8));
+        useCase.getPostconditions().add("后置条件 " + run.random.nextInt(8));
+
+        run.fill(useCase.getMainFlow(), sentenceCount, 0, false);
+
+        if (run.random.nextDouble() < globalFlowRate) {
+            GlobalAlternativeFlow flow = new GlobalAlternativeFlow("事件 " + run.random.nextInt(16));
+            run.fill(flow.getSentences(), Math.max(1, sentenceCount / 20), maxDepth, true);
+            useCase.getGlobalAlternativeFlows().add(flow);
+        }
+        return useCase;
+    }
+
+    /**
+     * 惰性生成count个用例的语料
+     */
+    public Iterator<UseCase> corpus(long count) {
+        return new Iterator<UseCase>() {
+            private long next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public UseCase next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return generate(next++);
+            }
+        };
+    }
+
+    /**
+     * 惰性生成一条主流程句子流，累计生成约count个句子（含嵌套）后结束
+     * 每次next()只构造一个顶层句子及其子树，适合流式地产生数百万个句子
+     */
+    public Iterator<Sentence> sentenceStream(long streamIndex, long count) {
+        Run run = new Run(streamIndex);
+        int chunk = Math.max(1, Math.min(sentenceCount, 64));
+        return new Iterator<Sentence>() {
+            private final List<Sentence> buffer = new ArrayList<>(1);
+
+            @Override
+            public boolean hasNext() {
+                return run.generated < count;
+            }
+
+            @Override
+            public Sentence next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                buffer.clear();
+                run.addOne(buffer, (int) Math.min(chunk, count - run.generated), 0);
+                // 只需保留可被恢复步骤句引用的最近若干个简单句
+                run.trimResumeTargets(256);
+                return buffer.get(0);
+            }
+        };
+    }
+
+    /**
+     * 一次生成过程的状态
+     */
+    private final class Run {
+        private final SplittableRandom random;
+        private final String idPrefix;
+        private final List<String> simpleIds = new ArrayList<>(); // 已生成的简单句ID，供恢复步骤句引用
+        private long generated;
+        private final int totalWeight;
+        private final int compoundWeight;
+
+        Run(long index) {
+            this.random = new SplittableRandom(mix(seed, index));
+            this.idPrefix = namePrefix.toLowerCase() + index + "_s";
+            int total = 0;
+            int compound = 0;
+            for (SentenceType type : SentenceType.values()) {
+                if (type == SentenceType.ABORT || type == SentenceType.RESUME_STEP) {
+                    continue;
+                }
+                total += weights.get(type);
+                if (isCompound(type)) {
+                    compound += weights.get(type);
+                }
+            }
+            this.totalWeight = total;
+            this.compoundWeight = compound;
+        }
+
+        /**
+         * 向list中添加总计约budget个句子；branch为true时可在末尾追加中止句或恢复步骤句
+         */
+        void fill(List<Sentence> list, int budget, int depth, boolean branch) {
+            int used = 0;
+            while (used < budget) {
+                used += addOne(list, budget - used, depth);
+            }
+            if (branch) {
+                int abort = weights.get(SentenceType.ABORT);
+                int resume = simpleIds.isEmpty() ? 0 : weights.get(SentenceType.RESUME_STEP);
+                int roll = random.nextInt(totalWeight + abort + resume);
+                if (roll < abort) {
+                    list.add(new AbortSentence(nextId(), "中止"));
+                } else if (roll < abort + resume) {
+                    String target = simpleIds.get(random.nextInt(simpleIds.size()));
+                    list.add(new ResumeStepSentence(nextId(), "恢复到 " + target, target));
+                }
+            }
+        }
+
+        /**
+         * 添加一个句子（及其子树），返回消耗的句子数
+         */
+        int addOne(List<Sentence> list, int budget, int depth) {
+            SentenceType type = pickType(depth < maxDepth && budget > 1);
+            String id = nextId();
+            int childBudget = budget - 1;
+            switch (type) {
+                case CONDITION_CHECK: {
+                    ConditionCheckSentence sentence = new ConditionCheckSentence(id, "检查 " + id, "条件 " + id);
+                    list.add(sentence);
+                    int used = childBudget(childBudget);
+                    fill(sentence.getAlternativeFlow(), used, depth + 1, true);
+                    return 1 + used;
+                }
+                case CONDITIONAL: {
+                    ConditionalSentence sentence = new ConditionalSentence(id, "如果 " + id, "条件 " + id);
+                    list.add(sentence);
+                    int used = childBudget(childBudget);
+                    int[] shares = split(used, branchFactor);
+                    fill(sentence.getThenBranch(), shares[0], depth + 1, true);
+                    for (int i = 1; i < shares.length - 1; i++) {
+                        ConditionalSentence.ConditionalBranch branch =
+                                new ConditionalSentence.ConditionalBranch("条件 " + id + "." + i);
+                        fill(branch.getSentences(), shares[i], depth + 1, true);
+                        sentence.getElseIfBranches().add(branch);
+                    }
+                    if (shares.length > 1) {
+                        fill(sentence.getElseBranch(), shares[shares.length - 1], depth + 1, true);
+                    }
+                    return 1 + used;
+                }
+                case PARALLEL: {
+                    ParallelSentence sentence = new ParallelSentence(id, "并行 " + id);
+                    list.add(sentence);
+                    int used = childBudget(childBudget);
+                    for (int share : split(used, Math.max(2, branchFactor))) {
+                        List<Sentence> branch = new ArrayList<>();
+                        fill(branch, share, depth + 1, false);
+                        sentence.getParallelBranches().add(branch);
+                    }
+                    return 1 + used;
+                }
+                case ITERATIVE: {
+                    IterativeSentence sentence = new IterativeSentence(id, "重复 " + id, "继续 " + id);
+                    list.add(sentence);
+                    int used = Math.max(1, childBudget(childBudget));
+                    fill(sentence.getBody(), used, depth + 1, false);
+                    return 1 + used;
+                }
+                case INCLUDE:
+                    list.add(new IncludeSentence(id, "包含 " + id, useCaseName(random.nextInt(corpusSize))));
+                    return 1;
+                case EXTEND:
+                    list.add(new ExtendSentence(id, "扩展 " + id, useCaseName(random.nextInt(corpusSize))));
+                    return 1;
+                default: {
+                    TransactionType[] transactions = TransactionType.values();
+                    String object = "对象" + random.nextInt(objectVocabulary);
+                    list.add(new SimpleSentence(id, "处理 " + object, random.nextBoolean() ? "系统" : "用户",
+                            "处理", object, transactions[random.nextInt(transactions.length)]));
+                    simpleIds.add(id);
+                    return 1;
+                }
+            }
+        }
+
+        private SentenceType pickType(boolean allowCompound) {
+            int bound = allowCompound ? totalWeight : totalWeight - compoundWeight;
+            if (bound <= 0) {
+                return SentenceType.SIMPLE;
+            }
+            int roll = random.nextInt(bound);
+            for (SentenceType type : SentenceType.values()) {
+                if (type == SentenceType.ABORT || type == SentenceType.RESUME_STEP
+                        || (!allowCompound && isCompound(type))) {
+                    continue;
+                }
+                roll -= weights.get(type);
+                if (roll < 0) {
+                    return type;
+                }
+            }
+            return SentenceType.SIMPLE;
+        }
+
+        /**
+         * 复合句的子句数：在剩余预算内随机取，平均约为剩余的1/4，至少1个
+         */
+        private int childBudget(int remaining) {
+            if (remaining <= 1) {
+                return Math.max(remaining, 0);
+            }
+            return 1 + random.nextInt(Math.max(1, remaining / 2));
+        }
+
+        private int[] split(int total, int parts) {
+            int[] shares = new int[parts];
+            for (int i = 0; i < total; i++) {
+                shares[random.nextInt(parts)]++;
+            }
+            return shares;
+        }
+
+        private String nextId() {
+            generated++;
+            return idPrefix + generated;
+        }
+
+        void trimResumeTargets(int keep) {
+            if (simpleIds.size() > keep * 2) {
+                simpleIds.subList(0, simpleIds.size() - keep).clear();
+            }
+        }
+    }
+
+    private static boolean isCompound(SentenceType type) {
+        return type == SentenceType.CONDITION_CHECK || type == SentenceType.CONDITIONAL
+                || type == SentenceType.PARALLEL || type == SentenceType.ITERATIVE;
+    }
+
+    private static long mix(long seed, long index) {
+        long h = seed + index * 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+}